@@ -1,16 +1,19 @@
-import java.io.File;
 import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
-import org.apache.commons.io.FileUtils;
-
-import fr.inrialpes.exmo.align.impl.URIAlignment;
 import io.javalin.Javalin;
 import io.javalin.core.util.FileUtil;
+import io.javalin.http.Context;
 import services.HashGenerator;
 import services.Manager;
-import services.utils.ExceptionHandler;
-
-import algorithms.utilities.AlignmentOperations;
+import services.enums.ErrorCodes;
+import services.enums.JobStage;
+import services.jobs.AdmissionRejectedException;
+import services.jobs.Job;
+import services.jobs.JobManager;
+import services.metrics.Metrics;
+import services.settings.AlgorithmSettings;
+import services.utils.AlignmentJsonWriter;
 
 public class App {
 
@@ -18,12 +21,31 @@ public class App {
     int PORT = 7000;
     Locale.setDefault(Locale.ENGLISH);
 
-    Manager manager = new Manager(); 
+    Manager manager = new Manager();
+    JobManager jobManager = new JobManager(manager, AlgorithmSettings.JOBWORKERS, AlgorithmSettings.JOBQUEUECAPACITY,
+        AlgorithmSettings.JOBRETENTIONMINUTES * 60 * 1000L);
+    if (Metrics.ENABLED) {
+      Metrics.gauge("semanticmatcher_admission_backlog_seconds", "Estimated seconds of admitted alignment work per worker",
+          () -> jobManager.getAdmission().getBacklogSeconds());
+      Metrics.gauge("semanticmatcher_admission_heap_bytes", "Estimated heap of the running alignment requests",
+          () -> jobManager.getAdmission().getRunningHeapBytes());
+    }
+
+    // Load the shared resources in the background, requests are refused until they are ready.
+    new Thread(() -> {
+      try {
+        manager.initialize();
+        System.out.println("Embedding model loaded");
+      } catch (Exception e) {
+        System.out.println("Couldn't load the embedding model, equivalence matching will fail");
+        e.printStackTrace();
+      }
+    }, "resource-loader").start();
 
     Javalin app = Javalin.create(config -> {
       config.enableCorsForAllOrigins();
     }).start(PORT);
-    
+
     /**
      * Demo endpoint for use in frontend testing.
      */
@@ -32,54 +54,133 @@ public class App {
       ctx.result("<h1>Welcome to our API! Please POST here to make things work.</h1>");
     });
 
+    /**
+     * Aligns the uploaded files and returns the alignment when it is done.
+     * The alignment runs on the job workers like the ones posted to /jobs, so it shares their concurrency limit.
+     */
     app.post("/", ctx -> {
-      // Saving the files as strings for now. Might need some exception handling.
-
-      String baseSaveLocation = "temp/upload/" + HashGenerator.generateHash();
-      String sourceFileLocation = baseSaveLocation + "/source" + ctx.uploadedFile("source").getExtension();
-      String targetFileLocation = baseSaveLocation + "/target" + ctx.uploadedFile("target").getExtension();
-
-      // For booleans in formData, they are there if they are true, and not there if false.
-      // This means true values are not null, and false values are null.
-      boolean useEquivalence = ctx.formParam("equivalence") != null;
-      boolean useSubsumption = ctx.formParam("subsumption") != null;
+      Job job = submit(ctx, manager, jobManager);
+      if (job == null) {
+        return;
+      }
 
+      job.awaitFinished();
+      if (job.getStage() == JobStage.DONE) {
+        writeResult(ctx, job.getResult());
+      } else {
+        ctx.status(500);
+        ctx.result(job.getErrorMessage());
+      }
+    });
 
-      FileUtil.streamToFile(ctx.uploadedFile("source").getContent(), sourceFileLocation);
-      FileUtil.streamToFile(ctx.uploadedFile("target").getContent(), targetFileLocation);
+    /**
+     * Queues an alignment of the uploaded files and returns the job id at once.
+     * The progress is polled at /jobs/{id} and the alignment is fetched from /jobs/{id}/result.
+     */
+    app.post("/jobs", ctx -> {
+      Job job = submit(ctx, manager, jobManager);
+      if (job == null) {
+        return;
+      }
 
-      String json = null;
+      ctx.status(202);
+      ctx.header("Location", "/jobs/" + job.getId());
+      ctx.result(job.toJSON());
+    });
 
-      try {
-        URIAlignment result = manager.handle(sourceFileLocation, targetFileLocation, useEquivalence, useSubsumption, baseSaveLocation);
-        json = AlignmentOperations.convertToJSON(result);
-      } catch (Throwable e) {
-        ctx.status(500);
-        if(e instanceof Exception) {
-          json = ExceptionHandler.getErrorMessage((Exception) e);
-        } else {
-          json = "CRITICAL SERVER ERROR. POSSIBLE MEMORY ISSUE.";
-        }
-        System.out.println(json);
-        e.printStackTrace();
+    app.get("/jobs/:id", ctx -> {
+      Job job = jobManager.getJob(ctx.pathParam("id"));
+      if (job == null) {
+        ctx.status(404);
+        ctx.result(ErrorCodes.JOB_NOT_FOUND.getErrorMessage());
+        return;
       }
+      ctx.result(job.toJSON());
+    });
 
-      try {
-        // Clean up temporary files.
-        File tempDirectory = new File(baseSaveLocation);
-        if(tempDirectory.isDirectory()) {
-          FileUtils.deleteDirectory(tempDirectory);
-        }
-
-      } catch (Exception e){
-        System.out.println("Couldn't delete files..?");
-        e.printStackTrace();
+    app.get("/jobs/:id/result", ctx -> {
+      Job job = jobManager.getJob(ctx.pathParam("id"));
+      if (job == null) {
+        ctx.status(404);
+        ctx.result(ErrorCodes.JOB_NOT_FOUND.getErrorMessage());
+      } else if (job.getStage() == JobStage.DONE) {
+        writeResult(ctx, job.getResult());
+      } else if (job.getStage() == JobStage.FAILED) {
+        ctx.status(500);
+        ctx.result(job.getErrorMessage());
+      } else {
+        // Not done yet, the status tells how far it has come.
+        ctx.status(202);
+        ctx.header("Retry-After", "5");
+        ctx.result(job.toJSON());
       }
+    });
 
-      ctx.result(json);
-
+    /**
+     * The stage and matcher timings, matcher cell counts, ontology sizes and cache hit ratios in the Prometheus text format.
+     */
+    app.get("/metrics", ctx -> {
+      ctx.contentType("text/plain; version=0.0.4; charset=utf-8");
+      ctx.result(Metrics.toPrometheus());
     });
 
     System.out.println("Listening on port: " + PORT);
   }
+
+  /*
+   * Saves the uploaded files and queues their alignment. Returns null (with the error response set) if the
+   * server is not ready or too many alignments are waiting.
+   */
+  private static Job submit(Context ctx, Manager manager, JobManager jobManager) throws Exception {
+    if (!manager.isReady()) {
+      ctx.status(503);
+      ctx.header("Retry-After", "10");
+      ctx.result(ErrorCodes.SERVER_NOT_READY.getErrorMessage());
+      return null;
+    }
+
+    // Saving the files as strings for now. Might need some exception handling.
+
+    String baseSaveLocation = "temp/upload/" + HashGenerator.generateHash();
+    String sourceFileLocation = baseSaveLocation + "/source" + ctx.uploadedFile("source").getExtension();
+    String targetFileLocation = baseSaveLocation + "/target" + ctx.uploadedFile("target").getExtension();
+
+    // For booleans in formData, they are there if they are true, and not there if false.
+    // This means true values are not null, and false values are null.
+    boolean useEquivalence = ctx.formParam("equivalence") != null;
+    boolean useSubsumption = ctx.formParam("subsumption") != null;
+
+
+    FileUtil.streamToFile(ctx.uploadedFile("source").getContent(), sourceFileLocation);
+    FileUtil.streamToFile(ctx.uploadedFile("target").getContent(), targetFileLocation);
+
+    // The temporary files are deleted by the job when it is finished (or at once if it is refused).
+    try {
+      return jobManager.submit(sourceFileLocation, targetFileLocation, useEquivalence, useSubsumption, baseSaveLocation);
+    } catch (RejectedExecutionException e) {
+      // refused by the admission control (too much estimated work) or because the queue is full
+      long retryAfter = e instanceof AdmissionRejectedException ? ((AdmissionRejectedException) e).getRetryAfterSeconds() : 30;
+      System.out.println("Upload refused: " + e.getMessage());
+      ctx.status(503);
+      ctx.header("Retry-After", String.valueOf(retryAfter));
+      ctx.result(ErrorCodes.SERVER_BUSY.getErrorMessage());
+      return null;
+    }
+  }
+
+  /*
+   * The result is kept gzip compressed, so it is sent as it is to clients accepting gzip and decompressed for the others.
+   */
+  private static void writeResult(Context ctx, byte[] result) throws Exception {
+    String acceptEncoding = ctx.header("Accept-Encoding");
+    boolean gzip = AlgorithmSettings.GZIPRESPONSE && acceptEncoding != null && acceptEncoding.contains("gzip");
+    if (gzip) {
+      ctx.header("Content-Encoding", "gzip");
+    }
+    long start = Metrics.ENABLED ? System.nanoTime() : 0;
+    AlignmentJsonWriter.writeGzip(result, ctx.res.getOutputStream(), gzip);
+    if (Metrics.ENABLED) {
+      Metrics.STAGE_SECONDS.observeNanos("json", System.nanoTime() - start);
+    }
+  }
 }
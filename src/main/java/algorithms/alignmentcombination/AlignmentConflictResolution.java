@@ -7,11 +7,12 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentVisitor;
@@ -68,67 +69,66 @@ public class AlignmentConflictResolution {
 	}
 
 
+	/**
+	 * Resolves conflicts between cells relating the same object1 and object2: the cells are visited in descending order of confidence,
+	 * and the first cell of each pair of objects is compared with the other cells of that pair. If an alternative has the same confidence,
+	 * the cell with the highest profile score (the last "_" segment of the cell id) is extracted.
+	 * The cells are grouped by their pair of objects up front, so apart from sorting the alignment this is a single pass over the cells
+	 * (it used to scan the remaining cells for alternatives at every step).
+	 * @param alignment the alignment in which conflicts are resolved
+	 * @return an URIAlignment holding the extracted relations
+	 * @throws AlignmentException
+	 */
 	public static URIAlignment resolveAlignmentConflict (URIAlignment alignment) throws AlignmentException {
 
 		URIAlignment extractedAlignment = new URIAlignment();
 
 		List<Cell> cellsList = AlignmentOperations.sortAlignment(alignment);
 
-		List<Cell> extractionList = new LinkedList<Cell>();
-
-		Iterator<Cell> itr = cellsList.iterator();
-
-		Set<Cell> removed = new HashSet<Cell>();
-
-		while (itr.hasNext()) {
-
-			Cell thisCell = itr.next();
-
-			//System.out.println("\nthisCell is " + thisCell.getId());
-
-			if (!removed.contains(thisCell)) {
+		List<Cell> extractionList = new ArrayList<Cell>();
 
-				List<Cell> alternatives = getSameObjectsAlternatives(cellsList, thisCell);
+		//the cells of each pair of objects in descending order of confidence, the pairs in the order their first cell is visited
+		Map<List<Object>, List<Cell>> cellsByObjects = new LinkedHashMap<List<Object>, List<Cell>>();
 
-				for (Cell alt : alternatives) {
-
-					if (alt.getStrength() == thisCell.getStrength()) {
+		for (Cell c : cellsList) {
+			List<Object> objects = Arrays.asList(c.getObject1(), c.getObject2());
+			List<Cell> sameObjects = cellsByObjects.get(objects);
+			if (sameObjects == null) {
+				sameObjects = new ArrayList<Cell>();
+				cellsByObjects.put(objects, sameObjects);
+			}
+			sameObjects.add(c);
+		}
 
-						//System.out.println("...." + thisCell.getId() + " and " + alt.getId() + " contain the same objects and the same confidence");
+		for (List<Cell> sameObjects : cellsByObjects.values()) {
 
-						//check the profile scores and add the cell with the highest profile score to the extractionList
-						//ideally the Alignment Format could be extended to allow for a separate tag for this...
-						double object1ProfileScore = Double.parseDouble(getProfileScore(thisCell.getId()));
-						double object2ProfileScore = Double.parseDouble(getProfileScore(alt.getId()));
+			//the other cells of the pair are alternatives to the first one and are removed once it is visited
+			Cell thisCell = sameObjects.get(0);
+			boolean removed = false;
 
-						if (object1ProfileScore > object2ProfileScore) {
-							//System.out.println("......Adding " + thisCell.getId() + " to extractionList");
-							extractionList.add(thisCell);
-							removed.add(alt);
-						} else {
-							//System.out.println("......Adding " + alt.getId() + " to extractionList");
-							extractionList.add(alt);
-							removed.add(thisCell);
+			for (Cell alt : sameObjects.subList(1, sameObjects.size())) {
 
-						}
+				if (alt.getStrength() == thisCell.getStrength()) {
 
-					}
+					//check the profile scores and add the cell with the highest profile score to the extractionList
+					//ideally the Alignment Format could be extended to allow for a separate tag for this...
+					double object1ProfileScore = Double.parseDouble(getProfileScore(thisCell.getId()));
+					double object2ProfileScore = Double.parseDouble(getProfileScore(alt.getId()));
 
-					if (!removed.contains(alt)) {
-						removed.add(alt);
+					if (object1ProfileScore > object2ProfileScore) {
+						extractionList.add(thisCell);
+					} else {
+						extractionList.add(alt);
+						removed = true;
 					}
 
 				}
 
-				if (!removed.contains(thisCell)) {
-					extractionList.add(thisCell);
-					//System.out.println("Adding " + thisCell.getId() + " to extractionList");
-				}
-				//removed.add(thisCell);
-
 			}
 
-			itr.remove();
+			if (!removed) {
+				extractionList.add(thisCell);
+			}
 
 		}
 
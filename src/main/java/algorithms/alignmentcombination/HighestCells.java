@@ -0,0 +1,126 @@
+package algorithms.alignmentcombination;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.semanticweb.owl.align.AlignmentException;
+import org.semanticweb.owl.align.Cell;
+
+import fr.inrialpes.exmo.align.impl.BasicConfidence;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
+
+/**
+ * Extracts the "highest cells" of an alignment, i.e. the relations that have the highest confidence both among the relations of their source concept (row)
+ * and among the relations of their target concept (column) in a similarity matrix.
+ * The alignment is treated as a sparse matrix: only the relations that are present are visited, and pairs without a relation count as 0 confidence,
+ * so no dense source x target matrix is built.
+ * Rows and columns are identified by the fragments of the concept URIs, as in the similarity matrix used by ProfileWeight and ProfileWeightSubsumption before.
+ * @see ProfileWeight#getHighestCells(URIAlignment)
+ * @see ProfileWeightSubsumption#getHighestCells(URIAlignment)
+ */
+final class HighestCells {
+
+	private HighestCells() {}
+
+	//one relation of the input alignment
+	private static class Entry {
+		final String id;
+		final String concept1;
+		final String concept2;
+		final String fragment1;
+		final String fragment2;
+		final String relationType;
+		final double confidence;
+
+		Entry(Cell c) throws AlignmentException {
+			id = c.getId();
+			concept1 = stripBrackets(c.getObject1().toString());
+			concept2 = stripBrackets(c.getObject2().toString());
+			fragment1 = concept1.substring(concept1.lastIndexOf("#") + 1);
+			fragment2 = concept2.substring(concept2.lastIndexOf("#") + 1);
+			relationType = c.getRelation().getRelation();
+			confidence = c.getStrength();
+		}
+	}
+
+	/**
+	 * Returns the highest cells of an alignment.
+	 * @param inputAlignment the alignment
+	 * @param keepTies if false, a row (column) has a single highest relation, the one with the alphabetically first target (source) fragment among equally high ones;
+	 * if true, all relations with the highest confidence of a row (column) count
+	 * @return the highest cells, ordered by source and then target fragment
+	 * @throws AlignmentException
+	 */
+	static URIAlignment extract(URIAlignment inputAlignment, boolean keepTies) throws AlignmentException {
+
+		URIAlignment highestCellsAlignment = new URIAlignment();
+		highestCellsAlignment.init( inputAlignment.getOntology1URI(), inputAlignment.getOntology2URI(), A5AlgebraRelation.class, BasicConfidence.class );
+
+		//one relation per (source, target) pair: the one with the highest confidence (the first one if tied)
+		Map<String, Entry> pairs = new LinkedHashMap<String, Entry>();
+		for (Cell c : inputAlignment) {
+			Entry e = new Entry(c);
+			String key = e.fragment1 + "\u0000" + e.fragment2;
+			Entry existing = pairs.get(key);
+			if (existing == null || e.confidence > existing.confidence) {
+				pairs.put(key, e);
+			}
+		}
+
+		//the highest relation of each row and column
+		Map<String, Entry> rowMax = new HashMap<String, Entry>();
+		Map<String, Entry> colMax = new HashMap<String, Entry>();
+		for (Entry e : pairs.values()) {
+			Entry row = rowMax.get(e.fragment1);
+			if (row == null || e.confidence > row.confidence || (e.confidence == row.confidence && e.fragment2.compareTo(row.fragment2) < 0)) {
+				rowMax.put(e.fragment1, e);
+			}
+			Entry col = colMax.get(e.fragment2);
+			if (col == null || e.confidence > col.confidence || (e.confidence == col.confidence && e.fragment1.compareTo(col.fragment1) < 0)) {
+				colMax.put(e.fragment2, e);
+			}
+		}
+
+		//relations with zero (or no) confidence are never among the highest cells
+		List<Entry> highest = new ArrayList<Entry>();
+		for (Entry e : pairs.values()) {
+			if (e.confidence <= 0) {
+				continue;
+			}
+			Entry row = rowMax.get(e.fragment1);
+			Entry col = colMax.get(e.fragment2);
+			boolean isHighest = keepTies
+					? e.confidence == row.confidence && e.confidence == col.confidence
+					: e == row && e == col;
+			if (isHighest) {
+				highest.add(e);
+			}
+		}
+
+		Collections.sort(highest, (a, b) -> {
+			int result = a.fragment1.compareTo(b.fragment1);
+			return result != 0 ? result : a.fragment2.compareTo(b.fragment2);
+		});
+
+		for (Entry e : highest) {
+			highestCellsAlignment.addAlignCell(e.id, URI.create(e.concept1), URI.create(e.concept2), e.relationType, e.confidence);
+		}
+
+		return highestCellsAlignment;
+	}
+
+	//the same as replaceAll("[<|>]", ""), without a regular expression for the common case of nothing to replace
+	private static String stripBrackets(String s) {
+		if (s.indexOf('<') < 0 && s.indexOf('>') < 0 && s.indexOf('|') < 0) {
+			return s;
+		}
+		return s.replace("<", "").replace(">", "").replace("|", "");
+	}
+
+}
@@ -2,8 +2,8 @@ package algorithms.alignmentcombination;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -43,34 +43,35 @@ public class NaiveDescendingExtraction {
 	}
 
 
+	/**
+	 * Extracts a one-to-one alignment: the cells are visited in descending order of confidence, and a cell is kept if no cell visited before it
+	 * has the same object1 or the same object2.
+	 * The visited objects are kept in hash sets, so apart from sorting the alignment this is a single pass over the cells
+	 * (it used to scan the remaining cells for alternatives at every step).
+	 * @param alignment the alignment from which one-to-one relations are extracted
+	 * @return an URIAlignment holding the extracted relations
+	 * @throws AlignmentException
+	 */
 	public static URIAlignment extractOneToOneRelations (URIAlignment alignment) throws AlignmentException {
 
 		URIAlignment extractedAlignment = new URIAlignment();
 
 		List<Cell> cellsList = AlignmentOperations.sortAlignment(alignment);
 
-		List<Cell> extractionList = new LinkedList<Cell>();
+		List<Cell> extractionList = new ArrayList<Cell>();
 
-		Iterator<Cell> itr = cellsList.iterator();
-		Set<Cell> removed = new HashSet<Cell>();
+		Set<Object> visitedObject1 = new HashSet<Object>();
+		Set<Object> visitedObject2 = new HashSet<Object>();
 
-		while (itr.hasNext()) {
-			//System.out.println("Running NDE on cell " + counter + " of a total of " + cellsList.size() + " cells");
-			Cell thisCell = itr.next();
+		for (Cell thisCell : cellsList) {
 
-			if (!removed.contains(thisCell)) {
+			//a cell is an alternative to every cell visited before it with the same object1 or object2, whether that cell was extracted or not
+			if (!visitedObject1.contains(thisCell.getObject1()) && !visitedObject2.contains(thisCell.getObject2())) {
 				extractionList.add(thisCell);
-				itr.remove();
-				
 			}
 
-			List<Cell> alternatives = getAlternatives(cellsList, thisCell);
-
-			for (Cell alt: alternatives) {			
-				if (!removed.contains(alt)) {
-					removed.add(alt);
-				}
-			}
+			visitedObject1.add(thisCell.getObject1());
+			visitedObject2.add(thisCell.getObject2());
 
 		}
 
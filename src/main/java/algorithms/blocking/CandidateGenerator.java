@@ -0,0 +1,20 @@
+package algorithms.blocking;
+
+import algorithms.utilities.OntologyFeatureIndex;
+
+/**
+ * A candidate generation (blocking) strategy that selects the class pairs worth scoring before the matchers run,
+ * so that the matchers do not have to score the full cross product of the two ontologies.
+ * @see CandidateGenerators
+ */
+public interface CandidateGenerator {
+
+	/**
+	 * Selects the candidate pairs of two ontologies.
+	 * @param source the feature index of the source ontology
+	 * @param target the feature index of the target ontology
+	 * @return the candidate pairs, keyed by the class ids of the two indexes
+	 */
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target);
+
+}
@@ -0,0 +1,70 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import algorithms.wordembedding.EmbeddingStore;
+
+/**
+ * Creates candidate generators from a textual specification, e.g. "token:0.1,embedding:20".
+ * The specification is a comma-separated list of strategies, each optionally followed by its recall/speed parameter:
+ * <ul>
+ * <li>token[:maxTokenFrequency] - shared name tokens (default 0.1), see TokenBlocking</li>
+ * <li>ngram[:minSimilarity] - similar character trigrams (default 0.5), see NGramBlocking</li>
+ * <li>embedding[:k] - the k nearest label embeddings (default 20), see EmbeddingBlocking</li>
+ * <li>hierarchy[:radius] - neighbourhoods of equally named anchors (default 1), see HierarchyBlocking</li>
+ * </ul>
+ * Several strategies are combined with UnionBlocking. "none" (or an empty specification) means no blocking, i.e. the full cross product is matched.
+ */
+public class CandidateGenerators {
+
+	public static final String NONE = "none";
+
+	/**
+	 * Creates the candidate generator described by a specification.
+	 * @param spec the specification (see the class documentation)
+	 * @param store the embedding store, only used by the embedding strategy
+	 * @return the candidate generator, or null if no blocking is wanted
+	 * @throws IllegalArgumentException if a strategy or parameter is not valid
+	 */
+	public static CandidateGenerator fromSpec(String spec, EmbeddingStore store) {
+
+		if (spec == null || spec.trim().isEmpty() || spec.trim().equalsIgnoreCase(NONE)) {
+			return null;
+		}
+
+		List<CandidateGenerator> generators = new ArrayList<CandidateGenerator>();
+		for (String part : spec.split(",")) {
+			String[] strategy = part.trim().split(":");
+			String name = strategy[0].trim().toLowerCase();
+			String param = strategy.length > 1 ? strategy[1].trim() : null;
+
+			try {
+				switch (name) {
+				case "token":
+					generators.add(new TokenBlocking(param == null ? 0.1 : Double.parseDouble(param)));
+					break;
+				case "ngram":
+					generators.add(new NGramBlocking(3, param == null ? 0.5 : Double.parseDouble(param)));
+					break;
+				case "embedding":
+					if (store == null) {
+						throw new IllegalArgumentException("Embedding blocking needs an embedding store");
+					}
+					generators.add(new EmbeddingBlocking(store, param == null ? 20 : Integer.parseInt(param)));
+					break;
+				case "hierarchy":
+					generators.add(new HierarchyBlocking(param == null ? 1 : Integer.parseInt(param)));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown blocking strategy: " + name);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid parameter for blocking strategy " + name + ": " + param, e);
+			}
+		}
+
+		return generators.size() == 1 ? generators.get(0) : new UnionBlocking(generators);
+	}
+
+}
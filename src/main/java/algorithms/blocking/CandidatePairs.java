@@ -0,0 +1,86 @@
+package algorithms.blocking;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The (source, target) class pairs that survived candidate generation and that the matchers should score.
+ * Sources and targets are the class ids of an OntologyFeatureIndex. The pairs are stored as a sorted array of target ids for each source id.
+ * The object is immutable and can be shared by matchers running concurrently.
+ * @see CandidateGenerator
+ */
+public final class CandidatePairs {
+
+	private final int[][] targetsBySource;
+	private final int numTargets;
+	private final long size;
+
+	/**
+	 * @param numTargets the number of classes in the target ontology
+	 * @param targetsBySource for each source id, the ids of its candidate targets
+	 */
+	public CandidatePairs(int numTargets, List<? extends Collection<Integer>> targetsBySource) {
+		this.numTargets = numTargets;
+		this.targetsBySource = new int[targetsBySource.size()][];
+
+		long pairs = 0;
+		for (int s = 0; s < this.targetsBySource.length; s++) {
+			int[] targets = new int[targetsBySource.get(s).size()];
+			int i = 0;
+			for (Integer t : targetsBySource.get(s)) {
+				targets[i++] = t;
+			}
+			Arrays.sort(targets);
+			this.targetsBySource[s] = targets;
+			pairs += targets.length;
+		}
+		this.size = pairs;
+	}
+
+	/**
+	 * Checks whether a pair is a candidate.
+	 * @param source the source class id
+	 * @param target the target class id
+	 * @return true if the pair should be scored
+	 */
+	public boolean contains(int source, int target) {
+		return Arrays.binarySearch(targetsBySource[source], target) >= 0;
+	}
+
+	/**
+	 * The candidate target ids of a source class, in ascending order. The returned array must not be modified.
+	 */
+	public int[] getTargets(int source) {
+		return targetsBySource[source];
+	}
+
+	/**
+	 * @return the number of candidate pairs
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of pairs in the full cross product of the two ontologies
+	 */
+	public long crossProductSize() {
+		return (long) targetsBySource.length * numTargets;
+	}
+
+	/**
+	 * The share of the cross product that is not scored, e.g. 0.95 if only 5 % of the pairs are candidates.
+	 * @return the pair-reduction ratio (0 for an empty cross product)
+	 */
+	public double getReductionRatio() {
+		long crossProduct = crossProductSize();
+		return crossProduct == 0 ? 0 : 1.0 - (double) size / crossProduct;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d of %d pairs are candidates (reduction ratio %.4f)", size, crossProductSize(), getReductionRatio());
+	}
+
+}
@@ -0,0 +1,105 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.wordembedding.EmbeddingStore;
+import algorithms.wordembedding.VectorExtractor;
+
+/**
+ * Embedding blocking: each source class gets as candidates the k target classes whose label vectors (see VectorExtractor.getLabelVector()) are closest by cosine similarity.
+ * The vectors are normalised once, so that each comparison is a single dot product, and the k nearest are kept in a bounded heap.
+ * The search is exact (a linear scan over the target vectors) rather than approximate; this is cheap compared to running the matchers on the full cross product.
+ * Classes without a label vector get no candidates from this strategy. A smaller k gives fewer candidates (faster) at the cost of recall.
+ */
+public class EmbeddingBlocking implements CandidateGenerator {
+
+	private final EmbeddingStore store;
+	private final int k;
+
+	/**
+	 * @param store the embedding store holding the word vectors
+	 * @param k the number of nearest target classes kept for each source class
+	 */
+	public EmbeddingBlocking(EmbeddingStore store, int k) {
+		this.store = store;
+		this.k = k;
+	}
+
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target) {
+
+		float[][] sourceVectors = getNormalisedVectors(source);
+		float[][] targetVectors = getNormalisedVectors(target);
+
+		List<List<Integer>> candidates = new ArrayList<List<Integer>>(source.size());
+		for (int s = 0; s < source.size(); s++) {
+			float[] sourceVector = sourceVectors[s];
+			if (sourceVector == null) {
+				candidates.add(Collections.<Integer>emptyList());
+				continue;
+			}
+
+			//min-heap on similarity holding the k most similar targets seen so far
+			PriorityQueue<double[]> nearest = new PriorityQueue<double[]>(k + 1, (a, b) -> Double.compare(a[0], b[0]));
+			for (int t = 0; t < target.size(); t++) {
+				float[] targetVector = targetVectors[t];
+				if (targetVector == null) {
+					continue;
+				}
+				double sim = dot(sourceVector, targetVector);
+				if (nearest.size() < k) {
+					nearest.add(new double[] {sim, t});
+				} else if (sim > nearest.peek()[0]) {
+					nearest.poll();
+					nearest.add(new double[] {sim, t});
+				}
+			}
+
+			List<Integer> targets = new ArrayList<Integer>(nearest.size());
+			for (double[] entry : nearest) {
+				targets.add((int) entry[1]);
+			}
+			candidates.add(targets);
+		}
+
+		return new CandidatePairs(target.size(), candidates);
+	}
+
+	//unit length label vectors by class id, null if a class has no (usable) vector
+	private float[][] getNormalisedVectors(OntologyFeatureIndex index) {
+		float[][] vectors = new float[index.size()][];
+		for (int i = 0; i < index.size(); i++) {
+			double[] vector = VectorExtractor.getLabelVector(index.getName(i), store);
+			if (vector == null) {
+				continue;
+			}
+			double norm = 0;
+			for (double v : vector) {
+				norm += v * v;
+			}
+			norm = Math.sqrt(norm);
+			//a compound without any part in the store gives a NaN vector
+			if (norm == 0 || Double.isNaN(norm)) {
+				continue;
+			}
+			float[] normalised = new float[vector.length];
+			for (int d = 0; d < vector.length; d++) {
+				normalised[d] = (float) (vector[d] / norm);
+			}
+			vectors[i] = normalised;
+		}
+		return vectors;
+	}
+
+	private static double dot(float[] a, float[] b) {
+		double sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,88 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import algorithms.utilities.OntologyFeatureIndex;
+
+/**
+ * Hierarchy-anchored blocking: classes with the same (lowercased) name in both ontologies are taken as anchors,
+ * and the classes around a source anchor (within a given number of sub-/superclass steps) become candidates for the classes around the matching target anchor.
+ * This finds pairs whose names differ but whose position in the two hierarchies agrees, which is what the structural and context matchers look for.
+ * A smaller radius gives fewer candidates (faster) at the cost of recall; with radius 0 only the anchors themselves are candidates.
+ */
+public class HierarchyBlocking implements CandidateGenerator {
+
+	private final int radius;
+
+	/**
+	 * @param radius the number of sub-/superclass steps from an anchor within which classes become candidates
+	 */
+	public HierarchyBlocking(int radius) {
+		this.radius = radius;
+	}
+
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target) {
+
+		Map<String, List<Integer>> targetsByName = new HashMap<String, List<Integer>>();
+		for (int t = 0; t < target.size(); t++) {
+			List<Integer> targets = targetsByName.get(target.getLowerCaseName(t));
+			if (targets == null) {
+				targets = new ArrayList<Integer>();
+				targetsByName.put(target.getLowerCaseName(t), targets);
+			}
+			targets.add(t);
+		}
+
+		List<Set<Integer>> candidates = new ArrayList<Set<Integer>>(source.size());
+		for (int s = 0; s < source.size(); s++) {
+			candidates.add(new HashSet<Integer>());
+		}
+
+		for (int s = 0; s < source.size(); s++) {
+			List<Integer> anchors = targetsByName.get(source.getLowerCaseName(s));
+			if (anchors == null) {
+				continue;
+			}
+			Set<Integer> sourceNeighbourhood = getNeighbourhood(source, s);
+			for (int t : anchors) {
+				Set<Integer> targetNeighbourhood = getNeighbourhood(target, t);
+				for (int sn : sourceNeighbourhood) {
+					candidates.get(sn).addAll(targetNeighbourhood);
+				}
+			}
+		}
+
+		return new CandidatePairs(target.size(), candidates);
+	}
+
+	//the class itself and the classes reachable in at most radius steps along direct sub-/superclass edges
+	private Set<Integer> getNeighbourhood(OntologyFeatureIndex index, int id) {
+		Set<Integer> neighbourhood = new HashSet<Integer>();
+		neighbourhood.add(id);
+		List<Integer> frontier = new ArrayList<Integer>();
+		frontier.add(id);
+		for (int step = 0; step < radius && !frontier.isEmpty(); step++) {
+			List<Integer> next = new ArrayList<Integer>();
+			for (int c : frontier) {
+				for (int parent : index.getDirectParents(c)) {
+					if (neighbourhood.add(parent)) {
+						next.add(parent);
+					}
+				}
+				for (int child : index.getDirectChildren(c)) {
+					if (neighbourhood.add(child)) {
+						next.add(child);
+					}
+				}
+			}
+			frontier = next;
+		}
+		return neighbourhood;
+	}
+
+}
@@ -0,0 +1,92 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import algorithms.utilities.OntologyFeatureIndex;
+
+/**
+ * Character n-gram blocking: a source and a target class are candidates if the Dice coefficient of the character n-grams of their (lowercased) names
+ * reaches a threshold. This catches names that are spelled alike without sharing a whole token, e.g. "organisation" and "organization".
+ * The shared n-grams are counted through an inverted index (n-gram -> target ids), so targets without any shared n-gram are never visited.
+ * A higher threshold gives fewer candidates (faster) at the cost of recall.
+ */
+public class NGramBlocking implements CandidateGenerator {
+
+	private final int n;
+	private final double minSimilarity;
+
+	/**
+	 * @param n the length of the character n-grams
+	 * @param minSimilarity the smallest Dice coefficient (0..1] of a candidate pair
+	 */
+	public NGramBlocking(int n, double minSimilarity) {
+		this.n = n;
+		this.minSimilarity = minSimilarity;
+	}
+
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target) {
+
+		Map<String, List<Integer>> invertedIndex = new HashMap<String, List<Integer>>();
+		int[] targetGramCounts = new int[target.size()];
+		for (int t = 0; t < target.size(); t++) {
+			Set<String> grams = getNGrams(target.getLowerCaseName(t));
+			targetGramCounts[t] = grams.size();
+			for (String gram : grams) {
+				List<Integer> targets = invertedIndex.get(gram);
+				if (targets == null) {
+					targets = new ArrayList<Integer>();
+					invertedIndex.put(gram, targets);
+				}
+				targets.add(t);
+			}
+		}
+
+		//number of n-grams shared with the current source, and the targets sharing at least one
+		int[] shared = new int[target.size()];
+		List<Integer> touched = new ArrayList<Integer>();
+
+		List<List<Integer>> candidates = new ArrayList<List<Integer>>(source.size());
+		for (int s = 0; s < source.size(); s++) {
+			Set<String> grams = getNGrams(source.getLowerCaseName(s));
+			for (String gram : grams) {
+				List<Integer> postings = invertedIndex.get(gram);
+				if (postings != null) {
+					for (int t : postings) {
+						if (shared[t]++ == 0) {
+							touched.add(t);
+						}
+					}
+				}
+			}
+
+			List<Integer> targets = new ArrayList<Integer>();
+			for (int t : touched) {
+				double dice = 2.0 * shared[t] / (grams.size() + targetGramCounts[t]);
+				if (dice >= minSimilarity) {
+					targets.add(t);
+				}
+				shared[t] = 0;
+			}
+			touched.clear();
+			candidates.add(targets);
+		}
+
+		return new CandidatePairs(target.size(), candidates);
+	}
+
+	//the distinct n-grams of a name padded with a boundary marker, so that short names also get n-grams
+	private Set<String> getNGrams(String name) {
+		String padded = "#" + name + "#";
+		Set<String> grams = new LinkedHashSet<String>();
+		for (int i = 0; i + n <= padded.length(); i++) {
+			grams.add(padded.substring(i, i + n));
+		}
+		return grams;
+	}
+
+}
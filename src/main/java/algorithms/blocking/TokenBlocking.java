@@ -0,0 +1,71 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import algorithms.utilities.OntologyFeatureIndex;
+
+/**
+ * Token blocking: a source and a target class are candidates if their names share a token (a compound part, e.g. "project" in ResearchProject).
+ * The target tokens are put in an inverted index (token -> target ids), so only targets sharing a token with the source are visited.
+ * Tokens that occur in a large share of the target classes (e.g. "type" in a schema) are not used for blocking, since they hardly discriminate;
+ * lowering this share gives fewer candidates (faster) at the cost of recall.
+ */
+public class TokenBlocking implements CandidateGenerator {
+
+	private final double maxTokenFrequency;
+
+	/**
+	 * @param maxTokenFrequency the largest share (0..1] of the target classes a token may occur in and still be used for blocking
+	 */
+	public TokenBlocking(double maxTokenFrequency) {
+		this.maxTokenFrequency = maxTokenFrequency;
+	}
+
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target) {
+
+		Map<String, List<Integer>> invertedIndex = new HashMap<String, List<Integer>>();
+		for (int t = 0; t < target.size(); t++) {
+			for (String token : getTokens(target, t)) {
+				List<Integer> targets = invertedIndex.get(token);
+				if (targets == null) {
+					targets = new ArrayList<Integer>();
+					invertedIndex.put(token, targets);
+				}
+				targets.add(t);
+			}
+		}
+
+		int maxPostings = Math.max(1, (int) (maxTokenFrequency * target.size()));
+
+		List<Set<Integer>> candidates = new ArrayList<Set<Integer>>(source.size());
+		for (int s = 0; s < source.size(); s++) {
+			Set<Integer> targets = new HashSet<Integer>();
+			for (String token : getTokens(source, s)) {
+				List<Integer> postings = invertedIndex.get(token);
+				if (postings != null && postings.size() <= maxPostings) {
+					targets.addAll(postings);
+				}
+			}
+			candidates.add(targets);
+		}
+
+		return new CandidatePairs(target.size(), candidates);
+	}
+
+	//the lowercased compound parts and the full lowercased name
+	private static Set<String> getTokens(OntologyFeatureIndex index, int id) {
+		Set<String> tokens = new LinkedHashSet<String>();
+		tokens.add(index.getLowerCaseName(id));
+		for (String part : index.getCompoundParts(id)) {
+			tokens.add(part.toLowerCase());
+		}
+		return tokens;
+	}
+
+}
@@ -0,0 +1,41 @@
+package algorithms.blocking;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import algorithms.utilities.OntologyFeatureIndex;
+
+/**
+ * Combines several blocking strategies: a pair is a candidate if any of the strategies selects it.
+ * Each strategy has its own blind spots (e.g. token blocking misses synonyms, embedding blocking misses rare words), so the union trades some speed for recall.
+ */
+public class UnionBlocking implements CandidateGenerator {
+
+	private final List<CandidateGenerator> generators;
+
+	public UnionBlocking(List<CandidateGenerator> generators) {
+		this.generators = new ArrayList<CandidateGenerator>(generators);
+	}
+
+	public CandidatePairs generate(OntologyFeatureIndex source, OntologyFeatureIndex target) {
+
+		List<Set<Integer>> candidates = new ArrayList<Set<Integer>>(source.size());
+		for (int s = 0; s < source.size(); s++) {
+			candidates.add(new HashSet<Integer>());
+		}
+
+		for (CandidateGenerator generator : generators) {
+			CandidatePairs pairs = generator.generate(source, target);
+			for (int s = 0; s < source.size(); s++) {
+				for (int t : pairs.getTargets(s)) {
+					candidates.get(s).add(t);
+				}
+			}
+		}
+
+		return new CandidatePairs(target.size(), candidates);
+	}
+
+}
@@ -11,13 +11,17 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
 import algorithms.utilities.ISub;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
 import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 
 /**
  * This is a basic string matcher based on ISUB, see:
@@ -27,44 +31,74 @@ import services.interfaces.Algorithm;
  */
 public class BasicEQMatcher extends ObjectAlignment implements AlignmentProcess, Algorithm {
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
+	//ISub keeps no state between scores, so one instance is shared
+	private static final ISub ISUB = new ISub();
+
 	public URIAlignment run(File ontoFile1, File ontoFile2) throws OWLOntologyCreationException, AlignmentException {
 		return returnBasicEQMatcherAlignment(ontoFile1, ontoFile2);
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		BasicEQMatcher a = new BasicEQMatcher();
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
+
 	/**
 	 * Creates an alignment that on the basis of class and property similarity obtains a similarity score assigned to each relation in the alignment.
 	 * A combination of Jaccard set similarity and the ISUB string similarity measure is used to compute the similarity score.
 	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
 
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex((OWLOntology) ontology1().getOntology());
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex((OWLOntology) ontology2().getOntology());
+
 		double sim = 0;
 
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					idCounter++;
+				int s = sourceIndex.getId(sourceObject);
+				ISub.Label source = sourceIndex.getISubLabel(s);
 
-					String source = ontology1().getEntityName(sourceObject).toLowerCase();
-					String target = ontology2().getEntityName(targetObject).toLowerCase();
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					//compute similarity between concepts using ISUB
-					sim = computeISUBSim(source, target);
-					addAlignCell("BasicStringMatcher" + idCounter + "_", sourceObject,targetObject, "=", sim );  
+					ISub.Label target = targetIndex.getISubLabel(t);
+
+					//compute similarity between concepts using ISUB (the names are normalized once, in the index)
+					sim = ISUB.score(source, target);
+					scores.set(s, t, "=", sim );  
 
 				}
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "BasicStringMatcher", sourceIndex, targetIndex);
 	}
 
 	public static double computeISUBSim (String concept1, String concept2) {
 		
-		ISub isubMatcher = new ISub();
-		
-		return isubMatcher.score(concept1.toLowerCase(), concept2.toLowerCase());
+		return ISUB.score(concept1.toLowerCase(), concept2.toLowerCase());
 		
 	}
 	
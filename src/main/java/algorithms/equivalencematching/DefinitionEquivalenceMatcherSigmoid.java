@@ -1,24 +1,22 @@
 package algorithms.equivalencematching;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Properties;
 
 import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentProcess;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
-import algorithms.utilities.OntologyOperations;
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
+import algorithms.wordembedding.EmbeddingStore;
 import algorithms.wordembedding.VectorExtractor;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
@@ -26,6 +24,7 @@ import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -42,6 +41,13 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 	double rangeMin;
 	double rangeMax;
 	String vectorFile;
+	EmbeddingStore store;
+
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
 	
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
@@ -49,6 +55,11 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 	public DefinitionEquivalenceMatcherSigmoid(double profileScore){
 		this.profileScore = profileScore;
 	}
+
+	public DefinitionEquivalenceMatcherSigmoid(double profileScore, EmbeddingStore store){
+		this.profileScore = profileScore;
+		this.store = store;
+	}
 	
 	//constructor for sigmoid weighting scenario
 	public DefinitionEquivalenceMatcherSigmoid(OWLOntology onto1, OWLOntology onto2, String vectorFile, double profileScore, int slope, double rangeMin, double rangeMax) {
@@ -67,8 +78,31 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 		double rangeMin = AlgorithmSettings.RANGEMIN; 
 		double rangeMax = AlgorithmSettings.RANGEMAX;
 
+		//use the shared embedding store if one is given
+		if (store != null) {
+			return returnDEMAlignment(ontoFile1, ontoFile2, store, profileScore, slope, rangeMax, rangeMin);
+		}
+
 		return returnDEMAlignment(ontoFile1, ontoFile2, vectorFile, profileScore, slope, rangeMax, rangeMin);
 	}
+
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		String vectorFile = AlgorithmSettings.VECTORFILE;
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		DefinitionEquivalenceMatcherSigmoid a = new DefinitionEquivalenceMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), vectorFile, profileScore, slope, rangeMin, rangeMax);
+		a.store = store;
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
 	
 	/**
 	 * Returns an alignment holding equivalence relations computed by the Definition Equivalence Matcher. 
@@ -86,13 +120,39 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 	 */
 	public static URIAlignment returnDEMAlignment (File ontoFile1, File ontoFile2, String vectorFile, double profileScore, int slope, double rangeMax, double rangeMin) throws OWLOntologyCreationException, AlignmentException {
 		
+		return returnDEMAlignment(ontoFile1, ontoFile2, vectorFile, null, profileScore, slope, rangeMax, rangeMin);
+		
+	}
+	
+	/**
+	 * Returns an alignment holding equivalence relations computed by the Definition Equivalence Matcher using an already loaded embedding store. 
+	 * @param ontoFile1 source ontology
+	 * @param ontoFile2 target ontology
+	 * @param store an embedding store
+	 * @param profileScore the score from the ontology profiling process
+	 * @param slope the sigmoid slope parameter
+	 * @param rangeMax the max value of the confidence transformation
+	 * @param rangeMin the min value of the confidence transformation
+	 * @return an URIAlignment holding a set of relations (cells)
+	 * @throws OWLOntologyCreationException
+	 * @throws AlignmentException
+	 */
+	public static URIAlignment returnDEMAlignment (File ontoFile1, File ontoFile2, EmbeddingStore store, double profileScore, int slope, double rangeMax, double rangeMin) throws OWLOntologyCreationException, AlignmentException {
+		
+		return returnDEMAlignment(ontoFile1, ontoFile2, null, store, profileScore, slope, rangeMax, rangeMin);
+		
+	}
+	
+	private static URIAlignment returnDEMAlignment (File ontoFile1, File ontoFile2, String vectorFile, EmbeddingStore store, double profileScore, int slope, double rangeMax, double rangeMin) throws OWLOntologyCreationException, AlignmentException {
+		
 		URIAlignment DEMAlignment = new URIAlignment();
 		
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 		
-		AlignmentProcess a = new DefinitionEquivalenceMatcherSigmoid(onto1, onto2, vectorFile, profileScore, slope, rangeMin, rangeMax);
+		DefinitionEquivalenceMatcherSigmoid a = new DefinitionEquivalenceMatcherSigmoid(onto1, onto2, vectorFile, profileScore, slope, rangeMin, rangeMax);
+		a.store = store;
 		a.init(ontoFile1.toURI(), ontoFile2.toURI());
 		Properties params = new Properties();
 		params.setProperty("", "");
@@ -116,42 +176,35 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
 		
-		//create the vector map holding word - embedding vectors		
-		Map<String, ArrayList<Double>> vectorMap = null;
+		//the embedding store holding word - embedding vectors		
+		EmbeddingStore store = this.store;
 		
 		try {
-			vectorMap = VectorExtractor.createVectorMap(new File(vectorFile));
-		} catch (FileNotFoundException e1) {
+			if (store == null) {
+				store = EmbeddingStore.forVectorFile(vectorFile);
+			}
+		} catch (IOException e1) {
 			e1.printStackTrace();
 		}
 		
-		Map<String, double[]> sourceVectorMap = new HashMap<String, double[]>();
-		Map<String, double[]> targetVectorMap = new HashMap<String, double[]>();
-		
-		double[] sourceGlobalVectors = null;
-		double[] targetGlobalVectors = null;
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
+		//the global (label and definition) vector of each class id, null if no vector could be computed
+		double[][] sourceVectorMap = new double[sourceIndex.size()][];
+		double[][] targetVectorMap = new double[targetIndex.size()][];
 		
-		for (OWLClass sourceClass : sourceOntology.getClassesInSignature()) {
+		for (int i = 0; i < sourceIndex.size(); i++) {
 			try {
-				sourceGlobalVectors = VectorExtractor.getGlobalVector(sourceClass.getIRI().getFragment().toLowerCase(), 
-						OntologyOperations.getClassDefinitionFull(sourceOntology, sourceClass), vectorMap);
-				
-				if (sourceGlobalVectors != null) {
-				sourceVectorMap.put(sourceClass.getIRI().getFragment(), sourceGlobalVectors);
-				}
+				sourceVectorMap[i] = VectorExtractor.getGlobalVector(sourceIndex.getLowerCaseName(i), sourceIndex.getDefinition(i), store);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
 		}
 				
-		for (OWLClass targetClass : targetOntology.getClassesInSignature()) {
+		for (int i = 0; i < targetIndex.size(); i++) {
 			try {
-				targetGlobalVectors = VectorExtractor.getGlobalVector(targetClass.getIRI().getFragment().toLowerCase(), 
-						OntologyOperations.getClassDefinitionFull(targetOntology, targetClass), vectorMap);
-				
-				if (targetGlobalVectors != null) {
-				targetVectorMap.put(targetClass.getIRI().getFragment(), targetGlobalVectors);
-				}
+				targetVectorMap[i] = VectorExtractor.getGlobalVector(targetIndex.getLowerCaseName(i), targetIndex.getDefinition(i), store);
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -161,24 +214,27 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 		double[] targetVectors = null;
 
 		double cosineSim = 0;
-		double idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 		
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					String source = ontology1().getEntityName(sourceObject);
-					String target = ontology2().getEntityName(targetObject);
-					
-					idCounter++;
+				int s = sourceIndex.getId(sourceObject);
+				sourceVectors = sourceVectorMap[s];
 
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					if (sourceVectorMap.containsKey(source) && targetVectorMap.containsKey(target)) {
-						
-						sourceVectors = sourceVectorMap.get(source);
-						targetVectors = targetVectorMap.get(target);
+					targetVectors = targetVectorMap[t];
+					
+
+					if (sourceVectors != null && targetVectors != null) {
 						
 						//ensure that both vectors have the same, correct size (not sure why they shouldn´t be...)
 						if (sourceVectors.length == 300 && targetVectors.length == 300) {
@@ -186,18 +242,17 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 							cosineSim = algorithms.utilities.Cosine.cosineSimilarity(sourceVectors, targetVectors);
 							
 							//calculate the final confidence using a sigmoid function
-							addAlignCell("DefinitionEquivalenceMatcher" +idCounter, sourceObject, targetObject, "=", 
-									Sigmoid.weightedSigmoid(slope, cosineSim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+							scores.set(s, t, "=", Sigmoid.weightedSigmoid(slope, cosineSim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 							
 							
 						} else {
-							addAlignCell("DefinitionEquivalenceMatcher" + idCounter, sourceObject, targetObject, "=", 0);
+							//no relation, zero scores are not stored
 
 						}
 
 
 					} else {
-						addAlignCell("DefinitionEquivalenceMatcher" + idCounter, sourceObject, targetObject, "=", 0);
+						//no relation, zero scores are not stored
 						
 					}
 
@@ -205,6 +260,8 @@ public class DefinitionEquivalenceMatcherSigmoid extends ObjectAlignment impleme
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "DefinitionEquivalenceMatcher", sourceIndex, targetIndex);
 		
 
 	}
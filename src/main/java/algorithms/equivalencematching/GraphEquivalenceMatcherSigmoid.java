@@ -3,6 +3,7 @@ package algorithms.equivalencematching;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,9 +19,12 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
 import algorithms.evaluation.general.Evaluator;
 import algorithms.graph.SimpleGraph;
 import algorithms.utilities.ISub;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 
 import com.google.common.graph.MutableGraph;
@@ -32,6 +36,7 @@ import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import fr.inrialpes.exmo.ontowrap.OntowrapException;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -62,6 +67,12 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
 	ISub iSubMatcher = new ISub();
 	
 	/**
@@ -91,6 +102,18 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 		return returnGEMAlignment (ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax);
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		GraphEquivalenceMatcherSigmoid a = new GraphEquivalenceMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, 3, 0.5, 0.7);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
+
 	public static void main(String[] args) throws OWLOntologyCreationException, AlignmentException, URISyntaxException, IOException {
 
 		File ontoFile1 = new File("./files/_PHD_EVALUATION/BIBFRAME-SCHEMAORG/ONTOLOGIES/bibframe.rdf");
@@ -139,22 +162,50 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 		MutableGraph<String> onto1Graph = SimpleGraph.createGraph(sourceOntology);
 		MutableGraph<String> onto2Graph = SimpleGraph.createGraph(targetOntology);
 		
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
 
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 		try {
 
-			for ( Object cl2: ontology2().getClasses() ){
-				for ( Object cl1: ontology1().getClasses() ){
+			//the parents and depth of each class are looked up in the graphs once, not once per pair
+			List<List<String>> onto1Parents = new ArrayList<List<String>>(sourceIndex.size());
+			int[] onto1Depths = new int[sourceIndex.size()];
+			for (int i = 0; i < sourceIndex.size(); i++) {
+				onto1Parents.add(new ArrayList<String>(SimpleGraph.getParents(sourceIndex.getLowerCaseName(i), onto1Graph)));
+				onto1Depths[i] = SimpleGraph.getNodeDepth(sourceIndex.getLowerCaseName(i), onto1Graph);
+			}
+
+			List<List<String>> onto2Parents = new ArrayList<List<String>>(targetIndex.size());
+			int[] onto2Depths = new int[targetIndex.size()];
+			for (int i = 0; i < targetIndex.size(); i++) {
+				onto2Parents.add(new ArrayList<String>(SimpleGraph.getParents(targetIndex.getLowerCaseName(i), onto2Graph)));
+				onto2Depths[i] = SimpleGraph.getNodeDepth(targetIndex.getLowerCaseName(i), onto2Graph);
+			}
+
+			Map<String, Integer> onto1AncestorDepths = new HashMap<String, Integer>();
+			Map<String, Integer> onto2AncestorDepths = new HashMap<String, Integer>();
+
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
+			for ( Object cl1: ontology1().getClasses() ){
+
+				int s = sourceIndex.getId(cl1);
 
-					idCounter++; 
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					addAlignCell("GraphMatcher" + idCounter, cl1,cl2, "=", 
-							Sigmoid.weightedSigmoid(slope, computeStructProx(cl1,cl2, onto1Graph, onto2Graph), Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+					scores.set(s, t, "=", Sigmoid.weightedSigmoid(slope, computeStructProx(onto1Parents.get(s), onto1Depths[s], onto2Parents.get(t), onto2Depths[t], 
+									onto1Graph, onto2Graph, onto1AncestorDepths, onto2AncestorDepths), Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 				}
 
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "GraphMatcher", sourceIndex, targetIndex);
 	}
 
 
@@ -190,17 +241,43 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 		//find distance from s2 to owl:Thing
 		int distanceC2ToRoot = SimpleGraph.getNodeDepth(s2, onto2Graph);
 
+		return computeStructProx(new ArrayList<String>(onto1Parents), distanceC1ToRoot, new ArrayList<String>(onto2Parents), distanceC2ToRoot, 
+				onto1Graph, onto2Graph, new HashMap<String, Integer>(), new HashMap<String, Integer>());
+	}
+
+	/**
+	 * Computes the structural proximity of two classes whose parent nodes and distance to root have already been retrieved from the graphs.
+	 * @param onto1Parents the parent nodes of the class from ontology 1
+	 * @param distanceC1ToRoot the distance from the class from ontology 1 to owl:Thing
+	 * @param onto2Parents the parent nodes of the class from ontology 2
+	 * @param distanceC2ToRoot the distance from the class from ontology 2 to owl:Thing
+	 * @param onto1AncestorDepths cache of the depth of ancestor nodes in ontology 1 (filled by this method)
+	 * @param onto2AncestorDepths cache of the depth of ancestor nodes in ontology 2 (filled by this method)
+	 * @return measure of similarity between the two classes
+	 */
+	private double computeStructProx(List<String> onto1Parents, int distanceC1ToRoot, List<String> onto2Parents, int distanceC2ToRoot, 
+			MutableGraph<String> onto1Graph, MutableGraph<String> onto2Graph, Map<String, Integer> onto1AncestorDepths, Map<String, Integer> onto2AncestorDepths) {
+
 		double iSubSimScore = 0;
-		ISub iSubMatcher = new ISub();
 
 		//map to keep the pair of ancestors matching above the threshold
 		Map<String,String> matchingMap = new HashMap<String,String>();
 
+		//the parent nodes are normalized for ISub once, not once per pair
+		ISub.Label[] onto1Labels = new ISub.Label[onto1Parents.size()];
+		for (int i = 0; i < onto1Labels.length; i++) {
+			onto1Labels[i] = ISub.label(onto1Parents.get(i));
+		}
+		ISub.Label[] onto2Labels = new ISub.Label[onto2Parents.size()];
+		for (int j = 0; j < onto2Labels.length; j++) {
+			onto2Labels[j] = ISub.label(onto2Parents.get(j));
+		}
+
 		//matching the parentnodes
 		for (int i = 0; i < onto1Parents.size(); i++) {
 			for (int j = 0; j < onto2Parents.size(); j++) {
 				
-				iSubSimScore = iSubMatcher.score(onto1Parents.get(i).toString(), onto2Parents.get(j).toString());
+				iSubSimScore = iSubMatcher.score(onto1Labels[i], onto2Labels[j]);
 
 				if (iSubSimScore >= THRESHOLD) {
 					matchingMap.put(onto1Parents.get(i) , onto2Parents.get(j));
@@ -219,7 +296,7 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 			String anc1 = entry.getKey();
 			String anc2 = entry.getValue();
 			
-			avgAncestorDistanceToRoot = SimpleGraph.getNodeDepth(anc1, onto1Graph) + SimpleGraph.getNodeDepth(anc2, onto2Graph);
+			avgAncestorDistanceToRoot = ancestorDepth(anc1, onto1Graph, onto1AncestorDepths) + ancestorDepth(anc2, onto2Graph, onto2AncestorDepths);
 			
 			currentStructProx = (2 * avgAncestorDistanceToRoot) / (distanceC1ToRoot + distanceC2ToRoot);
 
@@ -232,6 +309,15 @@ public class GraphEquivalenceMatcherSigmoid extends ObjectAlignment implements A
 		
 		return structProx;
 	}
+
+	private static int ancestorDepth(String node, MutableGraph<String> graph, Map<String, Integer> depths) {
+		Integer depth = depths.get(node);
+		if (depth == null) {
+			depth = SimpleGraph.getNodeDepth(node, graph);
+			depths.put(node, depth);
+		}
+		return depth;
+	}
 	
 	/**
 	 * Returns an alignment object holding equivalence relations computed by the Graph Equivalence Matcher.
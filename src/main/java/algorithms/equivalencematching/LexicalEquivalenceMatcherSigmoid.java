@@ -15,17 +15,19 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 import algorithms.utilities.SimilarityMetrics;
-import algorithms.utilities.StringUtilities;
 import algorithms.utilities.WordNet;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
 import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
-import fr.inrialpes.exmo.ontowrap.OntowrapException;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -44,6 +46,12 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
+
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
 	
 	public LexicalEquivalenceMatcherSigmoid(double profileScore){
 		this.profileScore = profileScore;
@@ -66,6 +74,22 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 		return returnLEMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax);
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		LexicalEquivalenceMatcherSigmoid a = new LexicalEquivalenceMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
+
 	/**
 	 * Returns an alignment from the Lexical Equivalence Matcher (LEM)
 	 * @param ontoFile1 source ontology file
@@ -108,40 +132,50 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
 
-		int idCounter = 0;
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					idCounter++; 
-					
+				int s = sourceIndex.getId(sourceObject);
+
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
+
 					//using sigmoid function to compute confidence
-					addAlignCell("LexicalEquivalenceMatcherSigmoid" + idCounter, sourceObject,targetObject, "=", 
-							Sigmoid.weightedSigmoid(slope, wordNetMatch(sourceObject,targetObject), Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
+					scores.set(s, t, "=", Sigmoid.weightedSigmoid(slope, wordNetMatch(sourceIndex, s, targetIndex, t), Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
 				}
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "LexicalEquivalenceMatcherSigmoid", sourceIndex, targetIndex);
 	}
 
 	/**
 	 * This method uses a combination of WordNet synonym similarity and Jiang-Conrath semantic similarity to infer equivalence relations between ontology concepts.
-	 * @param o1 source ontology concept
-	 * @param o2 target ontology concept 
+	 * @param sourceIndex feature index of the source ontology
+	 * @param sourceId id of the source ontology concept
+	 * @param targetIndex feature index of the target ontology
+	 * @param targetId id of the target ontology concept 
 	 * @return a score signifying the lexical similarity between the two input ontology concepts
-	 * @throws OntowrapException
-	   Jul 14, 2019
 	 */
-	public double wordNetMatch(Object o1, Object o2) throws OntowrapException {
-		String source = ontology1().getEntityName(o1);
-		String target = ontology2().getEntityName(o2);
+	public double wordNetMatch(OntologyFeatureIndex sourceIndex, int sourceId, OntologyFeatureIndex targetIndex, int targetId) {
+		String source = sourceIndex.getName(sourceId);
+		String target = targetIndex.getName(targetId);
+		boolean sourceIsCompound = sourceIndex.isCompound(sourceId);
+		boolean targetIsCompound = targetIndex.isCompound(targetId);
 
 		String sourceCompoundHead = null;
 		String targetCompoundHead = null;
-		String sourceModifierBasis = null;
-		String targetModifierBasis = null;
 		Set<String> sourceModifierTokens = new HashSet<String>();
 		Set<String> targetModifierTokens = new HashSet<String>();
 		
@@ -153,17 +187,17 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 		Set<String> targetSynonyms = new HashSet<String>();
 
 		//if neither concept is a compound, retrieve their synonym sets and compare them using Jaccard
-		if (!StringUtilities.isCompoundWord(source) && !StringUtilities.isCompoundWord(target)) {
+		if (!sourceIsCompound && !targetIsCompound) {
 
-			sourceSynonyms = WordNet.getAllSynonymSetCached(source.toLowerCase());
-			targetSynonyms = WordNet.getAllSynonymSetCached(target.toLowerCase());
+			sourceSynonyms = WordNet.getAllSynonymSetCached(sourceIndex.getLowerCaseName(sourceId));
+			targetSynonyms = WordNet.getAllSynonymSetCached(targetIndex.getLowerCaseName(targetId));
 
 			if (!sourceSynonyms.isEmpty() && !targetSynonyms.isEmpty()) {
 				
 				jaccardSim = SimilarityMetrics.jaccardSetSim(sourceSynonyms, targetSynonyms);
 			}
 			
-			jcSim = WordNet.computeJiangConrath(source.toLowerCase(), target.toLowerCase());
+			jcSim = WordNet.computeJiangConrath(sourceIndex.getLowerCaseName(sourceId), targetIndex.getLowerCaseName(targetId));
 			
 			finalScore = (jcSim + jaccardSim) / 2;
 
@@ -171,18 +205,12 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 
 		//if both source and target are compounds we consider the score as a combination of the Jiang-Conrath similarity between the compound heads and 
 		//the Jaccard similarity of their respective compound modifiers
-		else if (StringUtilities.isCompoundWord(source) && StringUtilities.isCompoundWord(target)) {
-			sourceCompoundHead = StringUtilities.getCompoundHead(source);
-			targetCompoundHead = StringUtilities.getCompoundHead(target);
-			sourceModifierBasis = source.replace(sourceCompoundHead, "");
-			targetModifierBasis = target.replace(targetCompoundHead, "");
-
-			//02.03.2020: Replaced regex for decompounding
-			sourceModifierTokens = new HashSet<String>(Arrays.asList(sourceModifierBasis.split("(?<!(^|[A-Z]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])")));		
-			targetModifierTokens = new HashSet<String>(Arrays.asList(targetModifierBasis.split("(?<!(^|[A-Z]))(?=[A-Z])|(?<!^)(?=[A-Z][a-z])")));
-			
-//			sourceModifierTokens = new HashSet<String>(Arrays.asList(sourceModifierBasis.split("(?<=.)(?=\\p{Lu})")));		
-//			targetModifierTokens = new HashSet<String>(Arrays.asList(targetModifierBasis.split("(?<=.)(?=\\p{Lu})")));
+		else if (sourceIsCompound && targetIsCompound) {
+			sourceCompoundHead = sourceIndex.getCompoundHead(sourceId);
+			targetCompoundHead = targetIndex.getCompoundHead(targetId);
+
+			sourceModifierTokens = new HashSet<String>(Arrays.asList(sourceIndex.getCompoundModifierParts(sourceId)));		
+			targetModifierTokens = new HashSet<String>(Arrays.asList(targetIndex.getCompoundModifierParts(targetId)));
 
 			//compute the set similarity of synonyms associated with the modifiers
 			for (String s : sourceModifierTokens) {
@@ -224,11 +252,11 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 			}
 		}
 
-		else if (StringUtilities.isCompoundWord(source) && !StringUtilities.isCompoundWord(target)) {
-			finalScore = XORcompound(source, target);
+		else if (sourceIsCompound && !targetIsCompound) {
+			finalScore = XORcompound(sourceIndex.getCompoundHead(sourceId), sourceIndex.getCompoundModifierParts(sourceId), target);
 		}
-		else if (StringUtilities.isCompoundWord(target) && !StringUtilities.isCompoundWord(source)) {
-			finalScore = XORcompound(target, source);
+		else if (targetIsCompound && !sourceIsCompound) {
+			finalScore = XORcompound(targetIndex.getCompoundHead(targetId), targetIndex.getCompoundModifierParts(targetId), source);
 		}
 
 
@@ -237,13 +265,11 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 	}
 	//if only the source is a compound, split the modifier into tokens and compute the Jiang-Conrath between all modifier tokens + the compound head of the source against
 	//the target concept
-	double XORcompound(String compound, String nonCompound){
-		String source = compound;
+	double XORcompound(String compoundHead, String[] compoundModifierParts, String nonCompound){
 		String target = nonCompound;
 
-		String sourceCompoundHead = null;
-		String sourceModifierBasis = null;
-		Set<String> sourceModifierTokens = new HashSet<String>();
+		String sourceCompoundHead = compoundHead;
+		Set<String> sourceModifierTokens = new HashSet<String>(Arrays.asList(compoundModifierParts));
 		
 		double jcSim = 0;
 		double jaccardSim = 0;
@@ -252,17 +278,10 @@ public class LexicalEquivalenceMatcherSigmoid extends ObjectAlignment implements
 		Set<String> sourceSynonyms = new HashSet<String>();
 		Set<String> targetSynonyms = new HashSet<String>();
 
-
-		sourceCompoundHead = StringUtilities.getCompoundHead(source);
-			
 		//get the synonyms of the source compound head only
 		sourceSynonyms = WordNet.getAllSynonymSetCached(sourceCompoundHead.toLowerCase());
 		targetSynonyms = WordNet.getAllSynonymSetCached(target.toLowerCase());
 		
-		sourceModifierBasis = source.replace(sourceCompoundHead, "");
-		
-		sourceModifierTokens = new HashSet<String>(Arrays.asList(StringUtilities.getCompoundParts(sourceModifierBasis)));	
-		
 		double localJcSim = 0;
 
 		//if the compound head of the source equals the target, we have most likely a subsumption relation, so we give that a score of zero
@@ -2,29 +2,27 @@ package algorithms.equivalencematching;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentProcess;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.AxiomType;
-import org.semanticweb.owlapi.model.OWLClass;
-import org.semanticweb.owlapi.model.OWLDataProperty;
-import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
-import org.semanticweb.owlapi.model.OWLObjectProperty;
-import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
-import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
 import algorithms.utilities.ISub;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.PosTagger;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 import algorithms.utilities.SimilarityMetrics;
 import algorithms.utilities.StringUtilities;
@@ -34,13 +32,13 @@ import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.Multimap;
 
 //import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
 import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -55,11 +53,18 @@ import services.settings.AlgorithmSettings;
 public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implements AlignmentProcess, Algorithm {
 
 
-	static OWLOntology onto1;
-	static OWLOntology onto2;
+	OWLOntology onto1;
+	OWLOntology onto2;
 
-	//the Stanford POS tagger used for computing the core concept of properties
-	static MaxentTagger maxentTagger = new MaxentTagger("./files/taggers/english-left3words-distsim.tagger");
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
+	//the core concepts of the property names tagged so far, shared by all instances (cleared when full)
+	private static final int CORE_CONCEPT_CACHE_SIZE = 100000;
+	private static final ConcurrentHashMap<String, String> coreConcepts = new ConcurrentHashMap<String, String>();
 
 
 	//these attributes are used to calculate the weight associated with the matcher's confidence value
@@ -72,6 +77,9 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 	//The ISUB confidence used in the combined Jaccard/ISub similarity measure
 	final double confidence = 0.7;
 
+	//ISub keeps no state between scores, so one instance is shared
+	private static final ISub ISUB = new ISub();
+
 	public PropertyEquivalenceMatcherSigmoid(double profileScore){
 		this.profileScore = profileScore;
 	}
@@ -93,6 +101,22 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 		return returnPEMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax);
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		PropertyEquivalenceMatcherSigmoid a = new PropertyEquivalenceMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
+
 	/**
 	 * 	/**
 	 * Returns an alignment holding relations computed by the Property Equivalence Matcher (PEM).
@@ -139,101 +163,83 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 	 * A combination of Jaccard set similarity and the ISUB string similarity measure is used to compute the similarity score.
 	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
-		Map<String, Set<String>> classAndPropMapOnto1 = new HashMap<String, Set<String>>();
-		Map<String, Set<String>> classAndPropMapOnto2 = new HashMap<String, Set<String>>();
-		//construct a map holding a class as key and all props and synonyms of them as value
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(onto1);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(onto2);
+
+		List<Set<String>> classAndPropMapOnto1 = new ArrayList<Set<String>>();
+		List<Set<String>> classAndPropMapOnto2 = new ArrayList<Set<String>>();
+		//construct a list holding all props and synonyms of them for each class id
 		try {
-			classAndPropMapOnto1 = createClassAndPropMap(onto1);
+			classAndPropMapOnto1 = createClassAndPropMap(sourceIndex);
 		} catch (ClassNotFoundException | IOException e1) {
 			e1.printStackTrace();
 		}
 
 		try {
-			classAndPropMapOnto2 = createClassAndPropMap(onto2);
+			classAndPropMapOnto2 = createClassAndPropMap(targetIndex);
 		} catch (ClassNotFoundException | IOException e1) {
 			e1.printStackTrace();
 		}
 
 		double sim = 0;
 
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					idCounter++;
+				int s = sourceIndex.getId(sourceObject);
+				String source = sourceIndex.getLowerCaseName(s);
+				Set<String> props1 = classAndPropMapOnto1.get(s);
 
-					String source = ontology1().getEntityName(sourceObject).toLowerCase();
-					String target = ontology2().getEntityName(targetObject).toLowerCase();
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					Set<String> props1 = classAndPropMapOnto1.get(source);
-					Set<String> props2 = classAndPropMapOnto2.get(target);
+					String target = targetIndex.getLowerCaseName(t);
+					Set<String> props2 = classAndPropMapOnto2.get(t);
 
 					//JACCARD SIMILARITY WITH ISUB AND EQUAL CONCEPTS
 					sim = SimilarityMetrics.jaccardSetSimISubEqualConcepts(confidence, source, target, props1, props2);
 					
 					if (sim > 0 && sim <= 1) {
 						//using sigmoid function to compute confidence
-						addAlignCell("PropertyMatcher" + idCounter, sourceObject,targetObject, "=", 
-								Sigmoid.weightedSigmoid(slope, sim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
+						scores.set(s, t, "=", Sigmoid.weightedSigmoid(slope, sim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
 					} else {
 						
-						addAlignCell("PropertyMatcher" + idCounter, sourceObject, targetObject, "=", 0);
+						//no relation, zero scores are not stored
 						
 					}
 				}
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "PropertyMatcher", sourceIndex, targetIndex);
 	}
 
 	/**
-	 * Creates a map that holds each class as key along with a set of properties (including their synonyms) as value.
-	 * @param onto an input ontology
-	 * @return a Map<String, Set<String>> holding classes and corresponding properties.
+	 * Creates a list that holds a set of properties (including their synonyms) for each class id of the index.
+	 * @param index the feature index of an input ontology
+	 * @return a List<Set<String>> holding the properties of each class.
 	 * @throws ClassNotFoundException
 	 * @throws IOException
 	   Jul 15, 2019
 	 */
-	private static Map<String, Set<String>> createClassAndPropMap(OWLOntology onto) throws ClassNotFoundException, IOException {
-		Map<String, Set<String>> classAndPropMap = new HashMap<String, Set<String>>();
+	private static List<Set<String>> createClassAndPropMap(OntologyFeatureIndex index) throws ClassNotFoundException, IOException {
+		List<Set<String>> classAndPropMap = new ArrayList<Set<String>>(index.size());
 
-		for (OWLClass cls : onto.getClassesInSignature()) {
+		for (int i = 0; i < index.size(); i++) {
 
-			Set<String> ops = new HashSet<String>();
-			Set<String> dps = new HashSet<String>();
 			Set<String> propsSynonyms = new HashSet<String>();
 			Set<String> propsCore = new HashSet<String>();
 			Set<String> props = new HashSet<String>();
 
-			for (OWLObjectPropertyDomainAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_DOMAIN)) {
-				if (op.getDomain().equals(cls)) {
-					for (OWLObjectProperty oop : op.getObjectPropertiesInSignature()) {
-						ops.add(oop.getIRI().getFragment());
-					}
-				}
-			}
-
-			for (OWLObjectPropertyRangeAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_RANGE)) {
-				if (op.getRange().equals(cls)) {
-					for (OWLObjectProperty oop : op.getObjectPropertiesInSignature()) {
-						ops.add(oop.getIRI().getFragment());
-					}
-				}
-			}
-
-			for (OWLDataPropertyDomainAxiom dp : onto.getAxioms(AxiomType.DATA_PROPERTY_DOMAIN)) {
-				if (dp.getDomain().equals(cls)) {
-					for (OWLDataProperty odp : dp.getDataPropertiesInSignature()) {
-						dps.add(odp.getIRI().getFragment());
-					}
-				}
-			}
-
-			//merge all object and data properties into one set
-			props.addAll(ops);
-			props.addAll(dps);
+			//all object and data properties of the class
+			props.addAll(index.getProperties(i));
 
 			//get the core concept of each property				
 			for (String prop : props) {
@@ -251,7 +257,7 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 
 			props.addAll(propsSynonyms);				
 
-			classAndPropMap.put(cls.getIRI().getFragment().toLowerCase(), props);
+			classAndPropMap.add(props);
 		}
 
 		return classAndPropMap;
@@ -263,7 +269,7 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 	 * The core concept is either the first verb in the label that is greater than 4 characters or, if no such verb exists, the first noun in the label, 
 	 * together with any adjectives that qualify that noun. 
 	 * A Part-of-Speech (POS) tagger is used for differentiating verbs, nouns and adjectives in a property name. 
-	 * Currently, the POS tagger from the Stanford CoreNLP API is used.
+	 * Currently, the POS tagger from the Stanford CoreNLP API is used (see PosTagger). The core concept of each property name is computed once.
 	 * @param propName the property name from which the core concept is retrieved.
 	 * @return the core concept of the property
 	 * @throws IOException
@@ -272,12 +278,32 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 	 */
 	public static String getPropertyCoreConcept(String text) throws IOException, ClassNotFoundException {
 
+		String coreConcept = coreConcepts.get(text);
+
+		if (coreConcept == null) {
+			coreConcept = computePropertyCoreConcept(text);
+			if (coreConcepts.size() >= CORE_CONCEPT_CACHE_SIZE) {
+				coreConcepts.clear();
+			}
+			coreConcepts.put(text, coreConcept);
+		}
+
+		return coreConcept;
+	}
+
+	/**
+	 * Tags the property name with the shared POS tagger and picks the core concept, see getPropertyCoreConcept().
+	 * @param text the property name from which the core concept is retrieved.
+	 * @return the core concept of the property
+	 * @throws IOException
+	 */
+	private static String computePropertyCoreConcept(String text) throws IOException {
 
 		if (StringUtilities.isCompoundWord(text)) {
 			text = StringUtilities.getCompoundWordWithSpaces(text);
 		}
 
-		String tag = maxentTagger.tagString(text);
+		String tag = PosTagger.tagString(text);
 
 		String[] eachTag = tag.split("\\s+");
 
@@ -309,17 +335,22 @@ public class PropertyEquivalenceMatcherSigmoid extends ObjectAlignment implement
 	
 	public static double jaccardSetSimISubEqualConcepts (double confidence, String concept1, String concept2, Set<String> set1, Set<String> set2) {
 
-		ISub isubMatcher = new ISub();
-
 		int intersection = 0;
 		int refinedIntersection = 0;
 		int refinedUnion = 0;
 		double isubScore = 0;
 
+		//the values of set2 are normalized once, not once per value of set1
+		List<ISub.Label> labels2 = new ArrayList<ISub.Label>(set2.size());
+		for (String s2 : set2) {
+			labels2.add(ISub.label(s2));
+		}
+
 		for (String s1 : set1) {
-			for (String s2 : set2) {
+			ISub.Label label1 = ISub.label(s1);
+			for (ISub.Label label2 : labels2) {
 				//using ISub to compute a similarity score
-				isubScore = isubMatcher.score(s1,s2);
+				isubScore = ISUB.score(label1, label2);
 				if (isubScore > confidence) {
 					intersection += 1;
 				}
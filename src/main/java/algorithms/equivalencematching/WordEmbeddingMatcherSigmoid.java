@@ -2,7 +2,6 @@ package algorithms.equivalencematching;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -16,7 +15,11 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
+import algorithms.wordembedding.EmbeddingStore;
 import algorithms.wordembedding.VectorExtractor;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
@@ -24,6 +27,7 @@ import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -43,6 +47,13 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 	String vectorFile;
+	EmbeddingStore store;
+
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
 	
 
 
@@ -50,6 +61,11 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 		this.profileScore = profileScore;
 	}
 
+	public WordEmbeddingMatcherSigmoid(double profileScore, EmbeddingStore store){
+		this.profileScore = profileScore;
+		this.store = store;
+	}
+
 	public WordEmbeddingMatcherSigmoid(OWLOntology onto1, OWLOntology onto2, String vectorFile, double profileScore, int slope, double rangeMin, double rangeMax) {
 		this.profileScore = profileScore;
 		this.slope = slope;
@@ -66,8 +82,31 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 		double rangeMin = AlgorithmSettings.RANGEMIN; 
 		double rangeMax = AlgorithmSettings.RANGEMAX;
 
+		//use the shared embedding store if one is given
+		if (store != null) {
+			return returnWEMAlignment(ontoFile1, ontoFile2, store, profileScore, slope, rangeMin, rangeMax);
+		}
+
 		return returnWEMAlignment(ontoFile1, ontoFile2, vectorFile, profileScore, slope, rangeMin, rangeMax);
 	}
+
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		String vectorFile = AlgorithmSettings.VECTORFILE;
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		WordEmbeddingMatcherSigmoid a = new WordEmbeddingMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), vectorFile, profileScore, slope, rangeMin, rangeMax);
+		a.store = store;
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, true);
+	}
 	
 	/**
 	 * Returns an alignment holding relations computed by the Word Embedding Matcher (WEM).
@@ -82,13 +121,35 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 	 */
 	public static URIAlignment returnWEMAlignment (File ontoFile1, File ontoFile2, String vectorFile, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
 		
+		return returnWEMAlignment(ontoFile1, ontoFile2, vectorFile, null, profileScore, slope, rangeMin, rangeMax);
+		
+	}
+	
+	/**
+	 * Returns an alignment holding relations computed by the Word Embedding Matcher (WEM) using an already loaded embedding store.
+	 * @param ontoFile1 source ontology
+	 * @param ontoFile2 target ontology
+	 * @param store an embedding store holding terms and corresponding embedding vectors.
+	 * @return an URIAlignment holding a set of relations (cells)
+	 * @throws OWLOntologyCreationException
+	 * @throws AlignmentException
+	 */
+	public static URIAlignment returnWEMAlignment (File ontoFile1, File ontoFile2, EmbeddingStore store, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
+		
+		return returnWEMAlignment(ontoFile1, ontoFile2, null, store, profileScore, slope, rangeMin, rangeMax);
+		
+	}
+	
+	private static URIAlignment returnWEMAlignment (File ontoFile1, File ontoFile2, String vectorFile, EmbeddingStore store, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
+		
 		URIAlignment WEMAlignment = new URIAlignment();
 		
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 		
-		AlignmentProcess a = new WordEmbeddingMatcherSigmoid(onto1, onto2, vectorFile, profileScore, slope, rangeMin, rangeMax);
+		WordEmbeddingMatcherSigmoid a = new WordEmbeddingMatcherSigmoid(onto1, onto2, vectorFile, profileScore, slope, rangeMin, rangeMax);
+		a.store = store;
 				
 		a.init(ontoFile1.toURI(), ontoFile2.toURI());
 		Properties params = new Properties();
@@ -118,24 +179,25 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 	 */
 	public static Map<String, double[]> createVectorMap (OWLOntology onto, String vectorFile) throws IOException {
 		
-		Map<String, double[]> vectors = new HashMap<String, double[]>();
+		return createVectorMap(onto, EmbeddingStore.forVectorFile(vectorFile));
 		
-		//create the vector map from the source vector file
-		Map<String, ArrayList<Double>> vectorMap = VectorExtractor.createVectorMap (new File(vectorFile));
-		ArrayList<Double> labelVector = new ArrayList<Double>();		
+	}
+	
+	/**
+	 * Creates a map holding a class as key along with an array of vectors as value.
+	 * @param onto an OWL ontology
+	 * @param store the embedding store holding terms and corresponding embedding vectors.
+	 * @return a Map<String, double[]) representing classes and corresponding embedding vectors.
+	 */
+	public static Map<String, double[]> createVectorMap (OWLOntology onto, EmbeddingStore store) {
+		
+		Map<String, double[]> vectors = new HashMap<String, double[]>();
 		
 		for (OWLClass cls : onto.getClassesInSignature()) {
 			
-			if (vectorMap.containsKey(cls.getIRI().getFragment().toLowerCase())) {				
+			if (store.contains(cls.getIRI().getFragment().toLowerCase())) {				
 				
-				labelVector = VectorExtractor.getLabelVector(cls.getIRI().getFragment(), vectorMap);
-								
-				double[] labelVectorArray = new double[labelVector.size()];
-				for (int i = 0; i < labelVectorArray.length; i++) {
-					labelVectorArray[i] = labelVector.get(i);
-				}
-				
-				vectors.put(cls.getIRI().getFragment().toLowerCase(), labelVectorArray);
+				vectors.put(cls.getIRI().getFragment().toLowerCase(), VectorExtractor.getLabelVector(cls.getIRI().getFragment(), store));
 			}	
 		}
 		
@@ -145,21 +207,43 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 		
 	}
 
+	/**
+	 * Creates an array holding the embedding vector of each class in a feature index, in the same way as createVectorMap().
+	 * @param index the feature index of an OWL ontology
+	 * @param store the embedding store holding terms and corresponding embedding vectors.
+	 * @return the embedding vector of each class id, or null for classes whose name is not in the embeddings.
+	 */
+	private static double[][] createVectors (OntologyFeatureIndex index, EmbeddingStore store) {
+		
+		double[][] vectors = new double[index.size()][];
+		
+		for (int i = 0; i < index.size(); i++) {
+			
+			if (store.contains(index.getLowerCaseName(i))) {				
+				
+				vectors[i] = VectorExtractor.getLabelVector(index.getName(i), store);
+			}	
+		}
+
+		return vectors;
+		
+	}
+
 	/**
 	 * Creates an alignment holding a set of relations.
 	 * The confidence assigned to each relation is computed by the cosine similarity from embedding vectors associated with each concept name.
 	 */
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
-		Map<String, double[]> vectorMapSourceOntology = new HashMap<String, double[]>();
-		Map<String, double[]> vectorMapTargetOntology = new HashMap<String, double[]>();
-		try {
-			vectorMapSourceOntology = createVectorMap(sourceOntology, vectorFile);
-		} catch (IOException e1) {
-			e1.printStackTrace();
-		}
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
 
+		//the embedding vector of each class id (null if the class name is not in the embeddings)
+		double[][] vectorMapSourceOntology = new double[sourceIndex.size()][];
+		double[][] vectorMapTargetOntology = new double[targetIndex.size()][];
 		try {
-			vectorMapTargetOntology = createVectorMap(targetOntology, vectorFile);
+			EmbeddingStore store = this.store != null ? this.store : EmbeddingStore.forVectorFile(vectorFile);
+			vectorMapSourceOntology = createVectors(sourceIndex, store);
+			vectorMapTargetOntology = createVectors(targetIndex, store);
 		} catch (IOException e1) {
 			e1.printStackTrace();
 		}
@@ -168,23 +252,26 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 		double[] targetVectors = null;
 
 		double cosineSim = 0;
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					idCounter++;
-					
-					String source = ontology1().getEntityName(sourceObject).toLowerCase();
-					String target = ontology2().getEntityName(targetObject).toLowerCase();
+				int s = sourceIndex.getId(sourceObject);
+				sourceVectors = vectorMapSourceOntology[s];
 
-					if (vectorMapSourceOntology.containsKey(source) && vectorMapTargetOntology.containsKey(target)) {
-						
-						sourceVectors = vectorMapSourceOntology.get(source);
-						targetVectors = vectorMapTargetOntology.get(target);
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
+
+					targetVectors = vectorMapTargetOntology[t];
+
+					if (sourceVectors != null && targetVectors != null) {
 
 						//ensure that both vectors have the same, correct size (not sure why they shouldn´t be...)
 						if (sourceVectors.length == 300 && targetVectors.length == 300) {
@@ -192,19 +279,18 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 							cosineSim = algorithms.utilities.Cosine.cosineSimilarity(sourceVectors, targetVectors);
 							
 							//calculate the final confidence using a sigmoid function
-							addAlignCell("WordEmbeddingMatcherSigmoid" +idCounter, sourceObject, targetObject, "=", 
-									Sigmoid.weightedSigmoid(slope, cosineSim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+							scores.set(s, t, "=", Sigmoid.weightedSigmoid(slope, cosineSim, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 
 						} else {
 							
-							addAlignCell("WordEmbeddingMatcherSigmoid" +idCounter, sourceObject, targetObject, "=", 0);
+							//no relation, zero scores are not stored
 
 						}
 
 
 					} else {
 						
-						addAlignCell("WordEmbeddingMatcherSigmoid" +idCounter, sourceObject, targetObject, "=", 0);
+						//no relation, zero scores are not stored
 						
 					}
 
@@ -212,6 +298,8 @@ public class WordEmbeddingMatcherSigmoid extends ObjectAlignment implements Alig
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "WordEmbeddingMatcherSigmoid", sourceIndex, targetIndex);
 		
 
 
@@ -1,16 +1,22 @@
 package algorithms.ontologyprofiling;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.OWLClass;
@@ -22,7 +28,9 @@ import org.semanticweb.owlapi.reasoner.OWLReasoner;
 import algorithms.utilities.MathUtils;
 import algorithms.utilities.OntologyOperations;
 import algorithms.utilities.StringUtilities;
+import algorithms.utilities.TextPipeline;
 import algorithms.utilities.WordNet;
+import algorithms.wordembedding.EmbeddingStore;
 import fr.inrialpes.exmo.ontowrap.OntowrapException;
 import rita.wordnet.jwnl.JWNLException;
 
@@ -37,6 +45,13 @@ public class OntologyProfiler {
 
 	final static double affinityThreshold = 0.2;
 	final static double tokenEqualityThreshold = 0.2;
+
+	/**
+	 * The pool the profiling metrics run on. The metrics split their own work (e.g. the WordNet lookups of the Lexical Coverage)
+	 * into parallel streams, which run on the pool of the task that starts them, so one pool sized to the cores serves both.
+	 * Its worker threads are daemon threads.
+	 */
+	private static final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 	//	final static BabelNet bn = BabelNet.getInstance();
 
 	public OntologyProfiler() {
@@ -162,23 +177,107 @@ public class OntologyProfiler {
 	 * @throws net.sf.extjwnl.JWNLException 
 	 */
 	public static Map<String, Double> computeOntologyProfileScores(File ontoFile1, File ontoFile2, String embeddings, Boolean equivalence, Boolean subsumption) throws OWLOntologyCreationException, JWNLException, IOException {
+		
+		//the embeddings are only needed for the Corpus Coverage (CC) measure, which is computed for equivalence only
+		EmbeddingStore store = equivalence ? EmbeddingStore.forVectorFile(embeddings) : null;
+
+		return computeOntologyProfileScores(ontoFile1, ontoFile2, store, equivalence, subsumption);
+	}
+
+	/**
+	 * Creates a map that for two input ontologies represents the ontology profiling scores.
+	 * @param ontoFile1 source ontology
+	 * @param ontoFile2 target ontology
+	 * @param embeddings an already loaded embedding store used to compute the Corpus Coverage (CC) measure (may be null if equivalence is false).
+	 * @param equivalence whether the scores used for picking equivalence matchers should be computed
+	 * @param subsumption whether the scores used for picking subsumption matchers should be computed
+	 * @return a map where the short name of the ontology profiling metric is key and the score from the ontology profiling is value.
+	 * @throws OWLOntologyCreationException
+	 * @throws JWNLException
+	 * @throws IOException
+	 */
+	public static Map<String, Double> computeOntologyProfileScores(File ontoFile1, File ontoFile2, EmbeddingStore embeddings, Boolean equivalence, Boolean subsumption) throws OWLOntologyCreationException, JWNLException, IOException {
+
+		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
+		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
+
+		return computeOntologyProfileScores(onto1, onto2, embeddings, equivalence, subsumption);
+	}
+
+	/**
+	 * Creates a map that for two already loaded ontologies represents the ontology profiling scores.
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @param embeddings an already loaded embedding store used to compute the Corpus Coverage (CC) measure (may be null if equivalence is false).
+	 * @param equivalence whether the scores used for picking equivalence matchers should be computed
+	 * @param subsumption whether the scores used for picking subsumption matchers should be computed
+	 * @return a map where the short name of the ontology profiling metric is key and the score from the ontology profiling is value.
+	 * @throws JWNLException
+	 * @throws IOException
+	 */
+	public static Map<String, Double> computeOntologyProfileScores(OWLOntology onto1, OWLOntology onto2, EmbeddingStore embeddings, Boolean equivalence, Boolean subsumption) throws JWNLException, IOException {
+
+		Map<String, CompletableFuture<Double>> scores = submitOntologyProfileScores(onto1, onto2, embeddings, equivalence, subsumption);
 
 		Map<String, Double> ontologyProfileScores = new HashMap<String, Double>();
+		for (Map.Entry<String, CompletableFuture<Double>> score : scores.entrySet()) {
+			ontologyProfileScores.put(score.getKey(), await(score.getValue()));
+		}
+
+		return ontologyProfileScores;
+
+	}
+
+	/**
+	 * Starts computing the ontology profiling scores for two already loaded ontologies and returns at once.
+	 * The metrics only read the two ontologies, so they are computed at the same time on the profiler pool, and each future
+	 * completes as soon as its own metric is known. A future that is cancelled before its metric has started is never computed.
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @param embeddings an already loaded embedding store used to compute the Corpus Coverage (CC) measure (may be null if equivalence is false).
+	 * @param equivalence whether the scores used for picking equivalence matchers should be computed
+	 * @param subsumption whether the scores used for picking subsumption matchers should be computed
+	 * @return a map where the short name of the ontology profiling metric is key and the future score is value.
+	 */
+	public static Map<String, CompletableFuture<Double>> submitOntologyProfileScores(OWLOntology onto1, OWLOntology onto2, EmbeddingStore embeddings, Boolean equivalence, Boolean subsumption) {
+
+		Map<String, CompletableFuture<Double>> scores = new LinkedHashMap<String, CompletableFuture<Double>>();
 		if (subsumption){
-			ontologyProfileScores.put("cf", computeCompoundFraction(ontoFile1, ontoFile2));
+			scores.put("cf", submit(() -> computeCompoundFraction(onto1, onto2)));
 		}
 		if (equivalence){
-			ontologyProfileScores.put("cc", computeCorpusCoverage(ontoFile1, ontoFile2, embeddings));
-			ontologyProfileScores.put("pf", computePropertyFraction(ontoFile1, ontoFile2));
+			scores.put("cc", submit(() -> computeCorpusCoverage(onto1, onto2, embeddings)));
+			scores.put("pf", submit(() -> computePropertyFraction(onto1, onto2)));
 		}
-		ontologyProfileScores.put("dc", computeDefinitionCoverage(ontoFile1, ontoFile2));
-		ontologyProfileScores.put("sp", computeStructuralProfile(ontoFile1, ontoFile2));
-		ontologyProfileScores.put("lc", computeLexicalCoverage(ontoFile1, ontoFile2));
-		//ontologyProfileScores.put("sr", computeSynonymRichnessWordNet(ontoFile1, ontoFile2));
-		//ontologyProfileScores.put("hr", computeHyponymRichnessWordNet(ontoFile1, ontoFile2));
+		scores.put("dc", submit(() -> computeDefinitionCoverage(onto1, onto2)));
+		scores.put("sp", submit(() -> computeStructuralProfile(onto1, onto2)));
+		scores.put("lc", submit(() -> computeLexicalCoverage(onto1, onto2)));
+		//scores.put("sr", submit(() -> computeSynonymRichnessWordNet(onto1, onto2)));
+		//scores.put("hr", submit(() -> computeHyponymRichnessWordNet(onto1, onto2)));
 
-		return ontologyProfileScores;
+		return scores;
+
+	}
 
+	/**
+	 * Computes a profiling metric on the profiler pool, unless the returned future has been cancelled before the metric is started.
+	 * @param metric the computation of the metric
+	 * @return the future score of the metric
+	 */
+	private static CompletableFuture<Double> submit(Callable<Double> metric) {
+		CompletableFuture<Double> score = new CompletableFuture<Double>();
+		pool.execute(() -> {
+			if (score.isDone()) {
+				return;
+			}
+			try {
+				score.complete(metric.call());
+			} catch (Throwable e) {
+				score.completeExceptionally(e);
+			}
+		});
+		return score;
 	}
 
 	/**
@@ -193,34 +292,43 @@ public class OntologyProfiler {
 	 */
 	public static double computeCorpusCoverage(File ontoFile1, File ontoFile2, String corpusPath) throws IOException, OWLOntologyCreationException {
 
+		return computeCorpusCoverage(ontoFile1, ontoFile2, EmbeddingStore.forVectorFile(corpusPath));
+
+	}
+
+	/**
+	 * The Corpus Coverage (CC) metric analyses how many individual tokens from the two input ontologies reside in a corpus representing word embeddings. 
+	 * @param ontoFile1 source ontology
+	 * @param ontoFile2 target ontology
+	 * @param store an embedding store holding the corpus.
+	 * @return the Corpus Coverage score.
+	 * @throws OWLOntologyCreationException
+	 */
+	public static double computeCorpusCoverage(File ontoFile1, File ontoFile2, EmbeddingStore store) throws OWLOntologyCreationException {
+
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology sourceOntology = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology targetOntology = manager.loadOntologyFromOntologyDocument(ontoFile2);	
 
-		File corpusFile = new File(corpusPath);
+		return computeCorpusCoverage(sourceOntology, targetOntology, store);
+
+	}
+
+	/**
+	 * The Corpus Coverage (CC) metric analyses how many individual tokens from the two input ontologies reside in a corpus representing word embeddings. 
+	 * @param sourceOntology source ontology
+	 * @param targetOntology target ontology
+	 * @param store an embedding store holding the corpus.
+	 * @return the Corpus Coverage score.
+	 */
+	public static double computeCorpusCoverage(OWLOntology sourceOntology, OWLOntology targetOntology, EmbeddingStore store) {
 
 		Set<String> tokens = new HashSet<String>();
 		tokens.addAll(OntologyOperations.getAllOntologyTokens(sourceOntology));
 		tokens.addAll(OntologyOperations.getAllOntologyTokens(targetOntology));
 
-		BufferedReader br=new BufferedReader(new FileReader(corpusFile));
-
-		String line;
-		String wordToCheck = null;
-		int tokenMatchCounter = 0;
-
-		while((line=br.readLine())!=null) {
-
-			//get the first word of the line			
-			int i = line.indexOf(' ');
-			wordToCheck = line.substring(0, i);
-			if (tokens.contains(wordToCheck)) {
-				tokenMatchCounter++;
-			}
-
-		}
-
-		br.close();
+		//the store lookups are independent, so the tokens are split across the cores
+		long tokenMatchCounter = tokens.parallelStream().filter(store::contains).count();
 
 		return (double) tokenMatchCounter / (double) tokens.size();
 
@@ -241,42 +349,55 @@ public class OntologyProfiler {
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 
+		return computeStructuralProfile(onto1, onto2);
+	}
+
+	/**
+	 * The Structural Profile onsiders the coverage of subclasses and superclasses in the two ontologies, and is computed as the fraction 
+	 * of classes that have sub- or superclasses associated with them over all classes in both ontologies.
+	 * @param onto1
+	 * @param onto2
+	 * @return
+	 */
+	public static double computeStructuralProfile(OWLOntology onto1, OWLOntology onto2) {
+
 		double structureProfile = 0;
 
 		int numClasses = onto1.getClassesInSignature().size() + onto2.getClassesInSignature().size();
 
-		int subclasses = 0;
-		int superclasses = 0;
-		int counterOnto1 = 0;
-		int counterOnto2 = 0;
+		//the two ontologies are counted in parallel, each with its own reasoner
+		ForkJoinTask<Integer> countOnto2 = ForkJoinTask.adapt(() -> countClassesInHierarchy(onto2)).fork();
+		int counterOnto1 = countClassesInHierarchy(onto1);
+		int counterOnto2 = countOnto2.join();
 
-		OWLReasoner reasonerOnto1 = OntologyOperations.reasonerFactory.createReasoner(onto1); //Is done here instead of in ontologyoperations since generating multiple reasoners would cause out of memory
-		OWLReasoner reasonerOnto2 = OntologyOperations.reasonerFactory.createReasoner(onto2); //Is done here instead of in ontologyoperations since generating multiple reasoners would cause out of memory
+		structureProfile = ((double) counterOnto1 + (double) counterOnto2) / (double) numClasses;
 
-		for (OWLClass c : onto1.getClassesInSignature()) {
-			subclasses = OntologyOperations.getEntitySubclasses(onto1, c, reasonerOnto1).size();
-			superclasses = OntologyOperations.getEntitySuperclasses(onto1, c, reasonerOnto1).size();
+		return structureProfile;
 
-			if (subclasses > 0 || superclasses > 0) {
-				counterOnto1++;
-			}
+	}
 
-		}
+	/**
+	 * Counts the classes of an ontology that have sub- or superclasses associated with them.
+	 * @param onto the ontology whose classes are counted
+	 * @return the number of classes having sub- or superclasses
+	 */
+	private static int countClassesInHierarchy(OWLOntology onto) {
 
-		for (OWLClass c : onto2.getClassesInSignature()) {
-			subclasses = OntologyOperations.getEntitySubclasses(onto2, c, reasonerOnto2).size();
-			superclasses = OntologyOperations.getEntitySuperclasses(onto2, c, reasonerOnto2).size();
+		OWLReasoner reasoner = OntologyOperations.createReasoner(onto); //Is done here instead of in ontologyoperations since generating multiple reasoners would cause out of memory
+
+		int counter = 0;
+
+		for (OWLClass c : onto.getClassesInSignature()) {
+			int subclasses = OntologyOperations.getEntitySubclasses(onto, c, reasoner).size();
+			int superclasses = OntologyOperations.getEntitySuperclasses(onto, c, reasoner).size();
 
 			if (subclasses > 0 || superclasses > 0) {
-				counterOnto2++;
+				counter++;
 			}
 
 		}
 
-		structureProfile = ((double) counterOnto1 + (double) counterOnto2) / (double) numClasses;
-
-		return structureProfile;
-
+		return counter;
 	}
 
 	/**
@@ -293,6 +414,18 @@ public class OntologyProfiler {
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 
+		return computeCompoundFraction(onto1, onto2);
+	}
+
+	/**
+	 * Returns a count of how many classes are considered compound words in an
+	 * ontology
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return numCompounds a double stating the percentage of how many of the classes in the ontology are compounds
+	 */
+	public static double computeCompoundFraction(OWLOntology onto1, OWLOntology onto2) {
+
 		int numClassesTotalOnto1 = onto1.getClassesInSignature().size();
 		int numClassesTotalOnto2 = onto2.getClassesInSignature().size();
 		int counterOnto1 = 0;
@@ -327,9 +460,24 @@ public class OntologyProfiler {
 	   Jul 18, 2019
 	 */
 	public static double computeDefinitionCoverage(File ontoFile1, File ontoFile2) throws OWLOntologyCreationException {
+
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
+
+		return computeDefinitionCoverage(onto1, onto2);
+	}
+
+	/**
+	 * The Definition Coverage (DC) metric aims to capture how well annotated the concepts in the input ontologies are.
+	 * It is calculated by measuring the fraction of concepts that are annotated in each of the two ontologies, and the 
+	 * minimum of the two fractions is used to define the Definition Coverage. 
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return a score representing the Definition Coverage (DC)
+	 */
+	public static double computeDefinitionCoverage(OWLOntology onto1, OWLOntology onto2) {
+
 		int numClassesTotalOnto1 = onto1.getClassesInSignature().size();
 		int numClassesTotalOnto2 = onto2.getClassesInSignature().size();
 		int counterOnto1 = 0;
@@ -342,7 +490,7 @@ public class OntologyProfiler {
 
 			if (def != null) {
 				
-				String def_without_stopwords = StringUtilities.removeStopWords(def);
+				String def_without_stopwords = TextPipeline.removeStopWords(def);
 				
 				String[] tokens = def_without_stopwords.split(" ");
 				
@@ -362,7 +510,7 @@ public class OntologyProfiler {
 
 			if (def != null) {
 				
-				String def_without_stopwords = StringUtilities.removeStopWords(def);
+				String def_without_stopwords = TextPipeline.removeStopWords(def);
 
 				String[] tokens = def_without_stopwords.split(" ");
 
@@ -392,13 +540,24 @@ public class OntologyProfiler {
 	 */
 	public static double computeHyponymRichnessWordNet(File ontoFile1, File ontoFile2) throws OWLOntologyCreationException {
 
-		double hyponymCounterOnto1 = 0;
-		double hyponymCounterOnto2 = 0;
-
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 
+		return computeHyponymRichnessWordNet(onto1, onto2);
+	}
+
+	/**
+	 * Returns the average number of hyponyms in WordNet for each class in an ontology
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return a score representing the average number of hyponyms per class for two input ontologies.
+	 */
+	public static double computeHyponymRichnessWordNet(OWLOntology onto1, OWLOntology onto2) {
+
+		double hyponymCounterOnto1 = 0;
+		double hyponymCounterOnto2 = 0;
+
 		int numClassesTotalOnto1 = onto1.getClassesInSignature().size();
 		int numClassesTotalOnto2 = onto2.getClassesInSignature().size();
 
@@ -439,13 +598,24 @@ public class OntologyProfiler {
 	 */
 	public static double computeSynonymRichnessWordNet(File ontoFile1, File ontoFile2) throws OWLOntologyCreationException {
 
-		double synonymCounterOnto1 = 0;
-		double synonymCounterOnto2 = 0;
-
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
 
+		return computeSynonymRichnessWordNet(onto1, onto2);
+	}
+
+	/**
+	 * Returns the average number of synonyms in WordNet for each class in two input ontologies
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return a score representing the average number of synonyms per class in two input ontologies.
+	 */
+	public static double computeSynonymRichnessWordNet(OWLOntology onto1, OWLOntology onto2) {
+
+		double synonymCounterOnto1 = 0;
+		double synonymCounterOnto2 = 0;
+
 		int numClassesTotalOnto1 = onto1.getClassesInSignature().size();
 		int numClassesTotalOnto2 = onto2.getClassesInSignature().size();
 
@@ -486,9 +656,23 @@ public class OntologyProfiler {
 	   Jul 18, 2019
 	 */
 	public static double computePropertyFraction(File ontoFile1, File ontoFile2) throws OWLOntologyCreationException {
+
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto1 = manager.loadOntologyFromOntologyDocument(ontoFile1);
 		OWLOntology onto2 = manager.loadOntologyFromOntologyDocument(ontoFile2);
+
+		return computePropertyFraction(onto1, onto2);
+	}
+
+	/**
+	 * The Property Fraction (PF) measures the extent to which the input ontologies include properties (data- and object properties). 
+	 * PF is computed as the fraction of classes that are associated with data- or object properties over the total number of classes in the two ontologies. 
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return a score representing the Property Fraction (PF)
+	 */
+	public static double computePropertyFraction(OWLOntology onto1, OWLOntology onto2) {
+
 		int numClassesTotalOnto1 = onto1.getClassesInSignature().size();
 		int numClassesTotalOnto2 = onto2.getClassesInSignature().size();
 		int counterOnto1 = 0;
@@ -533,6 +717,55 @@ public class OntologyProfiler {
 		return lexicalCoverage;
 	}
 
+	/**
+	 * The Lexical Coverage (WC) measures the percentage of terms with label or local name present in WordNet.
+	 * @param onto1 source ontology
+	 * @param onto2 target ontology
+	 * @return a score representing the Lexical Coverage (LC)
+	 * @throws FileNotFoundException
+	 * @throws JWNLException
+	 */
+	public static double computeLexicalCoverage(OWLOntology onto1, OWLOntology onto2)
+			throws FileNotFoundException, JWNLException {
 
+		double lexicalCoverage = (OntologyOperations.getWordNetCoverageComp(onto1)
+				+ OntologyOperations.getWordNetCoverageComp(onto2)) / 2;
+
+		return lexicalCoverage;
+	}
+
+	/**
+	 * Waits for a profiling metric computed on the profiler pool and rethrows the exception it failed with.
+	 * @param score the future score of the metric
+	 * @return the score of the metric
+	 * @throws JWNLException
+	 * @throws IOException
+	 */
+	private static double await(Future<Double> score) throws JWNLException, IOException {
+		try {
+			return score.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while profiling the ontologies");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IllegalStateException && cause.getCause() instanceof JWNLException) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof JWNLException) {
+				throw (JWNLException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
 
 }
@@ -2,8 +2,10 @@ package algorithms.subsumptionmatching;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -12,11 +14,13 @@ import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentProcess;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.WordNet;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
@@ -25,12 +29,19 @@ import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import rita.wordnet.jwnl.JWNLException;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 
 public class BasicSubsumptionMatcher extends ObjectAlignment implements AlignmentProcess, Algorithm {
 
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
 	public BasicSubsumptionMatcher(){}
 
 	public BasicSubsumptionMatcher(OWLOntology onto1, OWLOntology onto2) {
@@ -43,6 +54,18 @@ public class BasicSubsumptionMatcher extends ObjectAlignment implements Alignmen
 		return returnBasicSUBMatcherAlignment(ontoFile1, ontoFile2);
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		BasicSubsumptionMatcher a = new BasicSubsumptionMatcher(context.getSourceOntology(), context.getTargetOntology());
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, false);
+	}
+
 	public static URIAlignment returnBasicSUBMatcherAlignment (File ontoFile1, File ontoFile2) throws OWLOntologyCreationException, AlignmentException {
 
 		URIAlignment BasicSUBMatcherAlignment = new URIAlignment();
@@ -69,11 +92,14 @@ public class BasicSubsumptionMatcher extends ObjectAlignment implements Alignmen
 	}
 	
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
 		Map<String, Set<String>> hyponymMapOnto1 = new HashMap<String, Set<String>>();
 		Map<String, Set<String>> hyponymMapOnto2 = new HashMap<String, Set<String>>();
 		//get classes and corresponding hyponyms for onto 1
 		try {
-			hyponymMapOnto1 = createHyponymMap(sourceOntology);
+			hyponymMapOnto1 = createHyponymMap(sourceIndex);
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (JWNLException e) {
@@ -82,7 +108,7 @@ public class BasicSubsumptionMatcher extends ObjectAlignment implements Alignmen
 
 		//get classes and corresponding hyponyms for onto 2
 		try {
-			hyponymMapOnto2 = createHyponymMap(targetOntology);
+			hyponymMapOnto2 = createHyponymMap(targetIndex);
 		} catch (FileNotFoundException e) {
 			e.printStackTrace();
 		} catch (JWNLException e) {
@@ -91,46 +117,63 @@ public class BasicSubsumptionMatcher extends ObjectAlignment implements Alignmen
 
 		//System.err.println("Finished creating the initial data structures");
 
+		//the hyponyms of each class id (null if the class is not in WordNet)
+		List<Set<String>> hyponymsOnto1 = new ArrayList<Set<String>>(sourceIndex.size());
+		for (int i = 0; i < sourceIndex.size(); i++) {
+			hyponymsOnto1.add(hyponymMapOnto1.get(sourceIndex.getLowerCaseName(i)));
+		}
+
+		List<Set<String>> hyponymsOnto2 = new ArrayList<Set<String>>(targetIndex.size());
+		for (int i = 0; i < targetIndex.size(); i++) {
+			hyponymsOnto2.add(hyponymMapOnto2.get(targetIndex.getLowerCaseName(i)));
+		}
+
 		Set<String> sourceHyponyms = new HashSet<String>();
 		Set<String> targetHyponyms = new HashSet<String>();
 
 		
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
-					
-					idCounter++;
 
-					String source = ontology1().getEntityName(sourceObject);
-					String target = ontology2().getEntityName(targetObject);
+				int s = sourceIndex.getId(sourceObject);
+				String source = sourceIndex.getLowerCaseName(s);
 
-					if (hyponymMapOnto1.containsKey(source.toLowerCase())) {
-					sourceHyponyms = hyponymMapOnto1.get(source.toLowerCase());
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
+
+					String target = targetIndex.getLowerCaseName(t);
+
+					if (hyponymsOnto1.get(s) != null) {
+					sourceHyponyms = hyponymsOnto1.get(s);
 
 					}
 									
-					if (hyponymMapOnto2.containsKey(target.toLowerCase())) {
-					targetHyponyms = hyponymMapOnto2.get(target.toLowerCase());
+					if (hyponymsOnto2.get(t) != null) {
+					targetHyponyms = hyponymsOnto2.get(t);
 
 					}
 					
 					
 					//if the source concept equals a hyponym of the target concept
-					if (targetHyponyms != null && targetHyponyms.contains(source.toLowerCase())) {
-						addAlignCell("BasicSubsumptionMatcher" +idCounter, sourceObject, targetObject, "&lt;", 0.6);
+					if (targetHyponyms != null && targetHyponyms.contains(source)) {
+						scores.set(s, t, "&lt;", 0.6);
 					} 
 
 
 					//if the target concept equals a hyponym of the source concept
-					if (sourceHyponyms != null && sourceHyponyms.contains(target.toLowerCase())) {
-						addAlignCell("BasicSubsumptionMatcher" +idCounter, sourceObject, targetObject, "&gt;", 0.6);
+					if (sourceHyponyms != null && sourceHyponyms.contains(target)) {
+						scores.set(s, t, "&gt;", 0.6);
 					} 
 					
 					else {
-						addAlignCell("BasicSubsumptionMatcher" +idCounter, sourceObject, targetObject, "&gt;", 0.0);
+						//no relation, zero scores are not stored
 					}
 
 				}
@@ -138,29 +181,31 @@ public class BasicSubsumptionMatcher extends ObjectAlignment implements Alignmen
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "BasicSubsumptionMatcher", sourceIndex, targetIndex);
 	}
 	
-	private static Map<String, Set<String>> createHyponymMap (OWLOntology onto) throws FileNotFoundException, JWNLException {
+	private static Map<String, Set<String>> createHyponymMap (OntologyFeatureIndex index) throws FileNotFoundException, JWNLException {
 		
 		Map<String, Set<String>> hyponymMap = new HashMap<String, Set<String>>();
 	
 		Set<String> hyponyms = new HashSet<String>();
 		
-		for (OWLClass c : onto.getClassesInSignature()) {
+		for (int i = 0; i < index.size(); i++) {
 			
 			
-			if (WordNet.containedInWordNet(c.getIRI().getFragment().toLowerCase())) {
+			if (WordNet.containedInWordNet(index.getLowerCaseName(i))) {
         
         hyponyms = null;
         try{
-          hyponyms = WordNet.getHyponymsAsSet(c.getIRI().getFragment().toLowerCase());
+          hyponyms = WordNet.getHyponymsAsSet(index.getLowerCaseName(i));
         } catch (Exception e){
           throw new IllegalStateException("This function doesn't work because of the above line. Makes some string tokenizer exception");
         }
 				
 				if (hyponyms != null) {
 				
-				hyponymMap.put(c.getIRI().getFragment().toLowerCase(), hyponyms);
+				hyponymMap.put(index.getLowerCaseName(i), hyponyms);
 								
 				}
 			}
@@ -1,6 +1,10 @@
 package algorithms.subsumptionmatching;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -12,6 +16,9 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 import algorithms.utilities.StringUtilities;
 import algorithms.utilities.WordNet;
@@ -21,6 +28,7 @@ import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 /**
@@ -40,6 +48,12 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
 	public CompoundMatcherSigmoid(double profileScore) {
 		this.profileScore = profileScore;
 	}
@@ -61,6 +75,22 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 		return returnCMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax); 
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		CompoundMatcherSigmoid a = new CompoundMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, false);
+	}
+
 	
 
 	public static URIAlignment returnCMAlignment (File ontoFile1, File ontoFile2, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
@@ -93,108 +123,111 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 		//System.out.println("\nStarting Compound Matcher...");
 		//long startTime = System.currentTimeMillis();
 
-		int idCounter = 0;
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		int numModifiers = 0;
 
 		try {
+			//the number of compound modifiers and the WordNet synonyms of each class are computed once, not once per pair
+			int[] sourceModifiers = countModifiers(sourceIndex);
+			int[] targetModifiers = countModifiers(targetIndex);
+			List<Set<String>> sourceSynonyms = getSynonyms(sourceIndex);
+			List<Set<String>> targetSynonyms = getSynonyms(targetIndex);
+
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
 
-					idCounter++;
+				int s = sourceIndex.getId(sourceObject);
+				String source = sourceIndex.getName(s);
+
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					String source = ontology1().getEntityName(sourceObject);
-					String target = ontology2().getEntityName(targetObject);
+					String target = targetIndex.getName(t);
 
 					//if s1´s compound head (Research[Project]) equals the full name of s2 (Project): source < target
-					if (isCompoundRelation(source, target)) {
+					if (isCompoundRelation(sourceIndex.getCompoundParts(s), target)) {
 
-						numModifiers = StringUtilities.getWordsAsSetFromCompound(StringUtilities.getCompoundModifier(source)).size();
+						numModifiers = sourceModifiers[s];
 
 						if (numModifiers == 1) {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else if (numModifiers == 2) {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else {
 
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						}
 					}
 
 					//if s2´s compound head (Research[Project]) equals the full name of s1 (Project): source > target
-					else if (isCompoundRelation(target, source)) {
+					else if (isCompoundRelation(targetIndex.getCompoundParts(t), source)) {
 
-						numModifiers = StringUtilities.getWordsAsSetFromCompound(StringUtilities.getCompoundModifier(target)).size();
+						numModifiers = targetModifiers[t];
 
 						if (numModifiers == 1) {
 							
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else if (numModifiers == 2) {
 							
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else {
 							
 							//using sigmoid function to compute confidence
-							 addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-							Sigmoid.weightedSigmoid(slope, 0.50, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							 scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.50, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						}
 
 					}
 
 					//if any synonym of the compound head of s1 (Research[Undertaking]) equals the full name of s2 (Project): source < target
-					else if(isCompoundSynRelation(source, target)) {
+					else if(targetSynonyms.get(t).contains(sourceIndex.getCompoundHead(s))) {
 
-						numModifiers = StringUtilities.getWordsAsSetFromCompound(StringUtilities.getCompoundModifier(source)).size();
+						numModifiers = sourceModifiers[s];
 
 						if (numModifiers == 1) {							
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else if (numModifiers == 2) {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 						} else {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, 0.25, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.25, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						}
 					}
 
 					//if any synonyms of the compound head of s2 (Research[Undertaking]) equals the full name of s1 (Project): source > target
-					else if(isCompoundSynRelation(target, source)) {
+					else if(sourceSynonyms.get(s).contains(targetIndex.getCompoundHead(t))) {
 
-						numModifiers = StringUtilities.getWordsAsSetFromCompound(StringUtilities.getCompoundModifier(target)).size();
+						numModifiers = targetModifiers[t];
 
 						if (numModifiers == 1) {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else if (numModifiers == 2) {							
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.5, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax))); 
 						} else {
 							//using sigmoid function to compute confidence
-							addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, 0.25, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.25, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));  
 						}
 
 					}
 					//if none of the patterns above fits...
 					else {
-						addAlignCell("CompoundMatcherSigmoid" +idCounter, sourceObject,targetObject, "!", 0.0); 
+						//no relation, zero scores are not stored
 					}
 
 				}
@@ -202,6 +235,8 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 
 		} catch (Exception e) { e.printStackTrace(); }
 
+		scores.addToAlignment(this, "CompoundMatcherSigmoid", sourceIndex, targetIndex);
+
 		//long endTime = System.currentTimeMillis();
 		//System.out.println("Compound Matcher completed in " + (endTime - startTime) / 1000 + " seconds.");
 	}
@@ -209,9 +244,19 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 	
 
 	public static boolean isCompoundRelation(String a, String b) {
-		boolean test = false;
 
-		String[] compounds = StringUtilities.getCompoundParts(a);
+		return isCompoundRelation(StringUtilities.getCompoundParts(a), b);
+
+	}
+
+	/**
+	 * Checks whether the compound head of a (given as its compound parts) equals b.
+	 * @param compounds the compound parts of concept a
+	 * @param b
+	 * @return
+	 */
+	private static boolean isCompoundRelation(String[] compounds, String b) {
+		boolean test = false;
 
 		if (compounds.length > 2) {
 
@@ -231,6 +276,37 @@ public class CompoundMatcherSigmoid extends ObjectAlignment implements Alignment
 
 	}
 
+	/**
+	 * Counts the distinct words in the compound modifier of each class, e.g. 1 for ResearchProject.
+	 * @param index the feature index of an ontology
+	 * @return the number of modifier words of each class id
+	 */
+	private static int[] countModifiers(OntologyFeatureIndex index) {
+		int[] modifiers = new int[index.size()];
+		for (int i = 0; i < index.size(); i++) {
+			modifiers[i] = new HashSet<String>(Arrays.asList(index.getCompoundModifierParts(i))).size();
+		}
+		return modifiers;
+	}
+
+	/**
+	 * Collects the lowercased WordNet synonyms of each class, along with the lowercased class name itself, as used by isCompoundSynRelation().
+	 * @param index the feature index of an ontology
+	 * @return the synonyms of each class id
+	 */
+	private static List<Set<String>> getSynonyms(OntologyFeatureIndex index) {
+		List<Set<String>> synonymsById = new ArrayList<Set<String>>(index.size());
+		for (int i = 0; i < index.size(); i++) {
+			Set<String> synonyms = new HashSet<String>();
+			for (String syn : WordNet.getSynonymSet(index.getName(i))) {
+				synonyms.add(syn.toLowerCase());
+			}
+			synonyms.add(index.getLowerCaseName(i));
+			synonymsById.add(synonyms);
+		}
+		return synonymsById;
+	}
+
 	/**
 	 * Find synonyms of concept b in WordNet and compares all of them to the compound head of concept a. If any of the synonyms are equal to the 
 	 * compound head of a, b < a. 
@@ -1,11 +1,7 @@
 package algorithms.subsumptionmatching;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 import java.util.Properties;
-import java.util.Set;
 
 import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
@@ -15,7 +11,9 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
-import algorithms.utilities.OntologyOperations;
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
@@ -23,12 +21,19 @@ import fr.inrialpes.exmo.align.impl.ObjectAlignment;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 public class ContextSubsumptionMatcherSigmoid extends ObjectAlignment implements AlignmentProcess, Algorithm {
 
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
+
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
 	
 	//these attributes are used to calculate the weight associated with the matcher's confidence value
 	double profileScore;
@@ -57,6 +62,22 @@ public class ContextSubsumptionMatcherSigmoid extends ObjectAlignment implements
 		return returnCSMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax); 
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		ContextSubsumptionMatcherSigmoid a = new ContextSubsumptionMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, false);
+	}
+
 	public static URIAlignment returnCSMAlignment (File ontoFile1, File ontoFile2, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
 
 		URIAlignment CSMAlignment = new URIAlignment();
@@ -84,93 +105,60 @@ public class ContextSubsumptionMatcherSigmoid extends ObjectAlignment implements
 	
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
 	
-		Map<String, Set<String>> classesAndSubclassesMapOnto1 = new HashMap<String, Set<String>>();
-		Map<String, Set<String>> classesAndSubclassesMapOnto2 = new HashMap<String, Set<String>>();
-	
-		Map<String, Set<String>> classesAndSuperclassesMapOnto1 = new HashMap<String, Set<String>>();
-		Map<String, Set<String>> classesAndSuperclassesMapOnto2 = new HashMap<String, Set<String>>();
-		//get concepts and associated subclasses for onto1
-		try {
-			classesAndSubclassesMapOnto1 = OntologyOperations.getClassesAndAllSubClasses(sourceOntology);
-		} catch (OWLOntologyCreationException e1) {
-			e1.printStackTrace();
-		}
+		//the direct sub- and superclasses of each class are taken from the feature index
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
 
-		//get concepts and associated subclasses for onto1
-		try {
-			classesAndSubclassesMapOnto2 = OntologyOperations.getClassesAndAllSubClasses(targetOntology);
-		} catch (OWLOntologyCreationException e1) {
-			e1.printStackTrace();
-		}
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
-			classesAndSuperclassesMapOnto1 = OntologyOperations.getClassesAndAllSuperClasses(sourceOntology);
-		} catch (OWLOntologyCreationException e1) {
-			e1.printStackTrace();
-		}
-		try {
-			classesAndSuperclassesMapOnto2 = OntologyOperations.getClassesAndAllSuperClasses(targetOntology);
-		} catch (OWLOntologyCreationException e1) {
-			e1.printStackTrace();
-		}
-
-		//System.out.println("Finished creating the initial data structures");
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
 
-		Set<String> sourceSubclasses = new HashSet<String>();
-		Set<String> targetSubclasses = new HashSet<String>();
-		Set<String> sourceSuperclasses = new HashSet<String>();
-		Set<String> targetSuperclasses = new HashSet<String>();
-		
-		int idCounter = 0;
-
-		try {
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ){
-				for ( Object targetObject: ontology2().getClasses() ){
-					
-					idCounter++;
 
-					String source = ontology1().getEntityName(sourceObject);
-					String target = ontology2().getEntityName(targetObject);
+				int s = sourceIndex.getId(sourceObject);
+				String source = sourceIndex.getName(s);
+				int[] sourceSubclasses = sourceIndex.getDirectChildren(s);
+				int[] sourceSuperclasses = sourceIndex.getDirectParents(s);
 
-					sourceSubclasses = classesAndSubclassesMapOnto1.get(source);
-					targetSubclasses = classesAndSubclassesMapOnto2.get(target);
-					
-					sourceSuperclasses = classesAndSuperclassesMapOnto1.get(source);
-					targetSuperclasses = classesAndSuperclassesMapOnto2.get(target);
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
+
+					String target = targetIndex.getName(t);
+					int[] targetSubclasses = targetIndex.getDirectChildren(t);
+					int[] targetSuperclasses = targetIndex.getDirectParents(t);
 
 
 					//if the source concept equals a child of the target concept: source < target 1.0
-					if (targetSubclasses.contains(source)) {
+					if (targetIndex.containsName(targetSubclasses, source)) {
 						//using sigmoid function to compute confidence
-						addAlignCell("ContextSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&lt;", 
-								Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+						scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 					}
 
 					//if the target concept equals a child of the source concept: source > target 1.0
-					else if (sourceSubclasses.contains(target)) {
+					else if (sourceIndex.containsName(sourceSubclasses, target)) {
 						//using sigmoid function to compute confidence
-						addAlignCell("ContextSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&gt;", 
-								Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+						scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 					}
 
 					//if the source concept equals a parent of the target concept: source > target 1.0
-					else if (targetSuperclasses.contains(source)) {
+					else if (targetIndex.containsName(targetSuperclasses, source)) {
 						//using sigmoid function to compute confidence
-						addAlignCell("ContextSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&gt;", 
-								Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+						scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 					}
 
 					//if the target concept equals a parent of the source concept: source < target 1.0
-					else if (sourceSuperclasses.contains(target)) {
+					else if (sourceIndex.containsName(sourceSuperclasses, target)) {
 						//using sigmoid function to compute confidence
-						addAlignCell("ContextSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&lt;", 
-								Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+						scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 					}
 
 
 					else {
-						addAlignCell("ContextSubsumptionMatcherSigmoid" + idCounter, sourceObject, targetObject, "!", 0.0);
+						//no relation, zero scores are not stored
 					}
 
 				}
@@ -178,6 +166,8 @@ public class ContextSubsumptionMatcherSigmoid extends ObjectAlignment implements
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "ContextSubsumptionMatcherSigmoid", sourceIndex, targetIndex);
 	}
 
 
@@ -3,7 +3,6 @@ package algorithms.subsumptionmatching;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,15 +12,16 @@ import org.semanticweb.owl.align.Alignment;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owl.align.AlignmentProcess;
 import org.semanticweb.owlapi.apibinding.OWLManager;
-import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
 import algorithms.mismatchdetection.ConfirmSubsumption;
-import algorithms.utilities.OntologyOperations;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
-import algorithms.utilities.StringUtilities;
+import algorithms.utilities.TextPipeline;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
 import fr.inrialpes.exmo.align.impl.BasicConfidence;
 import fr.inrialpes.exmo.align.impl.ObjectAlignment;
@@ -29,6 +29,7 @@ import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import rita.wordnet.jwnl.JWNLException;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment implements AlignmentProcess, Algorithm {
@@ -36,6 +37,12 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
 	//these attributes are used to calculate the weight associated with the matcher's confidence value
 	double profileScore;
 	int slope;
@@ -64,6 +71,22 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 		return returnDSMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax); 
 	}
 
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		DefinitionSubsumptionMatcherSigmoid a = new DefinitionSubsumptionMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, false);
+	}
+
 	public static URIAlignment returnDSMAlignment (File ontoFile1, File ontoFile2, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
 
 		URIAlignment DSMAlignment = new URIAlignment();
@@ -90,8 +113,12 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 	}
 
 	public void align(Alignment alignment, Properties param) throws AlignmentException {
-		Map<String, List<String>> defMapSource = new HashMap<String, List<String>>();
-		Map<String, List<String>> defMapTarget = new HashMap<String, List<String>>();
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
+		//definition tokens by class id
+		Map<Integer, List<String>> defMapSource = new HashMap<Integer, List<String>>();
+		Map<Integer, List<String>> defMapTarget = new HashMap<Integer, List<String>>();
 
 		//lexico-syntactic patterns
 		List<String> patterns = new ArrayList<String>();
@@ -102,12 +129,12 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 		patterns.add("for example");
 
 		try {
-			defMapSource = getDefMapTokens(sourceOntology, patterns);
+			defMapSource = getDefMapTokens(sourceIndex, patterns);
 		} catch (JWNLException | IOException e1) {
 			e1.printStackTrace();
 		}
 		try {
-			defMapTarget = getDefMapTokens(targetOntology, patterns);
+			defMapTarget = getDefMapTokens(targetIndex, patterns);
 		} catch (JWNLException | IOException e1) {
 			e1.printStackTrace();
 		}
@@ -116,84 +143,84 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 		List<String> sourceDefinition = null;
 		List<String> targetDefinition = null;
 
-		int idCounter = 0; 
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			// Match classes
 			for ( Object sourceObject: ontology1().getClasses() ) {
-				for ( Object targetObject: ontology2().getClasses() ){
-
-					idCounter++;
 
-					String source = ontology1().getEntityName(sourceObject).toLowerCase();
-					String target = ontology2().getEntityName(targetObject).toLowerCase();
+				int s = sourceIndex.getId(sourceObject);
+				String source = sourceIndex.getLowerCaseName(s);
+				String sourceName = sourceIndex.getName(s);
 
-					System.out.println("source is " + source + " and target is " + target);
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					if (defMapSource.containsKey(source)) {
+					String target = targetIndex.getLowerCaseName(t);
+					String targetName = targetIndex.getName(t);
 
-						sourceDefinition = defMapSource.get(source);
+					if (defMapSource.containsKey(s)) {
 
-						System.out.println("sourceDefinition contains " + sourceDefinition);
+						sourceDefinition = defMapSource.get(s);
 
 						//iterate all sourceDefinition tokens and check if they match the target concept and if these are from the same domain
-						for (String s : sourceDefinition) {
+						for (String token : sourceDefinition) {
 
-							if (s.equalsIgnoreCase(target)) {
+							if (token.equalsIgnoreCase(target)) {
 
 								//if any of the compounds in source and target are from the same domain AND they´re not meronyms we return a confidence of 1.0
-								if (ConfirmSubsumption.conceptsFromSameDomain(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject)) 
-										&& !ConfirmSubsumption.isMeronym(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))) {
-									addAlignCell("DefinitionSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&gt;", 
-											Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+								if (ConfirmSubsumption.conceptsFromSameDomain(sourceName, targetName) 
+										&& !ConfirmSubsumption.isMeronym(sourceName, targetName)) {
+									scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 									//else we return a confidence of 0.75
-								} else if (ConfirmSubsumption.conceptsFromSameDomain(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject)) 
-										|| !ConfirmSubsumption.isMeronym(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))) {
-									addAlignCell("DefinitionSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&gt;", 
-											Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+								} else if (ConfirmSubsumption.conceptsFromSameDomain(sourceName, targetName) 
+										|| !ConfirmSubsumption.isMeronym(sourceName, targetName)) {
+									scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 
 								} 
 
 							} else {
-								addAlignCell("DefinitionSubsumptionMatcher" +idCounter + "_" + profileScore + "_", sourceObject, targetObject, "!", 0.0);
+								//no relation, zero scores are not stored
 							}
 
 						}
 
 
-					} else if (defMapTarget.containsKey(target)) {
+					} else if (defMapTarget.containsKey(t)) {
 
-						targetDefinition = defMapTarget.get(target);
+						targetDefinition = defMapTarget.get(t);
 
 						//iterate all targetDefinition tokens and check if they match the source concept and if these are from the same domain
-						for (String t : targetDefinition) {
+						for (String token : targetDefinition) {
 
-							if (t.equalsIgnoreCase(source)) {
+							if (token.equalsIgnoreCase(source)) {
 
 								//if any of the compounds in source and target are from the same domain according to WNDomain, we return a confidence of 1.0
-								if (ConfirmSubsumption.conceptsFromSameDomain(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))
-										&& !ConfirmSubsumption.isMeronym(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))) {	
+								if (ConfirmSubsumption.conceptsFromSameDomain(sourceName, targetName)
+										&& !ConfirmSubsumption.isMeronym(sourceName, targetName)) {	
 
-									addAlignCell("DefinitionSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&lt;", 
-											Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+									scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 1.0, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 
-								} else if (ConfirmSubsumption.conceptsFromSameDomain(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))
-										|| !ConfirmSubsumption.isMeronym(ontology1().getEntityName(sourceObject), ontology2().getEntityName(targetObject))) {
+								} else if (ConfirmSubsumption.conceptsFromSameDomain(sourceName, targetName)
+										|| !ConfirmSubsumption.isMeronym(sourceName, targetName)) {
 
-									addAlignCell("DefinitionSubsumptionMatcherSigmoid" +idCounter, sourceObject, targetObject, "&lt;", 
-											Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+									scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, 0.75, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 								}
 
 							}
 
 							else {
-								addAlignCell("DefinitionSubsumptionMatcher" +idCounter + "_" + profileScore + "_", sourceObject, targetObject, "!", 0.0);
+								//no relation, zero scores are not stored
 							}
 						}
 
 
 					} else {
-						addAlignCell("DefinitionSubsumptionMatcher" +idCounter + "_" + profileScore + "_", sourceObject, targetObject, "!", 0.0);
+						//no relation, zero scores are not stored
 					}
 
 
@@ -203,12 +230,14 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 
 		} catch (Exception e) { e.printStackTrace(); }
 
+		scores.addToAlignment(this, "DefinitionSubsumptionMatcherSigmoid", sourceIndex, targetIndex);
+
 	}
 
 
-	private static Map<String, List<String>> getDefMapTokens(OWLOntology onto, List<String> patterns) throws JWNLException, IOException {
+	private static Map<Integer, List<String>> getDefMapTokens(OntologyFeatureIndex index, List<String> patterns) throws JWNLException, IOException {
 
-		Map<String, List<String>> defMap = new HashMap<String, List<String>>();
+		Map<Integer, List<String>> defMap = new HashMap<Integer, List<String>>();
 		String extract = null;
 		String def = null;
 		String cut = null;
@@ -217,9 +246,9 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 
 		for (String pattern : patterns) {
 
-			for (OWLClass c : onto.getClassesInSignature()) {
+			for (int i = 0; i < index.size(); i++) {
 
-				def = OntologyOperations.getClassDefinitionFull(onto, c).toLowerCase();
+				def = index.getDefinition(i);
 
 				//include only those definitions that contain lexico-syntactic patterns
 				if (def.contains(pattern)) {
@@ -232,9 +261,9 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 						refined = removeStopWordsAndDigits(extract);
 					}				
 
-					List<String> tokens = StringUtilities.tokenizeAndLemmatizeToList(refined, true);				
+					List<String> tokens = TextPipeline.tokenizeAndLemmatize(refined, true);				
 
-					defMap.put(c.getIRI().getFragment().toLowerCase(), tokens);
+					defMap.put(i, tokens);
 				}
 			}
 		}
@@ -247,32 +276,7 @@ public class DefinitionSubsumptionMatcherSigmoid extends ObjectAlignment impleme
 
 		private static String removeStopWordsAndDigits (String inputString) {
 
-			List<String> stopWordsList = Arrays.asList(
-					"a", "an", "and", "are", "as", "at", "be", "but", "by",
-					"etc", "for", "if", "in", "into", "is", "it",
-					"no", "not", "of", "on", "or", "such",
-					"that", "the", "their", "then", "there", "these",
-					"they", "this", "to", "was", "will", "with"
-					);
-
-			String[] words = inputString.split(" ");
-			ArrayList<String> wordsList = new ArrayList<String>();
-			StringBuffer sb = new StringBuffer();
-
-			for(String word : words)
-			{
-				String wordCompare = word.toLowerCase();
-				if(!stopWordsList.contains(wordCompare))
-				{
-					wordsList.add(word);
-				}
-			}
-
-			for (String str : wordsList){
-				sb.append(str + " ");
-			}
-
-			return sb.toString().replaceAll("[0-9]","").replaceAll("\\s{2,}", " ").trim();
+			return TextPipeline.removeStopWords(inputString, TextPipeline.DEFINITION_STOP_WORDS).replaceAll("[0-9]","").replaceAll("\\s{2,}", " ").trim();
 
 		}
 
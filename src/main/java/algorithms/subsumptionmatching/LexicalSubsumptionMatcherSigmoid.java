@@ -16,7 +16,10 @@ import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import algorithms.blocking.CandidatePairs;
 import algorithms.utilities.LexicalConcept;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.ScoreMatrix;
 import algorithms.utilities.Sigmoid;
 import algorithms.utilities.WordNet;
 import fr.inrialpes.exmo.align.impl.BasicAlignment;
@@ -27,6 +30,7 @@ import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import fr.inrialpes.exmo.ontowrap.OntowrapException;
 import rita.wordnet.jwnl.JWNLException;
 import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
 import services.settings.AlgorithmSettings;
 
 public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements AlignmentProcess, Algorithm {
@@ -36,6 +40,12 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 	OWLOntology sourceOntology;
 	OWLOntology targetOntology;
 
+	//per-class features of the two ontologies (built in align() if not given)
+	OntologyFeatureIndex sourceIndex;
+	OntologyFeatureIndex targetIndex;
+	//the pairs to score (all pairs if null)
+	CandidatePairs candidates;
+
 	//these attributes are used to calculate the weight associated with the matcher's confidence value
 	double profileScore;
 	int slope;
@@ -62,6 +72,22 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 
 		return returnLSMAlignment(ontoFile1, ontoFile2, profileScore, slope, rangeMin, rangeMax); 
 	}
+
+	/**
+	 * Runs the matcher on the ontologies already loaded for the request.
+	 */
+	public URIAlignment run(OntologyContext context) throws AlignmentException {
+		int slope = AlgorithmSettings.SLOPE; 
+		double rangeMin = AlgorithmSettings.RANGEMIN; 
+		double rangeMax = AlgorithmSettings.RANGEMAX;
+
+		LexicalSubsumptionMatcherSigmoid a = new LexicalSubsumptionMatcherSigmoid(context.getSourceOntology(), context.getTargetOntology(), profileScore, slope, rangeMin, rangeMax);
+		a.sourceIndex = context.getSourceIndex();
+		a.targetIndex = context.getTargetIndex();
+		a.candidates = context.getCandidates();
+
+		return context.align(a, false);
+	}
 	
 	public static URIAlignment returnLSMAlignment (File ontoFile1, File ontoFile2, double profileScore, int slope, double rangeMin, double rangeMax) throws OWLOntologyCreationException, AlignmentException {
 
@@ -132,6 +158,15 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 			e3.printStackTrace();
 		} 
 
+		OntologyFeatureIndex sourceIndex = this.sourceIndex != null ? this.sourceIndex : new OntologyFeatureIndex(sourceOntology);
+		OntologyFeatureIndex targetIndex = this.targetIndex != null ? this.targetIndex : new OntologyFeatureIndex(targetOntology);
+
+		//the lexical concept (if any) of each target class, so that the map is not queried for every pair
+		LexicalConcept[] targetLexicalConcepts = new LexicalConcept[targetIndex.size()];
+		for (int i = 0; i < targetIndex.size(); i++) {
+			targetLexicalConcepts[i] = onto2LexicalMap.get(targetIndex.getLowerCaseName(i));
+		}
+
 		String sourceEntity = null;
 		String targetEntity = null;
 
@@ -145,36 +180,43 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 		double wordNetSimScore = 0;
 
 		//just to have a unique name for the matcher (ID)
-		int idCounter = 0;
+		//the non-zero scores by class ids, turned into cells once all pairs are scored
+		ScoreMatrix scores = new ScoreMatrix(sourceIndex.size(), targetIndex.size());
 
 		try {
 
+			//the target ids of ontology 2, all scored against each source if there are no candidate pairs
+			int[] targetIds = candidates == null ? targetIndex.getIds(ontology2().getClasses()) : null;
+
 			for ( Object source: ontology1().getClasses() ){
-				for ( Object target: ontology2().getClasses() ){
 
-					idCounter++;
+				int s = sourceIndex.getId(source);
+				sourceEntity = sourceIndex.getLowerCaseName(s);
+				sourceEntityNormalCase = sourceIndex.getName(s);
+				LexicalConcept sourceLexical = onto1LexicalMap.get(sourceEntity);
+
+				//only the candidate pairs are scored (all pairs if there are no candidates)
+				for ( int t: candidates != null ? candidates.getTargets(s) : targetIds ){
 
-					//get the entity names for source and target to make the code more readable
-					sourceEntity = ontology1().getEntityName(source).toLowerCase();
-					targetEntity = ontology2().getEntityName(target).toLowerCase();
-					sourceEntityNormalCase = ontology1().getEntityName(source);
-					targetEntityNormalCase = ontology2().getEntityName(target);
+					targetEntity = targetIndex.getLowerCaseName(t);
+					targetEntityNormalCase = targetIndex.getName(t);
+					LexicalConcept targetLexical = targetLexicalConcepts[t];
 
 
 					//if both concepts are in WordNet, we compare their hyponyms and their Resnik similarity
-					if (onto1LexicalMap.containsKey(sourceEntity) && onto2LexicalMap.containsKey(targetEntity)) {
+					if (sourceLexical != null && targetLexical != null) {
 						//get the hyponyms of source and target entities
-						hyponymsSource = onto1LexicalMap.get(sourceEntity).getHyponyms();
-						hyponymsTarget = onto2LexicalMap.get(targetEntity).getHyponyms();
+						hyponymsSource = sourceLexical.getHyponyms();
+						hyponymsTarget = targetLexical.getHyponyms();
 
 						//measure the Resnik similarity between the source and target concepts
-						wordNetSimScore = WordNet.computeResnik(onto1LexicalMap.get(sourceEntity).getLexicalConceptName(), onto2LexicalMap.get(targetEntity).getLexicalConceptName());
+						wordNetSimScore = WordNet.computeResnik(sourceLexical.getLexicalConceptName(), targetLexical.getLexicalConceptName());
 
 					}
 
 					//if either hyponym set is empty -> score is 0
 					if ((hyponymsSource == null || hyponymsSource.isEmpty()) || (hyponymsTarget == null || hyponymsTarget.isEmpty())) {
-						addAlignCell("LexicalSubsumptionMatcherSigmoid" +idCounter, source, target, "=", 0);
+						//no relation, zero scores are not stored
 					}
 
 
@@ -183,20 +225,18 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 					{
 						//if the full source is a part of the set of hyponyms of target and source and target are semantically similar (according to Resnik): source < target and score 1.0
 						if ((hyponymsTarget.contains(sourceEntity) || hyponymsTarget.contains(sourceEntityNormalCase)) && wordNetSimScore > 0.75) {				
-							addAlignCell("LexicalSubsumptionMatcherSigmoid" +idCounter, source, target, "&lt;", 
-									Sigmoid.weightedSigmoid(slope, wordNetSimScore, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+							scores.set(s, t, "&lt;", Sigmoid.weightedSigmoid(slope, wordNetSimScore, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 						}
 
 						//if the full target is a part of the set of hyponyms of source and source and target are semantically similar (according to Resnik): source > target and score 1.0
 						else if ((hyponymsSource.contains(targetEntity) || hyponymsSource.contains(targetEntityNormalCase)) && wordNetSimScore > 0.75) {					
-							addAlignCell("LexicalSubsumptionMatcherSigmoid" +idCounter, source, target, "&gt;", 
-									Sigmoid.weightedSigmoid(slope, wordNetSimScore, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
+							scores.set(s, t, "&gt;", Sigmoid.weightedSigmoid(slope, wordNetSimScore, Sigmoid.transformProfileWeight(profileScore, rangeMin, rangeMax)));
 						}
 
 
 						else {
 
-							addAlignCell("LexicalSubsumptionMatcherSigmoid" +idCounter, source, target, "=", 0);
+							//no relation, zero scores are not stored
 						}
 					}
 				}
@@ -204,6 +244,8 @@ public class LexicalSubsumptionMatcherSigmoid extends ObjectAlignment implements
 			}
 
 		} catch (Exception e) { e.printStackTrace(); }
+
+		scores.addToAlignment(this, "LexicalSubsumptionMatcherSigmoid", sourceIndex, targetIndex);
 	}
 
 
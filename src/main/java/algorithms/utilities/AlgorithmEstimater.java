@@ -1,13 +1,100 @@
 package algorithms.utilities;
 
+/**
+ * Estimates the cost of aligning two inputs: the runtime from the input sizes and the heap from the sizes and class counts.
+ * The runtime model starts from fixed coefficients and is refitted (least squares) to the runtimes recorded with recordRuntime()
+ * once there are enough of them, so it adapts to the machine it runs on. An instance is shared by the request threads.
+ */
 public class AlgorithmEstimater {
+
+    //the runtime model is only refitted once this many runtimes are recorded
+    private static final int MIN_SAMPLES = 5;
+    //the number of most recent runtimes the model is fitted to
+    private static final int MAX_SAMPLES = 100;
+
+    private static final float DEFAULT_INTERCEPT = 5.0f;
+    private static final float DEFAULT_SLOPE = 3.0f / 2000.0f;
+
+    //the heap model: a fixed overhead, the parsed ontologies (a multiple of the input size) and the per-pair matcher state
+    private static final long BASE_HEAP_BYTES = 64L * 1024 * 1024;
+    private static final long HEAP_BYTES_PER_INPUT_KB = 32L * 1024;
+    private static final long HEAP_BYTES_PER_CLASS_PAIR = 64L;
+
+    //the recorded samples (x = sourceSizeKB * targetSizeKB, y = seconds) as a ring buffer
+    private final double[] x = new double[MAX_SAMPLES];
+    private final double[] y = new double[MAX_SAMPLES];
+    private int samples;
+    private int next;
+
+    private float intercept = DEFAULT_INTERCEPT;
+    private float slope = DEFAULT_SLOPE;
+
     /**
      * The runtime seems to scale with each inputs filesize. The estimate should have at highest ±20% error margin. LEM is the hardest to correctly estimate.
      * @param sourceSizeKB
      * @param targetSizeKB
-     * @return
+     * @return the estimated runtime in seconds
+     */
+    public synchronized float estimateRuntime(float sourceSizeKB, float targetSizeKB){
+        return intercept + slope * sourceSizeKB * targetSizeKB;
+    }
+
+    /**
+     * Estimates the heap an alignment holds while it runs.
+     * @param sourceSizeKB
+     * @param targetSizeKB
+     * @param sourceClasses the (estimated) number of classes in the source
+     * @param targetClasses the (estimated) number of classes in the target
+     * @return the estimated heap in bytes
+     */
+    public long estimateHeap(float sourceSizeKB, float targetSizeKB, int sourceClasses, int targetClasses){
+        return BASE_HEAP_BYTES
+                + (long) ((sourceSizeKB + targetSizeKB) * HEAP_BYTES_PER_INPUT_KB)
+                + (long) sourceClasses * (long) targetClasses * HEAP_BYTES_PER_CLASS_PAIR;
+    }
+
+    /**
+     * Records the measured runtime of an alignment and refits the runtime model.
+     * @param sourceSizeKB
+     * @param targetSizeKB
+     * @param seconds the measured runtime
+     */
+    public synchronized void recordRuntime(float sourceSizeKB, float targetSizeKB, float seconds){
+        x[next] = (double) sourceSizeKB * targetSizeKB;
+        y[next] = seconds;
+        next = (next + 1) % MAX_SAMPLES;
+        samples = Math.min(samples + 1, MAX_SAMPLES);
+
+        if (samples >= MIN_SAMPLES) {
+            fit();
+        }
+    }
+
+    /**
+     * @return the number of runtimes the model is fitted to
      */
-    float estimateRuntime(float sourceSizeKB, float targetSizeKB){
-        return 5.0f + sourceSizeKB * targetSizeKB * 3.0f / 2000.0f;
+    public synchronized int getSamples(){
+        return samples;
+    }
+
+    private void fit(){
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        for (int i = 0; i < samples; i++) {
+            sumX += x[i];
+            sumY += y[i];
+            sumXX += x[i] * x[i];
+            sumXY += x[i] * y[i];
+        }
+
+        double meanX = sumX / samples;
+        double meanY = sumY / samples;
+        double varX = sumXX / samples - meanX * meanX;
+
+        //with (nearly) equal input sizes only the intercept can be fitted
+        double fittedSlope = varX > 1e-9 * Math.max(1, meanX * meanX) ? (sumXY / samples - meanX * meanY) / varX : slope;
+        fittedSlope = Math.max(0, fittedSlope);
+
+        slope = (float) fittedSlope;
+        intercept = (float) Math.max(0, meanY - fittedSlope * meanX);
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
@@ -30,7 +32,7 @@ import fr.inrialpes.exmo.align.impl.URIAlignment;
 import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
 import fr.inrialpes.exmo.align.impl.renderer.RDFRendererVisitor;
 import fr.inrialpes.exmo.align.parser.AlignmentParser;
-import services.parsers.CellParser;
+import services.utils.AlignmentJsonWriter;
 
 /**
  * @author audunvennesland
@@ -68,19 +70,17 @@ public class AlignmentOperations {
 	}
 	/**
 	 * Returns the URIAlignment converted to a JSON string
+	 * @see AlignmentJsonWriter for writing the JSON directly to a stream
 	 */
 	public static String convertToJSON(URIAlignment alignment){
-		String json = "[";
-		for (Cell cell: alignment.getArrayElements()) {
-			json += String.format("{\"source\": \"%s\", \"target\": \"%s\", \"relation\": \"%s\", \"confidence\": %s},", 
-					CellParser.getSource(cell), CellParser.getTarget(cell), CellParser.getRelation(cell), CellParser.getConfidence(cell));
+		StringWriter json = new StringWriter();
+		try {
+			AlignmentJsonWriter.write(alignment, json);
+		} catch (IOException e) {
+			//a StringWriter does not throw
+			throw new UncheckedIOException(e);
 		}
-		if (json.length() > 1){
-			//Incase there are no cells, dont remove the "["
-			json = json.substring(0, json.length() - 1);
-		}
-		json += "]";
-		return json;
+		return json.toString();
 	}
 	
 	/**
@@ -3,6 +3,8 @@
  */
 package algorithms.utilities;
 
+import java.util.Arrays;
+
 /**
  * @author Giorgos Stoilos
  * 
@@ -13,6 +15,42 @@ package algorithms.utilities;
  */
 public class ISub {
 	
+	//the working copies of the two normalized strings, which the score computation shortens in place. One pair per thread, grown when needed
+	private static final ThreadLocal<char[][]> BUFFERS = ThreadLocal.withInitial(() -> new char[][] { new char[64], new char[64] });
+	
+	/**
+	 * A string prepared for ISub: the string itself (used for the Winkler improvement) and its lowercased form without '.', '_' and ' '.
+	 * Preparing each label once (e.g. once per class) saves normalizing it again for every pair it is compared in.
+	 */
+	public static final class Label {
+		private final String original;
+		private final char[] normalized;
+		
+		private Label(String original, char[] normalized) {
+			this.original = original;
+			this.normalized = normalized;
+		}
+		
+		public String getOriginal() {
+			return original;
+		}
+	}
+	
+	/**
+	 * Prepares a string for score(Label, Label).
+	 * @param str the string
+	 * @return the prepared label, or null if str is null
+	 */
+	public static Label label( String str ){
+		if ( str == null ) return null;
+		
+		String lowerCase = str.toLowerCase();
+		char[] normalized = new char[ lowerCase.length() ];
+		int length = normalize( lowerCase , normalized );
+		
+		return new Label( str , length == normalized.length ? normalized : Arrays.copyOf( normalized , length ) );
+	}
+	
 	public double score( String st1 , String st2 ){
 		
 		// JE: This should throw an error
@@ -21,32 +59,46 @@ public class ISub {
 		String s1 = st1.toLowerCase();
 		String s2 = st2.toLowerCase();
 		
-		s1 = normalizeString( s1 , '.' );
-		s2 = normalizeString( s2 , '.' );
-		s1 = normalizeString( s1 , '_' );
-		s2 = normalizeString( s2 , '_' );
-		s1 = normalizeString( s1 , ' ' );
-		s2 = normalizeString( s2 , ' ' );
- 
-		int l1 = s1.length(); // length of s
-		int l2 = s2.length(); // length of t
-		
-		int L1 = l1;
-		int L2 = l2;
-
+		char[][] buffers = buffers( s1.length() , s2.length() );
+		int L1 = normalize( s1 , buffers[0] );
+		int L2 = normalize( s2 , buffers[1] );
+		
+		return score( st1 , buffers[0] , L1 , st2 , buffers[1] , L2 );
+	}
+	
+	/**
+	 * Same as score(String, String) for labels prepared with label().
+	 */
+	public double score( Label label1 , Label label2 ){
+		
+		if ( label1 == null || label2 == null ) return -1;
+		
+		int L1 = label1.normalized.length;
+		int L2 = label2.normalized.length;
+		
+		char[][] buffers = buffers( L1 , L2 );
+		System.arraycopy( label1.normalized , 0 , buffers[0] , 0 , L1 );
+		System.arraycopy( label2.normalized , 0 , buffers[1] , 0 , L2 );
+		
+		return score( label1.original , buffers[0] , L1 , label2.original , buffers[1] , L2 );
+	}
+	
+	//the first L1 chars of s1 and the first L2 chars of s2 are the normalized strings, which are overwritten
+	private double score( String st1 , char[] s1 , int L1 , String st2 , char[] s2 , int L2 ){
+		
 		if ((L1 == 0) && (L2 == 0)) return 1;
 		// Modification JE: giorgos put -1 instead of 0
 		if ((L1 == 0) || (L2 == 0)) return 0; 
 		
+		int l1 = L1; // length of s
+		int l2 = L2; // length of t
+		
 		double common = 0;
 		int best = 2;
 	
-		while( s1.length() >0 && s2.length() >0 && best !=0 ){
+		while( l1 >0 && l2 >0 && best !=0 ){
 			best = 0; // the best subs length so far
 		
-			l1 = s1.length(); // length of s
-			l2 = s2.length(); // length of t
-		
 			int i = 0; // iterates through s1
 			int j = 0; // iterates through s2
 		
@@ -60,14 +112,12 @@ public class ISub {
 				j = 0;
 				while (l2 - j > best) {
 					int k = i;
-					for(;(j < l2) && (s1.charAt(k) != s2.charAt(j)); j++);
-						//System.out.println( s1.charAt( k ) + " " + s2.charAt( j ) );
+					for(;(j < l2) && (s1[k] != s2[j]); j++);
 			
 					if (j != l2) { // we have found a starting point
-						//System.out.println( "j: " + j );
 						p = j;
 						for (j++, k++;
-							(j < l2) && (k < l1) && (s1.charAt(k) == s2.charAt(j));
+							(j < l2) && (k < l1) && (s1[k] == s2[j]);
 							j++, k++);
 						if( k-i > best){
 							best = k-i;
@@ -76,32 +126,15 @@ public class ISub {
 							startS2 = p;
 							endS2 = j;	
 						}
-						//best = Math.max(best, k - i);
 					}
 				}
 			}
-			//Vector v = new Vector();
-			//if( startS1 != endS1 )
-			//	System.out.println(  s1.substring( startS1 , endS1 ) );
-			char[] newString = new char[ s1.length() - (endS1 - startS1) ];
-		
-			j=0;
-			for( i=0 ;i<s1.length() ; i++ ){
-				if( i>=startS1 && i< endS1 )
-					continue;
-				newString[j++] = s1.charAt( i );			
-			}
-
-			s1 = new String( newString );
-
-			newString = new char[ s2.length() - ( endS2 - startS2 ) ];
-			j=0;
-			for( i=0 ;i<s2.length() ; i++ ){
-				if( i>=startS2 && i< endS2 )
-					continue;
-				newString[j++] = s2.charAt( i );
-			}
-			s2 = new String( newString );
+			
+			//remove the common substring from both strings
+			System.arraycopy( s1 , endS1 , s1 , startS1 , l1 - endS1 );
+			l1 -= endS1 - startS1;
+			System.arraycopy( s2 , endS2 , s2 , startS2 , l2 - endS2 );
+			l2 -= endS2 - startS2;
 
 			if( best > 2 )
 				common += best;
@@ -140,6 +173,24 @@ public class ISub {
 		return (result+1)/2;
 	}
 	
+	private static char[][] buffers( int length1 , int length2 ){
+		char[][] buffers = BUFFERS.get();
+		if ( buffers[0].length < length1 ) buffers[0] = new char[ Math.max( length1 , buffers[0].length * 2 ) ];
+		if ( buffers[1].length < length2 ) buffers[1] = new char[ Math.max( length2 , buffers[1].length * 2 ) ];
+		return buffers;
+	}
+	
+	//copies str to dest without '.', '_' and ' ' (same as the three normalizeString() calls) and returns the length
+	private static int normalize( String str , char[] dest ){
+		int length = 0;
+		for( int i=0 ; i<str.length() ; i++ ){
+			char c = str.charAt( i );
+			if( c != '.' && c != '_' && c != ' ' )
+				dest[length++] = c;
+		}
+		return length;
+	}
+	
 	private double winklerImprovement( String s1 , String s2 , double commonality ){
 		
 		int i;
@@ -0,0 +1,538 @@
+package algorithms.utilities;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
+import org.semanticweb.owlapi.model.OWLObjectPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * An immutable index of the per-class features the matchers use, computed in one pass over an ontology.
+ * Each class in the signature of the ontology is given an integer id (0..size()-1), and every feature is stored in an array indexed by this id,
+ * so that the pairwise matching loops only do array lookups instead of recomputing names, compounds, definitions and hierarchies for every pair.
+ * The index is read-only once built and can be shared by matchers running concurrently.
+ * It can be written to and read back from a stream (see write() and read()), so that the index of an ontology that was seen before
+ * is not recomputed (the hierarchy needs a reasoner).
+ *
+ */
+public final class OntologyFeatureIndex {
+
+	private static final int[] NO_CLASSES = new int[0];
+	private static final String[] NO_PARTS = new String[0];
+
+	//written first by write(), an index written in another format is not read
+	private static final int FORMAT_VERSION = 1;
+
+	private final OWLOntology ontology;
+	private final OWLClass[] classes;
+	private final Map<OWLClass, Integer> ids;
+
+	//the local name (IRI fragment) of each class, as is and lowercased
+	private final String[] names;
+	private final String[] lowerCaseNames;
+	//the lowercased names prepared for ISub
+	private final ISub.Label[] isubLabels;
+
+	//compound analysis of the local name (see StringUtilities)
+	private final boolean[] compounds;
+	private final String[][] compoundParts;
+	private final String[] compoundHeads;
+	private final String[][] compoundModifierParts;
+
+	//all annotation values of a class, as returned by OntologyOperations.getClassDefinitionFull()
+	private final String[] definitions;
+
+	//hierarchy (owl:Thing and owl:Nothing are left out)
+	private final int[][] directParents;
+	private final int[][] directChildren;
+	private final int[][] allParents;
+
+	//local names of the object properties having the class as domain or range and the data properties having the class as domain
+	private final List<Set<String>> properties;
+
+	/**
+	 * Builds the index for an ontology.
+	 * @param onto the ontology to index
+	 */
+	public OntologyFeatureIndex(OWLOntology onto) {
+
+		this.ontology = onto;
+
+		Set<OWLClass> signature = onto.getClassesInSignature();
+		int size = signature.size();
+
+		classes = signature.toArray(new OWLClass[size]);
+		ids = new HashMap<OWLClass, Integer>(size * 2);
+		names = new String[size];
+		lowerCaseNames = new String[size];
+		isubLabels = new ISub.Label[size];
+		compounds = new boolean[size];
+		compoundParts = new String[size][];
+		compoundHeads = new String[size];
+		compoundModifierParts = new String[size][];
+		definitions = new String[size];
+
+		for (int i = 0; i < size; i++) {
+			OWLClass cls = classes[i];
+			indexName(i);
+
+			StringBuilder sb = new StringBuilder();
+			for (OWLAnnotationAssertionAxiom a : onto.getAnnotationAssertionAxioms(cls.getIRI())) {
+				sb.append(" " + a.getValue().toString().replaceAll("\\^\\^xsd:string", "").toLowerCase());
+			}
+			definitions[i] = sb.toString();
+		}
+
+		directParents = new int[size][];
+		directChildren = new int[size][];
+		allParents = new int[size][];
+		indexHierarchy(onto);
+
+		properties = Collections.unmodifiableList(indexProperties(onto));
+	}
+
+	//the index as read by read(): the classes in the order they were written, the other features are taken as read or derived from them
+	private OntologyFeatureIndex(OWLOntology onto, OWLClass[] classes, String[] definitions, int[][] directParents, int[][] allParents,
+			List<Set<String>> properties) {
+
+		this.ontology = onto;
+		this.classes = classes;
+
+		int size = classes.length;
+
+		ids = new HashMap<OWLClass, Integer>(size * 2);
+		names = new String[size];
+		lowerCaseNames = new String[size];
+		isubLabels = new ISub.Label[size];
+		compounds = new boolean[size];
+		compoundParts = new String[size][];
+		compoundHeads = new String[size];
+		compoundModifierParts = new String[size][];
+
+		for (int i = 0; i < size; i++) {
+			indexName(i);
+		}
+
+		this.definitions = definitions;
+		this.directParents = directParents;
+		this.directChildren = new int[size][];
+		this.allParents = allParents;
+		indexChildren();
+
+		this.properties = Collections.unmodifiableList(properties);
+	}
+
+	private void indexName(int i) {
+		OWLClass cls = classes[i];
+		ids.put(cls, i);
+
+		String name = cls.getIRI().getFragment();
+		names[i] = name;
+		lowerCaseNames[i] = name.toLowerCase();
+		isubLabels[i] = ISub.label(lowerCaseNames[i]);
+
+		compoundParts[i] = StringUtilities.getCompoundParts(name);
+		compounds[i] = StringUtilities.isCompoundWord(name);
+		if (compounds[i]) {
+			compoundHeads[i] = compoundParts[i][compoundParts[i].length - 1];
+			compoundModifierParts[i] = StringUtilities.getCompoundParts(name.replace(compoundHeads[i], ""));
+		} else {
+			compoundModifierParts[i] = NO_PARTS;
+		}
+	}
+
+	private void indexHierarchy(OWLOntology onto) {
+
+		OWLReasoner reasoner = OntologyOperations.createReasoner(onto);
+
+		try {
+			for (int i = 0; i < classes.length; i++) {
+				Set<Integer> parents = new HashSet<Integer>();
+				for (OWLClass sup : reasoner.getSuperClasses(classes[i], true).getFlattened()) {
+					Integer parent = ids.get(sup);
+					if (parent != null && parent != i && !sup.isOWLThing() && !sup.isOWLNothing()) {
+						parents.add(parent);
+					}
+				}
+				directParents[i] = toArray(parents);
+			}
+		} finally {
+			reasoner.dispose();
+		}
+
+		indexChildren();
+
+		//transitive closure of the direct parents
+		for (int i = 0; i < classes.length; i++) {
+			Set<Integer> visited = new HashSet<Integer>();
+			Deque<Integer> queue = new ArrayDeque<Integer>();
+			queue.add(i);
+			while (!queue.isEmpty()) {
+				for (int parent : directParents[queue.poll()]) {
+					if (parent != i && visited.add(parent)) {
+						queue.add(parent);
+					}
+				}
+			}
+			allParents[i] = toArray(visited);
+		}
+	}
+
+	private void indexChildren() {
+
+		List<List<Integer>> children = new ArrayList<List<Integer>>(classes.length);
+		for (int i = 0; i < classes.length; i++) {
+			children.add(new ArrayList<Integer>());
+		}
+
+		for (int i = 0; i < classes.length; i++) {
+			for (int parent : directParents[i]) {
+				children.get(parent).add(i);
+			}
+		}
+
+		for (int i = 0; i < classes.length; i++) {
+			directChildren[i] = toArray(children.get(i));
+		}
+	}
+
+	private List<Set<String>> indexProperties(OWLOntology onto) {
+
+		List<Set<String>> props = new ArrayList<Set<String>>(classes.length);
+		for (int i = 0; i < classes.length; i++) {
+			props.add(new HashSet<String>());
+		}
+
+		for (OWLObjectPropertyDomainAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_DOMAIN)) {
+			Set<String> target = propertiesOf(props, op.getDomain());
+			if (target != null) {
+				for (OWLObjectProperty oop : op.getObjectPropertiesInSignature()) {
+					target.add(oop.getIRI().getFragment());
+				}
+			}
+		}
+
+		for (OWLObjectPropertyRangeAxiom op : onto.getAxioms(AxiomType.OBJECT_PROPERTY_RANGE)) {
+			Set<String> target = propertiesOf(props, op.getRange());
+			if (target != null) {
+				for (OWLObjectProperty oop : op.getObjectPropertiesInSignature()) {
+					target.add(oop.getIRI().getFragment());
+				}
+			}
+		}
+
+		for (OWLDataPropertyDomainAxiom dp : onto.getAxioms(AxiomType.DATA_PROPERTY_DOMAIN)) {
+			Set<String> target = propertiesOf(props, dp.getDomain());
+			if (target != null) {
+				for (OWLDataProperty odp : dp.getDataPropertiesInSignature()) {
+					target.add(odp.getIRI().getFragment());
+				}
+			}
+		}
+
+		for (int i = 0; i < classes.length; i++) {
+			props.set(i, Collections.unmodifiableSet(props.get(i)));
+		}
+
+		return props;
+	}
+
+	//only named classes count as domain or range, as in OntologyOperations.getProperties()
+	private Set<String> propertiesOf(List<Set<String>> props, OWLClassExpression expression) {
+		if (expression.isAnonymous()) {
+			return null;
+		}
+		Integer id = ids.get(expression.asOWLClass());
+		return id == null ? null : props.get(id);
+	}
+
+	private static int[] toArray(Iterable<Integer> values) {
+		List<Integer> list = new ArrayList<Integer>();
+		for (Integer v : values) {
+			list.add(v);
+		}
+		if (list.isEmpty()) {
+			return NO_CLASSES;
+		}
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		Arrays.sort(array);
+		return array;
+	}
+
+	/**
+	 * Writes the index: the class IRIs in id order, the definitions, the hierarchy and the properties.
+	 * The other features are derived from the IRIs when the index is read.
+	 * @param out the output to write to
+	 * @throws IOException
+	 */
+	public void write(DataOutput out) throws IOException {
+
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(classes.length);
+
+		for (int i = 0; i < classes.length; i++) {
+			writeString(out, classes[i].getIRI().toString());
+			writeString(out, definitions[i]);
+			writeIds(out, directParents[i]);
+			writeIds(out, allParents[i]);
+			out.writeInt(properties.get(i).size());
+			for (String property : properties.get(i)) {
+				writeString(out, property);
+			}
+		}
+	}
+
+	/**
+	 * Reads an index written by write() for the same ontology.
+	 * @param onto the ontology the index was written for
+	 * @param in the input to read from
+	 * @return the index, or null if it was written in another format or its classes are not those of the ontology
+	 * @throws IOException
+	 */
+	public static OntologyFeatureIndex read(OWLOntology onto, DataInput in) throws IOException {
+
+		if (in.readInt() != FORMAT_VERSION) {
+			return null;
+		}
+
+		Set<OWLClass> signature = onto.getClassesInSignature();
+		int size = in.readInt();
+		if (size != signature.size()) {
+			return null;
+		}
+
+		OWLClass[] classes = new OWLClass[size];
+		String[] definitions = new String[size];
+		int[][] directParents = new int[size][];
+		int[][] allParents = new int[size][];
+		List<Set<String>> properties = new ArrayList<Set<String>>(size);
+
+		for (int i = 0; i < size; i++) {
+			classes[i] = onto.getOWLOntologyManager().getOWLDataFactory().getOWLClass(IRI.create(readString(in)));
+			if (!signature.contains(classes[i])) {
+				return null;
+			}
+			definitions[i] = readString(in);
+			directParents[i] = readIds(in, size);
+			allParents[i] = readIds(in, size);
+			int count = in.readInt();
+			Set<String> props = new HashSet<String>();
+			for (int j = 0; j < count; j++) {
+				props.add(readString(in));
+			}
+			properties.add(Collections.unmodifiableSet(props));
+		}
+
+		return new OntologyFeatureIndex(onto, classes, definitions, directParents, allParents, properties);
+	}
+
+	//unlike writeUTF(), not limited to 64 KB (definitions can be long)
+	private static void writeString(DataOutput out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeIds(DataOutput out, int[] ids) throws IOException {
+		out.writeInt(ids.length);
+		for (int id : ids) {
+			out.writeInt(id);
+		}
+	}
+
+	private static int[] readIds(DataInput in, int size) throws IOException {
+		int length = in.readInt();
+		if (length == 0) {
+			return NO_CLASSES;
+		}
+		int[] ids = new int[length];
+		for (int i = 0; i < length; i++) {
+			ids[i] = in.readInt();
+			if (ids[i] < 0 || ids[i] >= size) {
+				throw new IOException("Class id " + ids[i] + " out of range");
+			}
+		}
+		return ids;
+	}
+
+	public OWLOntology getOntology() {
+		return ontology;
+	}
+
+	/**
+	 * @return the number of indexed classes
+	 */
+	public int size() {
+		return classes.length;
+	}
+
+	/**
+	 * Returns the id of an ontology object (an OWLClass, as returned by LoadedOntology.getClasses()).
+	 * @param o the ontology object
+	 * @return the id of the class, or -1 if it is not in the index
+	 */
+	public int getId(Object o) {
+		Integer id = ids.get(o);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the ids of ontology objects, e.g. the classes a matcher scores when there are no candidate pairs.
+	 * @param objects the ontology objects (OWLClasses, as returned by LoadedOntology.getClasses())
+	 * @return the ids of the objects that are in the index, in the order of the objects
+	 */
+	public int[] getIds(Collection<?> objects) {
+		int[] result = new int[objects.size()];
+		int i = 0;
+		for (Object o : objects) {
+			int id = getId(o);
+			if (id >= 0) {
+				result[i++] = id;
+			}
+		}
+		return i == result.length ? result : Arrays.copyOf(result, i);
+	}
+
+	public OWLClass getOWLClass(int id) {
+		return classes[id];
+	}
+
+	public String getName(int id) {
+		return names[id];
+	}
+
+	public String getLowerCaseName(int id) {
+		return lowerCaseNames[id];
+	}
+
+	public ISub.Label getISubLabel(int id) {
+		return isubLabels[id];
+	}
+
+	public boolean isCompound(int id) {
+		return compounds[id];
+	}
+
+	/**
+	 * The parts of the local name split at case changes, e.g. [Research, Project] for ResearchProject.
+	 * The returned array must not be modified.
+	 */
+	public String[] getCompoundParts(int id) {
+		return compoundParts[id];
+	}
+
+	/**
+	 * @return the compound head (e.g. Project for ResearchProject), or null if the local name is not a compound
+	 */
+	public String getCompoundHead(int id) {
+		return compoundHeads[id];
+	}
+
+	/**
+	 * The parts of the compound modifier (e.g. [Research] for ResearchProject), empty if the local name is not a compound.
+	 * The returned array must not be modified.
+	 */
+	public String[] getCompoundModifierParts(int id) {
+		return compoundModifierParts[id];
+	}
+
+	/**
+	 * @return all annotation values of the class (lowercased and separated by whitespace), empty if the class has none
+	 */
+	public String getDefinition(int id) {
+		return definitions[id];
+	}
+
+	/**
+	 * The ids of the direct superclasses of a class. The returned array must not be modified.
+	 */
+	public int[] getDirectParents(int id) {
+		return directParents[id];
+	}
+
+	/**
+	 * The ids of the direct subclasses of a class. The returned array must not be modified.
+	 */
+	public int[] getDirectChildren(int id) {
+		return directChildren[id];
+	}
+
+	/**
+	 * The ids of all (direct and indirect) superclasses of a class. The returned array must not be modified.
+	 */
+	public int[] getAllParents(int id) {
+		return allParents[id];
+	}
+
+	/**
+	 * @return the (unmodifiable) set of property names associated with a class
+	 */
+	public Set<String> getProperties(int id) {
+		return properties.get(id);
+	}
+
+	/**
+	 * The words the lexical matchers look up in WordNet: the lowercased local names and, for compounds, their lowercased parts (including the head).
+	 * @return a new set of words
+	 */
+	public Set<String> getVocabulary() {
+		Set<String> vocabulary = new HashSet<String>();
+		for (int id = 0; id < classes.length; id++) {
+			vocabulary.add(lowerCaseNames[id]);
+			if (compounds[id]) {
+				for (String part : compoundParts[id]) {
+					vocabulary.add(part.toLowerCase());
+				}
+			}
+		}
+		return vocabulary;
+	}
+
+	/**
+	 * Checks whether any of the given classes has the given local name.
+	 * @param ids class ids, e.g. from getDirectChildren()
+	 * @param name the local name to look for
+	 * @return true if one of the classes has the local name
+	 */
+	public boolean containsName(int[] ids, String name) {
+		for (int id : ids) {
+			if (names[id].equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
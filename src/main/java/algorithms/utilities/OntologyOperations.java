@@ -9,6 +9,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.AxiomType;
@@ -54,6 +55,16 @@ public class OntologyOperations {
 	public OntologyOperations() {
 
 	}
+
+	/**
+	 * Creates a structural reasoner for an ontology. A reasoner registers itself as a listener on the manager of the ontology, 
+	 * so creation is serialised for matchers that run concurrently on the same (shared) ontology.
+	 * @param onto the ontology to reason over
+	 * @return a new OWLReasoner for the ontology
+	 */
+	public static synchronized OWLReasoner createReasoner(OWLOntology onto) {
+		return reasonerFactory.createReasoner(onto);
+	}
 	
 	/**
 	 * Returns a Map holding a class as key and its superclass as value. This version uses the Pellet reasoner, since the structural reasoner does not include all inferred superclasses of a class.
@@ -70,7 +81,10 @@ public class OntologyOperations {
 	 */
 	public static Map<String, String> getClassesAndSuperClassesUsingPellet (OWLOntology o)  {
 
-		PelletReasoner reasoner = new PelletReasoner(o, BufferingMode.BUFFERING);
+		PelletReasoner reasoner;
+		synchronized (OntologyOperations.class) {
+			reasoner = new PelletReasoner(o, BufferingMode.BUFFERING);
+		}
 		
 		Set<OWLClass> cls = o.getClassesInSignature();
 		Map<String, String> classesAndSuperClasses = new HashMap<String, String>();
@@ -186,7 +200,7 @@ public class OntologyOperations {
 	 */
 	public static Map<String, Set<String>> getClassesAndAllSuperClasses(OWLOntology onto) throws OWLOntologyCreationException {
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-		OWLReasoner reasoner = reasonerFactory.createReasoner(onto); //Can be done here without any memory leak, since this method should be used once per request
+		OWLReasoner reasoner = createReasoner(onto); //Can be done here without any memory leak, since this method should be used once per request
 
 
 		Map<String, Set<String>> classesAndSuperClasses = new HashMap<String, Set<String>>();
@@ -222,7 +236,7 @@ public class OntologyOperations {
 	 */
 	public static Map<String, Set<String>> getClassesAndAllSubClasses(OWLOntology onto) throws OWLOntologyCreationException {
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
-		OWLReasoner reasoner = reasonerFactory.createReasoner(onto); //Can be done here without any memory leak, since this method should be used once per request
+		OWLReasoner reasoner = createReasoner(onto); //Can be done here without any memory leak, since this method should be used once per request
 
 
 		Map<String, Set<String>> classesAndSubClasses = new HashMap<String, Set<String>>();
@@ -296,42 +310,63 @@ public class OntologyOperations {
 
 		OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
 		OWLOntology onto = manager.loadOntologyFromOntologyDocument(ontoFile);
-		Set<OWLClass> classes = onto.getClassesInSignature();
 
-		int classCounter = 0;
+		return getWordNetCoverageComp(onto);
+	}
 
-		for (OWLClass cl : classes) {
-						
-			//get all tokens of the class name
-			String[] tokens = StringUtilities.getCompoundParts(cl.getIRI().getFragment());
-			
-			int numTokens = tokens.length;
-			int tokenCounter = 0;
-			int totalCounter = 0;
+	/**
+	 * Returns a double stating the percentage of how many classes are present as words in WordNet.
+	 * @param onto an already loaded OWL ontology
+	 * @return wordNetCoverage a double stating a percentage of how many of the classes are represented in WordNet
+	 * @throws FileNotFoundException 
+	 * @throws JWNLException 
+	 */
+	public static double getWordNetCoverageComp(OWLOntology onto) throws FileNotFoundException, JWNLException {
 
-			for (int i = 0; i < tokens.length; i++) {
+		Set<OWLClass> classes = onto.getClassesInSignature();
 
-				if (WordNet.containedInWordNet(tokens[i])) {
-					tokenCounter++;
-				}
+		//the WordNet lookups of the classes are independent, so the classes are split across the cores. The dictionary itself
+		//is not thread-safe: WordNet reads it for one lookup at a time and answers the repeated words from its cache
+		long classCounter;
+		try {
+			classCounter = classes.parallelStream().filter(OntologyOperations::isContainedInWordNet).count();
+		} catch (IllegalStateException e) {
+			if (e.getCause() instanceof JWNLException) {
+				throw (JWNLException) e.getCause();
 			}
-
-			if (tokenCounter == numTokens) {
-				totalCounter++;
+			if (e.getCause() instanceof FileNotFoundException) {
+				throw (FileNotFoundException) e.getCause();
 			}
-
-			classCounter += totalCounter;
-
+			throw e;
 		}
 
-
-		int numClasses = onto.getClassesInSignature().size();
+		int numClasses = classes.size();
 
 		double wordNetCoverage = ((double) classCounter / (double) numClasses);
 
 		return wordNetCoverage;
 	}
 
+	/**
+	 * Checks whether all tokens of the class name are present as words in WordNet.
+	 * Called from parallel streams, so the checked WordNet exceptions are wrapped in an IllegalStateException.
+	 * Only WordNet.containedInWordNet() is used for the lookups, which guards the JWNL dictionary.
+	 * @param cl the OWL class whose name is checked
+	 * @return true if every token of the class name is in WordNet
+	 */
+	private static boolean isContainedInWordNet(OWLClass cl) {
+		try {
+			for (String token : StringUtilities.getCompoundParts(cl.getIRI().getFragment())) {
+				if (!WordNet.containedInWordNet(token)) {
+					return false;
+				}
+			}
+			return true;
+		} catch (FileNotFoundException | JWNLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * Returns a boolean stating whether a term is considered a compound term
 	 * (e.g. ElectronicBook)
@@ -584,16 +619,14 @@ public class OntologyOperations {
 	public static Set<String> getClassDefinitionTokensFull (OWLOntology onto, OWLClass c) {
 		Set<String> definitionTokens = new HashSet<String>();
 
-		for (OWLClass cls : onto.getClassesInSignature()) {
-			if (cls.equals(c)) {
-				for (OWLAnnotationAssertionAxiom a : onto.getAnnotationAssertionAxioms(cls.getIRI())) {
-					//require that the definition is min 3 words
-					if (a.getValue().toString().split(" ").length >= 3) {
-						definitionTokens.add(StringUtilities.removeStopWords(a.getValue().toString().replaceAll("[^a-zA-Z0-9\\s]", "")).toLowerCase());
-					}
+		//only classes of the ontology have definitions, looked up directly instead of scanning the signature
+		if (onto.containsClassInSignature(c.getIRI())) {
+			for (OWLAnnotationAssertionAxiom a : onto.getAnnotationAssertionAxioms(c.getIRI())) {
+				//require that the definition is min 3 words
+				if (a.getValue().toString().split(" ").length >= 3) {
+					definitionTokens.add(TextPipeline.removeStopWords(a.getValue().toString().replaceAll("[^a-zA-Z0-9\\s]", "")).toLowerCase());
 				}
 			}
-
 		}
 
 
@@ -629,17 +662,17 @@ public class OntologyOperations {
 	 */
 	public static Set<String> getAllOntologyTokens(OWLOntology onto) {
 		
-		//put both class names and tokens from definitions in tokenSet
-		Set<String> tokensSet = new HashSet<String>();
-		for (OWLClass c : onto.getClassesInSignature()) {
+		//put both class names and tokens from definitions in tokenSet, the classes are processed in parallel
+		Set<String> tokensSet = onto.getClassesInSignature().parallelStream().flatMap(c -> {
+			Set<String> classTokens = new HashSet<String>();
 			if (isCompound(c.getIRI().getFragment())) {
-				tokensSet.add(StringUtilities.getCompoundWordWithSpaces(c.getIRI().getFragment()).toLowerCase());
-				tokensSet.addAll(OntologyOperations.getClassDefinitionTokensFull(onto, c));
+				classTokens.add(StringUtilities.getCompoundWordWithSpaces(c.getIRI().getFragment()).toLowerCase());
 			} else {
-				tokensSet.add(c.getIRI().getFragment().toLowerCase());
-				tokensSet.addAll(OntologyOperations.getClassDefinitionTokensFull(onto, c));
+				classTokens.add(c.getIRI().getFragment().toLowerCase());
 			}
-		}
+			classTokens.addAll(OntologyOperations.getClassDefinitionTokensFull(onto, c));
+			return classTokens.stream();
+		}).collect(Collectors.toSet());
 
 		//for each token in tokenSet, split by whitespace, and add to tokens
 		Set<String> tokens = new HashSet<String>();
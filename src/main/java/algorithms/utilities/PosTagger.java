@@ -0,0 +1,88 @@
+package algorithms.utilities;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.tagger.maxent.MaxentTagger;
+
+/**
+ * A pool of Stanford POS taggers shared by all requests. A tagger is lent to one thread at a time, so matchers of concurrent
+ * requests can tag in parallel. The first tagger is meant to be loaded at server start (see load()), further taggers are
+ * loaded when all others are busy, up to MAX_TAGGERS. After that, a thread waits for a tagger to be returned.
+ */
+public final class PosTagger {
+
+	/**
+	 * The tagger model.
+	 */
+	public static final String MODEL = "./files/taggers/english-left3words-distsim.tagger";
+
+	//each tagger holds its own copy of the model, so the pool is kept small
+	private static final int MAX_TAGGERS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+	private static final BlockingQueue<MaxentTagger> idle = new LinkedBlockingQueue<MaxentTagger>();
+	private static final AtomicInteger loaded = new AtomicInteger();
+
+	private PosTagger() {
+	}
+
+	/**
+	 * Loads the first tagger, unless one is loaded already. If the model cannot be loaded, the tagger is not counted,
+	 * so a later call (or borrow()) tries again.
+	 */
+	public static void load() {
+		if (loaded.compareAndSet(0, 1)) {
+			try {
+				idle.add(new MaxentTagger(MODEL));
+			} catch (RuntimeException | Error e) {
+				loaded.decrementAndGet();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Tags a text, e.g. "has_NNS first_JJ name_NN".
+	 * @param text the text to tag
+	 * @return each word of the text followed by an underscore and its tag, separated by spaces
+	 * @throws InterruptedIOException if interrupted while waiting for a tagger
+	 */
+	public static String tagString(String text) throws InterruptedIOException {
+
+		MaxentTagger tagger = borrow();
+
+		try {
+			return tagger.tagString(text);
+		} finally {
+			idle.add(tagger);
+		}
+	}
+
+	private static MaxentTagger borrow() throws InterruptedIOException {
+
+		MaxentTagger tagger = idle.poll();
+
+		if (tagger != null) {
+			return tagger;
+		}
+
+		if (loaded.incrementAndGet() <= MAX_TAGGERS) {
+			try {
+				return new MaxentTagger(MODEL);
+			} catch (RuntimeException | Error e) {
+				loaded.decrementAndGet();
+				throw e;
+			}
+		}
+		loaded.decrementAndGet();
+
+		try {
+			return idle.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a POS tagger");
+		}
+	}
+}
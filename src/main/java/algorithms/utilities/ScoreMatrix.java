@@ -0,0 +1,164 @@
+package algorithms.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.semanticweb.owl.align.AlignmentException;
+
+import fr.inrialpes.exmo.align.impl.BasicAlignment;
+
+/**
+ * A sparse matrix of the scores a matcher assigns to (source, target) class pairs, keyed by the class ids of an OntologyFeatureIndex.
+ * Only non-zero scores are stored: each source row holds growable primitive arrays of target ids, scores and relation codes,
+ * so a matcher that relates few pairs uses memory in proportion to those pairs and not to the cross product of the ontologies.
+ * The matrix is turned into alignment cells once the matcher is done (see addToAlignment()).
+ * A matrix is filled by a single matcher and is not thread-safe.
+ */
+public final class ScoreMatrix {
+
+	private static final int INITIAL_ROW_CAPACITY = 4;
+
+	private final int numSources;
+	private final int numTargets;
+
+	private final int[][] targets;
+	private final double[][] scores;
+	private final byte[][] relationCodes;
+	private final int[] rowSizes;
+
+	//the distinct relation types (e.g. "=", "&lt;") and their codes
+	private final List<String> relations = new ArrayList<String>();
+
+	private long size;
+
+	/**
+	 * @param numSources the number of source classes (rows)
+	 * @param numTargets the number of target classes (columns)
+	 */
+	public ScoreMatrix(int numSources, int numTargets) {
+		this.numSources = numSources;
+		this.numTargets = numTargets;
+		this.targets = new int[numSources][];
+		this.scores = new double[numSources][];
+		this.relationCodes = new byte[numSources][];
+		this.rowSizes = new int[numSources];
+	}
+
+	/**
+	 * Records the score of a pair. Zero scores are not stored.
+	 * If the same pair is recorded more than once, the highest score is kept when the matrix is turned into an alignment.
+	 * @param source the source class id
+	 * @param target the target class id
+	 * @param relation the relation type, e.g. "=" or "&lt;"
+	 * @param score the score
+	 */
+	public void set(int source, int target, String relation, double score) {
+		if (score == 0) {
+			return;
+		}
+
+		int row = rowSizes[source];
+		if (targets[source] == null) {
+			targets[source] = new int[INITIAL_ROW_CAPACITY];
+			scores[source] = new double[INITIAL_ROW_CAPACITY];
+			relationCodes[source] = new byte[INITIAL_ROW_CAPACITY];
+		} else if (row == targets[source].length) {
+			int capacity = row * 2;
+			targets[source] = Arrays.copyOf(targets[source], capacity);
+			scores[source] = Arrays.copyOf(scores[source], capacity);
+			relationCodes[source] = Arrays.copyOf(relationCodes[source], capacity);
+		}
+
+		targets[source][row] = target;
+		scores[source][row] = score;
+		relationCodes[source][row] = getRelationCode(relation);
+		rowSizes[source] = row + 1;
+		size++;
+	}
+
+	/**
+	 * @return the highest score recorded for a pair, 0 if none is recorded
+	 */
+	public double get(int source, int target) {
+		double max = 0;
+		boolean found = false;
+		for (int i = 0; i < rowSizes[source]; i++) {
+			if (targets[source][i] == target && (!found || scores[source][i] > max)) {
+				max = scores[source][i];
+				found = true;
+			}
+		}
+		return max;
+	}
+
+	public int getNumSources() {
+		return numSources;
+	}
+
+	public int getNumTargets() {
+		return numTargets;
+	}
+
+	/**
+	 * @return the number of recorded (non-zero) scores
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Adds a cell for every pair with a recorded score to an alignment, in source id and then target id order.
+	 * Pairs recorded more than once get a single cell with the highest score (the first one recorded if tied).
+	 * @param alignment the alignment (typically the matcher itself)
+	 * @param idPrefix the prefix of the cell ids, which are numbered from 1
+	 * @param sourceIndex the index the source ids refer to
+	 * @param targetIndex the index the target ids refer to
+	 * @throws AlignmentException
+	 */
+	public void addToAlignment(BasicAlignment alignment, String idPrefix, OntologyFeatureIndex sourceIndex, OntologyFeatureIndex targetIndex) throws AlignmentException {
+
+		int idCounter = 0;
+
+		for (int s = 0; s < numSources; s++) {
+			int rowSize = rowSizes[s];
+			if (rowSize == 0) {
+				continue;
+			}
+
+			//order the row by target id and then by the order of recording, packed as (target id, position) so a primitive sort can be used
+			long[] order = new long[rowSize];
+			for (int i = 0; i < rowSize; i++) {
+				order[i] = ((long) targets[s][i] << 32) | i;
+			}
+			Arrays.sort(order);
+
+			int i = 0;
+			while (i < rowSize) {
+				int target = (int) (order[i] >>> 32);
+				int best = (int) order[i];
+				int j = i + 1;
+				while (j < rowSize && (int) (order[j] >>> 32) == target) {
+					if (scores[s][(int) order[j]] > scores[s][best]) {
+						best = (int) order[j];
+					}
+					j++;
+				}
+				idCounter++;
+				alignment.addAlignCell(idPrefix + idCounter, sourceIndex.getOWLClass(s), targetIndex.getOWLClass(target),
+						relations.get(relationCodes[s][best]), scores[s][best]);
+				i = j;
+			}
+		}
+	}
+
+	private byte getRelationCode(String relation) {
+		int code = relations.indexOf(relation);
+		if (code < 0) {
+			code = relations.size();
+			relations.add(relation);
+		}
+		return (byte) code;
+	}
+
+}
@@ -1,7 +1,9 @@
 package algorithms.utilities;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -11,6 +13,9 @@ import java.util.Set;
  */
 public class SimilarityMetrics {
 
+	//ISub keeps no state between scores, so one instance is shared
+	private static final ISub ISUB = new ISub();
+
     public static void main(String[] args) {
 		Set<String> set1 = new HashSet<String>(Arrays.asList(new String[]{"hi", "hei"}));
 		Set<String> set2 = new HashSet<String>(Arrays.asList(new String[]{"hei", "hey"}));
@@ -55,17 +60,22 @@ public class SimilarityMetrics {
 			return 0.0;
 		}
 
-		ISub isubMatcher = new ISub();
-
 		int intersection = 0;
 		int refinedIntersection = 0;
 		int refinedUnion = 0;
 		double isubScore = 0;
 
+		//the values of set2 are normalized once, not once per value of set1
+		List<ISub.Label> labels2 = new ArrayList<ISub.Label>(set2.size());
+		for (String s2 : set2) {
+			labels2.add(ISub.label(s2));
+		}
+
 		for (String s1 : set1) {
-			for (String s2 : set2) {
+			ISub.Label label1 = ISub.label(s1);
+			for (ISub.Label label2 : labels2) {
 				//using ISub to compute a similarity score
-				isubScore = isubMatcher.score(s1,s2);
+				isubScore = ISUB.score(label1, label2);
 				if (isubScore > confidence) {
 					intersection += 1;
 				}
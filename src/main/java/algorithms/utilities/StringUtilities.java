@@ -2,9 +2,7 @@ package algorithms.utilities;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -14,8 +12,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
 
-import edu.stanford.nlp.simple.Sentence;
-
 /**
  * Contains various methods performing string processing operations.
  * @author audunvennesland
@@ -52,15 +48,13 @@ public class StringUtilities {
 	}
 
 	/**
-	 * Returns the lemma of a word using the Stanford SimpleNLP API
+	 * Returns the lemma of a word using the shared Stanford CoreNLP pipeline (see TextPipeline)
 	 * @param input the word to create the lemma from
 	 * @return the lemma of the input word
 	   Jan 26, 2019
 	 */
 	public static String getLemma (String input) {
-		String lemma = new Sentence(input).lemma(0);
-		
-		return lemma;
+		return TextPipeline.lemma(input);
 	}
 
 
@@ -126,51 +120,7 @@ public class StringUtilities {
 	   Jul 28, 2019
 	 */
 	public static List<String> tokenizeAndLemmatizeToList(String inputString, boolean lowercase) throws IOException {
-		if (inputString == null) {
-			return null;
-		}
-		
-		//remove stopwords
-		String stringWOStopWords = removeStopWords(inputString);
-
-		List<String> strings = new LinkedList<>();
-
-		String current = "";
-		Character prevC = 'x';
-
-		for (Character c: stringWOStopWords.toCharArray()) {
-
-			if ((Character.isLowerCase(prevC) && Character.isUpperCase(c)) || 
-					c == '_' || c == '-' || c == ' ' || c == '/' || c == '\\' || c == '>') {
-
-				current = current.trim();
-
-				if (current.length() > 0) {
-					if (lowercase) 
-						strings.add(getLemma(current).toLowerCase());
-					else
-						strings.add(getLemma(current));
-				}
-
-				current = "";
-			}
-
-			if (c != '_' && c != '-' && c != '/' && c != '\\' && c != '>') {
-				current += c;
-				prevC = c;
-			}
-		}
-
-		current = current.trim();
-
-		if (current.length() > 0) {
-			if (!(current.length() > 4 && Character.isDigit(current.charAt(0)) && 
-					Character.isDigit(current.charAt(current.length()-1)))) {
-				strings.add(getLemma(current.toLowerCase()));
-			}
-		}
-
-		return strings;
+		return TextPipeline.tokenizeAndLemmatize(inputString, lowercase);
 	}
 	
 	/**
@@ -313,33 +263,7 @@ public class StringUtilities {
 	   Jul 28, 2019
 	 */
 	public static String removeStopWords (String inputString) {
-
-		List<String> stopWordsList = Arrays.asList(
-				"a", "an", "and", "are", "as", "at", "be", "but", "by",
-				"for", "if", "in", "into", "is", "it",
-				"no", "not", "of", "on", "or", "such",
-				"that", "the", "their", "then", "there", "these",
-				"they", "this", "to", "was", "will", "with"
-				);
-
-		String[] words = inputString.split(" ");
-		ArrayList<String> wordsList = new ArrayList<String>();
-		StringBuffer sb = new StringBuffer();
-
-		for(String word : words)
-		{
-			String wordCompare = word.toLowerCase();
-			if(!stopWordsList.contains(wordCompare))
-			{
-				wordsList.add(word);
-			}
-		}
-
-		for (String str : wordsList){
-			sb.append(str + " ");
-		}
-
-		return sb.toString();
+		return TextPipeline.removeStopWords(inputString);
 	}
 	
 	public static String[] getCompoundParts(String input) {
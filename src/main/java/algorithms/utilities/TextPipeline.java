@@ -0,0 +1,237 @@
+package algorithms.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+/**
+ * The text normalization shared by the matchers and the ontology profiler: stop word removal, tokenization and lemmatization.
+ * One Stanford CoreNLP pipeline (tokenize, ssplit, pos, lemma) is created for the whole process on first use, instead of a
+ * new pipeline per word. The lemma of a word is the one new Sentence(word).lemma(0) of the simple API gave: the lemma of its
+ * first PTB token, tagged on its own. The lemma of a single word is cached, and the tokens of a whole definition are
+ * lemmatized in one pass of the pipeline. The pipeline is shared between threads, each call annotates its own document.
+ * @see StringUtilities
+ */
+public final class TextPipeline {
+
+	/**
+	 * The stop words removed from labels, comments and definitions.
+	 */
+	public static final Set<String> STOP_WORDS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			"a", "an", "and", "are", "as", "at", "be", "but", "by",
+			"for", "if", "in", "into", "is", "it",
+			"no", "not", "of", "on", "or", "such",
+			"that", "the", "their", "then", "there", "these",
+			"they", "this", "to", "was", "will", "with"
+			)));
+
+	/**
+	 * The stop words removed from the lexico-syntactic extracts of definitions, i.e. STOP_WORDS and "etc".
+	 */
+	public static final Set<String> DEFINITION_STOP_WORDS;
+
+	static {
+		Set<String> stopWords = new HashSet<String>(STOP_WORDS);
+		stopWords.add("etc");
+		DEFINITION_STOP_WORDS = Collections.unmodifiableSet(stopWords);
+	}
+
+	//the number of single-word lemmas kept before the cache is cleared
+	private static final int LEMMA_CACHE_SIZE = 100000;
+
+	private static final ConcurrentHashMap<String, String> lemmas = new ConcurrentHashMap<String, String>();
+
+	//the characters the tokenizer ends a line at
+	private static final Pattern LINE_BREAK = Pattern.compile("[\\n\\r\\u000B\\u000C\\u0085\\u2028\\u2029]");
+
+	private TextPipeline() {
+	}
+
+	/**
+	 * Loads the pipeline on first use. It tokenizes like the simple API (PTB, so punctuation is split off a word) and keeps
+	 * each line as one sentence, so the words put on lines of their own are tagged as if they were lemmatized one by one.
+	 */
+	private static final class Holder {
+		static final StanfordCoreNLP PIPELINE;
+
+		static {
+			Properties props = new Properties();
+			props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
+			props.setProperty("ssplit.eolonly", "true");
+			PIPELINE = new StanfordCoreNLP(props);
+		}
+	}
+
+	/**
+	 * Loads the pipeline (the POS model), so that the first request does not wait for it.
+	 */
+	public static void load() {
+		Holder.PIPELINE.getClass();
+	}
+
+	/**
+	 * Removes stop words from an input string. The words are separated by single spaces, each kept word is followed by a space.
+	 * @param inputString the input string from which stop words will be removed
+	 * @param stopWords the stop words, in lowercase
+	 * @return inputString without stop words
+	 */
+	public static String removeStopWords(String inputString, Set<String> stopWords) {
+
+		StringBuilder sb = new StringBuilder(inputString.length() + 1);
+
+		for (String word : inputString.split(" ")) {
+			if (!stopWords.contains(word.toLowerCase())) {
+				sb.append(word).append(' ');
+			}
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Removes the STOP_WORDS from an input string.
+	 * @param inputString the input string from which stop words will be removed
+	 * @return inputString without stop words
+	 */
+	public static String removeStopWords(String inputString) {
+		return removeStopWords(inputString, STOP_WORDS);
+	}
+
+	/**
+	 * Returns the lemma of a word, i.e. of its first PTB token. The lemma is looked up in the cache first.
+	 * @param word the word to create the lemma from
+	 * @return the lemma of the word, or the word itself if it has no tokens
+	 */
+	public static String lemma(String word) {
+
+		String lemma = lemmas.get(word);
+
+		if (lemma == null) {
+			List<String> annotated = annotate(word);
+			lemma = annotated.isEmpty() ? word : annotated.get(0);
+			if (lemmas.size() >= LEMMA_CACHE_SIZE) {
+				lemmas.clear();
+			}
+			lemmas.put(word, lemma);
+		}
+
+		return lemma;
+	}
+
+	/**
+	 * Returns the lemmas of a sequence of tokens, e.g. the tokens of a definition, computed in one pass of the pipeline.
+	 * Each token is put on a line of its own, so its lemma is the same as lemma(token).
+	 * @param tokens the tokens to lemmatize
+	 * @return the lemma of each token, in the same order
+	 */
+	public static List<String> lemmatize(List<String> tokens) {
+
+		if (tokens.isEmpty()) {
+			return new ArrayList<String>();
+		}
+
+		boolean oneLineEach = true;
+		for (String token : tokens) {
+			oneLineEach &= !LINE_BREAK.matcher(token).find();
+		}
+		List<String> lemmatized = oneLineEach ? annotate(String.join("\n", tokens)) : null;
+
+		//a token with a line break inside, or without any PTB token, has no line of its own: the tokens are then lemmatized one by one
+		if (lemmatized == null || lemmatized.size() != tokens.size()) {
+			lemmatized = new ArrayList<String>(tokens.size());
+			for (String token : tokens) {
+				lemmatized.add(lemma(token));
+			}
+		}
+
+		return lemmatized;
+	}
+
+	/**
+	 * Takes a string as input and returns the list of lemmatized tokens from this string, after removing the stop words.
+	 * The string is split on spaces, underscores, hyphens, slashes, '>' and between a lower case and an upper case letter.
+	 * A final token that looks like an id number (more than 4 characters beginning and ending with a digit) is left out.
+	 * @param inputString the input string to tokenize
+	 * @param lowercase if the output tokens should be lowercased
+	 * @return a list of lemmatized tokens
+	 */
+	public static List<String> tokenizeAndLemmatize(String inputString, boolean lowercase) {
+		if (inputString == null) {
+			return null;
+		}
+
+		String stringWOStopWords = removeStopWords(inputString);
+
+		List<String> tokens = new ArrayList<String>();
+
+		StringBuilder current = new StringBuilder();
+		char prevC = 'x';
+
+		for (char c : stringWOStopWords.toCharArray()) {
+
+			if ((Character.isLowerCase(prevC) && Character.isUpperCase(c)) ||
+					c == '_' || c == '-' || c == ' ' || c == '/' || c == '\\' || c == '>') {
+
+				String token = current.toString().trim();
+
+				if (token.length() > 0) {
+					tokens.add(token);
+				}
+
+				current.setLength(0);
+			}
+
+			if (c != '_' && c != '-' && c != '/' && c != '\\' && c != '>') {
+				current.append(c);
+				prevC = c;
+			}
+		}
+
+		String last = current.toString().trim();
+		boolean lastIsId = last.length() > 4 && Character.isDigit(last.charAt(0)) && Character.isDigit(last.charAt(last.length() - 1));
+		if (last.length() > 0 && !lastIsId) {
+			//the final token has always been lowercased before it is lemmatized
+			tokens.add(last.toLowerCase());
+		}
+
+		List<String> lemmatized = lemmatize(tokens);
+
+		if (lowercase) {
+			for (int i = 0; i < lemmatized.size(); i++) {
+				lemmatized.set(i, lemmatized.get(i).toLowerCase());
+			}
+		}
+
+		return lemmatized;
+	}
+
+	//the lemma of the first token of each line (that has any tokens)
+	private static List<String> annotate(String text) {
+
+		Annotation document = new Annotation(text);
+		Holder.PIPELINE.annotate(document);
+
+		List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+		List<String> lemmatized = new ArrayList<String>(sentences.size());
+		for (CoreMap sentence : sentences) {
+			List<CoreLabel> annotatedTokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+			if (!annotatedTokens.isEmpty()) {
+				lemmatized.add(annotatedTokens.get(0).lemma());
+			}
+		}
+
+		return lemmatized;
+	}
+}
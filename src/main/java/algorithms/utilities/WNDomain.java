@@ -1,13 +1,10 @@
 package algorithms.utilities;
 
-import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Set;
-import java.util.StringTokenizer;
 
 import rita.wordnet.jwnl.JWNLException;
 import rita.wordnet.jwnl.wndata.Synset;
@@ -28,7 +25,7 @@ public class WNDomain {
 		
 		String offset = "2853224";
 		
-		System.out.println("Domain is " + findDomain(WN_DOMAINS_FILE, offset));
+		System.out.println("Domain is " + WNDomainIndex.getInstance().getDomain(Long.parseLong(offset), 'n'));
 		
 		System.out.println(sameDomainJaccard(s1, s2, 0.3));
 		
@@ -57,15 +54,20 @@ public class WNDomain {
 
 	/**
 	 * Returns a list of domains converted from offsets (long)
-	 * @param offset list of synsets offsets associated with WordNet synsets 
-	 * @return a list of domains converted from offsets (long)
+	 * @param offset list of synsets offsets associated with WordNet (noun) synsets 
+	 * @return a list of domains converted from offsets (long), offsets that are not classified in WordNet Domains are skipped
 	 * @throws FileNotFoundException 
 	 */
 	public static Set<String> convertOffsetToString(List<Long> offset) throws FileNotFoundException {
 		Set<String> synsets = new HashSet<String>();
+		WNDomainIndex index = WNDomainIndex.getInstance();
 
 		for (Long l : offset) {
-			synsets.add(findDomain(WN_DOMAINS_FILE, l.toString()));
+			//the synsets are looked up as nouns (see WordNet.getSynsetsJWNL())
+			String domain = index.getDomain(l, 'n');
+			if (domain != null) {
+				synsets.add(domain);
+			}
 		}
 
 		return synsets;
@@ -142,39 +144,6 @@ public class WNDomain {
 	}
 
 
-	/**
-	 * Retrieves the domains (as string) given a synset offset as parameter from the WordNet Domains domain classification file. In the classification file each line is represented as 'Synset offset (tab) Domain name'
-	 * @param WNDomainsFileName Name of the WordNet Domains domain classification file
-	 * @param searchStr the input synset offset
-	 * @return domain(s) associated with the synset offset from the WordNet Domains domain classification file
-	 * @throws FileNotFoundException
-	 */
-	private static String findDomain(String WNDomainsFileName,String searchStr) throws FileNotFoundException{    	
-		String domain = null;
-		Scanner scan = new Scanner(new File(WNDomainsFileName));
-		
-		while(scan.hasNext()){
-			String line = scan.nextLine().toLowerCase().toString();
-			if(line.contains(searchStr)){
-				StringTokenizer tokenizer = new StringTokenizer(line, "	");
-				List<String> parts = new ArrayList<String>();
-				while(tokenizer.hasMoreTokens()) { 
-					String part = tokenizer.nextToken();
-					parts.add(part);
-				}
-
-				//adds only the textual representation of the domain to String domain (parts.get(0) is the synset number (long))
-				domain = parts.get(1);
-			}
-		}
-		
-		//28.07.2019 added close method to scanner to avoid resource leak
-		scan.close();
-		
-		return domain;
-	}
-
-	
 	/**
 	 * Retrieves a set of domain descriptions (from WNDomains) using a string representation of a word as parameter. 
 	 * @param inputWord String representation of the word (synset)
@@ -215,32 +184,20 @@ public class WNDomain {
 	 */
 	public static Set<String> getDomainTokensFromString (String inputWord) throws FileNotFoundException, JWNLException {
 		
-		List<Long> synsetOffsets = null;
-		Set<String> synsetList = new HashSet<String>();
+		Set<String> synsetSet = new HashSet<String>();
 		
 		//get the synset offset if the word is represented in WordNet
 		if (WordNet.containedInWordNet(inputWord)) {
-			synsetOffsets = findSynsetOffset(inputWord);
-			synsetList = convertOffsetToString(synsetOffsets);
-		}
-		
-		//remove duplicates and "factotum"
-		Set<String> synsetSet = new HashSet<String>();
-		
-		
-		for (String s : synsetList) {
+			WNDomainIndex index = WNDomainIndex.getInstance();
 			
-			if (!s.equals("factotum")) {
-				
-				String[] array = s.split(" ");
-				for (String string : array) {
-				
-					synsetSet.add(string);
-				}
+			//the index holds the composite domains already split into tokens
+			for (Long l : findSynsetOffset(inputWord)) {
+				synsetSet.addAll(index.getDomainTokens(l, 'n'));
 			}
 		}
 		
-		
+		//remove "factotum"
+		synsetSet.remove("factotum");
 		
 		return synsetSet;
 	}
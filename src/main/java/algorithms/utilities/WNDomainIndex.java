@@ -0,0 +1,165 @@
+package algorithms.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An in-memory index of the WordNet Domains classification, mapping a synset (offset and part of speech) to its domains.
+ * Each line of the classification file is 'offset-pos (tab) domain(s)', where several domains are separated by a space (e.g. "administration politics").
+ * The file is read once, on first use, into sorted primitive arrays: a synset is found by a binary search on its exact key,
+ * and the (about 1500) distinct domain descriptions are stored once and shared by all synsets that have them.
+ * The index is immutable and can be used from several threads.
+ */
+public final class WNDomainIndex {
+
+	private static volatile WNDomainIndex instance;
+
+	//offset * 8 + part of speech code, sorted
+	private final long[] keys;
+	//the id of the domain description of each key
+	private final int[] domainIds;
+	private final String[] domains;
+	private final List<List<String>> domainTokens;
+
+	private WNDomainIndex(long[] keys, int[] domainIds, String[] domains) {
+		this.keys = keys;
+		this.domainIds = domainIds;
+		this.domains = domains;
+		this.domainTokens = new ArrayList<List<String>>(domains.length);
+		for (String domain : domains) {
+			domainTokens.add(Collections.unmodifiableList(Arrays.asList(domain.split(" "))));
+		}
+	}
+
+	/**
+	 * Returns the index of the WordNet Domains classification file, which is loaded on the first call.
+	 * @return the index
+	 * @throws FileNotFoundException if the classification file cannot be read
+	 */
+	public static WNDomainIndex getInstance() throws FileNotFoundException {
+		WNDomainIndex index = instance;
+		if (index == null) {
+			synchronized (WNDomainIndex.class) {
+				index = instance;
+				if (index == null) {
+					index = load(new File(WNDomain.WN_DOMAINS_FILE));
+					instance = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Loads an index from a WordNet Domains classification file.
+	 * @param wnDomainsFile the classification file
+	 * @return the index
+	 * @throws FileNotFoundException if the file cannot be read
+	 */
+	public static WNDomainIndex load(File wnDomainsFile) throws FileNotFoundException {
+
+		Map<String, Integer> domainIdMap = new HashMap<String, Integer>();
+		List<String> domainList = new ArrayList<String>();
+		long[] entries = new long[1 << 17];
+		int size = 0;
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(wnDomainsFile), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				int tab = line.indexOf('\t');
+				int dash = line.lastIndexOf('-', tab);
+				if (tab < 0 || dash < 0) {
+					continue;
+				}
+				long key = toKey(Long.parseLong(line.substring(0, dash)), line.charAt(dash + 1));
+				String domain = line.substring(tab + 1).trim().toLowerCase();
+
+				Integer domainId = domainIdMap.get(domain);
+				if (domainId == null) {
+					domainId = domainList.size();
+					domainIdMap.put(domain, domainId);
+					domainList.add(domain);
+				}
+
+				if (size == entries.length) {
+					entries = Arrays.copyOf(entries, size * 2);
+				}
+				//the key and the domain id packed together, so the entries can be sorted by key with a primitive sort
+				entries[size++] = (key << 24) | domainId;
+			}
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			FileNotFoundException notRead = new FileNotFoundException("Could not read " + wnDomainsFile + ": " + e.getMessage());
+			notRead.initCause(e);
+			throw notRead;
+		}
+
+		Arrays.sort(entries, 0, size);
+
+		long[] keys = new long[size];
+		int[] domainIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = entries[i] >>> 24;
+			domainIds[i] = (int) (entries[i] & 0xFFFFFF);
+		}
+
+		return new WNDomainIndex(keys, domainIds, domainList.toArray(new String[domainList.size()]));
+	}
+
+	/**
+	 * Returns the domain description of a synset, e.g. "transport" or "administration politics".
+	 * @param offset the synset offset
+	 * @param pos the part of speech as in the classification file: 'n', 'v', 'a', 's' or 'r'
+	 * @return the domain description, or null if the synset is not classified
+	 */
+	public String getDomain(long offset, char pos) {
+		int i = Arrays.binarySearch(keys, toKey(offset, pos));
+		return i < 0 ? null : domains[domainIds[i]];
+	}
+
+	/**
+	 * Returns the individual domains of a synset, e.g. ["administration", "politics"].
+	 * @param offset the synset offset
+	 * @param pos the part of speech as in the classification file: 'n', 'v', 'a', 's' or 'r'
+	 * @return an unmodifiable list of domains, empty if the synset is not classified
+	 */
+	public List<String> getDomainTokens(long offset, char pos) {
+		int i = Arrays.binarySearch(keys, toKey(offset, pos));
+		return i < 0 ? Collections.<String>emptyList() : domainTokens.get(domainIds[i]);
+	}
+
+	/**
+	 * @return the number of classified synsets
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	private static long toKey(long offset, char pos) {
+		return offset * 8 + posCode(pos);
+	}
+
+	private static int posCode(char pos) {
+		switch (pos) {
+		case 'n': return 1;
+		case 'v': return 2;
+		case 'a': return 3;
+		case 's': return 4;
+		case 'r': return 5;
+		default: return 0;
+		}
+	}
+
+}
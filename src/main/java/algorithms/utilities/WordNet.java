@@ -1,6 +1,11 @@
 package algorithms.utilities;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -29,11 +34,26 @@ import rita.wordnet.jwnl.wndata.Synset;
 public class WordNet {
 
 	final static POS pos = POS.NOUN;
-	private static ILexicalDatabase db = new NictWordNet();
+	private static final ILexicalDatabase db = new NictWordNet();
 	//final static String JWNL_FILE = "./files/WordNet-3.0/file_property.xml";
 	
 	//Note that the WNDomains classification relies on WordNet-2.0
-	static RiWordNet database = new RiWordNet("./files/WordNet_2.0/dict");
+	public final static String WORDNET_2_DICT = "./files/WordNet_2.0/dict";
+	//RiWordNet and the JWNL dictionary it opens read the dictionary files through shared file handles and caches, which are
+	//not thread-safe. The matchers run concurrently (see AlgorithmRunner), so every lookup that misses the cache holds the lock of this instance.
+	static final RiWordNet database = new RiWordNet(WORDNET_2_DICT);
+	
+	//all dictionary lookups go through this cache, see WordNetCache
+	private static final WordNetCache cache = WordNetCache.LOOKUPS;
+	
+	//the dictionary and information content used by computeJiangConrath() and computeResnik(), see WordNetRelatedness
+	public final static String WORDNET_3_DICT = "./files/WordNet_3.0/dict";
+	public final static String IC_FILE = "./files/WordNet_3.0/ic-semcor.dat";
+	private static volatile WordNetRelatedness relatedness;
+	private static volatile boolean relatednessLoaded;
+	
+	//the Jiang-Conrath and Resnik scores of word pairs, apart from the dictionary lookups, see computeRelatedness()
+	private static final WordNetCache relatednessCache = WordNetCache.RELATEDNESS;
 	
 	public static void main(String[] args) throws FileNotFoundException, JWNLException {
 		
@@ -86,19 +106,22 @@ public class WordNet {
 	 */
 	public static Synset[] getSynsetsJWNL (String inputWord) throws FileNotFoundException, JWNLException {
 
-		//JWNL.initialize(new FileInputStream(JWNL_FILE));
-		Dictionary dictionary = Dictionary.getInstance();
-
 		String token = StringUtilities.stringTokenize(inputWord, true);
 
-		IndexWord indexWord = dictionary.lookupIndexWord(pos, token);
+		Synset[] synsets = cache.get(WordNetCache.Relation.SYNSETS, "n", token, () -> {
+			synchronized (database) {
+				//JWNL.initialize(new FileInputStream(JWNL_FILE));
+				Dictionary dictionary = Dictionary.getInstance();
 
+				IndexWord indexWord = dictionary.lookupIndexWord(pos, token);
 
-		Synset[] synsets = indexWord.getSenses();
+				//JWNL.shutdown();
 
-		//JWNL.shutdown();
+				return indexWord.getSenses();
+			}
+		});
 
-		return synsets;
+		return synsets.clone();
 
 	}
 
@@ -112,22 +135,21 @@ public class WordNet {
 	 */
 	public static boolean containedInWordNet(String inputWord) throws FileNotFoundException, JWNLException {
 
-		//JWNL.initialize(new FileInputStream(JWNL_FILE));
+		String lemma = inputWord.toLowerCase();
 
-		Dictionary dictionary = Dictionary.getInstance();
+		return cache.get(WordNetCache.Relation.CONTAINED, "n", lemma, () -> {
+			synchronized (database) {
+				//JWNL.initialize(new FileInputStream(JWNL_FILE));
 
-		IndexWord indexWord = dictionary.lookupIndexWord(pos, inputWord.toLowerCase());
+				Dictionary dictionary = Dictionary.getInstance();
 
-		//JWNL.shutdown();
+				IndexWord indexWord = dictionary.lookupIndexWord(pos, lemma);
 
-		if (indexWord == null)
-		{
-			return false;
-		}
-		else
-		{
-			return true;
-		}			
+				//JWNL.shutdown();
+
+				return indexWord != null;
+			}
+		});
 
 	}
 
@@ -138,7 +160,7 @@ public class WordNet {
 	   Jul 28, 2019
 	 */
 	public static String[] getSynonyms(String inputWord) {
-		String[] synonyms = database.getSynonyms(inputWord, "n");
+		String[] synonyms = lookup(WordNetCache.Relation.SYNONYMS, "n", inputWord);
 
 		return synonyms;
 	}
@@ -151,7 +173,7 @@ public class WordNet {
 	   Jul 28, 2019
 	 */
 	public static String[] getAllSynonyms(String inputWord) {
-		String[] synonyms = database.getAllSynonyms(inputWord, "n");
+		String[] synonyms = lookup(WordNetCache.Relation.ALL_SYNONYMS, "n", inputWord);
 
 		return synonyms;
 	}
@@ -166,7 +188,7 @@ public class WordNet {
 
 		Set<String> synSet = new HashSet<String>();
 
-		String[] synonyms = database.getAllSynonyms(inputWord, "n");
+		String[] synonyms = lookup(WordNetCache.Relation.ALL_SYNONYMS, "n", inputWord);
 
 		for (int i = 0; i < synonyms.length; i++) {
 			synSet.add(synonyms[i]);
@@ -183,8 +205,8 @@ public class WordNet {
 	public static Set<String> getAllSynonymSetCached(String inputWord) {
 		Set<String> synSet = new HashSet<String>();
 
-		String[] nounSynonyms = database.getAllSynonyms(inputWord, "n");
-		String[] verbSynonyms = database.getAllSynonyms(inputWord, "v");
+		String[] nounSynonyms = lookup(WordNetCache.Relation.ALL_SYNONYMS, "n", inputWord);
+		String[] verbSynonyms = lookup(WordNetCache.Relation.ALL_SYNONYMS, "v", inputWord);
 
 		//adding the noun synonyms to inputWord
 		for (int i = 0; i < nounSynonyms.length; i++) {
@@ -205,7 +227,7 @@ public class WordNet {
 	 */
 	public static String[] getHyponyms(String inputWord) {
 		//String[] hyponyms = database.getAllHyponyms(inputWord, "n");
-		String[] hyponyms = database.getHyponyms(inputWord, "n");
+		String[] hyponyms = lookup(WordNetCache.Relation.HYPONYMS, "n", inputWord);
 
 		return hyponyms;
 	}
@@ -217,7 +239,7 @@ public class WordNet {
 	   Jul 28, 2019
 	 */
 	private static String[] getAllHyponyms(String inputWord) {
-		String[] hyponyms = database.getAllHyponyms(inputWord, "n");
+		String[] hyponyms = lookup(WordNetCache.Relation.ALL_HYPONYMS, "n", inputWord);
 
 		return hyponyms;
 	}
@@ -278,7 +300,7 @@ public class WordNet {
 
 		Set<String> merSet = new HashSet<String>();
 
-		String[] meronyms = database.getAllMeronyms(inputWord, "n");
+		String[] meronyms = lookup(WordNetCache.Relation.MERONYMS, "n", inputWord);
 
 		for (int i = 0; i < meronyms.length; i++) {
 			merSet.add(meronyms[i]);
@@ -329,7 +351,7 @@ public class WordNet {
 
 		Set<String> holSet = new HashSet<String>();
 
-		String[] holonyms = database.getAllHolonyms(inputWord, "n");
+		String[] holonyms = lookup(WordNetCache.Relation.HOLONYMS, "n", inputWord);
 
 		for (int i = 0; i < holonyms.length; i++) {
 			holSet.add(holonyms[i]);
@@ -339,6 +361,57 @@ public class WordNet {
 	}
 
 
+	/**
+	 * Looks up a RiWordNet relation through the cache. The cached array is shared, so a copy is returned.
+	 * @param relation the relation
+	 * @param pos the part of speech ("n" or "v")
+	 * @param inputWord the input word
+	 * @return the related words, as returned by RiWordNet
+	 */
+	private static String[] lookup(WordNetCache.Relation relation, String pos, String inputWord) {
+		String[] words = cache.getUnchecked(relation, pos, inputWord, () -> {
+			synchronized (database) {
+				switch (relation) {
+				case SYNONYMS: return database.getSynonyms(inputWord, pos);
+				case ALL_SYNONYMS: return database.getAllSynonyms(inputWord, pos);
+				case HYPONYMS: return database.getHyponyms(inputWord, pos);
+				case ALL_HYPONYMS: return database.getAllHyponyms(inputWord, pos);
+				case MERONYMS: return database.getAllMeronyms(inputWord, pos);
+				case HOLONYMS: return database.getAllHolonyms(inputWord, pos);
+				default: throw new IllegalArgumentException("Not a RiWordNet relation: " + relation);
+				}
+			}
+		});
+		return words == null ? null : words.clone();
+	}
+
+	/**
+	 * Fills the cache with the lookups the lexical matchers make for a vocabulary (e.g. the class names of both ontologies and their compound parts),
+	 * so that matching does not wait for the dictionary.
+	 * @param words the words to look up
+	 * @throws FileNotFoundException
+	 * @throws JWNLException
+	 */
+	public static void warmUp(Collection<String> words) throws FileNotFoundException, JWNLException {
+		for (String word : words) {
+			String lowerCaseWord = word.toLowerCase();
+			getAllSynonymSetCached(lowerCaseWord);
+			getSynonyms(lowerCaseWord);
+			if (containedInWordNet(lowerCaseWord)) {
+				getHyponyms(lowerCaseWord);
+				getMeronymSet(lowerCaseWord);
+			}
+		}
+	}
+
+	/**
+	 * @return the cache used for all dictionary lookups, e.g. to read its hit and miss counts
+	 */
+	public static WordNetCache getCache() {
+		return cache;
+	}
+
+
 	/**
 	 * Originally a distance measure which also uses the notion of information content, but in the form of the conditional probability of 
 	 * encountering an instance of a child-synset given an instance of a parent synset.
@@ -350,8 +423,7 @@ public class WordNet {
 	 * @return
 	 */
 	public static double computeJiangConrath(String firstInputString, String secondInputString)  {
-		WS4JConfiguration.getInstance().setMFS(true);
-		double s = new JiangConrath(db).calcRelatednessOfWords(firstInputString, secondInputString);
+		double s = computeRelatedness(WordNetCache.Relation.JIANG_CONRATH, firstInputString, secondInputString);
 		//need a work-around since some of the scores are above 1.0 (not allowed to have a confidence level above 1.0)
 		if (s > 1.0) {
 			s = 1.0;
@@ -369,10 +441,7 @@ public class WordNet {
 	 * @return
 	 */
 	public static double computeResnik(String firstInputString, String secondInputString)  {
-
-
-		WS4JConfiguration.getInstance().setMFS(true);
-		double s = new Resnik(db).calcRelatednessOfWords(firstInputString, secondInputString);
+		double s = computeRelatedness(WordNetCache.Relation.RESNIK, firstInputString, secondInputString);
 
 		//need a work-around since some of the scores are above 1.0 (not allowed to have a confidence level above 1.0)
 		if (s > 1.0) {
@@ -381,5 +450,86 @@ public class WordNet {
 		return s;
 	}
 
+	/**
+	 * Computes (or finds in the cache) the Jiang-Conrath or Resnik score of a pair of words, with WordNetRelatedness if it could be loaded and with WS4J otherwise.
+	 * Both measures are symmetric, so a pair is cached once regardless of the order of the words.
+	 * @param relation JIANG_CONRATH or RESNIK
+	 * @param firstInputString the first word
+	 * @param secondInputString the second word
+	 * @return the uncapped score
+	 */
+	private static double computeRelatedness(WordNetCache.Relation relation, String firstInputString, String secondInputString) {
+		String pair = firstInputString.compareTo(secondInputString) <= 0 
+				? firstInputString + "|" + secondInputString 
+				: secondInputString + "|" + firstInputString;
+
+		Double score = relatednessCache.getUnchecked(relation, "", pair, () -> {
+			WordNetRelatedness engine = loadRelatedness();
+			if (engine != null) {
+				return relation == WordNetCache.Relation.RESNIK 
+						? engine.resnik(firstInputString, secondInputString) 
+						: engine.jiangConrath(firstInputString, secondInputString);
+			}
+			return WS4J.relatedness(relation, firstInputString, secondInputString);
+		});
+		return score;
+	}
+
+	/**
+	 * @return the cache of the Jiang-Conrath and Resnik scores of word pairs
+	 */
+	public static WordNetCache getRelatednessCache() {
+		return relatednessCache;
+	}
+
+	/**
+	 * WS4J, used only if WordNetRelatedness cannot be loaded. It is set up on first use.
+	 * Both measures query the same lexical database (one SQLite connection), which is not thread-safe,
+	 * so the scores are computed one at a time, holding the lock of that database only.
+	 */
+	private static final class WS4J {
+		private static final JiangConrath jiangConrath;
+		private static final Resnik resnik;
+
+		static {
+			WS4JConfiguration.getInstance().setMFS(true);
+			jiangConrath = new JiangConrath(db);
+			resnik = new Resnik(db);
+		}
+
+		static double relatedness(WordNetCache.Relation relation, String firstInputString, String secondInputString) {
+			synchronized (db) {
+				return relation == WordNetCache.Relation.RESNIK 
+						? resnik.calcRelatednessOfWords(firstInputString, secondInputString) 
+						: jiangConrath.calcRelatednessOfWords(firstInputString, secondInputString);
+			}
+		}
+	}
+
+	/**
+	 * Loads the WordNet 3.0 hierarchies and information content used by computeJiangConrath() and computeResnik(), on the first call.
+	 * The information content is read from IC_FILE, or from the classpath resource ic-semcor.dat (as packaged with WS4J) if the file is not there.
+	 * @return the relatedness engine, or null if it could not be loaded, in which case WS4J is used
+	 */
+	public static WordNetRelatedness loadRelatedness() {
+		if (!relatednessLoaded) {
+			synchronized (WordNet.class) {
+				if (!relatednessLoaded) {
+					File icFile = new File(IC_FILE);
+					try (InputStream ic = icFile.exists() ? new FileInputStream(icFile) : WordNet.class.getClassLoader().getResourceAsStream("ic-semcor.dat")) {
+						if (ic == null) {
+							throw new FileNotFoundException(IC_FILE);
+						}
+						relatedness = WordNetRelatedness.load(new File(WORDNET_3_DICT), ic);
+					} catch (IOException | RuntimeException e) {
+						System.err.println("Could not load the WordNet relatedness tables, using WS4J instead: " + e.getMessage());
+					}
+					relatednessLoaded = true;
+				}
+			}
+		}
+		return relatedness;
+	}
+
 
 }
\ No newline at end of file
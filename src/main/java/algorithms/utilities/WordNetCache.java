@@ -0,0 +1,162 @@
+package algorithms.utilities;
+
+import java.io.FileNotFoundException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import rita.wordnet.jwnl.JWNLException;
+
+/**
+ * A thread-safe, bounded cache of WordNet lookups, keyed by relation, part of speech and lemma (or word pair).
+ * The WordNet methods look up a word in the dictionary (RiWordNet or JWNL) only the first time it is asked for,
+ * so a matcher that compares every source class with every target class does not query the dictionary again for the same word.
+ * When the cache is full, an arbitrary part of it is dropped to make room. Hits and misses are counted.
+ * @see WordNet
+ */
+public final class WordNetCache {
+
+	/**
+	 * The kinds of lookups that are cached.
+	 */
+	public enum Relation {
+		CONTAINED, SYNSETS, SYNONYMS, ALL_SYNONYMS, HYPONYMS, ALL_HYPONYMS, MERONYMS, HOLONYMS, JIANG_CONRATH, RESNIK
+	}
+
+	/**
+	 * Performs a lookup that is not cached yet.
+	 */
+	public interface Loader<V> {
+		V load() throws FileNotFoundException, JWNLException;
+	}
+
+	/**
+	 * The cache of the dictionary lookups made by the WordNet methods. It is kept here rather than in WordNet so it can be read
+	 * (e.g. by the metrics) without loading the dictionaries.
+	 */
+	public static final WordNetCache LOOKUPS = new WordNetCache("WordNet cache", 200000);
+
+	/**
+	 * The cache of the Jiang-Conrath and Resnik scores of word pairs. There are far more pairs than words,
+	 * so they have a cache of their own rather than pushing the dictionary lookups out of LOOKUPS.
+	 */
+	public static final WordNetCache RELATEDNESS = new WordNetCache("WordNet relatedness cache", 500000);
+
+	//stands in for null results, which a ConcurrentHashMap cannot hold
+	private static final Object NULL = new Object();
+
+	private final String name;
+	private final int maxSize;
+	private final ConcurrentHashMap<String, Object> entries;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * @param maxSize the maximum number of cached lookups
+	 */
+	public WordNetCache(int maxSize) {
+		this("WordNet cache", maxSize);
+	}
+
+	/**
+	 * @param name the name of the cache in toString()
+	 * @param maxSize the maximum number of cached lookups
+	 */
+	public WordNetCache(String name, int maxSize) {
+		this.name = name;
+		this.maxSize = maxSize;
+		this.entries = new ConcurrentHashMap<String, Object>(Math.min(maxSize, 1 << 16));
+	}
+
+	/**
+	 * Returns the cached result of a lookup, or performs and caches it.
+	 * Two threads missing on the same key at the same time may both perform the lookup; the results are the same.
+	 * Lookups that throw are not cached.
+	 * @param relation the kind of lookup
+	 * @param pos the part of speech, e.g. "n"
+	 * @param lemma the word
+	 * @param loader performs the lookup on a miss
+	 * @return the result of the lookup. Mutable results (arrays, sets) are shared and must be copied before they are changed.
+	 * @throws FileNotFoundException
+	 * @throws JWNLException
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V get(Relation relation, String pos, String lemma, Loader<V> loader) throws FileNotFoundException, JWNLException {
+		String key = relation.ordinal() + "|" + pos + "|" + lemma;
+
+		Object value = entries.get(key);
+		if (value != null) {
+			hits.increment();
+			return value == NULL ? null : (V) value;
+		}
+
+		misses.increment();
+		V loaded = loader.load();
+		if (entries.size() >= maxSize) {
+			evict();
+		}
+		entries.put(key, loaded == null ? NULL : loaded);
+		return loaded;
+	}
+
+	/**
+	 * Same as get(), for lookups that do not throw checked exceptions.
+	 */
+	public <V> V getUnchecked(Relation relation, String pos, String lemma, Loader<V> loader) {
+		try {
+			return get(relation, pos, lemma, loader);
+		} catch (FileNotFoundException | JWNLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//drops about an eighth of the entries, whichever the iterator visits first
+	private void evict() {
+		int toRemove = Math.max(1, maxSize / 8);
+		Iterator<String> itr = entries.keySet().iterator();
+		while (itr.hasNext() && toRemove > 0) {
+			itr.next();
+			itr.remove();
+			toRemove--;
+			evictions.increment();
+		}
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the share of lookups found in the cache, 0 if there have been none
+	 */
+	public double getHitRatio() {
+		long h = getHits();
+		long m = getMisses();
+		return h + m == 0 ? 0.0 : (double) h / (h + m);
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+				name, size(), getHits(), getMisses(), 100.0 * getHitRatio(), getEvictions());
+	}
+
+}
@@ -0,0 +1,392 @@
+package algorithms.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the Jiang-Conrath and Resnik relatedness of words from WordNet 3.0 without WS4J.
+ * The noun and verb hypernym hierarchies (data.noun, data.verb), the most frequent sense of each lemma (index.noun, index.verb)
+ * and the information content counts (an ic-*.dat file in the WordNet::Similarity format used by WS4J) are loaded once into primitive arrays.
+ * Every synset gets an integer id and its hypernym paths as arrays of ids, so the lowest common subsumer of two synsets is found
+ * by scanning a few short arrays instead of querying the dictionary.
+ * The scores follow WS4J as used by WordNet.computeJiangConrath() and WordNet.computeResnik(): only the most frequent sense of each word is used,
+ * nouns are compared with nouns and verbs with verbs (the highest score is kept), and a virtual root subsumes all top synsets of a part of speech.
+ * An instance is immutable once loaded and can be shared by concurrent matchers.
+ */
+public final class WordNetRelatedness {
+
+	/** The score of two identical words, as in WS4J. */
+	public static final double MAX_SCORE = Double.MAX_VALUE;
+
+	private static final String[] POS_NAMES = { "noun", "verb" };
+	private static final char[] POS_CODES = { 'n', 'v' };
+
+	//the hierarchy of each part of speech (noun, verb)
+	private final Hierarchy[] hierarchies;
+
+	private WordNetRelatedness(Hierarchy[] hierarchies) {
+		this.hierarchies = hierarchies;
+	}
+
+	/**
+	 * Loads the relatedness engine.
+	 * @param dictDirectory the WordNet 3.0 dict directory holding data.noun, data.verb, index.noun and index.verb
+	 * @param informationContent the information content counts, e.g. ic-semcor.dat
+	 * @return the engine
+	 * @throws IOException if a file is missing or cannot be read
+	 */
+	public static WordNetRelatedness load(File dictDirectory, InputStream informationContent) throws IOException {
+		Hierarchy[] hierarchies = new Hierarchy[POS_CODES.length];
+		for (int p = 0; p < POS_CODES.length; p++) {
+			hierarchies[p] = Hierarchy.load(new File(dictDirectory, "data." + POS_NAMES[p]), new File(dictDirectory, "index." + POS_NAMES[p]));
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(informationContent, StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				//e.g. "1740n 45487 ROOT", the first line holds the WordNet version
+				String[] elements = line.trim().split(" ");
+				if (elements.length < 2 || elements[0].startsWith("wnver")) {
+					continue;
+				}
+				String synset = elements[0];
+				int p = posIndex(synset.charAt(synset.length() - 1));
+				if (p < 0) {
+					continue;
+				}
+				long offset = Long.parseLong(synset.substring(0, synset.length() - 1));
+				//the counts are used as integers, as in WS4J
+				int frequency = (int) Double.parseDouble(elements[1]);
+				boolean root = elements.length > 2 && elements[2].equals("ROOT");
+				hierarchies[p].setFrequency(offset, frequency, root);
+			}
+		}
+
+		for (Hierarchy hierarchy : hierarchies) {
+			hierarchy.computeInformationContent();
+		}
+
+		return new WordNetRelatedness(hierarchies);
+	}
+
+	/**
+	 * The Jiang-Conrath relatedness of the most frequent senses of two words: 1 / (IC(s1) + IC(s2) - 2 * IC(LCS(s1, s2))).
+	 * @param word1 the first word, optionally with its part of speech, e.g. "run#v"
+	 * @param word2 the second word
+	 * @return the relatedness, MAX_SCORE if the words are the same, 0 if they are not in WordNet
+	 */
+	public double jiangConrath(String word1, String word2) {
+		return relatedness(word1, word2, false);
+	}
+
+	/**
+	 * The Resnik relatedness of the most frequent senses of two words: IC(LCS(s1, s2)).
+	 * @param word1 the first word, optionally with its part of speech, e.g. "run#v"
+	 * @param word2 the second word
+	 * @return the relatedness, MAX_SCORE if the words are the same, 0 if they are not in WordNet
+	 */
+	public double resnik(String word1, String word2) {
+		return relatedness(word1, word2, true);
+	}
+
+	//as WS4J (WordSimilarityCalculator): the same words are most related, before they are looked up
+	private double relatedness(String word1, String word2, boolean resnik) {
+		if (word1 == null || word2 == null) {
+			return 0;
+		}
+		if (word1.equals(word2)) {
+			return MAX_SCORE;
+		}
+		//a part of speech after the word limits it to that part of speech, only nouns and verbs are compared
+		int pos1 = -1, pos2 = -1;
+		int separator1 = word1.indexOf('#'), separator2 = word2.indexOf('#');
+		if (separator1 != -1) {
+			pos1 = posIndex(word1.substring(separator1 + 1));
+			word1 = word1.substring(0, separator1);
+		}
+		if (separator2 != -1) {
+			pos2 = posIndex(word2.substring(separator2 + 1));
+			word2 = word2.substring(0, separator2);
+		}
+		if (word1.isEmpty() || word2.isEmpty() || (separator1 != -1 && pos1 == -1) || (separator2 != -1 && pos2 == -1)) {
+			return 0;
+		}
+
+		double maxScore = -1;
+		for (int p = 0; p < hierarchies.length; p++) {
+			if ((pos1 != -1 && pos1 != p) || (pos2 != -1 && pos2 != p)) {
+				continue;
+			}
+			Hierarchy hierarchy = hierarchies[p];
+			int s1 = hierarchy.getFirstSense(word1);
+			int s2 = hierarchy.getFirstSense(word2);
+			if (s1 >= 0 && s2 >= 0) {
+				maxScore = Math.max(maxScore, resnik ? hierarchy.getInformationContent(hierarchy.getLcs(s1, s2)) : hierarchy.jiangConrath(s1, s2));
+			}
+		}
+		return maxScore == -1 ? 0 : maxScore;
+	}
+
+	private static int posIndex(String pos) {
+		return pos.length() == 1 ? posIndex(pos.charAt(0)) : -1;
+	}
+
+	private static int posIndex(char pos) {
+		for (int p = 0; p < POS_CODES.length; p++) {
+			if (POS_CODES[p] == pos) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * The hypernym hierarchy and information content of one part of speech.
+	 * The hypernym paths of each synset are built as WS4J (PathFinder.getHypernymTrees()) builds them: depth first, following the hypernyms
+	 * in file order, each synset at most once per search, so a hypernym that only leads to synsets already on a path adds no path.
+	 * WS4J follows the hypernym links only, not the instance hypernym links.
+	 */
+	private static final class Hierarchy {
+
+		//the synset id standing for the virtual root, which ends every path
+		private static final int ROOT = -1;
+
+		//the synset offsets, sorted, the position is the synset id
+		private final long[] offsets;
+		//the hypernym paths of a synset, each from the synset itself up to its top synset (the virtual root is left out)
+		private final int[][][] paths;
+		//lemma -> id of its most frequent sense
+		private final Map<String, Integer> firstSenses;
+
+		private final int[] frequencies;
+		private final double[] informationContent;
+		private long rootFrequency;
+
+		private Hierarchy(long[] offsets, int[][][] paths, Map<String, Integer> firstSenses) {
+			this.offsets = offsets;
+			this.paths = paths;
+			this.firstSenses = firstSenses;
+			this.frequencies = new int[offsets.length];
+			this.informationContent = new double[offsets.length];
+		}
+
+		static Hierarchy load(File dataFile, File indexFile) throws IOException {
+
+			//the synsets and their direct hypernyms as offsets, in file order (which is offset order)
+			List<long[]> synsets = new ArrayList<long[]>();
+			try (BufferedReader reader = open(dataFile)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("  ")) {
+						//the license header
+						continue;
+					}
+					synsets.add(parseSynset(line));
+				}
+			}
+
+			long[] offsets = new long[synsets.size()];
+			for (int i = 0; i < offsets.length; i++) {
+				offsets[i] = synsets.get(i)[0];
+			}
+			Arrays.sort(offsets);
+
+			int[][] parents = new int[offsets.length][];
+			for (long[] synset : synsets) {
+				int id = Arrays.binarySearch(offsets, synset[0]);
+				int[] synsetParents = new int[synset.length - 1];
+				int size = 0;
+				for (int i = 1; i < synset.length; i++) {
+					int parent = Arrays.binarySearch(offsets, synset[i]);
+					if (parent >= 0) {
+						synsetParents[size++] = parent;
+					}
+				}
+				parents[id] = Arrays.copyOf(synsetParents, size);
+			}
+
+			int[][][] paths = new int[offsets.length][][];
+			boolean[] visited = new boolean[offsets.length];
+			for (int id = 0; id < offsets.length; id++) {
+				List<int[]> synsetPaths = new ArrayList<int[]>();
+				for (List<Integer> path : buildPaths(id, parents, visited)) {
+					int[] leafFirst = new int[path.size()];
+					for (int i = 0; i < leafFirst.length; i++) {
+						leafFirst[i] = path.get(path.size() - 1 - i);
+					}
+					synsetPaths.add(leafFirst);
+				}
+				paths[id] = synsetPaths.toArray(new int[synsetPaths.size()][]);
+				Arrays.fill(visited, false);
+			}
+
+			Map<String, Integer> firstSenses = new HashMap<String, Integer>();
+			try (BufferedReader reader = open(indexFile)) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("  ")) {
+						continue;
+					}
+					//lemma pos synset_cnt p_cnt [ptr_symbol...] sense_cnt tagsense_cnt synset_offset [synset_offset...], the senses ordered by frequency
+					String[] fields = line.split(" ");
+					int pointerCount = Integer.parseInt(fields[3]);
+					int firstOffset = 4 + pointerCount + 2;
+					int id = Arrays.binarySearch(offsets, Long.parseLong(fields[firstOffset]));
+					if (id >= 0) {
+						firstSenses.put(fields[0], id);
+					}
+				}
+			}
+
+			return new Hierarchy(offsets, paths, firstSenses);
+		}
+
+		//offset, then the offsets of the hypernyms ("@")
+		private static long[] parseSynset(String line) {
+			String[] fields = line.split(" ");
+			long offset = Long.parseLong(fields[0]);
+			int wordCount = Integer.parseInt(fields[3], 16);
+			int pointerCountField = 4 + wordCount * 2;
+			int pointerCount = Integer.parseInt(fields[pointerCountField]);
+
+			long[] synset = new long[pointerCount + 1];
+			synset[0] = offset;
+			int size = 1;
+			for (int i = 0; i < pointerCount; i++) {
+				int pointer = pointerCountField + 1 + i * 4;
+				if (fields[pointer].equals("@")) {
+					synset[size++] = Long.parseLong(fields[pointer + 1]);
+				}
+			}
+			return Arrays.copyOf(synset, size);
+		}
+
+		//the paths from the top synsets down to a synset, as in WS4J (visited is shared by the whole search, which also cuts the cycles among the verbs)
+		private static List<List<Integer>> buildPaths(int id, int[][] parents, boolean[] visited) {
+			List<List<Integer>> result = new ArrayList<List<Integer>>();
+			if (parents[id].length == 0) {
+				result.add(new ArrayList<Integer>(Arrays.asList(id)));
+				return result;
+			}
+			for (int parent : parents[id]) {
+				if (visited[parent]) {
+					continue;
+				}
+				visited[parent] = true;
+				for (List<Integer> path : buildPaths(parent, parents, visited)) {
+					path.add(id);
+					result.add(path);
+				}
+				if (result.isEmpty()) {
+					result.add(new ArrayList<Integer>(Arrays.asList(id)));
+				}
+			}
+			return result;
+		}
+
+		private static BufferedReader open(File file) throws IOException {
+			return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+		}
+
+		void setFrequency(long offset, int frequency, boolean root) {
+			int id = Arrays.binarySearch(offsets, offset);
+			if (id >= 0) {
+				frequencies[id] = frequency;
+			}
+			//the virtual root counts the top synsets
+			if (root) {
+				rootFrequency += frequency;
+			}
+		}
+
+		void computeInformationContent() {
+			for (int id = 0; id < offsets.length; id++) {
+				//as in WS4J, a synset counted more often than the root has no information content
+				informationContent[id] = frequencies[id] > 0 && frequencies[id] <= rootFrequency ? -Math.log((double) frequencies[id] / (double) rootFrequency) : 0;
+			}
+		}
+
+		int getFirstSense(String word) {
+			Integer id = firstSenses.get(word.replace(' ', '_'));
+			return id == null ? -1 : id;
+		}
+
+		/**
+		 * The lowest common subsumer, as in WS4J: of each pair of paths the lowest synset of the second path that is on the first,
+		 * and of those the first with the highest information content. The virtual root (information content 0) is on all paths.
+		 * @return the synset id, or ROOT
+		 */
+		int getLcs(int s1, int s2) {
+			int lcs = ROOT;
+			double max = 0;
+			for (int[] path1 : paths[s1]) {
+				for (int[] path2 : paths[s2]) {
+					int subsumer = ROOT;
+					for (int i = 0; i < path2.length && subsumer == ROOT; i++) {
+						for (int candidate : path1) {
+							if (candidate == path2[i]) {
+								subsumer = candidate;
+								break;
+							}
+						}
+					}
+					double ic = getInformationContent(subsumer);
+					if (ic > max) {
+						max = ic;
+						lcs = subsumer;
+					}
+				}
+			}
+			return lcs;
+		}
+
+		double getInformationContent(int id) {
+			return id == ROOT ? 0 : informationContent[id];
+		}
+
+		//WS4J takes the frequency of the top synset of the first path of the lowest common subsumer as the root frequency of the measure
+		private long getRootFrequency(int lcs) {
+			if (lcs == ROOT) {
+				return rootFrequency;
+			}
+			int[] firstPath = paths[lcs][0];
+			return frequencies[firstPath[firstPath.length - 1]];
+		}
+
+		//the same synset has distance 0, as in WS4J (only the same words get MAX_SCORE)
+		double jiangConrath(int s1, int s2) {
+			int lcs = getLcs(s1, s2);
+			long lcsRootFrequency = getRootFrequency(lcs);
+			if (lcsRootFrequency <= 0) {
+				return 0;
+			}
+
+			double ic1 = informationContent[s1];
+			double ic2 = informationContent[s2];
+			if (ic1 <= 0 || ic2 <= 0) {
+				return 0;
+			}
+
+			double distance = ic1 + ic2 - 2 * getInformationContent(lcs);
+			if (distance == 0) {
+				//a non-zero distance so that the similarity is not infinite
+				if (lcsRootFrequency > 0.01) {
+					return 1 / -Math.log((lcsRootFrequency - 0.01) / lcsRootFrequency);
+				}
+				return 0;
+			}
+			return 1 / distance;
+		}
+	}
+
+}
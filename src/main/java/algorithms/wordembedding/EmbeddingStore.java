@@ -0,0 +1,429 @@
+package algorithms.wordembedding;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only store of word embeddings backed by a memory-mapped binary file.
+ * The binary file is produced once from a text embedding file (one word followed by its vector values per line) by {@link #convert(File, File)},
+ * and holds a hashed vocabulary index followed by a float32 matrix with one row per word.
+ * Opening a store only maps the file, so nothing is parsed or copied onto the heap and lookups read the vectors directly from the mapping.
+ */
+public class EmbeddingStore {
+
+	/** Identifies a binary embedding file ("EMB1"). */
+	static final int MAGIC = 0x454D4231;
+
+	/** magic, vocabulary size, dimension, hash table size (ints) and length of the word blob (long) */
+	static final int HEADER_BYTES = 24;
+
+	public static final String BINARY_EXTENSION = ".bin";
+
+	//stores that are already opened, keyed by the path of the binary file
+	private static final Map<String, EmbeddingStore> openStores = new HashMap<String, EmbeddingStore>();
+
+	private final File file;
+	private final int vocabularySize;
+	private final int dimension;
+	private final int tableSize;
+
+	//header, hash table, word offsets and word blob
+	private final MappedByteBuffer index;
+	private final int tableStart;
+	private final int offsetsStart;
+	private final int wordsStart;
+
+	//the float matrix, split in segments since a single mapping is limited to 2 GB
+	private final MappedByteBuffer[] vectorSegments;
+	private final int rowsPerSegment;
+
+	private EmbeddingStore(File file, MappedByteBuffer index, MappedByteBuffer[] vectorSegments, int rowsPerSegment) {
+		this.file = file;
+		this.index = index;
+		this.vectorSegments = vectorSegments;
+		this.rowsPerSegment = rowsPerSegment;
+		this.vocabularySize = index.getInt(4);
+		this.dimension = index.getInt(8);
+		this.tableSize = index.getInt(12);
+		this.tableStart = HEADER_BYTES;
+		this.offsetsStart = tableStart + 4 * tableSize;
+		this.wordsStart = offsetsStart + 4 * (vocabularySize + 1);
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		String textFile = args.length > 0 ? args[0] : "./files/_PHD_EVALUATION/EMBEDDINGS/wikipedia_embeddings.txt";
+		String binaryFile = args.length > 1 ? args[1] : getBinaryPath(textFile);
+
+		long start = System.currentTimeMillis();
+		convert(new File(textFile), new File(binaryFile));
+		System.out.println("Converted " + textFile + " to " + binaryFile + " in " + (System.currentTimeMillis() - start) + " ms");
+
+		start = System.currentTimeMillis();
+		EmbeddingStore store = open(new File(binaryFile));
+		System.out.println("Opened " + store.size() + " vectors of dimension " + store.dimension() + " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	/**
+	 * Returns the path of the binary embedding file belonging to a text embedding file, that is the same path with the extension replaced by .bin
+	 * @param vectorFile path to a text embedding file
+	 * @return path to the corresponding binary embedding file
+	 */
+	public static String getBinaryPath(String vectorFile) {
+		if (vectorFile.endsWith(BINARY_EXTENSION)) {
+			return vectorFile;
+		}
+		int dot = vectorFile.lastIndexOf('.');
+		int slash = Math.max(vectorFile.lastIndexOf('/'), vectorFile.lastIndexOf('\\'));
+		String base = dot > slash ? vectorFile.substring(0, dot) : vectorFile;
+		return base + BINARY_EXTENSION;
+	}
+
+	/**
+	 * Returns the store for an embedding file. If a text embedding file is given, it is converted to its binary sibling (see {@link #getBinaryPath(String)})
+	 * the first time, or whenever the text file is newer than the binary file. Stores are opened once per process and shared afterwards.
+	 * @param vectorFile path to a text or binary embedding file
+	 * @return a store holding the embeddings
+	 * @throws IOException if neither the binary file nor the text file can be read
+	 */
+	public static synchronized EmbeddingStore forVectorFile(String vectorFile) throws IOException {
+
+		File textFile = new File(vectorFile);
+		File binaryFile = new File(getBinaryPath(vectorFile));
+		String key = binaryFile.getCanonicalPath();
+
+		boolean stale = !binaryFile.equals(textFile) && textFile.exists()
+				&& (!binaryFile.exists() || textFile.lastModified() > binaryFile.lastModified());
+
+		EmbeddingStore store = openStores.get(key);
+		if (store != null && !stale) {
+			return store;
+		}
+
+		if (stale) {
+			convert(textFile, binaryFile);
+		} else if (!binaryFile.exists()) {
+			throw new FileNotFoundException(vectorFile);
+		}
+
+		store = open(binaryFile);
+		openStores.put(key, store);
+
+		return store;
+	}
+
+	/**
+	 * Maps a binary embedding file created by {@link #convert(File, File)}.
+	 * @param binaryFile the binary embedding file
+	 * @return a store reading from the mapped file
+	 * @throws IOException if the file cannot be mapped or is not a binary embedding file
+	 */
+	public static EmbeddingStore open(File binaryFile) throws IOException {
+
+		try (RandomAccessFile raf = new RandomAccessFile(binaryFile, "r"); FileChannel channel = raf.getChannel()) {
+
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+			if (header.getInt(0) != MAGIC) {
+				throw new IOException(binaryFile + " is not a binary embedding file");
+			}
+
+			int vocabularySize = header.getInt(4);
+			int dimension = header.getInt(8);
+			int tableSize = header.getInt(12);
+			long wordsLength = header.getLong(16);
+
+			long indexLength = HEADER_BYTES + 4L * tableSize + 4L * (vocabularySize + 1) + wordsLength;
+			long vectorsStart = align4(indexLength);
+
+			if (indexLength > Integer.MAX_VALUE) {
+				throw new IOException("The vocabulary index of " + binaryFile + " is too large to be mapped");
+			}
+
+			MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, indexLength);
+
+			long rowBytes = 4L * dimension;
+			int rowsPerSegment = (int) Math.max(1, Integer.MAX_VALUE / Math.max(rowBytes, 1));
+			int numSegments = Math.max(1, (int) ((vocabularySize + (long) rowsPerSegment - 1) / rowsPerSegment));
+			MappedByteBuffer[] segments = new MappedByteBuffer[numSegments];
+
+			for (int i = 0; i < numSegments; i++) {
+				long firstRow = (long) i * rowsPerSegment;
+				long rows = Math.min(rowsPerSegment, vocabularySize - firstRow);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, vectorsStart + firstRow * rowBytes, Math.max(0, rows) * rowBytes);
+			}
+
+			//the mappings stay valid after the channel is closed
+			return new EmbeddingStore(binaryFile, index, segments, rowsPerSegment);
+		}
+	}
+
+	/**
+	 * Converts a text embedding file to the binary format read by this class. Each line of the text file holds a word followed by its vector values, separated by spaces.
+	 * The dimension is taken from the first line holding more than one value, so a word2vec-style header line is skipped, as are lines of a different dimension.
+	 * If a word occurs several times, the last occurrence is kept (as with VectorExtractor.createVectorMap).
+	 * @param textFile the text embedding file
+	 * @param binaryFile the binary embedding file to create
+	 * @throws IOException
+	 */
+	public static void convert(File textFile, File binaryFile) throws IOException {
+
+		List<byte[]> words = new ArrayList<byte[]>();
+		int dimension = -1;
+
+		File matrixFile = File.createTempFile("embeddings", ".matrix", binaryFile.getAbsoluteFile().getParentFile());
+		File tempFile = new File(binaryFile.getPath() + ".tmp");
+
+		try {
+			//first write the vectors to a temporary matrix file while collecting the vocabulary
+			try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(textFile), StandardCharsets.UTF_8), 1 << 16);
+					DataOutputStream matrix = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(matrixFile), 1 << 16))) {
+
+				String line;
+				float[] values = new float[0];
+				while ((line = br.readLine()) != null) {
+
+					String[] strings = line.trim().split(" +");
+					if (strings.length < 2) {
+						continue;
+					}
+
+					int numValues = strings.length - 1;
+					if (dimension == -1) {
+						if (numValues == 1) {
+							continue;
+						}
+						dimension = numValues;
+						values = new float[dimension];
+					}
+					if (numValues != dimension) {
+						continue;
+					}
+
+					for (int i = 0; i < dimension; i++) {
+						values[i] = Float.parseFloat(strings[i + 1]);
+					}
+					for (int i = 0; i < dimension; i++) {
+						matrix.writeFloat(values[i]);
+					}
+					words.add(strings[0].getBytes(StandardCharsets.UTF_8));
+				}
+			}
+
+			if (dimension == -1) {
+				throw new IOException(textFile + " does not hold any embedding vectors");
+			}
+
+			int vocabularySize = words.size();
+			int tableSize = tableSizeFor(vocabularySize);
+			int[] table = new int[tableSize];
+
+			long wordsLength = 0;
+			for (byte[] w : words) {
+				wordsLength += w.length;
+			}
+			if (wordsLength > Integer.MAX_VALUE) {
+				throw new IOException("The vocabulary of " + textFile + " is too large");
+			}
+
+			//hash table holding row + 1 for each word, 0 marks an empty slot
+			for (int row = 0; row < vocabularySize; row++) {
+				byte[] w = words.get(row);
+				int slot = slotFor(new String(w, StandardCharsets.UTF_8), tableSize);
+				while (table[slot] != 0 && !Arrays.equals(words.get(table[slot] - 1), w)) {
+					slot = (slot + 1) & (tableSize - 1);
+				}
+				table[slot] = row + 1;
+			}
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile), 1 << 16))) {
+
+				out.writeInt(MAGIC);
+				out.writeInt(vocabularySize);
+				out.writeInt(dimension);
+				out.writeInt(tableSize);
+				out.writeLong(wordsLength);
+
+				for (int t : table) {
+					out.writeInt(t);
+				}
+
+				int offset = 0;
+				for (byte[] w : words) {
+					out.writeInt(offset);
+					offset += w.length;
+				}
+				out.writeInt(offset);
+
+				for (byte[] w : words) {
+					out.write(w);
+				}
+
+				long indexLength = HEADER_BYTES + 4L * tableSize + 4L * (vocabularySize + 1) + wordsLength;
+				for (long i = indexLength; i < align4(indexLength); i++) {
+					out.writeByte(0);
+				}
+
+				try (BufferedInputStream matrix = new BufferedInputStream(new FileInputStream(matrixFile), 1 << 16)) {
+					byte[] buffer = new byte[1 << 16];
+					int read;
+					while ((read = matrix.read(buffer)) != -1) {
+						out.write(buffer, 0, read);
+					}
+				}
+			}
+
+			Files.move(tempFile.toPath(), binaryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		} finally {
+			matrixFile.delete();
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Checks whether the store holds a vector for a word
+	 * @param word the word (case-sensitive)
+	 * @return true if the word is in the vocabulary
+	 */
+	public boolean contains(String word) {
+		return rowOf(word) >= 0;
+	}
+
+	/**
+	 * Returns the vector of a word
+	 * @param word the word (case-sensitive)
+	 * @return the vector as a new array, or null if the word is not in the vocabulary
+	 */
+	public double[] getVector(String word) {
+		int row = rowOf(word);
+		if (row < 0) {
+			return null;
+		}
+		double[] vector = new double[dimension];
+		addVector(row, vector);
+		return vector;
+	}
+
+	/**
+	 * Adds the vector of a word to an accumulator, avoiding a copy of the vector
+	 * @param word the word (case-sensitive)
+	 * @param accumulator an array of length {@link #dimension()} the vector is added to
+	 * @return true if the word is in the vocabulary (and the vector was added), false if not
+	 */
+	public boolean addVector(String word, double[] accumulator) {
+		int row = rowOf(word);
+		if (row < 0) {
+			return false;
+		}
+		addVector(row, accumulator);
+		return true;
+	}
+
+	private void addVector(int row, double[] accumulator) {
+		MappedByteBuffer segment = vectorSegments[row / rowsPerSegment];
+		int position = (row % rowsPerSegment) * dimension * 4;
+		for (int i = 0; i < dimension; i++) {
+			accumulator[i] += segment.getFloat(position + 4 * i);
+		}
+	}
+
+	/**
+	 * Looks a word up in the hash table
+	 * @param word the word
+	 * @return the row of the word in the float matrix, or -1 if it is not in the vocabulary
+	 */
+	int rowOf(String word) {
+		if (word == null || vocabularySize == 0) {
+			return -1;
+		}
+
+		byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+		int slot = slotFor(word, tableSize);
+
+		while (true) {
+			int entry = index.getInt(tableStart + 4 * slot);
+			if (entry == 0) {
+				return -1;
+			}
+			if (wordEquals(entry - 1, bytes)) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & (tableSize - 1);
+		}
+	}
+
+	private boolean wordEquals(int row, byte[] bytes) {
+		int start = index.getInt(offsetsStart + 4 * row);
+		int end = index.getInt(offsetsStart + 4 * (row + 1));
+		if (end - start != bytes.length) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (index.get(wordsStart + start + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Pages the whole mapped file into physical memory, so that later lookups do not wait for disk reads
+	 */
+	public void preload() {
+		index.load();
+		for (MappedByteBuffer segment : vectorSegments) {
+			segment.load();
+		}
+	}
+
+	public int size() {
+		return vocabularySize;
+	}
+
+	public int dimension() {
+		return dimension;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	private static int slotFor(String word, int tableSize) {
+		int h = word.hashCode();
+		h ^= (h >>> 16);
+		return h & (tableSize - 1);
+	}
+
+	//a power of two with a load factor of at most 0.5
+	private static int tableSizeFor(int vocabularySize) {
+		int size = 2;
+		while (size < 2L * vocabularySize) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	private static long align4(long length) {
+		return (length + 3) & ~3L;
+	}
+
+}
@@ -23,6 +23,7 @@ import org.semanticweb.owlapi.reasoner.structural.StructuralReasonerFactory;
 
 import algorithms.utilities.MathUtils;
 import algorithms.utilities.StringUtilities;
+import algorithms.utilities.TextPipeline;
 
 /**
  * Extracts VectorConcepts by retrieving vectors from a Word Embedding file according to concepts in an ontology.
@@ -78,7 +79,7 @@ public class VectorExtractor {
 			OWLAnnotationValue value = a.getValue();
 			if(value instanceof OWLLiteral) {
 				comment = ((OWLLiteral) value).getLiteral().toString();
-				commentWOStopWords = StringUtilities.removeStopWords(comment);
+				commentWOStopWords = TextPipeline.removeStopWords(comment);
 			}
 		}
 		
@@ -399,6 +400,112 @@ public class VectorExtractor {
 
 	}
 	
+	/**
+	 * Returns a "global vector", that is an average of a label vector and a comment vector, reading the vectors from an embedding store
+	 * @param label the label of an OWL class
+	 * @param def the definition (RDFS comment) of an OWL class
+	 * @param store the embedding store
+	 * @return a set of vectors averaged between label vectors and comment vectors, the label vector if there is no comment vector, or null if there is no label vector
+	 * @throws IOException
+	 * @see #getGlobalVector(String, String, Map)
+	 */
+	public static double[] getGlobalVector(String label, String def, EmbeddingStore store) throws IOException {
+
+		double[] labelVector = getLabelVector(label, store);
+
+		if (labelVector == null) {
+			return null;
+		}
+
+		double[] commentVector = getCommentVector(def, store);
+
+		if (commentVector == null) {
+			return labelVector;
+		}
+
+		double[] globalVector = new double[labelVector.length];
+		double average = 0;
+
+		for (int i = 0; i < globalVector.length; i++) {
+			if (labelVector[i] == 0.0) {
+				average = commentVector[i];
+			} else if (commentVector[i] == 0.0) {
+				average = labelVector[i];
+			} else {
+				average = (labelVector[i] + commentVector[i]) / 2;
+			}
+			//round the vector value to 6 decimals
+			globalVector[i] = MathUtils.round(average, 6);
+		}
+
+		return globalVector;
+	}
+
+	/**
+	 * Returns the vector of a label from an embedding store. If the label is a compound, the vectors of the compound parts found in the store are averaged.
+	 * @param label the label of an OWL class
+	 * @param store the embedding store
+	 * @return the label vector, or null if a non-compound label is not in the store
+	 * @see #getLabelVector(String, Map)
+	 */
+	public static double[] getLabelVector(String label, EmbeddingStore store) {
+
+		//if the class name is not a compound, turn it into lowercase and get its vectors
+		if (!StringUtilities.isCompoundWord(label)) {
+			return store.getVector(label.toLowerCase());
+		}
+
+		//if the class name is a compound, average the vectors of the compound parts that are in the store
+		double[] labelVector = new double[store.dimension()];
+		int found = 0;
+
+		for (String compound : StringUtilities.getCompoundParts(label)) {
+			if (store.addVector(compound.toLowerCase(), labelVector)) {
+				found++;
+			}
+		}
+
+		for (int i = 0; i < labelVector.length; i++) {
+			labelVector[i] = labelVector[i] / (double) found;
+		}
+
+		return labelVector;
+	}
+
+	/**
+	 * Returns the average vector of all tokens in an RDFS comment that are in an embedding store
+	 * @param comment the RDFS comment of an OWL class
+	 * @param store the embedding store
+	 * @return an average vector for all tokens in the comment, or null if none of them are in the store
+	 * @throws IOException
+	 * @see #getCommentVector(String, Map)
+	 */
+	public static double[] getCommentVector(String comment, EmbeddingStore store) throws IOException {
+
+		if (comment == null || comment.isEmpty()) {
+			return null;
+		}
+
+		double[] commentVector = new double[store.dimension()];
+		int found = 0;
+
+		for (String s : StringUtilities.tokenize(comment, true)) {
+			if (store.addVector(s, commentVector)) {
+				found++;
+			}
+		}
+
+		if (found == 0) {
+			return null;
+		}
+
+		for (int i = 0; i < commentVector.length; i++) {
+			commentVector[i] = commentVector[i] / (double) found;
+		}
+
+		return commentVector;
+	}
+
 	/*private static double[] getAVGVectorsToArray(ArrayList<ArrayList<Double>> a_input, int numVectors) {
 
 		ArrayList<Double> avgList = new ArrayList<Double>();
@@ -5,6 +5,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.DoubleFunction;
 
 import algorithms.equivalencematching.BasicEQMatcher;
 import algorithms.equivalencematching.DefinitionEquivalenceMatcherSigmoid;
@@ -18,16 +20,24 @@ import algorithms.subsumptionmatching.CompoundMatcherSigmoid;
 import algorithms.subsumptionmatching.ContextSubsumptionMatcherSigmoid;
 import algorithms.subsumptionmatching.DefinitionSubsumptionMatcherSigmoid;
 import algorithms.subsumptionmatching.LexicalSubsumptionMatcherSigmoid;
+import algorithms.wordembedding.EmbeddingStore;
 import services.enums.SemanticRelation;
 import services.interfaces.Algorithm;
 import services.settings.AlgorithmSettings;
+import services.utils.OntologyContext;
 
 /*
 * Takes in input from user and return the most fitted algorithm for the use
 */
 public class AlgorithmPicker {
+  private final EmbeddingService embeddingService;
+
   public AlgorithmPicker() {
+    this(new EmbeddingService(AlgorithmSettings.VECTORFILE));
+  }
 
+  public AlgorithmPicker(EmbeddingService embeddingService) {
+    this.embeddingService = embeddingService;
   }
 
   /*
@@ -35,60 +45,59 @@ public class AlgorithmPicker {
    */
   public Map<SemanticRelation, List<Algorithm>> pickAlgorithms(File source, File target, boolean equivalence, boolean subsumption)
       throws Exception {
+    return pickAlgorithms(OntologyContext.load(source, target), equivalence, subsumption);
+  }
+
+  /*
+   * Same as above, but profiles the ontologies already loaded for the request.
+   */
+  public Map<SemanticRelation, List<Algorithm>> pickAlgorithms(OntologyContext context, boolean equivalence, boolean subsumption)
+      throws Exception {
+    return startPicking(context, equivalence, subsumption).await();
+  }
 
-    String vectorFile = AlgorithmSettings.VECTORFILE;
-    Map<SemanticRelation, List<Algorithm>> toReturn = new HashMap<SemanticRelation, List<Algorithm>>();
+  /*
+   * Starts profiling the ontologies and returns at once, so the matchers can start while the profiling goes on.
+   * The basic matchers are always picked and are available right away. Each sigmoid matcher depends on one profile score
+   * and is picked as soon as that score is known, if it is >=0.5.
+   */
+  public PickedAlgorithms startPicking(OntologyContext context, boolean equivalence, boolean subsumption) throws Exception {
+
+    Map<SemanticRelation, List<CompletableFuture<Algorithm>>> toReturn = new HashMap<SemanticRelation, List<CompletableFuture<Algorithm>>>();
+
+    //The shared embedding model is only needed for equivalence (corpus coverage and the embedding matchers)
+    EmbeddingStore embeddings = equivalence ? embeddingService.getStore() : null;
 
     //Getting the profile-scores for each of the algorithms on how well they will perform on our source and target and corpus
-    Map<String, Double> profiles  = OntologyProfiler.computeOntologyProfileScores(source, target, vectorFile, equivalence, subsumption);
+    Map<String, CompletableFuture<Double>> profiles = OntologyProfiler.submitOntologyProfileScores(context.getSourceOntology(), context.getTargetOntology(), embeddings, equivalence, subsumption);
 
     //Adding the algorithms to be returned if their profile-score is >=0.5
     if (equivalence){
-      List<Algorithm> eqAlgorithms = new ArrayList<Algorithm>();
-      eqAlgorithms.add(new BasicEQMatcher());
-      double cc = profiles.get("cc");
-      double dc = profiles.get("dc");
-      double pf = profiles.get("pf");
-      double sp = profiles.get("sp");
-      double lc = profiles.get("lc");
-      if (cc >= 0.5){
-        eqAlgorithms.add(new WordEmbeddingMatcherSigmoid(cc));
-      }
-      if (dc >= 0.5){
-        eqAlgorithms.add(new DefinitionEquivalenceMatcherSigmoid(dc));
-      }
-      if (pf >= 0.5){
-        eqAlgorithms.add(new PropertyEquivalenceMatcherSigmoid(pf));
-      }
-      if (sp >= 0.5){
-        eqAlgorithms.add(new GraphEquivalenceMatcherSigmoid(sp));
-      }
-      if (lc >= 0.5){
-        eqAlgorithms.add(new LexicalEquivalenceMatcherSigmoid(lc));
-      }
+      List<CompletableFuture<Algorithm>> eqAlgorithms = new ArrayList<CompletableFuture<Algorithm>>();
+      eqAlgorithms.add(CompletableFuture.completedFuture(new BasicEQMatcher()));
+      eqAlgorithms.add(pickIfFitting(profiles.get("cc"), cc -> new WordEmbeddingMatcherSigmoid(cc, embeddings)));
+      eqAlgorithms.add(pickIfFitting(profiles.get("dc"), dc -> new DefinitionEquivalenceMatcherSigmoid(dc, embeddings)));
+      eqAlgorithms.add(pickIfFitting(profiles.get("pf"), pf -> new PropertyEquivalenceMatcherSigmoid(pf)));
+      eqAlgorithms.add(pickIfFitting(profiles.get("sp"), sp -> new GraphEquivalenceMatcherSigmoid(sp)));
+      eqAlgorithms.add(pickIfFitting(profiles.get("lc"), lc -> new LexicalEquivalenceMatcherSigmoid(lc)));
       toReturn.put(SemanticRelation.Equivalence, eqAlgorithms);
     }
     if (subsumption){
-      List<Algorithm> subAlgorithms = new ArrayList<Algorithm>();
-      double cf = profiles.get("cf");
-      double dc = profiles.get("dc");
-      double sp = profiles.get("sp");
-      double lc = profiles.get("lc");
-      subAlgorithms.add(new BasicSubsumptionMatcher());
-      if (cf >= 0.5){
-        subAlgorithms.add(new CompoundMatcherSigmoid(cf));
-      }
-      if (dc >= 0.5){
-        subAlgorithms.add(new DefinitionSubsumptionMatcherSigmoid(dc));
-      }
-      if (sp >= 0.5){
-        subAlgorithms.add(new ContextSubsumptionMatcherSigmoid(sp));
-      }
-      if (lc >= 0.5){
-        subAlgorithms.add(new LexicalSubsumptionMatcherSigmoid(lc));
-      }
+      List<CompletableFuture<Algorithm>> subAlgorithms = new ArrayList<CompletableFuture<Algorithm>>();
+      subAlgorithms.add(CompletableFuture.completedFuture(new BasicSubsumptionMatcher()));
+      subAlgorithms.add(pickIfFitting(profiles.get("cf"), cf -> new CompoundMatcherSigmoid(cf)));
+      subAlgorithms.add(pickIfFitting(profiles.get("dc"), dc -> new DefinitionSubsumptionMatcherSigmoid(dc)));
+      subAlgorithms.add(pickIfFitting(profiles.get("sp"), sp -> new ContextSubsumptionMatcherSigmoid(sp)));
+      subAlgorithms.add(pickIfFitting(profiles.get("lc"), lc -> new LexicalSubsumptionMatcherSigmoid(lc)));
       toReturn.put(SemanticRelation.Subsumption, subAlgorithms);
     }
-    return toReturn;
+    return new PickedAlgorithms(toReturn, profiles.values());
+  }
+
+  /*
+   * The algorithm once its profile score is known, or null if the score is below 0.5.
+   */
+  private static CompletableFuture<Algorithm> pickIfFitting(CompletableFuture<Double> score, DoubleFunction<Algorithm> algorithm) {
+    return score.thenApply(value -> value >= 0.5 ? algorithm.apply(value) : null);
   }
 }
@@ -2,36 +2,381 @@ package services;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import fr.inrialpes.exmo.align.impl.URIAlignment;
 import services.interfaces.Algorithm;
+import services.interfaces.ProgressListener;
+import services.metrics.RequestMetrics;
+import services.enums.JobStage;
 import services.enums.SemanticRelation;
+import services.utils.OntologyContext;
 
 public class AlgorithmRunner {
+  // Null when the algorithms are run one after another in the calling thread.
+  private final ExecutorService executor;
+
+  public AlgorithmRunner() {
+    this(1);
+  }
+
+  /*
+   * With more than one thread, all picked algorithms (for both semantic relations) run concurrently on a pool of that size.
+   */
+  public AlgorithmRunner(int threads) {
+    if (threads > 1) {
+      AtomicInteger counter = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(threads, runnable -> {
+        Thread thread = new Thread(runnable, "matcher-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    } else {
+      executor = null;
+    }
+  }
+
   /**
    * Run each algorithm and return each of their alignment result.
+   * The alignments are listed in the same order as the algorithms, also when they are run concurrently.
    */
   public Map<SemanticRelation, List<URIAlignment>> run(File onto1, File onto2, Map<SemanticRelation, List<Algorithm>> algorithms)
       throws Exception {
-    Map<SemanticRelation, List<URIAlignment>> toReturn = new HashMap<SemanticRelation, List<URIAlignment>>();
+    return run(OntologyContext.load(onto1, onto2), algorithms);
+  }
+
+  /*
+   * Same as above, but on ontologies that are already loaded. The algorithms share the parsed ontologies of the context.
+   */
+  public Map<SemanticRelation, List<URIAlignment>> run(OntologyContext context, Map<SemanticRelation, List<Algorithm>> algorithms)
+      throws Exception {
+    return run(context, algorithms, ProgressListener.NONE);
+  }
+
+  /*
+   * Same as above, reporting each finished algorithm to the listener.
+   */
+  public Map<SemanticRelation, List<URIAlignment>> run(OntologyContext context, Map<SemanticRelation, List<Algorithm>> algorithms,
+      ProgressListener listener) throws Exception {
+    return run(context, algorithms, listener, RequestMetrics.NONE);
+  }
+
+  /*
+   * Same as above, recording the run time and the number of cells of each algorithm.
+   */
+  public Map<SemanticRelation, List<URIAlignment>> run(OntologyContext context, Map<SemanticRelation, List<Algorithm>> algorithms,
+      ProgressListener listener, RequestMetrics metrics) throws Exception {
+    MatchingProgress progress = new MatchingProgress(algorithms, listener, metrics);
+    if (executor != null) {
+      return runConcurrently(context, algorithms, progress);
+    }
+
+    Map<SemanticRelation, List<URIAlignment>> toReturn = new EnumMap<SemanticRelation, List<URIAlignment>>(SemanticRelation.class);
 
     // runs the picked algorithms for the user-selected semantic relations
     for (SemanticRelation relation : algorithms.keySet()){
-      List<URIAlignment> alignments = algorithmsToAlignments(onto1, onto2, algorithms.get(relation));
+      List<URIAlignment> alignments = algorithmsToAlignments(context, algorithms.get(relation), progress);
       toReturn.put(relation, alignments);
     }
     return toReturn;
   }
-  List<URIAlignment> algorithmsToAlignments(File onto1, File onto2, List<Algorithm> algorithms) throws Exception {
+
+  /*
+   * Runs the algorithms while they are still being picked: each algorithm starts as soon as its slot is complete, so the
+   * basic matchers run during the profiling and each sigmoid matcher starts when its own profile score is known.
+   * Slots whose score is below the threshold are left out of the result. If anything fails, the profiling still going on
+   * is cancelled together with the running algorithms.
+   */
+  public Map<SemanticRelation, List<URIAlignment>> run(OntologyContext context, PickedAlgorithms algorithms,
+      ProgressListener listener, RequestMetrics metrics) throws Exception {
+    MatchingProgress progress = new MatchingProgress(algorithms.size(), listener, metrics);
+    if (executor != null) {
+      return runWhenPicked(context, algorithms, progress);
+    }
+
+    Map<SemanticRelation, List<URIAlignment>> toReturn = new EnumMap<SemanticRelation, List<URIAlignment>>(SemanticRelation.class);
+    try {
+      // one after another in the order they are listed, the profiling goes on in the background meanwhile
+      for (SemanticRelation relation : algorithms.getAlgorithms().keySet()){
+        List<URIAlignment> alignments = new ArrayList<URIAlignment>();
+        for (CompletableFuture<Algorithm> slot : algorithms.getAlgorithms().get(relation)){
+          Algorithm algorithm = PickedAlgorithms.await(slot);
+          if (algorithm == null) {
+            progress.dropped();
+          } else {
+            alignments.add(progress.run(algorithm, context));
+          }
+        }
+        toReturn.put(relation, alignments);
+      }
+    } catch (Exception e) {
+      algorithms.cancel();
+      throw e;
+    }
+    return toReturn;
+  }
+
+  List<URIAlignment> algorithmsToAlignments(OntologyContext context, List<Algorithm> algorithms, MatchingProgress progress) throws Exception {
     List<URIAlignment> result = new ArrayList<URIAlignment>();
     for (Algorithm algorithm : algorithms){
-      result.add(algorithm.run(onto1, onto2));
+      result.add(progress.run(algorithm, context));
     }
     return result;
   }
 
-}
+  /*
+   * Submits every algorithm at once and waits for all of them. The first failure is rethrown and the remaining algorithms are cancelled.
+   */
+  Map<SemanticRelation, List<URIAlignment>> runConcurrently(OntologyContext context, Map<SemanticRelation, List<Algorithm>> algorithms,
+      MatchingProgress progress) throws Exception {
+    CompletionService<URIAlignment> completionService = new ExecutorCompletionService<URIAlignment>(executor);
+    Map<SemanticRelation, List<Future<URIAlignment>>> futures = new EnumMap<SemanticRelation, List<Future<URIAlignment>>>(SemanticRelation.class);
+    List<Future<URIAlignment>> allFutures = new ArrayList<Future<URIAlignment>>();
+
+    for (SemanticRelation relation : algorithms.keySet()){
+      List<Future<URIAlignment>> relationFutures = new ArrayList<Future<URIAlignment>>();
+      for (Algorithm algorithm : algorithms.get(relation)){
+        Future<URIAlignment> future = completionService.submit(() -> progress.run(algorithm, context));
+        relationFutures.add(future);
+        allFutures.add(future);
+      }
+      futures.put(relation, relationFutures);
+    }
+
+    try {
+      // Wait in completion order so a failure is noticed as soon as it happens
+      for (int i = 0; i < allFutures.size(); i++){
+        completionService.take().get();
+      }
+    } catch (ExecutionException e) {
+      progress.cancel();
+      cancelAll(allFutures);
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } catch (InterruptedException e) {
+      progress.cancel();
+      cancelAll(allFutures);
+      throw e;
+    }
+
+    Map<SemanticRelation, List<URIAlignment>> toReturn = new EnumMap<SemanticRelation, List<URIAlignment>>(SemanticRelation.class);
+    for (SemanticRelation relation : futures.keySet()){
+      List<URIAlignment> alignments = new ArrayList<URIAlignment>();
+      for (Future<URIAlignment> future : futures.get(relation)){
+        alignments.add(future.get());
+      }
+      toReturn.put(relation, alignments);
+    }
+    return toReturn;
+  }
+
+  /*
+   * Submits each algorithm to the pool when its slot completes and waits for all of them. The first failure is rethrown.
+   */
+  Map<SemanticRelation, List<URIAlignment>> runWhenPicked(OntologyContext context, PickedAlgorithms algorithms,
+      MatchingProgress progress) throws Exception {
+    Map<SemanticRelation, List<CompletableFuture<URIAlignment>>> results =
+        new EnumMap<SemanticRelation, List<CompletableFuture<URIAlignment>>>(SemanticRelation.class);
+    List<CompletableFuture<URIAlignment>> allResults = new ArrayList<CompletableFuture<URIAlignment>>();
+    RunningAlgorithms running = new RunningAlgorithms(executor);
+    CompletableFuture<Void> failed = new CompletableFuture<Void>();
 
+    for (SemanticRelation relation : algorithms.getAlgorithms().keySet()){
+      List<CompletableFuture<URIAlignment>> relationResults = new ArrayList<CompletableFuture<URIAlignment>>();
+      for (CompletableFuture<Algorithm> slot : algorithms.getAlgorithms().get(relation)){
+        CompletableFuture<URIAlignment> result = new CompletableFuture<URIAlignment>();
+        result.whenComplete((alignment, error) -> {
+          if (error != null) {
+            failed.completeExceptionally(error);
+          }
+        });
+        slot.whenComplete((algorithm, error) -> {
+          if (error != null) {
+            result.completeExceptionally(error);
+          } else if (algorithm == null) {
+            progress.dropped();
+            result.complete(null);
+          } else if (!running.submit(() -> {
+            try {
+              result.complete(progress.run(algorithm, context));
+            } catch (Throwable e) {
+              result.completeExceptionally(e);
+            }
+          })) {
+            // picked after the run was given up
+            result.cancel(false);
+          }
+        });
+        relationResults.add(result);
+        allResults.add(result);
+      }
+      results.put(relation, relationResults);
+    }
+
+    try {
+      // Ends at the first failure, or when every algorithm has finished or been left out
+      CompletableFuture.anyOf(CompletableFuture.allOf(allResults.toArray(new CompletableFuture<?>[0])), failed).get();
+    } catch (ExecutionException e) {
+      progress.cancel();
+      algorithms.cancel();
+      running.cancel();
+      Throwable cause = e.getCause();
+      while (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    } catch (InterruptedException e) {
+      progress.cancel();
+      algorithms.cancel();
+      running.cancel();
+      throw e;
+    }
+
+    Map<SemanticRelation, List<URIAlignment>> toReturn = new EnumMap<SemanticRelation, List<URIAlignment>>(SemanticRelation.class);
+    for (SemanticRelation relation : results.keySet()){
+      List<URIAlignment> alignments = new ArrayList<URIAlignment>();
+      for (CompletableFuture<URIAlignment> result : results.get(relation)){
+        URIAlignment alignment = result.get();
+        if (alignment != null) {
+          alignments.add(alignment);
+        }
+      }
+      toReturn.put(relation, alignments);
+    }
+    return toReturn;
+  }
+
+  /*
+   * Reports the matching stage as the share of the picked algorithms that have finished.
+   */
+  static class MatchingProgress {
+    private final ProgressListener listener;
+    private final RequestMetrics metrics;
+    // lowered when a slot of PickedAlgorithms turns out not to be picked
+    private final AtomicInteger total;
+    private final AtomicInteger finished = new AtomicInteger();
+    // set when the run is given up, the algorithms that don't stop on the interrupt finish without reporting
+    private volatile boolean cancelled;
+
+    MatchingProgress(Map<SemanticRelation, List<Algorithm>> algorithms, ProgressListener listener) {
+      this(algorithms, listener, RequestMetrics.NONE);
+    }
+
+    MatchingProgress(Map<SemanticRelation, List<Algorithm>> algorithms, ProgressListener listener, RequestMetrics metrics) {
+      this(count(algorithms), listener, metrics);
+    }
+
+    MatchingProgress(int total, ProgressListener listener, RequestMetrics metrics) {
+      this.total = new AtomicInteger(total);
+      this.listener = listener;
+      this.metrics = metrics;
+      listener.onProgress(JobStage.MATCHING, null, JobStage.MATCHING.getPercent());
+    }
+
+    private static int count(Map<SemanticRelation, List<Algorithm>> algorithms) {
+      int count = 0;
+      for (List<Algorithm> relationAlgorithms : algorithms.values()){
+        count += relationAlgorithms.size();
+      }
+      return count;
+    }
+
+    /*
+     * Runs an algorithm and reports it as finished.
+     */
+    URIAlignment run(Algorithm algorithm, OntologyContext context) throws Exception {
+      long start = metrics.now();
+      URIAlignment alignment = algorithm.run(context);
+      metrics.matcher(algorithm.getClass().getSimpleName(), start, alignment.nbCells());
+      finished(algorithm);
+      return alignment;
+    }
+
+    void finished(Algorithm algorithm) {
+      if (cancelled) {
+        return;
+      }
+      int done = finished.incrementAndGet();
+      int of = total.get();
+      int percent = JobStage.MATCHING.getPercent()
+          + (JobStage.COMBINING.getPercent() - JobStage.MATCHING.getPercent()) * done / Math.max(of, 1);
+      listener.onProgress(JobStage.MATCHING, algorithm.getClass().getSimpleName() + " (" + done + " of " + of + ")", percent);
+    }
+
+    /*
+     * An algorithm that could have been picked was left out, so it is no longer counted.
+     */
+    void dropped() {
+      total.decrementAndGet();
+    }
+
+    /*
+     * The run has failed or was interrupted, so nothing more is reported.
+     */
+    void cancel() {
+      cancelled = true;
+    }
+  }
+
+  /*
+   * The algorithms runWhenPicked has submitted. A slot may complete on the profiling thread while the run is being given
+   * up, so submitting and cancelling take the same lock, and nothing is submitted once cancelled.
+   */
+  private static class RunningAlgorithms {
+    private final ExecutorService executor;
+    private final List<Future<?>> futures = new ArrayList<Future<?>>();
+    private boolean cancelled;
+
+    RunningAlgorithms(ExecutorService executor) {
+      this.executor = executor;
+    }
+
+    /*
+     * Returns false, without running the task, when the algorithms have already been cancelled.
+     */
+    synchronized boolean submit(Runnable task) {
+      if (cancelled) {
+        return false;
+      }
+      futures.add(executor.submit(task));
+      return true;
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      for (Future<?> future : futures){
+        future.cancel(true);
+      }
+    }
+  }
+
+  private void cancelAll(List<? extends Future<?>> futures) {
+    for (Future<?> future : futures){
+      future.cancel(true);
+    }
+  }
+
+}
@@ -9,13 +9,23 @@ import algorithms.alignmentcombination.ProfileWeight;
 import algorithms.alignmentcombination.ProfileWeightSubsumption;
 import algorithms.utilities.AlignmentOperations;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.enums.JobStage;
 import services.enums.SemanticRelation;
+import services.interfaces.ProgressListener;
 
 public class AlignmentCombiner {
   /**
    * Combine multiple alignment results into one result.
    */
   public URIAlignment combine(Map<SemanticRelation, List<URIAlignment>> results) throws Exception {
+    return combine(results, ProgressListener.NONE);
+  }
+
+  /*
+   * Same as above, reporting the combination and conflict resolution stages to the listener.
+   */
+  public URIAlignment combine(Map<SemanticRelation, List<URIAlignment>> results, ProgressListener listener) throws Exception {
+    listener.onProgress(JobStage.COMBINING, null, JobStage.COMBINING.getPercent());
     Map<SemanticRelation, URIAlignment> alignmentCombinedMap = new HashMap<SemanticRelation, URIAlignment>();
     if (results.containsKey(SemanticRelation.Equivalence)) {
       List<URIAlignment> alignments = results.get(SemanticRelation.Equivalence);
@@ -24,7 +34,7 @@ public class AlignmentCombiner {
     }
     if(results.containsKey(SemanticRelation.Subsumption)){
       List<URIAlignment> alignments = results.get(SemanticRelation.Subsumption);
-      URIAlignment alignmentCombined = combineSUB(alignments);
+      URIAlignment alignmentCombined = combineSUB(alignments, listener);
       alignmentCombinedMap.put(SemanticRelation.Subsumption, alignmentCombined);
     }
     if (alignmentCombinedMap.keySet().size() == 1){
@@ -32,6 +42,7 @@ public class AlignmentCombiner {
     }
     URIAlignment combinedEQ = alignmentCombinedMap.get(SemanticRelation.Equivalence);
     URIAlignment combinedSUB = alignmentCombinedMap.get(SemanticRelation.Subsumption);
+    listener.onProgress(JobStage.CONFLICT_RESOLUTION, null, JobStage.CONFLICT_RESOLUTION.getPercent());
     return combineEQandSUB(combinedEQ, combinedSUB);
   }
 
@@ -40,8 +51,9 @@ public class AlignmentCombiner {
     return AlignmentConflictResolution.removeMismatches(alignmentCombinedWithMismatches);
   }
 
-  URIAlignment combineSUB(List<URIAlignment> subAlignments) throws Exception {
+  URIAlignment combineSUB(List<URIAlignment> subAlignments, ProgressListener listener) throws Exception {
     URIAlignment alignmentCombinedWithConflict = ProfileWeightSubsumption.computeProfileWeightingSubsumption(subAlignments);
+    listener.onProgress(JobStage.CONFLICT_RESOLUTION, null, JobStage.CONFLICT_RESOLUTION.getPercent());
     return AlignmentConflictResolution.resolveAlignmentConflict(alignmentCombinedWithConflict);
   }
 
@@ -0,0 +1,75 @@
+package services;
+
+import java.io.IOException;
+
+import algorithms.wordembedding.EmbeddingStore;
+
+/*
+* Holds the word embedding model shared by all requests. The model is loaded once (see load())
+* and handed to the profiler and the embedding matchers, so requests never read the embedding file themselves.
+*/
+public class EmbeddingService {
+  private final String vectorFile;
+  private volatile EmbeddingStore store;
+  private volatile IOException loadError;
+  private volatile boolean loadAttempted = false;
+
+  public EmbeddingService(String vectorFile) {
+    this.vectorFile = vectorFile;
+  }
+
+  /*
+   * Maps the embedding model (converting the text file the first time) and pages it into memory.
+   * Calling it again after the model is loaded does nothing.
+   */
+  public synchronized void load() throws IOException {
+    if (store != null) {
+      return;
+    }
+    try {
+      EmbeddingStore loaded = EmbeddingStore.forVectorFile(vectorFile);
+      loaded.preload();
+      loadError = null;
+      store = loaded;
+    } catch (IOException e) {
+      loadError = e;
+      throw e;
+    } finally {
+      loadAttempted = true;
+    }
+  }
+
+  /*
+   * True once the model is resident and requests can be served.
+   */
+  public boolean isReady() {
+    return store != null;
+  }
+
+  /*
+   * True while the model has not been loaded yet and no attempt to load it has failed.
+   */
+  public boolean isLoading() {
+    return !loadAttempted;
+  }
+
+  /*
+   * Returns the shared store, loading it first if load() has not been called.
+   * Throws the error from the failed load if the model could not be loaded.
+   */
+  public EmbeddingStore getStore() throws IOException {
+    EmbeddingStore current = store;
+    if (current != null) {
+      return current;
+    }
+    if (loadError != null) {
+      throw loadError;
+    }
+    load();
+    return store;
+  }
+
+  public String getVectorFile() {
+    return vectorFile;
+  }
+}
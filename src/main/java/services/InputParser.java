@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
+import org.semanticweb.owlapi.model.OWLOntology;
 
 import services.interfaces.SchemaParser;
 import services.parsers.schema.GBFSParser;
@@ -20,10 +21,29 @@ public class InputParser {
    * Parses the input file and then returns it as an OWLOntology File
    */
   public File parseInput(String filepathLoad, String filepathSaveIfParsed) throws Exception {
-    String filetype = FilenameUtils.getExtension(filepathLoad);
-    if (filetype.equals("owl") || filetype.equals("rdf")){ //No parsing needed
+    if (!needsParsing(filepathLoad)){ //No parsing needed
       return new File(filepathLoad);
-    } 
+    }
+    return OntologyConcept.toOWLFile(parseConcepts(filepathLoad), filepathSaveIfParsed);
+  }
+
+  /**
+   * Parses a schema input (not owl or rdf) to an OWLOntology in memory, without writing it to a file
+   */
+  public OWLOntology parseToOntology(String filepathLoad) throws Exception {
+    return OntologyConcept.toOWLOntology(parseConcepts(filepathLoad));
+  }
+
+  /**
+   * False for owl and rdf files, which are ontologies already
+   */
+  public boolean needsParsing(String filepath) {
+    String filetype = FilenameUtils.getExtension(filepath);
+    return !(filetype.equals("owl") || filetype.equals("rdf"));
+  }
+
+  private List<OntologyConcept> parseConcepts(String filepathLoad) throws Exception {
+    String filetype = FilenameUtils.getExtension(filepathLoad);
     SchemaParser parser = null;
     if (filetype.equals("zip")){
       filepathLoad = Unzipper.unzip(filepathLoad);
@@ -35,8 +55,7 @@ public class InputParser {
     } else {
       throw new IllegalArgumentException("Unsupported fileformat");
     }
-    List<OntologyConcept> concepts = parser.parse(filepathLoad);
-    return OntologyConcept.toOWLFile(concepts, filepathSaveIfParsed);
+    return parser.parse(filepathLoad);
   }
 
 
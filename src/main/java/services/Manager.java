@@ -1,35 +1,214 @@
 package services;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import algorithms.blocking.CandidateGenerator;
+import algorithms.blocking.CandidateGenerators;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.utilities.PosTagger;
+import algorithms.utilities.TextPipeline;
+import algorithms.utilities.WordNet;
+import algorithms.utilities.WordNetCache;
 import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.cache.ParsedInputCache;
+import services.cache.ResultCache;
+import services.enums.JobStage;
 import services.enums.SemanticRelation;
-import services.interfaces.Algorithm;
+import services.interfaces.ProgressListener;
+import services.metrics.Metrics;
+import services.metrics.RequestMetrics;
+import services.settings.AlgorithmSettings;
+import services.utils.OntologyContext;
 
 public class Manager {
+  EmbeddingService embeddingService;
   AlgorithmPicker algorithmPicker;
   AlgorithmRunner algorithmRunner;
   AlignmentCombiner alignmentCombiner;
   InputParser inputParser;
+  // null when AlgorithmSettings.PARSEDINPUTCACHE is off
+  ParsedInputCache parsedInputCache;
+  // null when AlgorithmSettings.RESULTCACHE is off
+  ResultCache resultCache;
 
   public Manager() {
-    algorithmPicker = new AlgorithmPicker();
-    algorithmRunner = new AlgorithmRunner();
+    embeddingService = new EmbeddingService(AlgorithmSettings.VECTORFILE);
+    algorithmPicker = new AlgorithmPicker(embeddingService);
+    algorithmRunner = new AlgorithmRunner(AlgorithmSettings.MATCHERTHREADS);
     alignmentCombiner = new AlignmentCombiner();
     inputParser = new InputParser();
+    if (AlgorithmSettings.PARSEDINPUTCACHE) {
+      parsedInputCache = new ParsedInputCache(new File(AlgorithmSettings.PARSEDINPUTCACHEDIR), AlgorithmSettings.PARSERVERSION,
+          AlgorithmSettings.PARSEDINPUTCACHEMAXMB * 1024 * 1024);
+    }
+    if (AlgorithmSettings.RESULTCACHE) {
+      // the results are dropped when any of the files the matchers read change
+      List<String> resources = Arrays.asList(AlgorithmSettings.VECTORFILE, WordNet.WORDNET_2_DICT, WordNet.WORDNET_3_DICT,
+          WordNet.IC_FILE, PosTagger.MODEL);
+      resultCache = new ResultCache(new File(AlgorithmSettings.RESULTCACHEDIR), AlgorithmSettings.RESULTCACHEMEMORYMB * 1024 * 1024,
+          AlgorithmSettings.RESULTCACHEDISKMB * 1024 * 1024, resources);
+    }
+    if (Metrics.ENABLED) {
+      // read when /metrics is scraped, without touching WordNet (which would load the dictionaries)
+      Metrics.gauge("semanticmatcher_wordnet_cache_hit_ratio", "Share of WordNet lookups found in the cache",
+          () -> WordNetCache.LOOKUPS.getHitRatio());
+      Metrics.gauge("semanticmatcher_wordnet_cache_entries", "Number of cached WordNet lookups",
+          () -> WordNetCache.LOOKUPS.size());
+      Metrics.gauge("semanticmatcher_wordnet_relatedness_cache_hit_ratio", "Share of WordNet relatedness scores found in the cache",
+          () -> WordNetCache.RELATEDNESS.getHitRatio());
+      Metrics.gauge("semanticmatcher_wordnet_relatedness_cache_entries", "Number of cached WordNet relatedness scores",
+          () -> WordNetCache.RELATEDNESS.size());
+      if (resultCache != null) {
+        Metrics.gauge("semanticmatcher_result_cache_memory_bytes", "Size of the results cached in memory",
+            () -> resultCache.getMemoryBytes());
+        Metrics.gauge("semanticmatcher_result_cache_disk_bytes", "Size of the results cached on disk",
+            () -> resultCache.getDiskBytes());
+      }
+    }
+  }
+
+  /*
+   * Loads the shared resources (the embedding model, the WordNet relatedness tables, the lemmatizer and the POS tagger). Meant to be called once at server start.
+   */
+  public void initialize() throws IOException {
+    embeddingService.load();
+    WordNet.loadRelatedness();
+    TextPipeline.load();
+    PosTagger.load();
+  }
+
+  /*
+   * False while the shared resources are still being loaded.
+   */
+  public boolean isReady() {
+    return !embeddingService.isLoading();
+  }
+
+  /*
+   * The results of earlier requests, null when AlgorithmSettings.RESULTCACHE is off. Looked up (and filled) by the
+   * JobManager, handle() itself always aligns.
+   */
+  public ResultCache getResultCache() {
+    return resultCache;
   }
 
   public URIAlignment handle(String sourceFilePath, String targetFilePath, boolean useEquivalence,
       boolean useSubsumption, String baseSaveLocation) throws Exception {
-    File sourceOntology = inputParser.parseInput(sourceFilePath, baseSaveLocation + "/source.owl");
-    File targetOntology = inputParser.parseInput(targetFilePath, baseSaveLocation + "/target.owl");
+    return handle(sourceFilePath, targetFilePath, useEquivalence, useSubsumption, baseSaveLocation, ProgressListener.NONE);
+  }
+
+  /*
+   * Same as above, reporting each stage (and each finished matcher) to the listener.
+   */
+  public URIAlignment handle(String sourceFilePath, String targetFilePath, boolean useEquivalence,
+      boolean useSubsumption, String baseSaveLocation, ProgressListener listener) throws Exception {
+    RequestMetrics metrics = RequestMetrics.start();
+    boolean succeeded = false;
+    String sourceKey = null;
+    String targetKey = null;
+    try {
+      listener.onProgress(JobStage.PARSING, null, JobStage.PARSING.getPercent());
+      long start = metrics.now();
+      // each key is released in the end, as parse() holds its cache entry
+      sourceKey = parsedInputCache != null ? parsedInputCache.key(new File(sourceFilePath)) : null;
+      OWLOntology sourceOntology = parse(sourceFilePath, sourceKey);
+      targetKey = parsedInputCache != null ? parsedInputCache.key(new File(targetFilePath)) : null;
+      OWLOntology targetOntology = parse(targetFilePath, targetKey);
+      metrics.stage("parsing", start);
 
-    Map<SemanticRelation, List<Algorithm>> pickedAlgorithms = algorithmPicker.pickAlgorithms(sourceOntology, targetOntology, useEquivalence, useSubsumption);
-    Map<SemanticRelation, List<URIAlignment>> alignments = algorithmRunner.run(sourceOntology, targetOntology, pickedAlgorithms);
-    URIAlignment finalAlignment = alignmentCombiner.combine(alignments);
+      // parsed once here and shared by the profiler and all matchers
+      start = metrics.now();
+      CandidateGenerator candidateGenerator = CandidateGenerators.fromSpec(AlgorithmSettings.BLOCKING,
+          AlgorithmSettings.BLOCKING.contains("embedding") ? embeddingService.getStore() : null);
+      OntologyContext context = OntologyContext.create(ontologyFile(sourceFilePath, baseSaveLocation + "/source.owl"),
+          sourceOntology, ontologyFile(targetFilePath, baseSaveLocation + "/target.owl"), targetOntology, candidateGenerator,
+          indexer(sourceKey), indexer(targetKey));
+      metrics.stage("loading", start);
+      metrics.ontologySizes(context.getSourceIndex().size(), context.getTargetIndex().size());
+      if (AlgorithmSettings.BLOCKINGREPORT && context.getCandidates() != null) {
+        System.out.println("Candidate generation (" + AlgorithmSettings.BLOCKING + "): " + context.getCandidates());
+      }
+
+      if (AlgorithmSettings.WORDNETWARMUP) {
+        start = metrics.now();
+        Set<String> vocabulary = context.getSourceIndex().getVocabulary();
+        vocabulary.addAll(context.getTargetIndex().getVocabulary());
+        WordNet.warmUp(vocabulary);
+        metrics.stage("wordnet_warmup", start);
+      }
+
+      // the matchers start while the ontologies are profiled, each as soon as it is picked,
+      // so both stages are measured from the start of the profiling
+      listener.onProgress(JobStage.PROFILING, null, JobStage.PROFILING.getPercent());
+      long profilingStart = metrics.now();
+      PickedAlgorithms pickedAlgorithms = algorithmPicker.startPicking(context, useEquivalence, useSubsumption);
+      pickedAlgorithms.profiled().thenRun(() -> metrics.stage("profiling", profilingStart));
+
+      Map<SemanticRelation, List<URIAlignment>> alignments = algorithmRunner.run(context, pickedAlgorithms, listener, metrics);
+      metrics.stage("matching", profilingStart);
+
+      start = metrics.now();
+      URIAlignment finalAlignment = alignmentCombiner.combine(alignments, listener);
+      metrics.stage("combining", start);
+      if (AlgorithmSettings.WORDNETCACHEREPORT) {
+        System.out.println(WordNet.getCache());
+        System.out.println(WordNet.getRelatednessCache());
+      }
+
+      succeeded = true;
+      return finalAlignment;
+    } finally {
+      if (sourceKey != null) {
+        parsedInputCache.release(sourceKey);
+      }
+      if (targetKey != null) {
+        parsedInputCache.release(targetKey);
+      }
+      metrics.finish(succeeded);
+    }
+  }
+
+  /*
+   * The ontology of an upload. A schema input is parsed to an ontology in memory and matched without being written to
+   * a file and parsed again, owl and rdf uploads are parsed from their file. With the parsed input cache (key is not null),
+   * a schema input seen before is parsed from its cached OWL file instead, and a new one is saved to the cache.
+   */
+  private OWLOntology parse(String filePath, String key) throws Exception {
+    File cached = key != null ? parsedInputCache.acquire(key) : null;
+    if (!inputParser.needsParsing(filePath)) {
+      return OntologyContext.loadOntology(new File(filePath));
+    }
+    if (cached != null) {
+      return OntologyContext.loadOntology(cached);
+    }
+    OWLOntology ontology = inputParser.parseToOntology(filePath);
+    if (key != null) {
+      parsedInputCache.putOntology(key, ontology);
+    }
+    return ontology;
+  }
+
+  /*
+   * The file of an upload's ontology: the upload itself for owl and rdf, otherwise where it is saved if an algorithm
+   * asks for the file (see OntologyContext.getSourceFile()).
+   */
+  private File ontologyFile(String filePath, String savePath) {
+    return inputParser.needsParsing(filePath) ? new File(savePath) : new File(filePath);
+  }
 
-    return finalAlignment;
+  // the feature index from the parsed input cache when the upload has a key
+  private Function<OWLOntology, OntologyFeatureIndex> indexer(String key) {
+    if (key == null) {
+      return OntologyFeatureIndex::new;
+    }
+    return ontology -> parsedInputCache.getIndex(key, ontology);
   }
 }
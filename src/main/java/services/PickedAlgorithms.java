@@ -0,0 +1,108 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import services.enums.SemanticRelation;
+import services.interfaces.Algorithm;
+
+/*
+ * The algorithms picked for a request while the ontologies are still being profiled. Every algorithm that may be picked has
+ * a slot, in the order AlgorithmPicker lists them. A slot completes with the algorithm as soon as the profile score it
+ * depends on is known, or with null when that score is below the threshold. Slots of algorithms that do not depend on a
+ * score are complete from the start.
+ */
+public class PickedAlgorithms {
+  private final Map<SemanticRelation, List<CompletableFuture<Algorithm>>> algorithms;
+  private final Collection<CompletableFuture<Double>> scores;
+
+  public PickedAlgorithms(Map<SemanticRelation, List<CompletableFuture<Algorithm>>> algorithms,
+      Collection<CompletableFuture<Double>> scores) {
+    this.algorithms = algorithms;
+    this.scores = scores;
+  }
+
+  public Map<SemanticRelation, List<CompletableFuture<Algorithm>>> getAlgorithms() {
+    return algorithms;
+  }
+
+  /*
+   * The number of slots, i.e. the most algorithms that can be picked.
+   */
+  public int size() {
+    int count = 0;
+    for (List<CompletableFuture<Algorithm>> relationAlgorithms : algorithms.values()){
+      count += relationAlgorithms.size();
+    }
+    return count;
+  }
+
+  /*
+   * Completes when all profile scores are known (or one of them has failed).
+   */
+  public CompletableFuture<Void> profiled() {
+    return CompletableFuture.allOf(scores.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /*
+   * Stops the profiling: scores that have not started are never computed and the slots still waiting for a score are
+   * cancelled. Used when the request fails before all algorithms are picked.
+   */
+  public void cancel() {
+    for (CompletableFuture<Double> score : scores){
+      score.cancel(false);
+    }
+    for (List<CompletableFuture<Algorithm>> relationAlgorithms : algorithms.values()){
+      for (CompletableFuture<Algorithm> algorithm : relationAlgorithms){
+        algorithm.cancel(false);
+      }
+    }
+  }
+
+  /*
+   * Waits for all slots and returns the picked algorithms, without the ones whose score was below the threshold.
+   */
+  public Map<SemanticRelation, List<Algorithm>> await() throws Exception {
+    Map<SemanticRelation, List<Algorithm>> toReturn = new EnumMap<SemanticRelation, List<Algorithm>>(SemanticRelation.class);
+    try {
+      for (SemanticRelation relation : algorithms.keySet()){
+        List<Algorithm> picked = new ArrayList<Algorithm>();
+        for (CompletableFuture<Algorithm> slot : algorithms.get(relation)){
+          Algorithm algorithm = await(slot);
+          if (algorithm != null) {
+            picked.add(algorithm);
+          }
+        }
+        toReturn.put(relation, picked);
+      }
+    } catch (Exception e) {
+      cancel();
+      throw e;
+    }
+    return toReturn;
+  }
+
+  /*
+   * Waits for one slot, rethrowing the exception the profiling failed with.
+   */
+  static Algorithm await(Future<Algorithm> slot) throws Exception {
+    try {
+      return slot.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package services.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import algorithms.utilities.OntologyFeatureIndex;
+import services.HashGenerator;
+import services.metrics.Metrics;
+import services.utils.OWLOntologyToFile;
+
+/*
+ * Parsed uploads on local disk, keyed by the content of the upload (its SHA-256 and extension), so an upload that was
+ * seen before is neither parsed nor indexed again. Each entry is a directory named by its key, holding the OWL file a
+ * schema upload was parsed to and, once the ontology has been indexed, its serialized OntologyFeatureIndex (owl and rdf
+ * uploads only have the index). Entries survive a restart.
+ * The entries are kept in a subdirectory named by the parser version (AlgorithmSettings.PARSERVERSION), so a change to
+ * what the parsers produce is not answered from entries of an earlier version; those are deleted at start. A feature
+ * index written in another format is rebuilt (see OntologyFeatureIndex.read()).
+ * When the entries add up to more than maxBytes, the least recently used ones are deleted, except those still used by a
+ * request: acquire() holds an entry until release() is called with its key.
+ */
+public class ParsedInputCache {
+  private static final String ONTOLOGY_FILE = "ontology.owl";
+  private static final String INDEX_FILE = "features.bin";
+  // files being written, moved to their final name when complete
+  private static final String PARTIAL_PREFIX = "partial-";
+
+  private final File directory;
+  private final long maxBytes;
+
+  // entry sizes in bytes by key, least recently used first
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+  // the number of requests using each entry
+  private final Map<String, Integer> inUse = new HashMap<String, Integer>();
+  private long totalBytes;
+
+  public ParsedInputCache(File baseDirectory, String version, long maxBytes) {
+    this.directory = new File(baseDirectory, "v" + version);
+    this.maxBytes = maxBytes;
+    directory.mkdirs();
+
+    File[] others = baseDirectory.listFiles(file -> file.isDirectory() && !file.equals(directory));
+    for (File other : others) {
+      delete(other);
+    }
+
+    // entries of an earlier run, in the order they were last used
+    File[] dirs = directory.listFiles(File::isDirectory);
+    Arrays.sort(dirs, Comparator.comparingLong(File::lastModified));
+    for (File dir : dirs) {
+      for (File partial : dir.listFiles((d, name) -> name.startsWith(PARTIAL_PREFIX))) {
+        partial.delete();
+      }
+      long size = sizeOf(dir);
+      if (size > 0) {
+        entries.put(dir.getName(), size);
+        totalBytes += size;
+      } else {
+        delete(dir);
+      }
+    }
+    evict();
+  }
+
+  /*
+   * The key of an upload: the SHA-256 of its content and its extension (which decides how it is parsed).
+   */
+  public String key(File upload) throws IOException {
+    return HashGenerator.sha256(upload) + "-" + FilenameUtils.getExtension(upload.getName()).toLowerCase();
+  }
+
+  /*
+   * Holds the entry of the upload with the given key until release() is called, and returns the OWL file the upload was
+   * parsed to, or null if it is not cached (see putOntology()).
+   */
+  public File acquire(String key) {
+    File dir = new File(directory, key);
+    File ontologyFile = new File(dir, ONTOLOGY_FILE);
+
+    synchronized (this) {
+      inUse.merge(key, 1, Integer::sum);
+      if (entries.get(key) != null && ontologyFile.isFile()) {
+        dir.setLastModified(System.currentTimeMillis());
+        count("hit");
+        return ontologyFile;
+      }
+    }
+    count("miss");
+    return null;
+  }
+
+  /*
+   * Saves the ontology an upload was parsed to, for the next acquire() of its key. An ontology that cannot be saved is
+   * only not cached.
+   */
+  public void putOntology(String key, OWLOntology ontology) {
+    File dir = new File(directory, key);
+    File ontologyFile = new File(dir, ONTOLOGY_FILE);
+
+    File partial = null;
+    try {
+      dir.mkdirs();
+      partial = File.createTempFile(PARTIAL_PREFIX, "." + ONTOLOGY_FILE, dir);
+      OWLOntologyToFile.convert(ontology, partial.getPath(), ontology.getOWLOntologyManager());
+      // a request parsing the same upload at the same time writes the same content
+      Files.move(partial.toPath(), ontologyFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      synchronized (this) {
+        resize(key, dir);
+        evict();
+      }
+    } catch (Exception e) {
+      System.out.println("Couldn't cache the ontology " + ontologyFile + ": " + e);
+    } finally {
+      if (partial != null) {
+        partial.delete();
+      }
+    }
+  }
+
+  /*
+   * The feature index of a cached ontology, read from the entry if it was written before. Otherwise (or if it cannot be
+   * read) the index is built and written to the entry.
+   */
+  public OntologyFeatureIndex getIndex(String key, OWLOntology ontology) {
+    File dir = new File(directory, key);
+    File indexFile = new File(dir, INDEX_FILE);
+
+    if (indexFile.isFile()) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+        OntologyFeatureIndex index = OntologyFeatureIndex.read(ontology, in);
+        if (index != null) {
+          return index;
+        }
+      } catch (IOException e) {
+        System.out.println("Couldn't read the cached feature index " + indexFile + ": " + e);
+      }
+    }
+
+    OntologyFeatureIndex index = new OntologyFeatureIndex(ontology);
+    File partial = null;
+    try {
+      dir.mkdirs();
+      partial = File.createTempFile(PARTIAL_PREFIX, "." + INDEX_FILE, dir);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partial)))) {
+        index.write(out);
+      }
+      Files.move(partial.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      synchronized (this) {
+        resize(key, dir);
+        evict();
+      }
+    } catch (IOException e) {
+      // the index is still used, only not cached
+      System.out.println("Couldn't cache the feature index " + indexFile + ": " + e);
+    } finally {
+      if (partial != null) {
+        partial.delete();
+      }
+    }
+    return index;
+  }
+
+  /*
+   * Lets the entry be evicted again once no request uses it.
+   */
+  public synchronized void release(String key) {
+    Integer count = inUse.get(key);
+    if (count == null) {
+      return;
+    }
+    if (count > 1) {
+      inUse.put(key, count - 1);
+    } else {
+      inUse.remove(key);
+      if (!entries.containsKey(key)) {
+        // nothing was cached, e.g. parsing failed
+        delete(new File(directory, key));
+      }
+      evict();
+    }
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  private void resize(String key, File dir) {
+    Long old = entries.get(key);
+    long size = sizeOf(dir);
+    totalBytes += size - (old == null ? 0 : old);
+    entries.put(key, size);
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> itr = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && itr.hasNext()) {
+      Map.Entry<String, Long> entry = itr.next();
+      if (!inUse.containsKey(entry.getKey())) {
+        delete(new File(directory, entry.getKey()));
+        totalBytes -= entry.getValue();
+        itr.remove();
+      }
+    }
+  }
+
+  private static long sizeOf(File dir) {
+    long size = 0;
+    for (File file : dir.listFiles()) {
+      if (!file.getName().startsWith(PARTIAL_PREFIX)) {
+        size += file.length();
+      }
+    }
+    return size;
+  }
+
+  private static void delete(File dir) {
+    try {
+      FileUtils.deleteDirectory(dir);
+    } catch (IOException e) {
+      System.out.println("Couldn't delete the cache entry " + dir + ": " + e);
+    }
+  }
+
+  private static void count(String result) {
+    if (Metrics.ENABLED) {
+      Metrics.PARSED_INPUT_CACHE.increment(result);
+    }
+  }
+}
@@ -0,0 +1,228 @@
+package services.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import services.HashGenerator;
+import services.metrics.Metrics;
+import services.settings.AlgorithmSettings;
+
+/*
+ * The results of earlier alignment requests as gzip compressed JSON (see AlignmentJsonWriter.toGzip()), keyed by the
+ * content of the two uploads and the relations asked for, so an identical request is answered without matching.
+ * Two tiers: the most recently used results in memory and all results on disk (surviving a restart), each with its
+ * own size limit, beyond which the least recently used results are dropped.
+ * The disk tier is kept in a subdirectory named by a fingerprint of everything the results depend on: the
+ * AlgorithmSettings values (including ALGORITHMVERSION) and the resource files (size and modification time of each file,
+ * a full checksum of the embedding file would take too long at every start). The results of any other fingerprint are
+ * deleted at start.
+ */
+public class ResultCache {
+  private static final String SUFFIX = ".json.gz";
+  // files being written, moved to their final name when complete
+  private static final String PARTIAL_PREFIX = "partial-";
+
+  private final File directory;
+  private final long maxMemoryBytes;
+  private final long maxDiskBytes;
+
+  // results by key, least recently used first
+  private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+  private long memoryBytes;
+  // sizes of the results on disk by key, least recently used first
+  private final LinkedHashMap<String, Long> disk = new LinkedHashMap<String, Long>(16, 0.75f, true);
+  private long diskBytes;
+
+  /*
+   * The resources are the files (or directories) the matchers read, e.g. the embedding file and the WordNet dictionaries.
+   */
+  public ResultCache(File baseDirectory, long maxMemoryBytes, long maxDiskBytes, List<String> resources) {
+    this.directory = new File(baseDirectory, fingerprint(resources));
+    this.maxMemoryBytes = maxMemoryBytes;
+    this.maxDiskBytes = maxDiskBytes;
+    directory.mkdirs();
+
+    File[] others = baseDirectory.listFiles(file -> file.isDirectory() && !file.equals(directory));
+    for (File other : others) {
+      delete(other);
+    }
+
+    // results of an earlier run, in the order they were last used
+    File[] files = directory.listFiles();
+    Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+    for (File file : files) {
+      if (file.getName().endsWith(SUFFIX) && !file.getName().startsWith(PARTIAL_PREFIX)) {
+        disk.put(file.getName().substring(0, file.getName().length() - SUFFIX.length()), file.length());
+        diskBytes += file.length();
+      } else {
+        file.delete();
+      }
+    }
+    evict();
+  }
+
+  /*
+   * The key of a request: the SHA-256 and extension of both uploads and the relations asked for.
+   */
+  public String key(File source, File target, boolean useEquivalence, boolean useSubsumption) throws IOException {
+    return HashGenerator.sha256(source) + "-" + FilenameUtils.getExtension(source.getName()).toLowerCase()
+        + "_" + HashGenerator.sha256(target) + "-" + FilenameUtils.getExtension(target.getName()).toLowerCase()
+        + "_eq" + (useEquivalence ? 1 : 0) + "_sub" + (useSubsumption ? 1 : 0);
+  }
+
+  /*
+   * The result of the request with the given key, null if it is not cached.
+   */
+  public byte[] get(String key) {
+    synchronized (this) {
+      byte[] result = memory.get(key);
+      if (result != null) {
+        count("memory_hit");
+        return result;
+      }
+      if (disk.get(key) == null) {
+        count("miss");
+        return null;
+      }
+    }
+
+    File file = new File(directory, key + SUFFIX);
+    byte[] result;
+    try {
+      result = Files.readAllBytes(file.toPath());
+    } catch (IOException e) {
+      // evicted meanwhile, or unreadable
+      synchronized (this) {
+        Long size = disk.remove(key);
+        if (size != null) {
+          diskBytes -= size;
+        }
+      }
+      count("miss");
+      return null;
+    }
+    file.setLastModified(System.currentTimeMillis());
+    synchronized (this) {
+      putInMemory(key, result);
+    }
+    count("disk_hit");
+    return result;
+  }
+
+  /*
+   * Caches the result of a request. A result that cannot be written to disk is still kept in memory.
+   */
+  public void put(String key, byte[] result) {
+    synchronized (this) {
+      putInMemory(key, result);
+    }
+
+    File file = new File(directory, key + SUFFIX);
+    File partial = null;
+    try {
+      partial = File.createTempFile(PARTIAL_PREFIX, SUFFIX, directory);
+      Files.write(partial.toPath(), result);
+      Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      synchronized (this) {
+        Long old = disk.put(key, (long) result.length);
+        diskBytes += result.length - (old == null ? 0 : old);
+        evict();
+      }
+    } catch (IOException e) {
+      System.out.println("Couldn't cache the result " + file + ": " + e);
+    } finally {
+      if (partial != null) {
+        partial.delete();
+      }
+    }
+  }
+
+  public synchronized long getMemoryBytes() {
+    return memoryBytes;
+  }
+
+  public synchronized long getDiskBytes() {
+    return diskBytes;
+  }
+
+  private void putInMemory(String key, byte[] result) {
+    // a result larger than the memory tier is only kept on disk
+    if (result.length > maxMemoryBytes) {
+      return;
+    }
+    byte[] old = memory.put(key, result);
+    memoryBytes += result.length - (old == null ? 0 : old.length);
+    Iterator<byte[]> itr = memory.values().iterator();
+    while (memoryBytes > maxMemoryBytes && itr.hasNext()) {
+      memoryBytes -= itr.next().length;
+      itr.remove();
+    }
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> itr = disk.entrySet().iterator();
+    while (diskBytes > maxDiskBytes && itr.hasNext()) {
+      Map.Entry<String, Long> entry = itr.next();
+      new File(directory, entry.getKey() + SUFFIX).delete();
+      diskBytes -= entry.getValue();
+      itr.remove();
+    }
+  }
+
+  /*
+   * A hash of the AlgorithmSettings values and the size and modification time of each resource file.
+   */
+  static String fingerprint(List<String> resources) {
+    Map<String, String> values = new TreeMap<String, String>();
+    for (Field field : AlgorithmSettings.class.getFields()) {
+      if (Modifier.isStatic(field.getModifiers())) {
+        try {
+          values.put("setting " + field.getName(), String.valueOf(field.get(null)));
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e); // the fields are public
+        }
+      }
+    }
+    for (String resource : resources) {
+      File file = new File(resource);
+      if (!file.exists()) {
+        values.put("resource " + resource, "missing");
+      } else if (file.isDirectory()) {
+        for (File child : FileUtils.listFiles(file, null, true)) {
+          values.put("resource " + child.getPath(), child.length() + " " + child.lastModified());
+        }
+      } else {
+        values.put("resource " + resource, file.length() + " " + file.lastModified());
+      }
+    }
+    return HashGenerator.sha256(values.toString()).substring(0, 16);
+  }
+
+  private static void delete(File dir) {
+    try {
+      FileUtils.deleteDirectory(dir);
+    } catch (IOException e) {
+      System.out.println("Couldn't delete the cached results " + dir + ": " + e);
+    }
+  }
+
+  private static void count(String result) {
+    if (Metrics.ENABLED) {
+      Metrics.RESULT_CACHE.increment(result);
+    }
+  }
+}
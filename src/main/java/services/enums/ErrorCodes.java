@@ -7,6 +7,7 @@ public enum ErrorCodes {
   Parsing errors: 100-199
   Alignment errors: 200-299
   IOErrors: 300-399
+  Server errors: 400-499
   */
 
   INVALID_FORMAT_EXCEPTION("100", "Invalid Format Exception"),
@@ -17,7 +18,10 @@ public enum ErrorCodes {
   JWNL_ERROR("204", "Wordnet Exception"),
   FILE_NOT_FOUND("300", "File Not Found Exception"),
   IO_EXCEPTION("301", "IOException"),
-  PARSING_EXCEPTION("302", "ParsingException");
+  PARSING_EXCEPTION("302", "ParsingException"),
+  SERVER_NOT_READY("400", "Server Not Ready"),
+  SERVER_BUSY("401", "Server Busy"),
+  JOB_NOT_FOUND("402", "Job Not Found");
 
   private final String code;
   private final String message;
@@ -36,6 +40,12 @@ public enum ErrorCodes {
       return "Error code " + code + ", " + message + ": Your input files could not be aligned.";
     }else if(Integer.valueOf(code)<400 & Integer.valueOf(code)>=300){
       return "Error code " + code + ", " + message + ": File-related error. Visit our wiki for more information about the supported files";
+    }else if(Integer.valueOf(code)==400){
+      return "Error code " + code + ", " + message + ": The server is still loading its resources. Please try again shortly.";
+    }else if(Integer.valueOf(code)==401){
+      return "Error code " + code + ", " + message + ": Too many alignments are waiting. Please try again later.";
+    }else if(Integer.valueOf(code)==402){
+      return "Error code " + code + ", " + message + ": The job is unknown or its result has expired.";
     }else if(Integer.valueOf(code)==100){
       return "Error code " + code + ", " + message + ": Input xls or xlsx file was not formatted to GTFS-Flex standard.";
     }
@@ -0,0 +1,32 @@
+package services.enums;
+
+public enum JobStage {
+
+  /*
+  The stages of an alignment job, with the percentage of the job that is done when the stage starts.
+  Matching moves from its start towards the start of combining as the matchers finish.
+  */
+
+  QUEUED(0),
+  PARSING(0),
+  PROFILING(10),
+  MATCHING(20),
+  COMBINING(80),
+  CONFLICT_RESOLUTION(90),
+  DONE(100),
+  FAILED(100);
+
+  private final int percent;
+
+  private JobStage(int percent) {
+    this.percent = percent;
+  }
+
+  public int getPercent() {
+    return percent;
+  }
+
+  public boolean isFinished() {
+    return this == DONE || this == FAILED;
+  }
+}
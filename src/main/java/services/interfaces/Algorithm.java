@@ -3,7 +3,16 @@ package services.interfaces;
 import java.io.File;
 
 import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.utils.OntologyContext;
 
 public interface Algorithm {
   public URIAlignment run(File onto1, File onto2) throws Exception;
+
+  /*
+   * Runs the algorithm on ontologies already parsed for the request.
+   * Algorithms that do not override this parse the files themselves.
+   */
+  public default URIAlignment run(OntologyContext context) throws Exception {
+    return run(context.getSourceFile(), context.getTargetFile());
+  }
 }
@@ -0,0 +1,16 @@
+package services.interfaces;
+
+import services.enums.JobStage;
+
+public interface ProgressListener {
+  /*
+   * Used when nobody follows the progress.
+   */
+  public static final ProgressListener NONE = (stage, detail, percent) -> {};
+
+  /*
+   * Called when a request reaches a new stage, or makes progress within one (e.g. a matcher finishes).
+   * The detail may be null.
+   */
+  public void onProgress(JobStage stage, String detail, int percent);
+}
@@ -0,0 +1,198 @@
+package services.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import algorithms.utilities.AlgorithmEstimater;
+
+/*
+ * Decides which alignment requests the server takes on, from their estimated cost (see AlgorithmEstimater):
+ * - the runtime (CPU) budget: an upload is refused, with a Retry-After hint, when the estimated work already admitted
+ *   (the remaining time of the running requests and the time of the waiting ones, shared by the workers) plus its own
+ *   would keep it waiting longer than maxBacklogSeconds. When nothing is admitted, any request is taken.
+ *   It is also refused (without a hint) when queueCapacity requests are already waiting.
+ * - the heap budget: an admitted request is only handed to a worker when its estimated heap fits next to the running
+ *   requests and a worker is free, until then it waits here (in upload order). A request estimated above the whole
+ *   budget runs alone.
+ * The requests are handed to the executor only once they may start, so a worker never waits for the budget and the
+ * order the uploads reach the executor in doesn't matter.
+ * The measured runtime of each finished request is fed back to the estimater.
+ */
+public class AdmissionController {
+  private final AlgorithmEstimater estimater;
+  private final long heapBudgetBytes;
+  private final long maxBacklogSeconds;
+  private final int workers;
+  private final int queueCapacity;
+
+  // admitted requests in upload order, both waiting and running
+  private final Set<Ticket> admitted = new LinkedHashSet<Ticket>();
+  private int running;
+  private long runningHeapBytes;
+
+  public AdmissionController(AlgorithmEstimater estimater, long heapBudgetBytes, long maxBacklogSeconds, int workers,
+      int queueCapacity) {
+    this.estimater = estimater;
+    this.heapBudgetBytes = heapBudgetBytes;
+    this.maxBacklogSeconds = maxBacklogSeconds;
+    this.workers = Math.max(workers, 1);
+    this.queueCapacity = queueCapacity;
+  }
+
+  /*
+   * Estimates the cost of aligning the uploaded files and admits the request, or throws AdmissionRejectedException
+   * (too much estimated work) or RejectedExecutionException (too many waiting requests).
+   * The request is started with schedule(), or given up with finish().
+   */
+  public Ticket admit(File source, File target) throws IOException {
+    UploadScan sourceScan = UploadScan.scan(source);
+    UploadScan targetScan = UploadScan.scan(target);
+    Ticket ticket = new Ticket(sourceScan, targetScan,
+        estimater.estimateRuntime(sourceScan.getSizeKB(), targetScan.getSizeKB()),
+        estimater.estimateHeap(sourceScan.getSizeKB(), targetScan.getSizeKB(), sourceScan.getClasses(), targetScan.getClasses()));
+
+    synchronized (this) {
+      if (admitted.size() - running >= queueCapacity) {
+        throw new RejectedExecutionException(queueCapacity + " requests are already waiting");
+      }
+      double backlog = getBacklogSeconds();
+      if (!admitted.isEmpty() && backlog + ticket.estimatedSeconds > maxBacklogSeconds) {
+        long retryAfter = (long) Math.ceil(backlog + ticket.estimatedSeconds - maxBacklogSeconds);
+        throw new AdmissionRejectedException("Estimated backlog of " + Math.round(backlog) + " s is too long for " + ticket,
+            Math.max(retryAfter, 1));
+      }
+      admitted.add(ticket);
+    }
+    return ticket;
+  }
+
+  /*
+   * Runs the task of an admitted request on the executor as soon as the budget allows: when the earlier requests have
+   * started, a worker is free and its heap fits next to the running ones (or nothing is running). Doesn't block.
+   */
+  public void schedule(Ticket ticket, Runnable task, Executor executor) {
+    synchronized (this) {
+      ticket.task = task;
+      ticket.executor = executor;
+    }
+    dispatch();
+  }
+
+  /*
+   * Frees the budget of a request that is finished (or will never run), and starts the requests that now fit.
+   * The runtime of a request that succeeded is recorded.
+   */
+  public void finish(Ticket ticket, boolean succeeded) {
+    boolean started;
+    synchronized (this) {
+      if (!admitted.remove(ticket)) {
+        return;
+      }
+      started = ticket.startNanos != 0;
+      if (started) {
+        running--;
+        runningHeapBytes -= ticket.heapBytes;
+      }
+    }
+    if (started && succeeded) {
+      float seconds = (System.nanoTime() - ticket.startNanos) / 1e9f;
+      estimater.recordRuntime(ticket.source.getSizeKB(), ticket.target.getSizeKB(), seconds);
+    }
+    dispatch();
+  }
+
+  /*
+   * The estimated seconds until the admitted requests are done, with the workers running them side by side.
+   */
+  public synchronized double getBacklogSeconds() {
+    long now = System.nanoTime();
+    double seconds = 0;
+    for (Ticket ticket : admitted) {
+      double elapsed = ticket.startNanos == 0 ? 0 : (now - ticket.startNanos) / 1e9;
+      seconds += Math.max(0, ticket.estimatedSeconds - elapsed);
+    }
+    return seconds / workers;
+  }
+
+  public synchronized long getRunningHeapBytes() {
+    return runningHeapBytes;
+  }
+
+  /*
+   * The number of admitted requests that wait for the budget.
+   */
+  public synchronized int getWaiting() {
+    return admitted.size() - running;
+  }
+
+  // hands the waiting requests that may start to their executor, first in first started
+  private void dispatch() {
+    List<Ticket> starting = new ArrayList<Ticket>();
+    synchronized (this) {
+      for (Ticket ticket : admitted) {
+        if (ticket.startNanos != 0) {
+          continue;
+        }
+        // the first waiting request is not overtaken, so a large request is not left waiting forever
+        if (ticket.task == null || running >= workers
+            || (running > 0 && runningHeapBytes + ticket.heapBytes > heapBudgetBytes)) {
+          break;
+        }
+        ticket.startNanos = System.nanoTime();
+        running++;
+        runningHeapBytes += ticket.heapBytes;
+        starting.add(ticket);
+      }
+    }
+    for (Ticket ticket : starting) {
+      try {
+        ticket.executor.execute(ticket.task);
+      } catch (RejectedExecutionException e) {
+        // the executor is shut down
+        finish(ticket, false);
+      }
+    }
+  }
+
+  /*
+   * The estimated cost of an admitted request.
+   */
+  public static class Ticket {
+    private final UploadScan source;
+    private final UploadScan target;
+    private final double estimatedSeconds;
+    private final long heapBytes;
+    // set by schedule()
+    private Runnable task;
+    private Executor executor;
+    // 0 until the request has started
+    private volatile long startNanos;
+
+    Ticket(UploadScan source, UploadScan target, double estimatedSeconds, long heapBytes) {
+      this.source = source;
+      this.target = target;
+      this.estimatedSeconds = estimatedSeconds;
+      this.heapBytes = heapBytes;
+    }
+
+    public double getEstimatedSeconds() {
+      return estimatedSeconds;
+    }
+
+    public long getHeapBytes() {
+      return heapBytes;
+    }
+
+    @Override
+    public String toString() {
+      return "source " + source + ", target " + target + ", estimated " + Math.round(estimatedSeconds) + " s and "
+          + (heapBytes >> 20) + " MB";
+    }
+  }
+}
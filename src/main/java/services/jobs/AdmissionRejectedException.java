@@ -0,0 +1,22 @@
+package services.jobs;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/*
+ * Thrown when an upload is refused because the server already has more estimated work than it may take on.
+ * The hint tells the client how many seconds to wait before trying again.
+ */
+public class AdmissionRejectedException extends RejectedExecutionException {
+  private static final long serialVersionUID = 1L;
+
+  private final long retryAfterSeconds;
+
+  public AdmissionRejectedException(String message, long retryAfterSeconds) {
+    super(message);
+    this.retryAfterSeconds = retryAfterSeconds;
+  }
+
+  public long getRetryAfterSeconds() {
+    return retryAfterSeconds;
+  }
+}
@@ -0,0 +1,138 @@
+package services.jobs;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
+
+import services.enums.JobStage;
+import services.interfaces.ProgressListener;
+import services.utils.AlignmentJsonWriter;
+
+/*
+ * An alignment request run in the background by the JobManager.
+ * The stage and percentage are updated by the worker and read by the status requests,
+ * so they are kept in volatile fields. The updates take the lock of the job, so that
+ * a finished job keeps its stage.
+ */
+public class Job implements ProgressListener {
+  private final String id;
+  private final long createdAt = System.currentTimeMillis();
+
+  private volatile JobStage stage = JobStage.QUEUED;
+  private volatile String detail;
+  private volatile int percent;
+  private volatile long finishedAt;
+
+  // gzip compressed JSON, see AlignmentJsonWriter.toGzip()
+  private volatile byte[] result;
+  private volatile String errorMessage;
+
+  private final CountDownLatch finished = new CountDownLatch(1);
+
+  Job(String id) {
+    this.id = id;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public JobStage getStage() {
+    return stage;
+  }
+
+  public String getDetail() {
+    return detail;
+  }
+
+  public int getPercent() {
+    return percent;
+  }
+
+  public long getCreatedAt() {
+    return createdAt;
+  }
+
+  public long getFinishedAt() {
+    return finishedAt;
+  }
+
+  /*
+   * The alignment as gzip compressed JSON (see AlignmentJsonWriter.writeGzip()), null until the job is done.
+   */
+  public byte[] getResult() {
+    return result;
+  }
+
+  /*
+   * The error message shown to the user, null unless the job failed.
+   */
+  public String getErrorMessage() {
+    return errorMessage;
+  }
+
+  /*
+   * Ignored once the job is done or has failed, e.g. when a matcher that did not stop on the failure of
+   * another one finishes later.
+   */
+  @Override
+  public synchronized void onProgress(JobStage stage, String detail, int percent) {
+    if (this.stage.isFinished()) {
+      return;
+    }
+    this.detail = detail;
+    this.percent = percent;
+    this.stage = stage;
+  }
+
+  synchronized void complete(byte[] result) {
+    this.result = result;
+    this.detail = null;
+    this.percent = JobStage.DONE.getPercent();
+    this.finishedAt = System.currentTimeMillis();
+    this.stage = JobStage.DONE;
+    finished.countDown();
+  }
+
+  synchronized void fail(String errorMessage) {
+    this.errorMessage = errorMessage;
+    this.finishedAt = System.currentTimeMillis();
+    this.stage = JobStage.FAILED;
+    finished.countDown();
+  }
+
+  /*
+   * Blocks until the job is done or has failed.
+   */
+  public void awaitFinished() throws InterruptedException {
+    finished.await();
+  }
+
+  /*
+   * The status returned by GET /jobs/{id}, e.g. {"id": "abc", "stage": "MATCHING", "detail": "WordEmbeddingMatcher (2 of 5)", "percent": 44}
+   */
+  public String toJSON() {
+    StringWriter json = new StringWriter();
+    try {
+      json.write("{\"id\": ");
+      AlignmentJsonWriter.writeString(json, id);
+      json.write(", \"stage\": ");
+      AlignmentJsonWriter.writeString(json, stage.name());
+      if (detail != null) {
+        json.write(", \"detail\": ");
+        AlignmentJsonWriter.writeString(json, detail);
+      }
+      json.write(", \"percent\": " + percent);
+      if (errorMessage != null) {
+        json.write(", \"error\": ");
+        AlignmentJsonWriter.writeString(json, errorMessage);
+      }
+      json.write("}");
+    } catch (IOException e) {
+      // a StringWriter does not throw
+      throw new UncheckedIOException(e);
+    }
+    return json.toString();
+  }
+}
@@ -0,0 +1,190 @@
+package services.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+
+import algorithms.utilities.AlgorithmEstimater;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.HashGenerator;
+import services.Manager;
+import services.cache.ResultCache;
+import services.settings.AlgorithmSettings;
+import services.utils.AlignmentJsonWriter;
+import services.utils.ExceptionHandler;
+
+/*
+ * Runs alignment requests in the background on a bounded pool of workers.
+ * At most `workers` alignments run at the same time and at most `queueCapacity` wait for a worker;
+ * further submissions are rejected, so concurrent uploads can't pile up parsed ontologies in memory.
+ * Each upload is admitted by its estimated runtime and heap, and waits in the AdmissionController until it may start;
+ * only then is it handed to a worker.
+ * A request that was answered before (see Manager.getResultCache()) is done at once, without taking a worker.
+ * Finished jobs (and their results) are kept for the retention time so the result can be fetched.
+ */
+public class JobManager {
+  private final Manager manager;
+  private final ThreadPoolExecutor executor;
+  private final Map<String, Job> jobs = new ConcurrentHashMap<String, Job>();
+  private final long retentionMillis;
+  private final AdmissionController admission;
+
+  public JobManager(Manager manager, int workers, int queueCapacity, long retentionMillis) {
+    this(manager, workers, retentionMillis, new AdmissionController(new AlgorithmEstimater(),
+        (long) (Runtime.getRuntime().maxMemory() * AlgorithmSettings.ADMISSIONHEAPSHARE),
+        AlgorithmSettings.ADMISSIONMAXBACKLOGSECONDS, workers, queueCapacity));
+  }
+
+  /*
+   * Same as above, admitting the jobs with the given controller (which also bounds the waiting jobs).
+   */
+  public JobManager(Manager manager, int workers, long retentionMillis, AdmissionController admission) {
+    this.manager = manager;
+    this.admission = admission;
+    this.retentionMillis = retentionMillis;
+    AtomicInteger counter = new AtomicInteger();
+    // the controller only hands over as many jobs as there are workers, so the queue stays short
+    this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), runnable -> {
+          Thread thread = new Thread(runnable, "alignment-job-" + counter.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        });
+  }
+
+  /*
+   * Queues an alignment of the uploaded files and returns its job at once.
+   * The upload directory (baseSaveLocation) is deleted when the job is finished.
+   * Throws RejectedExecutionException if all workers are busy and the queue is full, and AdmissionRejectedException
+   * (with a retry-after hint) if the estimated work already taken on is too large.
+   */
+  public Job submit(String sourceFilePath, String targetFilePath, boolean useEquivalence, boolean useSubsumption,
+      String baseSaveLocation) throws IOException {
+    removeExpiredJobs();
+
+    ResultCache resultCache = manager.getResultCache();
+    String resultKey = null;
+    AdmissionController.Ticket ticket;
+    try {
+      if (resultCache != null) {
+        resultKey = resultCache.key(new File(sourceFilePath), new File(targetFilePath), useEquivalence, useSubsumption);
+        byte[] cached = resultCache.get(resultKey);
+        if (cached != null) {
+          deleteDirectory(baseSaveLocation);
+          Job job = new Job(newJobId());
+          job.complete(cached);
+          jobs.put(job.getId(), job);
+          return job;
+        }
+      }
+      ticket = admission.admit(new File(sourceFilePath), new File(targetFilePath));
+    } catch (IOException | RejectedExecutionException e) {
+      deleteDirectory(baseSaveLocation);
+      throw e;
+    }
+
+    Job job = new Job(newJobId());
+    jobs.put(job.getId(), job);
+    String key = resultKey;
+    // stays QUEUED until the admission controller hands it to a worker
+    admission.schedule(ticket, () -> run(job, ticket, sourceFilePath, targetFilePath, useEquivalence, useSubsumption,
+        baseSaveLocation, key), executor);
+    return job;
+  }
+
+  /*
+   * The job with the given id, null if it is unknown or has expired.
+   */
+  public Job getJob(String id) {
+    removeExpiredJobs();
+    return jobs.get(id);
+  }
+
+  /*
+   * The number of jobs waiting for a worker.
+   */
+  public int getQueueSize() {
+    return admission.getWaiting();
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /*
+   * The admission controller, e.g. for its backlog and reserved heap.
+   */
+  public AdmissionController getAdmission() {
+    return admission;
+  }
+
+  // resultKey is null if the results are not cached
+  private void run(Job job, AdmissionController.Ticket ticket, String sourceFilePath, String targetFilePath,
+      boolean useEquivalence, boolean useSubsumption, String baseSaveLocation, String resultKey) {
+    boolean succeeded = false;
+    try {
+      URIAlignment alignment = manager.handle(sourceFilePath, targetFilePath, useEquivalence, useSubsumption,
+          baseSaveLocation, job);
+      byte[] result = AlignmentJsonWriter.toGzip(alignment);
+      if (resultKey != null) {
+        manager.getResultCache().put(resultKey, result);
+      }
+      job.complete(result);
+      succeeded = true;
+    } catch (Throwable e) {
+      String errorMessage;
+      if (e instanceof Exception) {
+        errorMessage = ExceptionHandler.getErrorMessage((Exception) e);
+      } else {
+        errorMessage = "CRITICAL SERVER ERROR. POSSIBLE MEMORY ISSUE.";
+      }
+      System.out.println(errorMessage);
+      e.printStackTrace();
+      job.fail(errorMessage);
+    } finally {
+      admission.finish(ticket, succeeded);
+      deleteDirectory(baseSaveLocation);
+    }
+  }
+
+  private void removeExpiredJobs() {
+    long now = System.currentTimeMillis();
+    Iterator<Job> itr = jobs.values().iterator();
+    while (itr.hasNext()) {
+      Job job = itr.next();
+      if (job.getStage().isFinished() && now - job.getFinishedAt() > retentionMillis) {
+        itr.remove();
+      }
+    }
+  }
+
+  private String newJobId() {
+    String id = HashGenerator.generateHash();
+    while (jobs.containsKey(id)) {
+      id = HashGenerator.generateHash();
+    }
+    return id;
+  }
+
+  private void deleteDirectory(String directory) {
+    try {
+      // Clean up temporary files.
+      File tempDirectory = new File(directory);
+      if (tempDirectory.isDirectory()) {
+        FileUtils.deleteDirectory(tempDirectory);
+      }
+    } catch (Exception e) {
+      System.out.println("Couldn't delete files..?");
+      e.printStackTrace();
+    }
+  }
+}
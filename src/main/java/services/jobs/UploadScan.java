@@ -0,0 +1,82 @@
+package services.jobs;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FilenameUtils;
+
+/*
+ * A quick look at an uploaded file before it is parsed: its (uncompressed) size and a rough count of the classes it
+ * will become. The count looks for the markers the parsers turn into classes (schema elements and types, OWL classes,
+ * spreadsheet rows) without parsing; zip files (NeTEx, GBFS, xlsx) are scanned entry by entry without being extracted.
+ * Inputs without such markers (e.g. GBFS JSON) count one class per KB.
+ */
+public class UploadScan {
+  private static final String[] CLASS_MARKERS = { "<xs:element", "<xsd:element", "<xs:complexType", "<xsd:complexType",
+      "<xs:simpleType", "<xsd:simpleType", "<owl:Class", "<row " };
+
+  private final float sizeKB;
+  private final int classes;
+
+  private UploadScan(float sizeKB, int classes) {
+    this.sizeKB = sizeKB;
+    this.classes = classes;
+  }
+
+  public static UploadScan scan(File file) throws IOException {
+    String extension = FilenameUtils.getExtension(file.getName());
+    long[] counts = new long[2]; // bytes, markers
+    try (InputStream in = new FileInputStream(file)) {
+      if (extension.equals("zip") || extension.equals("xlsx")) {
+        ZipInputStream zip = new ZipInputStream(in);
+        for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+          if (!entry.isDirectory()) {
+            count(zip, counts);
+          }
+        }
+      } else {
+        count(in, counts);
+      }
+    }
+    float sizeKB = counts[0] / 1024f;
+    int classes = (int) Math.min(Integer.MAX_VALUE, counts[1] > 0 ? counts[1] : (long) Math.ceil(sizeKB));
+    return new UploadScan(sizeKB, classes);
+  }
+
+  // the reader is not closed, so a zip stream stays open for its next entry
+  private static void count(InputStream in, long[] counts) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    String line;
+    while ((line = reader.readLine()) != null) {
+      counts[0] += line.length() + 1;
+      if (line.indexOf('<') < 0) {
+        continue;
+      }
+      for (String marker : CLASS_MARKERS) {
+        for (int i = line.indexOf(marker); i >= 0; i = line.indexOf(marker, i + marker.length())) {
+          counts[1]++;
+        }
+      }
+    }
+  }
+
+  public float getSizeKB() {
+    return sizeKB;
+  }
+
+  public int getClasses() {
+    return classes;
+  }
+
+  @Override
+  public String toString() {
+    return Math.round(sizeKB) + " KB, ~" + classes + " classes";
+  }
+}
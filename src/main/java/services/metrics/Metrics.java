@@ -0,0 +1,206 @@
+package services.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import services.settings.AlgorithmSettings;
+
+/*
+ * The process-wide metrics of the alignment pipeline, served in the Prometheus text format at /metrics.
+ * Histograms and counters have one label (e.g. the stage or the matcher). Gauges read their value when scraped.
+ * When AlgorithmSettings.METRICS is false nothing is recorded: RequestMetrics.start() returns a no-op and the
+ * families below are never touched.
+ */
+public final class Metrics {
+  public static final boolean ENABLED = AlgorithmSettings.METRICS;
+
+  private static final double[] SECONDS_BUCKETS = { 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300 };
+  private static final double[] SIZE_BUCKETS = { 10, 50, 100, 500, 1000, 5000, 10000, 50000, 100000 };
+
+  // by name, so the families are written in a stable order
+  private static final Map<String, Family> families = new ConcurrentSkipListMap<String, Family>();
+
+  public static final Histogram STAGE_SECONDS = histogram("semanticmatcher_stage_seconds",
+      "Time spent in each stage of an alignment request", "stage", SECONDS_BUCKETS);
+  public static final Histogram MATCHER_SECONDS = histogram("semanticmatcher_matcher_seconds",
+      "Run time of each matcher", "matcher", SECONDS_BUCKETS);
+  public static final Counter MATCHER_CELLS = counter("semanticmatcher_matcher_cells_total",
+      "Cells produced by each matcher", "matcher");
+  public static final Histogram ONTOLOGY_CLASSES = histogram("semanticmatcher_ontology_classes",
+      "Number of classes in the parsed source and target ontologies", "ontology", SIZE_BUCKETS);
+  public static final Counter REQUESTS = counter("semanticmatcher_requests_total",
+      "Alignment requests by outcome", "outcome");
+  public static final Counter PARSED_INPUT_CACHE = counter("semanticmatcher_parsed_input_cache_total",
+      "Uploads found (hit) or not found (miss) in the parsed input cache", "result");
+  public static final Counter RESULT_CACHE = counter("semanticmatcher_result_cache_total",
+      "Alignment requests answered from memory (memory_hit) or disk (disk_hit), or not found (miss) in the result cache", "result");
+
+  private Metrics() {
+  }
+
+  public static Histogram histogram(String name, String help, String labelName, double[] buckets) {
+    return register(new Histogram(name, help, labelName, buckets));
+  }
+
+  public static Counter counter(String name, String help, String labelName) {
+    return register(new Counter(name, help, labelName));
+  }
+
+  /*
+   * A value read when the metrics are scraped, e.g. a cache hit ratio. Registering a name again replaces the supplier.
+   */
+  public static void gauge(String name, String help, DoubleSupplier value) {
+    families.put(name, new Gauge(name, help, value));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <F extends Family> F register(F family) {
+    Family existing = families.putIfAbsent(family.name, family);
+    return existing == null ? family : (F) existing;
+  }
+
+  /*
+   * All metrics in the Prometheus text exposition format (version 0.0.4).
+   */
+  public static String toPrometheus() {
+    StringBuilder sb = new StringBuilder();
+    for (Family family : families.values()) {
+      sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+      sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+      family.write(sb);
+    }
+    return sb.toString();
+  }
+
+  private static String format(double value) {
+    if (value == Math.rint(value) && !Double.isInfinite(value)) {
+      return Long.toString((long) value);
+    }
+    return Double.toString(value);
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  abstract static class Family {
+    final String name;
+    final String help;
+    final String type;
+
+    Family(String name, String help, String type) {
+      this.name = name;
+      this.help = help;
+      this.type = type;
+    }
+
+    abstract void write(StringBuilder sb);
+  }
+
+  public static final class Histogram extends Family {
+    private final String labelName;
+    private final double[] buckets;
+    private final Map<String, Series> series = new ConcurrentHashMap<String, Series>();
+
+    private Histogram(String name, String help, String labelName, double[] buckets) {
+      super(name, help, "histogram");
+      this.labelName = labelName;
+      this.buckets = buckets;
+    }
+
+    public void observe(String labelValue, double value) {
+      series.computeIfAbsent(labelValue, v -> new Series(buckets.length)).observe(buckets, value);
+    }
+
+    public void observeNanos(String labelValue, long nanos) {
+      observe(labelValue, nanos / 1e9);
+    }
+
+    @Override
+    void write(StringBuilder sb) {
+      for (Map.Entry<String, Series> e : new ConcurrentSkipListMap<String, Series>(series).entrySet()) {
+        String label = labelName + "=\"" + escape(e.getKey()) + "\"";
+        Series s = e.getValue();
+        // the buckets are cumulative
+        long cumulative = 0;
+        for (int i = 0; i < buckets.length; i++) {
+          cumulative += s.counts[i].sum();
+          sb.append(name).append("_bucket{").append(label).append(",le=\"").append(format(buckets[i])).append("\"} ")
+              .append(cumulative).append('\n');
+        }
+        sb.append(name).append("_bucket{").append(label).append(",le=\"+Inf\"} ").append(s.count.sum()).append('\n');
+        sb.append(name).append("_sum{").append(label).append("} ").append(format(s.sum.sum())).append('\n');
+        sb.append(name).append("_count{").append(label).append("} ").append(s.count.sum()).append('\n');
+      }
+    }
+
+    private static final class Series {
+      // per bucket, not cumulative; values above the last bucket are only in count
+      final LongAdder[] counts;
+      final DoubleAdder sum = new DoubleAdder();
+      final LongAdder count = new LongAdder();
+
+      Series(int buckets) {
+        counts = new LongAdder[buckets];
+        for (int i = 0; i < buckets; i++) {
+          counts[i] = new LongAdder();
+        }
+      }
+
+      void observe(double[] buckets, double value) {
+        for (int i = 0; i < buckets.length; i++) {
+          if (value <= buckets[i]) {
+            counts[i].increment();
+            break;
+          }
+        }
+        sum.add(value);
+        count.increment();
+      }
+    }
+  }
+
+  public static final class Counter extends Family {
+    private final String labelName;
+    private final Map<String, LongAdder> series = new ConcurrentHashMap<String, LongAdder>();
+
+    private Counter(String name, String help, String labelName) {
+      super(name, help, "counter");
+      this.labelName = labelName;
+    }
+
+    public void increment(String labelValue) {
+      add(labelValue, 1);
+    }
+
+    public void add(String labelValue, long amount) {
+      series.computeIfAbsent(labelValue, v -> new LongAdder()).add(amount);
+    }
+
+    @Override
+    void write(StringBuilder sb) {
+      for (Map.Entry<String, LongAdder> e : new ConcurrentSkipListMap<String, LongAdder>(series).entrySet()) {
+        sb.append(name).append('{').append(labelName).append("=\"").append(escape(e.getKey())).append("\"} ")
+            .append(e.getValue().sum()).append('\n');
+      }
+    }
+  }
+
+  private static final class Gauge extends Family {
+    private final DoubleSupplier value;
+
+    private Gauge(String name, String help, DoubleSupplier value) {
+      super(name, help, "gauge");
+      this.value = value;
+    }
+
+    @Override
+    void write(StringBuilder sb) {
+      sb.append(name).append(' ').append(format(value.getAsDouble())).append('\n');
+    }
+  }
+}
@@ -0,0 +1,94 @@
+package services.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * The timings and sizes of one alignment request. Each measurement is added to the process-wide Metrics and
+ * to a summary that is logged as one key=value line when the request is finished.
+ * The matchers report from their own threads, so the summary is synchronized.
+ */
+public class RequestMetrics {
+  // Records nothing, used when metrics are disabled (and by callers that do not measure).
+  public static final RequestMetrics NONE = new RequestMetrics(false);
+
+  private final boolean enabled;
+  private final long startNanos;
+  private final Map<String, Object> summary;
+
+  private RequestMetrics(boolean enabled) {
+    this.enabled = enabled;
+    this.startNanos = enabled ? System.nanoTime() : 0;
+    this.summary = enabled ? Collections.synchronizedMap(new LinkedHashMap<String, Object>()) : null;
+  }
+
+  /*
+   * Starts measuring a request, or returns NONE if metrics are disabled.
+   */
+  public static RequestMetrics start() {
+    return Metrics.ENABLED ? new RequestMetrics(true) : NONE;
+  }
+
+  /*
+   * The start time of a stage, passed back to stage() or matcher() when it ends.
+   */
+  public long now() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  public void stage(String stage, long stageStartNanos) {
+    if (!enabled) {
+      return;
+    }
+    long nanos = System.nanoTime() - stageStartNanos;
+    Metrics.STAGE_SECONDS.observeNanos(stage, nanos);
+    summary.put(stage + "_ms", millis(nanos));
+  }
+
+  public void matcher(String matcher, long matcherStartNanos, int cells) {
+    if (!enabled) {
+      return;
+    }
+    long nanos = System.nanoTime() - matcherStartNanos;
+    Metrics.MATCHER_SECONDS.observeNanos(matcher, nanos);
+    Metrics.MATCHER_CELLS.add(matcher, cells);
+    summary.put(matcher + "_ms", millis(nanos));
+    summary.put(matcher + "_cells", cells);
+  }
+
+  public void ontologySizes(int sourceClasses, int targetClasses) {
+    if (!enabled) {
+      return;
+    }
+    Metrics.ONTOLOGY_CLASSES.observe("source", sourceClasses);
+    Metrics.ONTOLOGY_CLASSES.observe("target", targetClasses);
+    summary.put("source_classes", sourceClasses);
+    summary.put("target_classes", targetClasses);
+  }
+
+  /*
+   * Records the whole request and logs the summary line.
+   */
+  public void finish(boolean succeeded) {
+    if (!enabled) {
+      return;
+    }
+    String outcome = succeeded ? "done" : "failed";
+    long nanos = System.nanoTime() - startNanos;
+    Metrics.STAGE_SECONDS.observeNanos("total", nanos);
+    Metrics.REQUESTS.increment(outcome);
+
+    StringBuilder sb = new StringBuilder("alignment-request outcome=").append(outcome).append(" total_ms=").append(millis(nanos));
+    synchronized (summary) {
+      for (Map.Entry<String, Object> e : summary.entrySet()) {
+        sb.append(' ').append(e.getKey()).append('=').append(e.getValue());
+      }
+    }
+    System.out.println(sb);
+  }
+
+  private static long millis(long nanos) {
+    return nanos / 1000000;
+  }
+}
@@ -0,0 +1,413 @@
+package services.parsers.schema;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import services.utils.OntologyConcept;
+
+/*
+ * Extracts the OntologyConcepts of an XSD file and of the files it includes or imports, reading each file once with
+ * StAX instead of building the object model of the whole schema set. The concepts are the same as the object model gave:
+ * - each top-level simpleType, with its documentation
+ * - each top-level complexType, with its documentation, and the elements of its sequence, choice or group (with the
+ *   complexType as domain and the type of the element as range)
+ * - each top-level element
+ * Only what becomes a concept is kept of a file, so the memory used grows with the concepts rather than the schema.
+ * The files are read in parallel (by at most THREADS readers), each file once however often it is included.
+ * The concepts are put in the order the files are reached breadth-first from the first file, so the result does not
+ * depend on which reader finishes first. Element and group references are resolved across all files once they are read.
+ * XSD elements are recognised by their xs or xsd prefix (or none), without resolving namespaces, as some published
+ * schemas (e.g. the GML extracts of NeTEx) use the xsd prefix without declaring it.
+ */
+public class XsdConceptExtractor {
+  private static final int THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+  private static final AtomicInteger threads = new AtomicInteger();
+  private static final ExecutorService pool = Executors.newFixedThreadPool(THREADS, runnable -> {
+    Thread thread = new Thread(runnable, "xsd-reader-" + threads.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // the factory is configured once per thread, creating readers from it is cheap
+  private static final ThreadLocal<XMLInputFactory> factory = ThreadLocal.withInitial(() -> {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+    return xmlInputFactory;
+  });
+
+  public List<OntologyConcept> extract(String filePath) throws Exception {
+    File root = new File(filePath).getCanonicalFile();
+    Map<File, SchemaFile> schemaFiles = readAll(root);
+
+    // breadth-first from the first file
+    List<SchemaFile> ordered = new ArrayList<SchemaFile>();
+    Set<File> visited = new HashSet<File>();
+    Deque<File> queue = new ArrayDeque<File>();
+    visited.add(root);
+    queue.add(root);
+    while (!queue.isEmpty()) {
+      SchemaFile schemaFile = schemaFiles.get(queue.poll());
+      ordered.add(schemaFile);
+      for (File reference : schemaFile.references) {
+        if (schemaFiles.containsKey(reference) && visited.add(reference)) {
+          queue.add(reference);
+        }
+      }
+    }
+
+    // the first declaration of a name is the one referenced
+    Map<String, Particle> elements = new HashMap<String, Particle>();
+    Map<String, List<Particle>> groups = new HashMap<String, List<Particle>>();
+    for (SchemaFile schemaFile : ordered) {
+      for (Particle element : schemaFile.elements) {
+        elements.putIfAbsent(element.name, element);
+      }
+      for (Map.Entry<String, List<Particle>> group : schemaFile.groups.entrySet()) {
+        groups.putIfAbsent(group.getKey(), group.getValue());
+      }
+    }
+
+    List<OntologyConcept> concepts = new ArrayList<OntologyConcept>();
+    for (SchemaFile schemaFile : ordered) {
+      concepts.addAll(schemaFile.simpleTypes);
+      for (ComplexType complexType : schemaFile.complexTypes) {
+        concepts.add(complexType.concept);
+        for (Particle particle : complexType.particles) {
+          if (particle.groupRef != null) {
+            List<Particle> group = groups.get(particle.groupRef);
+            if (group != null) {
+              for (Particle element : group) {
+                addElement(concepts, element, complexType.concept.name, elements);
+              }
+            }
+          } else {
+            addElement(concepts, particle, complexType.concept.name, elements);
+          }
+        }
+      }
+      for (Particle element : schemaFile.elements) {
+        addElement(concepts, element, "", elements);
+      }
+    }
+    return concepts;
+  }
+
+  // an element reference that cannot be resolved is left out
+  private static void addElement(List<OntologyConcept> concepts, Particle element, String domain, Map<String, Particle> elements) {
+    Particle declaration = element.ref != null ? elements.get(element.ref) : element;
+    if (declaration == null) {
+      return;
+    }
+    OntologyConcept concept = new OntologyConcept();
+    concept.name = declaration.name;
+    concept.description = declaration.description;
+    concept.domain = domain;
+    concept.range = declaration.range;
+    concepts.add(concept);
+  }
+
+  private Map<File, SchemaFile> readAll(File root) throws Exception {
+    CompletionService<SchemaFile> completion = new ExecutorCompletionService<SchemaFile>(pool);
+    List<Future<SchemaFile>> futures = new ArrayList<Future<SchemaFile>>();
+    Map<File, SchemaFile> schemaFiles = new HashMap<File, SchemaFile>();
+    Set<File> submitted = new HashSet<File>();
+
+    submitted.add(root);
+    futures.add(completion.submit(() -> read(root)));
+    try {
+      for (int pending = 1; pending > 0; pending--) {
+        SchemaFile schemaFile;
+        try {
+          schemaFile = completion.take().get();
+        } catch (ExecutionException e) {
+          throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+        schemaFiles.put(schemaFile.file, schemaFile);
+        for (File reference : schemaFile.references) {
+          if (submitted.add(reference)) {
+            futures.add(completion.submit(() -> read(reference)));
+            pending++;
+          }
+        }
+      }
+    } finally {
+      // only left running if a file failed
+      for (Future<SchemaFile> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return schemaFiles;
+  }
+
+  private static SchemaFile read(File file) throws IOException, XMLStreamException {
+    SchemaFile schemaFile = new SchemaFile(file);
+    try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+      XMLStreamReader reader = factory.get().createXMLStreamReader(in);
+      try {
+        reader.nextTag();
+        while (nextChild(reader)) {
+          readSchemaChild(reader, schemaFile);
+        }
+      } finally {
+        reader.close();
+      }
+    }
+    return schemaFile;
+  }
+
+  private static void readSchemaChild(XMLStreamReader reader, SchemaFile schemaFile) throws IOException, XMLStreamException {
+    String xsdName = xsdName(reader);
+    if (xsdName == null) {
+      skip(reader);
+      return;
+    }
+    switch (xsdName) {
+      case "include":
+      case "import":
+        String location = reader.getAttributeValue(null, "schemaLocation");
+        // remote schemas are not fetched
+        if (location != null && !location.contains("://")) {
+          File reference = new File(schemaFile.file.getParentFile(), location).getCanonicalFile();
+          if (reference.isFile()) {
+            schemaFile.references.add(reference);
+          }
+        }
+        skip(reader);
+        break;
+      case "simpleType": {
+        OntologyConcept concept = new OntologyConcept();
+        concept.name = attribute(reader, "name");
+        while (nextChild(reader)) {
+          if (isXsd(reader, "annotation")) {
+            concept.description = readDocumentation(reader);
+          } else {
+            skip(reader);
+          }
+        }
+        schemaFile.simpleTypes.add(concept);
+        break;
+      }
+      case "complexType": {
+        ComplexType complexType = new ComplexType();
+        complexType.concept.name = attribute(reader, "name");
+        while (nextChild(reader)) {
+          if (isXsd(reader, "annotation")) {
+            complexType.concept.description = readDocumentation(reader);
+          } else if (isXsd(reader, "sequence") || isXsd(reader, "choice")) {
+            readElements(reader, complexType.particles);
+          } else if (isXsd(reader, "group")) {
+            Particle group = new Particle();
+            group.groupRef = localName(reader.getAttributeValue(null, "ref"));
+            complexType.particles.add(group);
+            skip(reader);
+          } else {
+            skip(reader);
+          }
+        }
+        schemaFile.complexTypes.add(complexType);
+        break;
+      }
+      case "element":
+        schemaFile.elements.add(readElement(reader));
+        break;
+      case "group": {
+        List<Particle> particles = new ArrayList<Particle>();
+        String name = attribute(reader, "name");
+        while (nextChild(reader)) {
+          if (isXsd(reader, "sequence") || isXsd(reader, "choice") || isXsd(reader, "all")) {
+            readElements(reader, particles);
+          } else {
+            skip(reader);
+          }
+        }
+        schemaFile.groups.put(name, particles);
+        break;
+      }
+      default:
+        skip(reader);
+    }
+  }
+
+  // the elements directly in a sequence, choice or all (nested ones are not concepts)
+  private static void readElements(XMLStreamReader reader, List<Particle> particles) throws XMLStreamException {
+    while (nextChild(reader)) {
+      if (isXsd(reader, "element")) {
+        particles.add(readElement(reader));
+      } else {
+        skip(reader);
+      }
+    }
+  }
+
+  private static Particle readElement(XMLStreamReader reader) throws XMLStreamException {
+    Particle element = new Particle();
+    element.name = attribute(reader, "name");
+    element.ref = localName(reader.getAttributeValue(null, "ref"));
+    String type = reader.getAttributeValue(null, "type");
+    while (nextChild(reader)) {
+      if (isXsd(reader, "annotation")) {
+        element.description = readDocumentation(reader);
+      } else if (isXsd(reader, "simpleType") && type == null) {
+        element.range = readRestrictionBase(reader);
+      } else {
+        skip(reader);
+      }
+    }
+    if (type != null) {
+      element.range = localName(type);
+    }
+    return element;
+  }
+
+  private static String readRestrictionBase(XMLStreamReader reader) throws XMLStreamException {
+    String base = "";
+    while (nextChild(reader)) {
+      if (isXsd(reader, "restriction") && reader.getAttributeValue(null, "base") != null) {
+        base = localName(reader.getAttributeValue(null, "base"));
+      }
+      skip(reader);
+    }
+    return base;
+  }
+
+  // the text of the first documentation of an annotation, trimmed as xsdparser did
+  private static String readDocumentation(XMLStreamReader reader) throws XMLStreamException {
+    String documentation = null;
+    while (nextChild(reader)) {
+      if (documentation == null && isXsd(reader, "documentation")) {
+        documentation = readText(reader).trim();
+      } else {
+        skip(reader);
+      }
+    }
+    return documentation != null ? documentation : "";
+  }
+
+  // all text in the element, also that of nested (e.g. XHTML) elements
+  private static String readText(XMLStreamReader reader) throws XMLStreamException {
+    StringBuilder text = new StringBuilder();
+    for (int depth = 1; depth > 0;) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+          || event == XMLStreamConstants.SPACE) {
+        text.append(reader.getText());
+      }
+    }
+    return text.toString();
+  }
+
+  /*
+   * Moves to the next child element of the current element and returns true, or to the end of the current element
+   * and returns false.
+   */
+  private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+    while (true) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        return false;
+      }
+    }
+  }
+
+  // moves to the end of the current element
+  private static void skip(XMLStreamReader reader) throws XMLStreamException {
+    for (int depth = 1; depth > 0;) {
+      int event = reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static boolean isXsd(XMLStreamReader reader, String localName) {
+    return localName.equals(xsdName(reader));
+  }
+
+  // the name of the current element without its prefix, null if it is not an XSD element
+  private static String xsdName(XMLStreamReader reader) {
+    String name = reader.getLocalName();
+    if (reader.getPrefix() != null && !reader.getPrefix().isEmpty()) {
+      name = reader.getPrefix() + ":" + name;
+    }
+    int colon = name.indexOf(':');
+    String prefix = colon < 0 ? "" : name.substring(0, colon);
+    return prefix.isEmpty() || prefix.equals("xs") || prefix.equals("xsd") ? name.substring(colon + 1) : null;
+  }
+
+  private static String attribute(XMLStreamReader reader, String name) {
+    String value = reader.getAttributeValue(null, name);
+    return value != null ? value : "";
+  }
+
+  // a reference without its namespace prefix, e.g. xsd:string becomes string and gml:PointType becomes PointType
+  private static String localName(String qualifiedName) {
+    return qualifiedName == null ? null : qualifiedName.substring(qualifiedName.indexOf(':') + 1);
+  }
+
+  /*
+   * What is kept of one file.
+   */
+  private static class SchemaFile {
+    private final File file;
+    // the included and imported files, in document order
+    private final List<File> references = new ArrayList<File>();
+    private final List<OntologyConcept> simpleTypes = new ArrayList<OntologyConcept>();
+    private final List<ComplexType> complexTypes = new ArrayList<ComplexType>();
+    private final List<Particle> elements = new ArrayList<Particle>();
+    private final Map<String, List<Particle>> groups = new HashMap<String, List<Particle>>();
+
+    private SchemaFile(File file) {
+      this.file = file;
+    }
+  }
+
+  private static class ComplexType {
+    private final OntologyConcept concept = new OntologyConcept();
+    private final List<Particle> particles = new ArrayList<Particle>();
+  }
+
+  /*
+   * An element declaration, an element reference (ref) or a group reference (groupRef).
+   */
+  private static class Particle {
+    private String name = "";
+    private String description = "";
+    private String range = "";
+    private String ref;
+    private String groupRef;
+  }
+}
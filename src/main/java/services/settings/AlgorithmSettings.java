@@ -5,4 +5,43 @@ public class AlgorithmSettings {
 	public static final int SLOPE = 3; 
 	public static final double RANGEMIN = 0.5; 
 	public static final double RANGEMAX = 0.7;
+	//number of matchers run concurrently for a request (1 runs them one after another)
+	public static final int MATCHERTHREADS = Runtime.getRuntime().availableProcessors();
+	//candidate generation before matching, e.g. "token:0.1,embedding:20" (see CandidateGenerators), "none" matches all pairs
+	public static final String BLOCKING = "none";
+	//print the pair-reduction ratio of the candidate generation for each request
+	public static final boolean BLOCKINGREPORT = false;
+	//gzip the JSON result when the client accepts it (large NeTEx/IXSI alignments shrink a lot)
+	public static final boolean GZIPRESPONSE = true;
+	//look up the class names of both ontologies in WordNet before matching, so the matchers find them in the WordNet cache
+	public static final boolean WORDNETWARMUP = false;
+	//print the hit/miss counts of the WordNet cache after each request
+	public static final boolean WORDNETCACHEREPORT = false;
+	//number of alignment requests run at the same time, further requests wait in a queue
+	public static final int JOBWORKERS = 2;
+	//number of alignment requests that may wait for a worker before new uploads are refused
+	public static final int JOBQUEUECAPACITY = 8;
+	//minutes a finished job and its result are kept for GET /jobs/{id}/result
+	public static final int JOBRETENTIONMINUTES = 30;
+	//share of the max heap the estimated heap of the running alignment requests may add up to, further requests wait
+	public static final double ADMISSIONHEAPSHARE = 0.75;
+	//uploads are refused (with a Retry-After hint) when the estimated work already taken on would delay them longer than this
+	public static final long ADMISSIONMAXBACKLOGSECONDS = 900;
+	//keep parsed uploads (the OWL file and its feature index) on disk by content, so an upload seen before is not parsed again
+	public static final boolean PARSEDINPUTCACHE = true;
+	public static final String PARSEDINPUTCACHEDIR = "temp/cache/parsed";
+	//bump when a change to the parsers (or OntologyConcept) changes the ontologies they produce, which drops the parsed uploads
+	public static final String PARSERVERSION = "3";
+	//the least recently used parsed uploads are deleted when the cache grows beyond this
+	public static final long PARSEDINPUTCACHEMAXMB = 1024;
+	//keep the JSON result of each request (in memory and on disk), so an identical request (same uploads and relations) is answered at once.
+	//The cached results are dropped when any of these settings, ALGORITHMVERSION or the embedding/WordNet/tagger files change.
+	public static final boolean RESULTCACHE = true;
+	public static final String RESULTCACHEDIR = "temp/cache/results";
+	public static final long RESULTCACHEMEMORYMB = 64;
+	public static final long RESULTCACHEDISKMB = 1024;
+	//bump when a change to the matchers or the combination changes the alignments they produce
+	public static final String ALGORITHMVERSION = "4";
+	//record stage and matcher timings for GET /metrics and log a summary line per request
+	public static final boolean METRICS = true;
 }
@@ -0,0 +1,143 @@
+package services.utils;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.semanticweb.owl.align.Cell;
+
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.parsers.CellParser;
+
+/*
+ * Writes an alignment as the JSON array returned by the API, one
+ * {"source", "target", "relation", "confidence"} object per cell.
+ * The cells are written one by one to the writer (or stream), so the
+ * whole payload is never held in memory as a single string.
+ */
+public class AlignmentJsonWriter {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  public static void write(URIAlignment alignment, Writer writer) throws IOException {
+    writer.write('[');
+    boolean first = true;
+    for (Cell cell : alignment.getArrayElements()) {
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      writer.write("{\"source\": ");
+      writeString(writer, CellParser.getSource(cell));
+      writer.write(", \"target\": ");
+      writeString(writer, CellParser.getTarget(cell));
+      writer.write(", \"relation\": ");
+      writeString(writer, CellParser.getRelation(cell));
+      writer.write(", \"confidence\": ");
+      writer.write(formatConfidence(cell.getStrength()));
+      writer.write('}');
+    }
+    writer.write(']');
+  }
+
+  /*
+   * Writes the alignment as UTF-8 to the stream, gzip compressed if asked for.
+   * The stream itself is flushed but not closed.
+   */
+  public static void write(URIAlignment alignment, OutputStream out, boolean gzip) throws IOException {
+    GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(out, 8192) : null;
+    Writer writer = new BufferedWriter(new OutputStreamWriter(gzip ? gzipOut : out, StandardCharsets.UTF_8), 8192);
+    write(alignment, writer);
+    writer.flush();
+    if (gzipOut != null) {
+      gzipOut.finish();
+    }
+    out.flush();
+  }
+
+  /*
+   * The alignment as gzip compressed JSON, the form a result is kept in (see Job and ResultCache).
+   */
+  public static byte[] toGzip(URIAlignment alignment) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    write(alignment, out, true);
+    return out.toByteArray();
+  }
+
+  /*
+   * Writes gzip compressed JSON (from toGzip()) to the stream, as it is or decompressed.
+   * The stream itself is flushed but not closed.
+   */
+  public static void writeGzip(byte[] gzipJson, OutputStream out, boolean gzip) throws IOException {
+    if (gzip) {
+      out.write(gzipJson);
+    } else {
+      try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipJson), 8192)) {
+        byte[] buffer = new byte[8192];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+          out.write(buffer, 0, n);
+        }
+      }
+    }
+    out.flush();
+  }
+
+  /* a JSON string, copied as is unless it has characters that must be escaped */
+  public static void writeString(Writer writer, String s) throws IOException {
+    writer.write('"');
+    int length = s.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      writer.write(s, start, i - start);
+      start = i + 1;
+      switch (c) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        case '\n':
+          writer.write("\\n");
+          break;
+        case '\r':
+          writer.write("\\r");
+          break;
+        case '\t':
+          writer.write("\\t");
+          break;
+        default:
+          writer.write("\\u00");
+          writer.write(HEX[c >> 4]);
+          writer.write(HEX[c & 0xF]);
+      }
+    }
+    writer.write(s, start, length - start);
+    writer.write('"');
+  }
+
+  /* the same as String.format("%.2f", confidence) (see CellParser.getConfidence), without parsing a format string per cell */
+  static String formatConfidence(double confidence) {
+    if (Double.isNaN(confidence) || Double.isInfinite(confidence)) {
+      return String.format("%.2f", confidence);
+    }
+    BigDecimal rounded = BigDecimal.valueOf(confidence).setScale(2, RoundingMode.HALF_UP);
+    if (rounded.signum() == 0 && (confidence < 0 || 1 / confidence < 0)) {
+      return "-" + rounded.toPlainString();
+    }
+    return rounded.toPlainString();
+  }
+}
@@ -3,13 +3,13 @@ package services.utils;
 import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.semanticweb.owl.align.AlignmentException;
 import org.semanticweb.owlapi.model.OWLOntologyCreationException;
-import org.xmlet.xsdparser.xsdelements.exceptions.ParsingException;
 
 import java.net.URISyntaxException;
 import fr.inrialpes.exmo.ontowrap.OntowrapException;
 import rita.wordnet.jwnl.JWNLException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import javax.xml.stream.XMLStreamException;
 
 import services.enums.ErrorCodes;
 
@@ -34,7 +34,7 @@ public class ExceptionHandler extends Exception {
       return ErrorCodes.INVALID_FORMAT_EXCEPTION.getErrorMessage();
     } else if (e instanceof IOException){
       return ErrorCodes.IO_EXCEPTION.getErrorMessage();
-    } else if (e instanceof ParsingException){
+    } else if (e instanceof XMLStreamException){
       return ErrorCodes.PARSING_EXCEPTION.getErrorMessage();
     }
     return "Unknown server error: " + e.getStackTrace()[0].toString();
@@ -19,6 +19,7 @@ import org.semanticweb.owlapi.model.OWLDataProperty;
 import org.semanticweb.owlapi.model.OWLDataPropertyDomainAxiom;
 import org.semanticweb.owlapi.model.OWLDataPropertyExpression;
 import org.semanticweb.owlapi.model.OWLDataPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLObjectProperty;
 import org.semanticweb.owlapi.model.OWLObjectPropertyDomainAxiom;
 import org.semanticweb.owlapi.model.OWLObjectPropertyExpression;
@@ -49,12 +50,18 @@ public class OntologyConcept {
 
   public static File toOWLFile(List<OntologyConcept> ontologyConcepts, String filepathToStore)
       throws Exception {
-    OWLOntologyManager m = OWLManager.createOWLOntologyManager();
-    OWLOntology o = toOWLOntology(ontologyConcepts, m);
+    OWLOntology o = toOWLOntology(ontologyConcepts);
     FileUtil.createDirectory(filepathToStore);
-    File file = OWLOntologyToFile.convert(o, filepathToStore, m);
-    FixOntology(filepathToStore);
-    return file;
+    return OWLOntologyToFile.convert(o, filepathToStore, o.getOWLOntologyManager());
+  }
+
+  /**
+   * Builds the OWLOntology in memory (with its own manager), so it can be matched without being saved and parsed again.
+   * The concepts that are not properties are declared as classes, so they are typed as owl:Class when the ontology
+   * is saved (without the declarations they were written as rdf:Description).
+   */
+  public static OWLOntology toOWLOntology(List<OntologyConcept> ontologyConcepts) throws Exception {
+    return toOWLOntology(ontologyConcepts, OWLManager.createOWLOntologyManager());
   }
 
   private static OWLOntology toOWLOntology(List<OntologyConcept> ontologyConcepts, OWLOntologyManager ontologyManager) throws Exception {
@@ -122,6 +129,18 @@ public class OntologyConcept {
         AddDomainData(owlclass, domainclasses, dataFactory, ontologyManager, ontology);
       }
     }
+    //Declare the other concepts as classes (the properties, and the classes they have as domain or range, are typed by their axioms)
+    for (String key : nameToOWLClass.keySet()){
+      if (!ranges.containsKey(key) && !domains.containsKey(key)){
+        ontologyManager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(nameToOWLClass.get(key)));
+      }
+    }
+    //Declare the properties and datatypes, as loading the saved ontology does (the writer types them)
+    for (OWLEntity entity : ontology.getSignature()){
+      if (entity.isOWLObjectProperty() || entity.isOWLDataProperty() || (entity.isOWLDatatype() && !entity.asOWLDatatype().isBuiltIn())){
+        ontologyManager.addAxiom(ontology, dataFactory.getOWLDeclarationAxiom(entity));
+      }
+    }
     // Unused for now: Add subClassOf
     for (OntologyConcept concept : ontologyConcepts) {
       if (concept.subClassof.equals("")) {
@@ -195,18 +214,4 @@ public class OntologyConcept {
     OWLSubClassOfAxiom sub_ax = df.getOWLSubClassOfAxiom(owlclass, superclass);
     m.addAxiom(o, sub_ax);
   }
-
-
-  /**
-   * Replace all rdf:Description with owl:Class outside of unionOf braces
-   * (Since OWLClasses gets turned into Descriptions for some reason)
-   */
-  private static void FixOntology(String filepathToStore) throws Exception {
-    String text = FileUtil.readFile(filepathToStore);
-    String[] textSplit = text.split("owl:unionOf");
-    for (int n = 0; n < textSplit.length; n += 2){
-      textSplit[n] = textSplit[n].replace("rdf:Description", "owl:Class");
-    }
-    FileUtil.writeFile(filepathToStore, String.join("owl:unionOf", textSplit));
-  }
 }
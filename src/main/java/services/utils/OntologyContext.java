@@ -0,0 +1,271 @@
+package services.utils;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.Function;
+
+import org.semanticweb.owl.align.Alignment;
+import org.semanticweb.owl.align.AlignmentException;
+import org.semanticweb.owl.align.AlignmentProcess;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAnnotationProperty;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLDataProperty;
+import org.semanticweb.owlapi.model.OWLDatatype;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLObjectProperty;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import algorithms.blocking.CandidateGenerator;
+import algorithms.blocking.CandidatePairs;
+import algorithms.utilities.OntologyFeatureIndex;
+import fr.inrialpes.exmo.align.impl.BasicAlignment;
+import fr.inrialpes.exmo.align.impl.BasicConfidence;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
+import fr.inrialpes.exmo.ontowrap.LoadedOntology;
+import fr.inrialpes.exmo.ontowrap.owlapi30.OWLAPI3Ontology;
+
+/*
+* The source and target ontologies of one request, parsed and indexed once and shared (read-only) by the profiler and all matchers.
+*/
+public class OntologyContext {
+  private static final String OWL_FORMALISM = "OWL2.0";
+  private static final String OWL_FORMALISM_URI = "http://www.w3.org/2002/07/owl#";
+
+  private final File sourceFile;
+  private final File targetFile;
+  private final OWLOntology sourceOntology;
+  private final OWLOntology targetOntology;
+  private final LoadedOntology<OWLOntology> sourceLoadedOntology;
+  private final LoadedOntology<OWLOntology> targetLoadedOntology;
+  private final List<OWLClass> sourceClasses;
+  private final List<OWLClass> targetClasses;
+  private final OntologyFeatureIndex sourceIndex;
+  private final OntologyFeatureIndex targetIndex;
+  // Null when every source/target pair is to be matched
+  private final CandidatePairs candidates;
+
+  private OntologyContext(File sourceFile, File targetFile, OWLOntology sourceOntology, OWLOntology targetOntology,
+      CandidateGenerator candidateGenerator, Function<OWLOntology, OntologyFeatureIndex> sourceIndexer,
+      Function<OWLOntology, OntologyFeatureIndex> targetIndexer) throws URISyntaxException {
+    this.sourceFile = sourceFile;
+    this.targetFile = targetFile;
+    this.sourceOntology = sourceOntology;
+    this.targetOntology = targetOntology;
+    buildIndexes(sourceOntology);
+    buildIndexes(targetOntology);
+    this.sourceLoadedOntology = wrap(sourceOntology, sourceFile);
+    this.targetLoadedOntology = wrap(targetOntology, targetFile);
+    this.sourceClasses = Collections.unmodifiableList(new ArrayList<OWLClass>(sourceOntology.getClassesInSignature()));
+    this.targetClasses = Collections.unmodifiableList(new ArrayList<OWLClass>(targetOntology.getClassesInSignature()));
+    this.sourceIndex = sourceIndexer.apply(sourceOntology);
+    this.targetIndex = targetIndexer.apply(targetOntology);
+    this.candidates = candidateGenerator != null ? candidateGenerator.generate(sourceIndex, targetIndex) : null;
+  }
+
+  /*
+   * Parses the two ontology files. Each file gets its own manager, so the two may share an ontology IRI.
+   */
+  public static OntologyContext load(File sourceFile, File targetFile) throws OWLOntologyCreationException, URISyntaxException {
+    return load(sourceFile, targetFile, null);
+  }
+
+  /*
+   * Same as above, but the matchers only score the pairs selected by the candidate generator (all pairs if it is null).
+   */
+  public static OntologyContext load(File sourceFile, File targetFile, CandidateGenerator candidateGenerator)
+      throws OWLOntologyCreationException, URISyntaxException {
+    return load(sourceFile, targetFile, candidateGenerator, OntologyFeatureIndex::new, OntologyFeatureIndex::new);
+  }
+
+  /*
+   * Same as above, with the feature indexes of the ontologies provided by the indexers, e.g. read from the ParsedInputCache.
+   */
+  public static OntologyContext load(File sourceFile, File targetFile, CandidateGenerator candidateGenerator,
+      Function<OWLOntology, OntologyFeatureIndex> sourceIndexer, Function<OWLOntology, OntologyFeatureIndex> targetIndexer)
+      throws OWLOntologyCreationException, URISyntaxException {
+    return create(sourceFile, loadOntology(sourceFile), targetFile, loadOntology(targetFile), candidateGenerator,
+        sourceIndexer, targetIndexer);
+  }
+
+  /*
+   * Same as above, for ontologies that are parsed already, e.g. built in memory by OntologyConcept.toOWLOntology().
+   * The file of such an ontology need not exist, it is only written if an algorithm asks for it (see getSourceFile()).
+   */
+  public static OntologyContext create(File sourceFile, OWLOntology sourceOntology, File targetFile, OWLOntology targetOntology,
+      CandidateGenerator candidateGenerator, Function<OWLOntology, OntologyFeatureIndex> sourceIndexer,
+      Function<OWLOntology, OntologyFeatureIndex> targetIndexer) throws URISyntaxException {
+    return new OntologyContext(sourceFile, targetFile, sourceOntology, targetOntology, candidateGenerator, sourceIndexer,
+        targetIndexer);
+  }
+
+  /*
+   * Parses an ontology file with its own manager.
+   */
+  public static OWLOntology loadOntology(File file) throws OWLOntologyCreationException {
+    return OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(file);
+  }
+
+  /*
+   * OWL API 3 builds most of the axiom indexes of an ontology on their first lookup, without any locking, so two matchers
+   * reading the shared ontology at the same time could both build (or read a half-built) index. Every index is built here,
+   * before the context is handed to the matchers; after that the ontologies are only read. Any key builds a whole index.
+   */
+  private static void buildIndexes(OWLOntology ontology) {
+    OWLDataFactory factory = ontology.getOWLOntologyManager().getOWLDataFactory();
+    OWLClass owlClass = factory.getOWLThing();
+    OWLObjectProperty objectProperty = factory.getOWLTopObjectProperty();
+    OWLDataProperty dataProperty = factory.getOWLTopDataProperty();
+    OWLNamedIndividual individual = factory.getOWLNamedIndividual(IRI.create(OWL_FORMALISM_URI + "Nothing"));
+    OWLAnnotationProperty annotationProperty = factory.getRDFSLabel();
+    OWLDatatype datatype = factory.getTopDatatype();
+
+    ontology.getAxioms(owlClass);
+    ontology.getDeclarationAxioms(owlClass);
+    ontology.getAnnotationAssertionAxioms(owlClass.getIRI());
+    ontology.getSubClassAxiomsForSubClass(owlClass);
+    ontology.getSubClassAxiomsForSuperClass(owlClass);
+    ontology.getEquivalentClassesAxioms(owlClass);
+    ontology.getDisjointClassesAxioms(owlClass);
+    ontology.getDisjointUnionAxioms(owlClass);
+    ontology.getHasKeyAxioms(owlClass);
+    ontology.getClassAssertionAxioms(owlClass);
+    ontology.getObjectSubPropertyAxiomsForSubProperty(objectProperty);
+    ontology.getObjectSubPropertyAxiomsForSuperProperty(objectProperty);
+    ontology.getObjectPropertyDomainAxioms(objectProperty);
+    ontology.getObjectPropertyRangeAxioms(objectProperty);
+    ontology.getInverseObjectPropertyAxioms(objectProperty);
+    ontology.getEquivalentObjectPropertiesAxioms(objectProperty);
+    ontology.getDisjointObjectPropertiesAxioms(objectProperty);
+    ontology.getFunctionalObjectPropertyAxioms(objectProperty);
+    ontology.getInverseFunctionalObjectPropertyAxioms(objectProperty);
+    ontology.getSymmetricObjectPropertyAxioms(objectProperty);
+    ontology.getAsymmetricObjectPropertyAxioms(objectProperty);
+    ontology.getReflexiveObjectPropertyAxioms(objectProperty);
+    ontology.getIrreflexiveObjectPropertyAxioms(objectProperty);
+    ontology.getTransitiveObjectPropertyAxioms(objectProperty);
+    ontology.getDataSubPropertyAxiomsForSubProperty(dataProperty);
+    ontology.getDataSubPropertyAxiomsForSuperProperty(dataProperty);
+    ontology.getDataPropertyDomainAxioms(dataProperty);
+    ontology.getDataPropertyRangeAxioms(dataProperty);
+    ontology.getEquivalentDataPropertiesAxioms(dataProperty);
+    ontology.getDisjointDataPropertiesAxioms(dataProperty);
+    ontology.getFunctionalDataPropertyAxioms(dataProperty);
+    ontology.getClassAssertionAxioms(individual);
+    ontology.getDataPropertyAssertionAxioms(individual);
+    ontology.getObjectPropertyAssertionAxioms(individual);
+    ontology.getNegativeDataPropertyAssertionAxioms(individual);
+    ontology.getNegativeObjectPropertyAssertionAxioms(individual);
+    ontology.getSameIndividualAxioms(individual);
+    ontology.getDifferentIndividualAxioms(individual);
+    ontology.getDatatypeDefinitions(datatype);
+    ontology.getSubAnnotationPropertyOfAxioms(annotationProperty);
+    ontology.getAnnotationPropertyDomainAxioms(annotationProperty);
+    ontology.getAnnotationPropertyRangeAxioms(annotationProperty);
+    for (OWLEntity entity : Arrays.asList(owlClass, objectProperty, dataProperty, individual, annotationProperty, datatype)){
+      ontology.getReferencingAxioms(entity);
+    }
+    ontology.getReferencingAxioms(factory.getOWLAnonymousIndividual());
+  }
+
+  // Wraps an already parsed ontology for the Alignment API without going through (and filling) the ontowrap cache
+  private static LoadedOntology<OWLOntology> wrap(OWLOntology ontology, File file) throws URISyntaxException {
+    OWLAPI3Ontology loaded = new OWLAPI3Ontology();
+    loaded.setFormalism(OWL_FORMALISM);
+    loaded.setFormURI(new URI(OWL_FORMALISM_URI));
+    loaded.setOntology(ontology);
+    loaded.setFile(file.toURI());
+    loaded.setURI(ontology.getOntologyID().getOntologyIRI() != null ? ontology.getOntologyID().getOntologyIRI().toURI() : file.toURI());
+    return loaded;
+  }
+
+  /*
+   * Runs an alignment process on the shared ontologies and returns its alignment with the ontology IRIs as ontology URIs,
+   * the same way the returnXXXAlignment methods of the matchers do.
+   */
+  public URIAlignment align(AlignmentProcess process, boolean normalise) throws AlignmentException {
+    process.init(sourceLoadedOntology, targetLoadedOntology);
+    Properties params = new Properties();
+    params.setProperty("", "");
+    process.align((Alignment) null, params);
+
+    BasicAlignment alignment = (BasicAlignment) (process.clone());
+    if (normalise) {
+      alignment.normalise();
+    }
+
+    URIAlignment uriAlignment = alignment.toURIAlignment();
+    uriAlignment.init(sourceLoadedOntology.getURI(), targetLoadedOntology.getURI(), A5AlgebraRelation.class, BasicConfidence.class);
+    return uriAlignment;
+  }
+
+  /*
+   * The file of the source ontology, for algorithms that parse it themselves. An ontology built in memory is saved
+   * to it on the first call.
+   */
+  public File getSourceFile() throws Exception {
+    return saveIfMissing(sourceOntology, sourceFile);
+  }
+
+  public File getTargetFile() throws Exception {
+    return saveIfMissing(targetOntology, targetFile);
+  }
+
+  private synchronized File saveIfMissing(OWLOntology ontology, File file) throws Exception {
+    if (!file.exists()) {
+      FileUtil.createDirectory(file.getPath());
+      OWLOntologyToFile.convert(ontology, file.getPath(), ontology.getOWLOntologyManager());
+    }
+    return file;
+  }
+
+  public OWLOntology getSourceOntology() {
+    return sourceOntology;
+  }
+
+  public OWLOntology getTargetOntology() {
+    return targetOntology;
+  }
+
+  public LoadedOntology<OWLOntology> getSourceLoadedOntology() {
+    return sourceLoadedOntology;
+  }
+
+  public LoadedOntology<OWLOntology> getTargetLoadedOntology() {
+    return targetLoadedOntology;
+  }
+
+  public List<OWLClass> getSourceClasses() {
+    return sourceClasses;
+  }
+
+  public List<OWLClass> getTargetClasses() {
+    return targetClasses;
+  }
+
+  public OntologyFeatureIndex getSourceIndex() {
+    return sourceIndex;
+  }
+
+  public OntologyFeatureIndex getTargetIndex() {
+    return targetIndex;
+  }
+
+  /*
+   * The pairs the matchers should score, keyed by the class ids of the two indexes. Null means all pairs.
+   */
+  public CandidatePairs getCandidates() {
+    return candidates;
+  }
+}
@@ -0,0 +1,157 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import algorithms.utilities.AlgorithmEstimater;
+import services.jobs.AdmissionController;
+import services.jobs.AdmissionRejectedException;
+
+public class AdmissionControllerTest {
+    private static final long MB = 1024 * 1024;
+
+    private File source = new File(TestConfig.sourceFileLocation);
+    private File target = new File(TestConfig.targetFileLocation);
+
+    // the next estimate, whatever the uploads
+    private float seconds = 10;
+    private long heapBytes = 10 * MB;
+    private AlgorithmEstimater estimater = new AlgorithmEstimater() {
+        @Override
+        public synchronized float estimateRuntime(float sourceSizeKB, float targetSizeKB) {
+            return seconds;
+        }
+
+        @Override
+        public long estimateHeap(float sourceSizeKB, float targetSizeKB, int sourceClasses, int targetClasses) {
+            return heapBytes;
+        }
+    };
+
+    // the tasks handed to the executor, in order (each adds its name)
+    private List<String> started = new ArrayList<String>();
+    private Executor executor = task -> task.run();
+
+    private AdmissionController.Ticket admit(AdmissionController admission, String name, long heapMB) throws Exception {
+        heapBytes = heapMB * MB;
+        AdmissionController.Ticket ticket = admission.admit(source, target);
+        admission.schedule(ticket, () -> started.add(name), executor);
+        return ticket;
+    }
+
+    @Test
+    public void testStartsInUploadOrder() throws Exception {
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 1, 10);
+        AdmissionController.Ticket a = admit(admission, "a", 10);
+        AdmissionController.Ticket b = admit(admission, "b", 10);
+        AdmissionController.Ticket c = admit(admission, "c", 10);
+        // one worker: the others wait without taking it
+        assertEquals(Arrays.asList("a"), started);
+        assertEquals(2, admission.getWaiting());
+
+        admission.finish(a, true);
+        assertEquals(Arrays.asList("a", "b"), started);
+        admission.finish(b, true);
+        admission.finish(c, true);
+        assertEquals(Arrays.asList("a", "b", "c"), started);
+        assertEquals(0, admission.getWaiting());
+        assertEquals(0, admission.getRunningHeapBytes());
+    }
+
+    @Test
+    public void testScheduledOutOfUploadOrder() throws Exception {
+        // the second upload is scheduled before the first, as two submitting threads may do
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 1, 10);
+        AdmissionController.Ticket a = admission.admit(source, target);
+        AdmissionController.Ticket b = admission.admit(source, target);
+        admission.schedule(b, () -> started.add("b"), executor);
+        assertTrue(started.isEmpty());
+        admission.schedule(a, () -> started.add("a"), executor);
+        assertEquals(Arrays.asList("a"), started);
+        admission.finish(a, true);
+        assertEquals(Arrays.asList("a", "b"), started);
+    }
+
+    @Test
+    public void testHeapBudget() throws Exception {
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 4, 10);
+        AdmissionController.Ticket a = admit(admission, "a", 60);
+        AdmissionController.Ticket b = admit(admission, "b", 60);
+        // c would fit next to a, but doesn't overtake b
+        AdmissionController.Ticket c = admit(admission, "c", 10);
+        assertEquals(Arrays.asList("a"), started);
+        assertEquals(60 * MB, admission.getRunningHeapBytes());
+
+        admission.finish(a, true);
+        assertEquals(Arrays.asList("a", "b", "c"), started);
+        assertEquals(70 * MB, admission.getRunningHeapBytes());
+        admission.finish(b, true);
+        admission.finish(c, true);
+    }
+
+    @Test
+    public void testLargerThanBudgetRunsAlone() throws Exception {
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 4, 10);
+        AdmissionController.Ticket a = admit(admission, "a", 200);
+        AdmissionController.Ticket b = admit(admission, "b", 1);
+        assertEquals(Arrays.asList("a"), started);
+        admission.finish(a, false);
+        assertEquals(Arrays.asList("a", "b"), started);
+        admission.finish(b, true);
+    }
+
+    @Test
+    public void testRejectedWhenBacklogIsTooLong() throws Exception {
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 60, 1, 10);
+        // nothing admitted, so even a request above the backlog limit is taken
+        seconds = 100;
+        AdmissionController.Ticket a = admit(admission, "a", 10);
+        seconds = 30;
+        try {
+            admit(admission, "b", 10);
+            fail();
+        } catch (AdmissionRejectedException e) {
+            assertEquals(70, e.getRetryAfterSeconds());
+        }
+        assertEquals(Arrays.asList("a"), started);
+        assertEquals(0, admission.getWaiting());
+        admission.finish(a, true);
+        admit(admission, "c", 10);
+        assertEquals(Arrays.asList("a", "c"), started);
+    }
+
+    @Test
+    public void testRejectedWhenQueueIsFull() throws Exception {
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 1, 1);
+        admit(admission, "a", 10);
+        admit(admission, "b", 10);
+        try {
+            admit(admission, "c", 10);
+            fail();
+        } catch (AdmissionRejectedException e) {
+            fail("a full queue has no retry-after estimate");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, admission.getWaiting());
+    }
+
+    @Test
+    public void testGivenUpBeforeScheduled() throws Exception {
+        // a request finished before it is scheduled (e.g. its submit failed) doesn't hold up the next ones
+        AdmissionController admission = new AdmissionController(estimater, 100 * MB, 1000, 1, 10);
+        AdmissionController.Ticket a = admission.admit(source, target);
+        admit(admission, "b", 10);
+        assertTrue(started.isEmpty());
+        admission.finish(a, false);
+        assertEquals(Arrays.asList("b"), started);
+    }
+}
@@ -1,11 +1,51 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
+import org.junit.After;
 import org.junit.Test;
+import org.semanticweb.owl.align.Cell;
 
+import algorithms.blocking.CandidateGenerators;
+import algorithms.equivalencematching.BasicEQMatcher;
+import algorithms.equivalencematching.GraphEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.LexicalEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.PropertyEquivalenceMatcherSigmoid;
+import algorithms.subsumptionmatching.BasicSubsumptionMatcher;
+import algorithms.subsumptionmatching.CompoundMatcherSigmoid;
+import algorithms.subsumptionmatching.ContextSubsumptionMatcherSigmoid;
+import algorithms.subsumptionmatching.DefinitionSubsumptionMatcherSigmoid;
+import algorithms.subsumptionmatching.LexicalSubsumptionMatcherSigmoid;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
 import services.AlgorithmPicker;
 import services.AlgorithmRunner;
+import services.PickedAlgorithms;
+import services.enums.SemanticRelation;
+import services.interfaces.Algorithm;
+import services.interfaces.ProgressListener;
+import services.metrics.RequestMetrics;
+import services.utils.OntologyContext;
 
 public class AlgorithmRunnerTest {
     private String sourceFileLocation = TestConfig.sourceFileLocation;
@@ -24,4 +64,267 @@ public class AlgorithmRunnerTest {
         assertNotNull(runner.run(sourceFile, targetFile, 
           picker.pickAlgorithms(sourceFile, targetFile, useEquivalence, useSubsumption)));
     }
+
+    @Test
+    public void testRunConcurrently() throws Exception {
+        boolean useEquivalence = true;
+        boolean useSubsumption = true;
+
+        AlgorithmPicker picker = new AlgorithmPicker();
+        AlgorithmRunner runner = new AlgorithmRunner(4);
+
+        assertNotNull(runner.run(sourceFile, targetFile, 
+          picker.pickAlgorithms(sourceFile, targetFile, useEquivalence, useSubsumption)));
+    }
+
+    @Test
+    public void testRunWithBlocking() throws Exception {
+        boolean useEquivalence = true;
+        boolean useSubsumption = true;
+
+        OntologyContext context = OntologyContext.load(sourceFile, targetFile,
+          CandidateGenerators.fromSpec("token,ngram,hierarchy", null));
+        assertTrue(context.getCandidates().size() < context.getCandidates().crossProductSize());
+
+        AlgorithmPicker picker = new AlgorithmPicker();
+        AlgorithmRunner runner = new AlgorithmRunner();
+
+        assertNotNull(runner.run(context, picker.pickAlgorithms(context, useEquivalence, useSubsumption)));
+    }
+
+    @Test
+    public void testConcurrentRunMatchesSerialRun() throws Exception {
+        // the matchers share the parsed ontologies and the WordNet dictionary, running them together must not change
+        // their alignments. The concurrent run goes first, while the WordNet cache is still cold.
+        OntologyContext context = OntologyContext.load(sourceFile, targetFile);
+        Map<SemanticRelation, List<URIAlignment>> concurrent = new AlgorithmRunner(4).run(context, matchers());
+        Map<SemanticRelation, List<URIAlignment>> serial = new AlgorithmRunner().run(context, matchers());
+
+        assertEquals(serial.keySet(), concurrent.keySet());
+        int found = 0;
+        for (SemanticRelation relation : serial.keySet()) {
+            assertEquals(serial.get(relation).size(), concurrent.get(relation).size());
+            for (int i = 0; i < serial.get(relation).size(); i++) {
+                List<String> cells = cells(serial.get(relation).get(i));
+                assertEquals(relation + " " + i, cells, cells(concurrent.get(relation).get(i)));
+                found += cells.size();
+            }
+        }
+        assertTrue(found > 0);
+    }
+
+    // the matchers AlgorithmPicker may pick, apart from those needing the embeddings (new instances on every call)
+    private static Map<SemanticRelation, List<Algorithm>> matchers() {
+        Map<SemanticRelation, List<Algorithm>> algorithms = new EnumMap<SemanticRelation, List<Algorithm>>(SemanticRelation.class);
+        algorithms.put(SemanticRelation.Equivalence, Arrays.<Algorithm>asList(new BasicEQMatcher(),
+                new PropertyEquivalenceMatcherSigmoid(1), new GraphEquivalenceMatcherSigmoid(1), new LexicalEquivalenceMatcherSigmoid(1)));
+        algorithms.put(SemanticRelation.Subsumption, Arrays.<Algorithm>asList(new BasicSubsumptionMatcher(),
+                new CompoundMatcherSigmoid(1), new DefinitionSubsumptionMatcherSigmoid(1), new ContextSubsumptionMatcherSigmoid(1),
+                new LexicalSubsumptionMatcherSigmoid(1)));
+        return algorithms;
+    }
+
+    private static List<String> cells(URIAlignment alignment) throws Exception {
+        List<String> cells = new ArrayList<String>();
+        for (Cell cell : alignment) {
+            cells.add(cell.getObject1AsURI() + " " + cell.getObject2AsURI() + " " + cell.getRelation().getRelation() + " " + cell.getStrength());
+        }
+        Collections.sort(cells);
+        return cells;
+    }
+
+    // runs AlgorithmRunner.run on the picked algorithms, so the test can complete the slots meanwhile
+    private ExecutorService request = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        request.shutdownNow();
+    }
+
+    @Test(timeout = 60000)
+    public void testRunWhenPickedOutOfOrder() throws Exception {
+        // the second slot is picked (and its algorithm done) before the first, the result keeps the order of the slots
+        CompletableFuture<Algorithm> first = new CompletableFuture<Algorithm>();
+        CompletableFuture<Algorithm> second = new CompletableFuture<Algorithm>();
+        StubAlgorithm a = new StubAlgorithm("a");
+        StubAlgorithm b = new StubAlgorithm("b");
+        List<String> progress = Collections.synchronizedList(new ArrayList<String>());
+        Future<Map<SemanticRelation, List<URIAlignment>>> result = runWhenPicked(Arrays.asList(first, second),
+                (stage, detail, percent) -> progress.add(detail));
+
+        second.complete(b);
+        assertTrue(b.done.await(30, TimeUnit.SECONDS));
+        assertFalse(result.isDone());
+        first.complete(a);
+
+        List<URIAlignment> alignments = result.get().get(SemanticRelation.Equivalence);
+        assertEquals(2, alignments.size());
+        assertSame(a.alignment, alignments.get(0));
+        assertSame(b.alignment, alignments.get(1));
+        assertEquals(Arrays.asList(null, "StubAlgorithm (1 of 2)", "StubAlgorithm (2 of 2)"), progress);
+    }
+
+    @Test(timeout = 60000)
+    public void testRunWhenPickedDroppedSlot() throws Exception {
+        // a slot whose score is below the threshold is left out, and no longer counted in the progress
+        CompletableFuture<Algorithm> dropped = new CompletableFuture<Algorithm>();
+        CompletableFuture<Algorithm> picked = new CompletableFuture<Algorithm>();
+        StubAlgorithm a = new StubAlgorithm("a");
+        List<String> progress = Collections.synchronizedList(new ArrayList<String>());
+        Future<Map<SemanticRelation, List<URIAlignment>>> result = runWhenPicked(Arrays.asList(dropped, picked),
+                (stage, detail, percent) -> progress.add(detail));
+
+        dropped.complete(null);
+        picked.complete(a);
+
+        assertEquals(Arrays.asList(a.alignment), result.get().get(SemanticRelation.Equivalence));
+        assertEquals(Arrays.asList(null, "StubAlgorithm (1 of 1)"), progress);
+    }
+
+    @Test(timeout = 60000)
+    public void testRunWhenPickedFailureCancels() throws Exception {
+        // the profiling of the first slot fails while the second is being picked: the failure is rethrown, the slot still
+        // waiting is cancelled and the algorithm picked after the failure is never run
+        IOException failure = new IOException("profiling failed");
+        CompletableFuture<Algorithm> failing = new CompletableFuture<Algorithm>();
+        SlowSlot late = new SlowSlot();
+        CompletableFuture<Algorithm> waiting = new CompletableFuture<Algorithm>();
+        StubAlgorithm a = new StubAlgorithm("a");
+        Future<Map<SemanticRelation, List<URIAlignment>>> result = runWhenPicked(Arrays.asList(failing, late, waiting),
+                ProgressListener.NONE);
+
+        assertTrue(late.waited.await(30, TimeUnit.SECONDS));
+        Thread profiling = new Thread(() -> late.complete(a));
+        profiling.start();
+        assertTrue(late.picking.await(30, TimeUnit.SECONDS));
+        failing.completeExceptionally(failure);
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+        assertTrue(waiting.isCancelled());
+
+        late.release.countDown();
+        profiling.join();
+        assertFalse(a.done.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 60000)
+    public void testRunWhenPickedFailureStopsProgress() throws Exception {
+        // an algorithm that doesn't stop on the interrupt finishes after the run has failed, without reporting its progress
+        IOException failure = new IOException("profiling failed");
+        CompletableFuture<Algorithm> failing = new CompletableFuture<Algorithm>();
+        CompletableFuture<Algorithm> picked = new CompletableFuture<Algorithm>();
+        StubbornAlgorithm a = new StubbornAlgorithm("a");
+        CountDownLatch reported = new CountDownLatch(1);
+        Future<Map<SemanticRelation, List<URIAlignment>>> result = runWhenPicked(Arrays.asList(failing, picked),
+                (stage, detail, percent) -> {
+                    if (detail != null) {
+                        reported.countDown();
+                    }
+                });
+
+        picked.complete(a);
+        assertTrue(a.started.await(30, TimeUnit.SECONDS));
+        failing.completeExceptionally(failure);
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(failure, e.getCause());
+        }
+
+        a.release.countDown();
+        assertTrue(((StubAlgorithm) a).done.await(30, TimeUnit.SECONDS));
+        assertFalse(reported.await(1, TimeUnit.SECONDS));
+    }
+
+    private Future<Map<SemanticRelation, List<URIAlignment>>> runWhenPicked(List<CompletableFuture<Algorithm>> slots,
+            ProgressListener listener) {
+        Map<SemanticRelation, List<CompletableFuture<Algorithm>>> algorithms =
+                new EnumMap<SemanticRelation, List<CompletableFuture<Algorithm>>>(SemanticRelation.class);
+        algorithms.put(SemanticRelation.Equivalence, slots);
+        PickedAlgorithms picked = new PickedAlgorithms(algorithms, new ArrayList<CompletableFuture<Double>>());
+        AlgorithmRunner runner = new AlgorithmRunner(4);
+        // the stub algorithms don't read the ontologies
+        return request.submit(() -> runner.run((OntologyContext) null, picked, listener, RequestMetrics.NONE));
+    }
+
+    /*
+     * Returns an empty alignment of its own.
+     */
+    private static class StubAlgorithm implements Algorithm {
+        private final URIAlignment alignment = new URIAlignment();
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        StubAlgorithm(String name) throws Exception {
+            alignment.init(new URI("http://source/" + name), new URI("http://target/" + name));
+        }
+
+        @Override
+        public URIAlignment run(File onto1, File onto2) throws Exception {
+            done.countDown();
+            return alignment;
+        }
+
+        @Override
+        public URIAlignment run(OntologyContext context) throws Exception {
+            return run((File) null, (File) null);
+        }
+    }
+
+    /*
+     * An algorithm that waits to be released, and goes on waiting when it is interrupted.
+     */
+    private static class StubbornAlgorithm extends StubAlgorithm {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        StubbornAlgorithm(String name) throws Exception {
+            super(name);
+        }
+
+        @Override
+        public URIAlignment run(File onto1, File onto2) throws Exception {
+            started.countDown();
+            while (true) {
+                try {
+                    release.await();
+                    break;
+                } catch (InterruptedException e) {
+                    // keeps running, as a matcher busy computing does
+                }
+            }
+            return super.run(onto1, onto2);
+        }
+    }
+
+    /*
+     * A slot whose completion is held up until released, after the slot is complete (so it can no longer be cancelled)
+     * and before AlgorithmRunner gets the picked algorithm.
+     */
+    private static class SlowSlot extends CompletableFuture<Algorithm> {
+        private final CountDownLatch waited = new CountDownLatch(1);
+        private final CountDownLatch picking = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public CompletableFuture<Algorithm> whenComplete(BiConsumer<? super Algorithm, ? super Throwable> action) {
+            CompletableFuture<Algorithm> toReturn = super.whenComplete((algorithm, error) -> {
+                if (algorithm != null) {
+                    picking.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                action.accept(algorithm, error);
+            });
+            waited.countDown();
+            return toReturn;
+        }
+    }
 }
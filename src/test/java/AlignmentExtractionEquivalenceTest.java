@@ -0,0 +1,167 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.semanticweb.owl.align.Cell;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import algorithms.alignmentcombination.AlignmentConflictResolution;
+import algorithms.alignmentcombination.NaiveDescendingExtraction;
+import algorithms.utilities.AlignmentOperations;
+import fr.inrialpes.exmo.align.impl.BasicConfidence;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import fr.inrialpes.exmo.align.impl.rel.A5AlgebraRelation;
+import fr.inrialpes.exmo.align.parser.AlignmentParser;
+
+/* Checks that the one-to-one extraction and the conflict resolution give exactly
+ * the same cells, in the same order, as the original quadratic implementations
+ * (kept below as reference) on the alignments of the evaluation folders. */
+public class AlignmentExtractionEquivalenceTest {
+    private String evaluationFolder = "files/_PHD_EVALUATION";
+
+    @Test
+    public void testNaiveDescendingExtraction() throws Exception {
+        List<File> files = getAlignmentFiles();
+        assertFalse(files.isEmpty());
+
+        for (File file : files) {
+            URIAlignment alignment = parse(file);
+            assertEquals(file.getPath(), toList(referenceExtractOneToOneRelations(alignment)),
+              toList(NaiveDescendingExtraction.extractOneToOneRelations(alignment)));
+        }
+    }
+
+    @Test
+    public void testAlignmentConflictResolution() throws Exception {
+        List<File> files = getAlignmentFiles();
+        assertFalse(files.isEmpty());
+
+        for (File file : files) {
+            URIAlignment alignment = parse(file);
+            assertEquals(file.getPath(), resolveOrFail(alignment, true), resolveOrFail(alignment, false));
+        }
+    }
+
+    /* the cells, or the exception, so that failing on an id without a profile score is compared too */
+    private List<String> resolveOrFail(URIAlignment alignment, boolean reference) {
+        try {
+            return toList(reference ? referenceResolveAlignmentConflict(alignment)
+              : AlignmentConflictResolution.resolveAlignmentConflict(alignment));
+        } catch (Exception e) {
+            List<String> failure = new ArrayList<String>();
+            failure.add(e.getClass().getName());
+            return failure;
+        }
+    }
+
+    private List<File> getAlignmentFiles() {
+        List<File> files = new ArrayList<File>();
+        collectAlignmentFiles(new File(evaluationFolder), files);
+        return files;
+    }
+
+    /* all alignments except the ontologies themselves */
+    private void collectAlignmentFiles(File folder, List<File> files) {
+        File[] children = folder.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (!child.getName().equals("ONTOLOGIES")) {
+                    collectAlignmentFiles(child, files);
+                }
+            } else if (child.getName().endsWith(".rdf")) {
+                files.add(child);
+            }
+        }
+    }
+
+    private URIAlignment parse(File file) throws Exception {
+        AlignmentParser parser = new AlignmentParser();
+        return (URIAlignment) parser.parse(file.toURI().toString());
+    }
+
+    private List<String> toList(URIAlignment alignment) throws Exception {
+        List<String> cells = new ArrayList<String>();
+        for (Cell c : alignment) {
+            cells.add(c.getId() + " " + c.getObject1AsURI() + " " + c.getObject2AsURI() + " "
+              + c.getRelation().getRelation() + " " + c.getStrength());
+        }
+        return cells;
+    }
+
+    /* the original implementation of NaiveDescendingExtraction.extractOneToOneRelations */
+    private URIAlignment referenceExtractOneToOneRelations(URIAlignment alignment) throws Exception {
+        List<Cell> cellsList = AlignmentOperations.sortAlignment(alignment);
+        List<Cell> extractionList = new LinkedList<Cell>();
+        Iterator<Cell> itr = cellsList.iterator();
+        Set<Cell> removed = new HashSet<Cell>();
+
+        while (itr.hasNext()) {
+            Cell thisCell = itr.next();
+            if (!removed.contains(thisCell)) {
+                extractionList.add(thisCell);
+                itr.remove();
+            }
+            removed.addAll(NaiveDescendingExtraction.getAlternatives(cellsList, thisCell));
+        }
+
+        return toAlignment(alignment, extractionList);
+    }
+
+    /* the original implementation of AlignmentConflictResolution.resolveAlignmentConflict */
+    private URIAlignment referenceResolveAlignmentConflict(URIAlignment alignment) throws Exception {
+        List<Cell> cellsList = AlignmentOperations.sortAlignment(alignment);
+        List<Cell> extractionList = new LinkedList<Cell>();
+        Iterator<Cell> itr = cellsList.iterator();
+        Set<Cell> removed = new HashSet<Cell>();
+
+        while (itr.hasNext()) {
+            Cell thisCell = itr.next();
+            if (!removed.contains(thisCell)) {
+                for (Cell alt : AlignmentConflictResolution.getSameObjectsAlternatives(cellsList, thisCell)) {
+                    if (alt.getStrength() == thisCell.getStrength()) {
+                        if (getProfileScore(thisCell) > getProfileScore(alt)) {
+                            extractionList.add(thisCell);
+                            removed.add(alt);
+                        } else {
+                            extractionList.add(alt);
+                            removed.add(thisCell);
+                        }
+                    }
+                    removed.add(alt);
+                }
+                if (!removed.contains(thisCell)) {
+                    extractionList.add(thisCell);
+                }
+            }
+            itr.remove();
+        }
+
+        return toAlignment(alignment, extractionList);
+    }
+
+    private double getProfileScore(Cell c) {
+        String[] splitted = c.getId().split("_");
+        return Double.parseDouble(splitted[splitted.length - 1]);
+    }
+
+    private URIAlignment toAlignment(URIAlignment alignment, List<Cell> cells) throws Exception {
+        URIAlignment extractedAlignment = new URIAlignment();
+        for (Cell c : cells) {
+            extractedAlignment.addAlignCell(c.getId(), c.getObject1(), c.getObject2(), c.getRelation().getRelation(), c.getStrength());
+        }
+        extractedAlignment.init(alignment.getOntology1URI(), alignment.getOntology2URI(),
+          A5AlgebraRelation.class, BasicConfidence.class);
+        return extractedAlignment;
+    }
+
+}
@@ -0,0 +1,224 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owl.align.Cell;
+
+import algorithms.blocking.CandidateGenerator;
+import algorithms.blocking.CandidatePairs;
+import algorithms.blocking.EmbeddingBlocking;
+import algorithms.blocking.HierarchyBlocking;
+import algorithms.blocking.NGramBlocking;
+import algorithms.blocking.TokenBlocking;
+import algorithms.blocking.UnionBlocking;
+import algorithms.equivalencematching.BasicEQMatcher;
+import algorithms.equivalencematching.GraphEquivalenceMatcherSigmoid;
+import algorithms.subsumptionmatching.ContextSubsumptionMatcherSigmoid;
+import algorithms.utilities.OntologyFeatureIndex;
+import algorithms.wordembedding.EmbeddingStore;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
+
+/*
+ * Each blocking strategy has to keep the equally named classes of the test ontologies as candidates (recall), and a matcher
+ * run on the candidates has to give the cells of a full run for those pairs (output).
+ */
+public class CandidateGeneratorsTest {
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static File sourceFile = new File(TestConfig.sourceFileLocation);
+    private static File targetFile = new File(TestConfig.targetFileLocation);
+
+    private static OntologyContext full;
+    // the matchers that run without the embeddings, WordNet or the tagger model
+    private static List<List<String>> fullCells = new ArrayList<List<String>>();
+    private static EmbeddingStore store;
+
+    private static final int DIMENSION = 16;
+
+    @BeforeClass
+    public static void load() throws Exception {
+        full = OntologyContext.load(sourceFile, targetFile);
+        for (Algorithm matcher : matchers()) {
+            fullCells.add(cells(matcher.run(full)));
+        }
+        store = createStore(full);
+    }
+
+    @Test
+    public void testTokenBlocking() throws Exception {
+        checkCandidates(new TokenBlocking(0.1));
+    }
+
+    @Test
+    public void testNGramBlocking() throws Exception {
+        checkCandidates(new NGramBlocking(3, 0.5));
+    }
+
+    @Test
+    public void testEmbeddingBlocking() throws Exception {
+        checkCandidates(new EmbeddingBlocking(store, 5));
+    }
+
+    @Test
+    public void testHierarchyBlocking() throws Exception {
+        checkCandidates(new HierarchyBlocking(1));
+    }
+
+    @Test
+    public void testUnionBlocking() throws Exception {
+        CandidateGenerator token = new TokenBlocking(0.1);
+        CandidateGenerator hierarchy = new HierarchyBlocking(1);
+        CandidatePairs union = checkCandidates(new UnionBlocking(Arrays.asList(token, hierarchy)));
+
+        // the union holds the pairs of each strategy, and only those
+        OntologyFeatureIndex source = full.getSourceIndex();
+        OntologyFeatureIndex target = full.getTargetIndex();
+        CandidatePairs tokenPairs = token.generate(source, target);
+        CandidatePairs hierarchyPairs = hierarchy.generate(source, target);
+        for (int s = 0; s < source.size(); s++) {
+            for (int t = 0; t < target.size(); t++) {
+                assertEquals(tokenPairs.contains(s, t) || hierarchyPairs.contains(s, t), union.contains(s, t));
+            }
+        }
+    }
+
+    private static CandidatePairs checkCandidates(CandidateGenerator generator) throws Exception {
+        OntologyContext context = OntologyContext.load(sourceFile, targetFile, generator);
+        CandidatePairs candidates = context.getCandidates();
+        OntologyFeatureIndex source = context.getSourceIndex();
+        OntologyFeatureIndex target = context.getTargetIndex();
+        assertTrue(candidates.toString(), candidates.size() < candidates.crossProductSize());
+
+        // recall: the equally named classes are candidates
+        int sameNames = 0;
+        for (int s = 0; s < source.size(); s++) {
+            for (int t = 0; t < target.size(); t++) {
+                if (source.getLowerCaseName(s).equals(target.getLowerCaseName(t))) {
+                    assertTrue(source.getName(s), candidates.contains(s, t));
+                    sameNames++;
+                }
+            }
+        }
+        assertTrue(sameNames > 0);
+
+        // output: the cells of the full run for the candidate pairs
+        Set<String> pairs = new HashSet<String>();
+        for (int s = 0; s < source.size(); s++) {
+            for (int t : candidates.getTargets(s)) {
+                pairs.add(source.getOWLClass(s).getIRI().toURI() + " " + target.getOWLClass(t).getIRI().toURI());
+            }
+        }
+        List<Algorithm> matchers = matchers();
+        int kept = 0;
+        for (int i = 0; i < matchers.size(); i++) {
+            List<String> expected = new ArrayList<String>();
+            for (String cell : fullCells.get(i)) {
+                String[] fields = cell.split(" ");
+                if (pairs.contains(fields[0] + " " + fields[1])) {
+                    expected.add(cell);
+                }
+            }
+            assertEquals(matchers.get(i).getClass().getSimpleName(), expected, cells(matchers.get(i).run(context)));
+            kept += expected.size();
+        }
+        assertTrue(kept > 0);
+        return candidates;
+    }
+
+    private static List<Algorithm> matchers() {
+        return Arrays.<Algorithm>asList(new BasicEQMatcher(), new GraphEquivalenceMatcherSigmoid(1), new ContextSubsumptionMatcherSigmoid(1));
+    }
+
+    private static List<String> cells(URIAlignment alignment) throws Exception {
+        List<String> cells = new ArrayList<String>();
+        for (Cell cell : alignment) {
+            cells.add(cell.getObject1AsURI() + " " + cell.getObject2AsURI() + " " + cell.getRelation().getRelation() + " " + cell.getStrength());
+        }
+        Collections.sort(cells);
+        return cells;
+    }
+
+    /*
+     * A store with a random vector for each lowercased compound part and name of the two ontologies, so that the label
+     * vectors of equally named classes are the same and those of other classes are (almost always) not. A name that is
+     * a compound in the other ontology (InBook and Inbook) gets the average vector of the compound parts.
+     */
+    private static EmbeddingStore createStore(OntologyContext context) throws Exception {
+        Map<String, double[]> vectors = new TreeMap<String, double[]>();
+        List<OntologyFeatureIndex> indexes = Arrays.asList(context.getSourceIndex(), context.getTargetIndex());
+        for (OntologyFeatureIndex index : indexes) {
+            for (int i = 0; i < index.size(); i++) {
+                if (index.isCompound(i)) {
+                    for (String part : index.getCompoundParts(i)) {
+                        vectors.put(part.toLowerCase(), randomVector(part.toLowerCase()));
+                    }
+                }
+            }
+        }
+        for (OntologyFeatureIndex index : indexes) {
+            for (int i = 0; i < index.size(); i++) {
+                if (index.isCompound(i)) {
+                    String[] parts = index.getCompoundParts(i);
+                    double[] average = new double[DIMENSION];
+                    for (String part : parts) {
+                        double[] vector = vectors.get(part.toLowerCase());
+                        for (int d = 0; d < DIMENSION; d++) {
+                            average[d] += vector[d] / parts.length;
+                        }
+                    }
+                    vectors.put(index.getLowerCaseName(i), average);
+                }
+            }
+        }
+        for (OntologyFeatureIndex index : indexes) {
+            for (int i = 0; i < index.size(); i++) {
+                if (!vectors.containsKey(index.getLowerCaseName(i))) {
+                    vectors.put(index.getLowerCaseName(i), randomVector(index.getLowerCaseName(i)));
+                }
+            }
+        }
+
+        File text = folder.newFile("embeddings.txt");
+        try (PrintWriter writer = new PrintWriter(text, StandardCharsets.UTF_8.name())) {
+            for (Map.Entry<String, double[]> entry : vectors.entrySet()) {
+                StringBuilder line = new StringBuilder(entry.getKey());
+                for (double value : entry.getValue()) {
+                    line.append(String.format(Locale.ROOT, " %.6f", value));
+                }
+                writer.println(line);
+            }
+        }
+        File binary = new File(folder.getRoot(), "embeddings" + EmbeddingStore.BINARY_EXTENSION);
+        EmbeddingStore.convert(text, binary);
+        return EmbeddingStore.open(binary);
+    }
+
+    private static double[] randomVector(String word) {
+        Random random = new Random(word.hashCode());
+        double[] vector = new double[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = random.nextGaussian();
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,63 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import algorithms.utilities.ISub;
+import benchmarks.ISubReference;
+
+/* Checks that ISub gives bit-identical scores to the original implementation
+ * (ISubReference), both for strings and for prepared labels. */
+public class ISubEquivalenceTest {
+    private ISub iSub = new ISub();
+    private ISubReference reference = new ISubReference();
+
+    @Test
+    public void testScore() throws Exception {
+        List<String> names = getNames();
+        assertFalse(names.isEmpty());
+
+        for (String s1 : names) {
+            ISub.Label label1 = ISub.label(s1);
+            for (String s2 : names) {
+                long expected = Double.doubleToLongBits(reference.score(s1, s2));
+                assertEquals(s1 + " / " + s2, expected, Double.doubleToLongBits(iSub.score(s1, s2)));
+                assertEquals(s1 + " / " + s2, expected, Double.doubleToLongBits(iSub.score(label1, ISub.label(s2))));
+            }
+        }
+    }
+
+    @Test
+    public void testNullScore() {
+        assertEquals(-1, iSub.score("publication", null), 0);
+        assertEquals(-1, iSub.score(ISub.label(null), ISub.label("publication")), 0);
+    }
+
+    /* the local names in the test ontologies, and some strings exercising the normalization and the buffers */
+    private List<String> getNames() throws Exception {
+        Set<String> names = new LinkedHashSet<String>(Arrays.asList("", ".", "_ _", "publication", "published",
+          "Publication_Date", "publication.date", "PUBLICATION DATE", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa",
+          "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaab"));
+
+        Pattern fragment = Pattern.compile("rdf:(?:about|ID|resource)=\"[^\"]*#([^\"]+)\"");
+        for (String file : new String[] { "files/test/301302-301.rdf", "files/test/301302-302.rdf" }) {
+            String content = new String(Files.readAllBytes(new File(file).toPath()), StandardCharsets.UTF_8);
+            Matcher m = fragment.matcher(content);
+            while (m.find()) {
+                names.add(m.group(1));
+            }
+        }
+        return new ArrayList<String>(names);
+    }
+}
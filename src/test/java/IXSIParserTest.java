@@ -1,8 +1,17 @@
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 
 import services.parsers.schema.IXSIParser;
+import services.utils.OntologyConcept;
 
 public class IXSIParserTest {
     private IXSIParser parser = new IXSIParser();
@@ -11,5 +20,38 @@ public class IXSIParserTest {
     public void testParse() throws Exception {
         assertNotNull(parser.parse("files/test/IXSI.xsd"));
     }
-    
+
+    @Test
+    public void testConceptsMatchBaseline() throws Exception {
+        // IXSI-concepts.tsv has the name, domain and range of each concept, in the order the xsdparser based parser gave them
+        List<String> baseline = Files.readAllLines(Paths.get("files/test/IXSI-concepts.tsv"), StandardCharsets.UTF_8);
+        assertEquals(baseline, rows(parser.parse("files/test/IXSI.xsd")));
+    }
+
+    @Test
+    public void testIncludesAndImports() throws Exception {
+        // root.xsd includes common/types.xsd and imports other.xsd, which includes common/types.xsd again (and a missing file).
+        // The files follow breadth-first, each once; the remote import is not fetched.
+        List<OntologyConcept> concepts = parser.parse("files/test/xsd-include/root.xsd");
+        assertEquals(Arrays.asList(
+                "RootType\t\t",
+                "Shared\tRootType\tstring",
+                "Local\tRootType\tNameType",
+                "Link\tRootType\tLinkType",
+                "Root\t\tRootType",
+                "NameType\t\t",
+                "Shared\t\tstring",
+                "OtherType\t\t",
+                "Code\tOtherType\tint"), rows(concepts));
+        assertEquals("The root.", concepts.get(0).description);
+        assertEquals("Declared once, included twice.", concepts.get(1).description);
+    }
+
+    private List<String> rows(List<OntologyConcept> concepts) {
+        List<String> rows = new ArrayList<String>();
+        for (OntologyConcept concept : concepts) {
+            rows.add(concept.name + "\t" + concept.domain + "\t" + concept.range);
+        }
+        return rows;
+    }
 }
@@ -1,6 +1,15 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+
 import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
 
 import services.InputParser;
 
@@ -11,5 +20,27 @@ public class InputParserTest {
     public void testParse() throws Exception {
         assertNotNull(parser.parseInput("files/test/IXSI.xsd", "files/test/output.owl"));
     }
-    
+
+    @Test
+    public void testParseToOntologyMatchesBaseline() throws Exception {
+        // IXSI-baseline.owl was written by parseInput before the parsers were replaced (xsdparser and OWL file)
+        OWLOntology inMemory = parser.parseToOntology("files/test/IXSI.xsd");
+        OWLOntology baseline = OWLManager.createOWLOntologyManager()
+                .loadOntologyFromOntologyDocument(new File("files/test/IXSI-baseline.owl"));
+
+        assertFalse(inMemory.getClassesInSignature().isEmpty());
+        assertEquals(axioms(baseline), axioms(inMemory));
+    }
+
+    /*
+     * Every parse gets a new random ontology IRI, so the entities are compared by their names in it
+     */
+    private Set<String> axioms(OWLOntology ontology) {
+        String base = ontology.getOntologyID().getOntologyIRI().toString() + "#";
+        Set<String> axioms = new TreeSet<String>();
+        for (OWLAxiom axiom : ontology.getAxioms()) {
+            axioms.add(axiom.toString().replace(base, "#"));
+        }
+        return axioms;
+    }
 }
@@ -0,0 +1,179 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.Manager;
+import services.cache.ResultCache;
+import services.enums.JobStage;
+import services.interfaces.ProgressListener;
+import services.jobs.Job;
+import services.jobs.JobManager;
+import services.utils.AlignmentJsonWriter;
+import services.utils.ExceptionHandler;
+
+/*
+ * The jobs run a stub Manager, so these tests cover the job handling (queueing, progress, results and failures)
+ * without the matcher resources. ManagerTest covers the alignment itself.
+ */
+public class JobManagerTest {
+    private long retentionMillis = 60 * 1000L;
+
+    @Test(timeout = 60000)
+    public void testSubmit() throws Exception {
+        StubManager manager = new StubManager(null);
+        JobManager jobManager = new JobManager(manager, 1, 1, retentionMillis);
+        try {
+            Job job = jobManager.submit(TestConfig.sourceFileLocation, TestConfig.targetFileLocation, true, true, TestConfig.baseSaveLocationHandle);
+            assertSame(job, jobManager.getJob(job.getId()));
+
+            // the progress reported by the manager is the status of the job
+            manager.matching.await();
+            assertEquals(JobStage.MATCHING, job.getStage());
+            assertEquals(50, job.getPercent());
+            assertNull(job.getResult());
+
+            manager.release.countDown();
+            job.awaitFinished();
+            assertEquals(job.getErrorMessage(), JobStage.DONE, job.getStage());
+            assertEquals(100, job.getPercent());
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            AlignmentJsonWriter.writeGzip(job.getResult(), json, false);
+            // the API names the cell's second entity the source (see CellParser)
+            assertEquals("[{\"source\": \"B\", \"target\": \"A\", \"relation\": \"=\", \"confidence\": 0.90}]",
+                    new String(json.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            jobManager.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testFailedJob() throws Exception {
+        FileNotFoundException failure = new FileNotFoundException("missing");
+        StubManager manager = new StubManager(failure);
+        manager.release.countDown();
+        JobManager jobManager = new JobManager(manager, 1, 1, retentionMillis);
+        try {
+            Job job = jobManager.submit(TestConfig.sourceFileLocation, TestConfig.targetFileLocation, true, true, TestConfig.baseSaveLocationHandle);
+            job.awaitFinished();
+            assertEquals(JobStage.FAILED, job.getStage());
+            assertEquals(ExceptionHandler.getErrorMessage(failure), job.getErrorMessage());
+            assertNull(job.getResult());
+        } finally {
+            jobManager.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testLateProgressAfterFailure() throws Exception {
+        // a matcher still running when the job failed reports its progress afterwards
+        StubManager manager = new StubManager(new FileNotFoundException("missing"));
+        manager.release.countDown();
+        JobManager jobManager = new JobManager(manager, 1, 1, retentionMillis);
+        try {
+            Job job = jobManager.submit(TestConfig.sourceFileLocation, TestConfig.targetFileLocation, true, true, TestConfig.baseSaveLocationHandle);
+            job.awaitFinished();
+            assertEquals(JobStage.FAILED, job.getStage());
+
+            manager.listener.onProgress(JobStage.MATCHING, "BasicEQMatcher (1 of 1)", 80);
+            assertEquals(JobStage.FAILED, job.getStage());
+            assertTrue(job.getStage().isFinished());
+            assertEquals(50, job.getPercent());
+        } finally {
+            jobManager.shutdown();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class, timeout = 60000)
+    public void testSubmitWhenQueueIsFull() throws Exception {
+        // one job runs (until released), one waits, the third is refused
+        StubManager manager = new StubManager(null);
+        JobManager jobManager = new JobManager(manager, 1, 1, retentionMillis);
+        try {
+            for (int i = 0; i < 3; i++) {
+                jobManager.submit(TestConfig.sourceFileLocation, TestConfig.targetFileLocation, true, true, TestConfig.baseSaveLocationHandle + i);
+            }
+        } finally {
+            manager.release.countDown();
+            jobManager.shutdown();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void testConcurrentSubmitsAllFinish() throws Exception {
+        // uploads from several threads reach the admission and the executor in any order, none of them may wait forever
+        StubManager manager = new StubManager(null);
+        manager.release.countDown();
+        JobManager jobManager = new JobManager(manager, 2, 20, retentionMillis);
+        ExecutorService uploads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Job>> submitted = new ArrayList<Future<Job>>();
+            for (int i = 0; i < 20; i++) {
+                String baseSaveLocation = TestConfig.baseSaveLocationHandle + "concurrent" + i;
+                submitted.add(uploads.submit(() -> jobManager.submit(TestConfig.sourceFileLocation, TestConfig.targetFileLocation,
+                        true, true, baseSaveLocation)));
+            }
+            for (Future<Job> future : submitted) {
+                Job job = future.get();
+                job.awaitFinished();
+                assertEquals(job.getErrorMessage(), JobStage.DONE, job.getStage());
+            }
+            assertEquals(0, jobManager.getQueueSize());
+        } finally {
+            uploads.shutdown();
+            jobManager.shutdown();
+        }
+    }
+
+    /*
+     * Reports the matching stage, waits to be released and returns a one-cell alignment (or throws the failure).
+     * Without a result cache, so every submit runs.
+     */
+    private static class StubManager extends Manager {
+        private final Exception failure;
+        private final CountDownLatch matching = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        // the listener of the last job handled
+        private volatile ProgressListener listener;
+
+        StubManager(Exception failure) {
+            this.failure = failure;
+        }
+
+        @Override
+        public ResultCache getResultCache() {
+            return null;
+        }
+
+        @Override
+        public URIAlignment handle(String sourceFilePath, String targetFilePath, boolean useEquivalence,
+                boolean useSubsumption, String baseSaveLocation, ProgressListener listener) throws Exception {
+            this.listener = listener;
+            listener.onProgress(JobStage.MATCHING, "BasicEQMatcher (1 of 1)", 50);
+            matching.countDown();
+            release.await();
+            if (failure != null) {
+                throw failure;
+            }
+            URIAlignment alignment = new URIAlignment();
+            alignment.init(new URI("http://source"), new URI("http://target"));
+            alignment.addAlignCell(new URI("http://source#A"), new URI("http://target#B"), "=", 0.9);
+            return alignment;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import services.metrics.Metrics;
+import services.metrics.RequestMetrics;
+
+public class MetricsTest {
+
+    @Test
+    public void testRequestMetrics() {
+        RequestMetrics metrics = RequestMetrics.start();
+        long start = metrics.now();
+        metrics.stage("parsing", start);
+        metrics.matcher("BasicEQMatcher", start, 42);
+        metrics.ontologySizes(120, 95);
+        metrics.finish(true);
+
+        String prometheus = Metrics.toPrometheus();
+        assertTrue(prometheus.contains("# TYPE semanticmatcher_stage_seconds histogram"));
+        assertTrue(prometheus.contains("semanticmatcher_stage_seconds_bucket{stage=\"parsing\",le=\"+Inf\"}"));
+        assertTrue(prometheus.contains("semanticmatcher_matcher_cells_total{matcher=\"BasicEQMatcher\"}"));
+        assertTrue(prometheus.contains("semanticmatcher_ontology_classes_count{ontology=\"source\"}"));
+    }
+
+    @Test
+    public void testGauge() {
+        Metrics.gauge("semanticmatcher_test_ratio", "A test gauge", () -> 0.25);
+        assertTrue(Metrics.toPrometheus().contains("semanticmatcher_test_ratio 0.25\n"));
+    }
+}
@@ -1,9 +1,12 @@
-
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 
+import java.util.List;
+
 import org.junit.Test;
 
 import services.parsers.schema.NeTExParser;
+import services.utils.OntologyConcept;
 import services.utils.Unzipper;
 
 public class NeTExParserTest {
@@ -13,5 +16,25 @@ public class NeTExParserTest {
     public void testParse() throws Exception {
         assertNotNull(parser.parse(Unzipper.unzip("files/parse_files/NeTEx_xsd.zip", "temp/parse_files/xsd")));
     }
-    
+
+    @Test
+    public void testIncludedSchemasAreRead() throws Exception {
+        List<OntologyConcept> concepts = parser.parse(Unzipper.unzip("files/parse_files/NeTEx_xsd.zip", "temp/parse_files/xsd"));
+        assertEquals(4445, concepts.size());
+        // from the frames, included through several levels of netex_framework
+        assertEquals(1, count(concepts, "ResourceFrame_VersionFrameStructure"));
+        // from the GML extracts, which use the xsd prefix without declaring it and are included from several files
+        assertEquals(1, count(concepts, "PointType"));
+        assertEquals(1, count(concepts, "AbstractGMLType"));
+    }
+
+    private int count(List<OntologyConcept> concepts, String name) {
+        int count = 0;
+        for (OntologyConcept concept : concepts) {
+            if (concept.name.equals(name) && concept.domain.equals("")) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import algorithms.ontologyprofiling.OntologyProfiler;
+import algorithms.wordembedding.EmbeddingStore;
+
+/* The profiling metrics run at the same time on the profiler pool and split their WordNet lookups across parallel streams,
+ * which must give the scores of computing them one after the other on a single thread. */
+public class OntologyProfilerTest {
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static OWLOntology source;
+    private static OWLOntology target;
+    private static EmbeddingStore store;
+
+    @BeforeClass
+    public static void load() throws Exception {
+        OWLOntologyManager manager = OWLManager.createOWLOntologyManager();
+        source = manager.loadOntologyFromOntologyDocument(new File(TestConfig.sourceFileLocation));
+        target = manager.loadOntologyFromOntologyDocument(new File(TestConfig.targetFileLocation));
+
+        // a few of the tokens of the test ontologies, for the corpus coverage
+        File text = folder.newFile("embeddings.txt");
+        try (PrintWriter writer = new PrintWriter(text, StandardCharsets.UTF_8.name())) {
+            for (String word : Arrays.asList("book", "article", "journal", "report", "publisher", "person", "address")) {
+                writer.println(word + " 0.1 0.2 0.3");
+            }
+        }
+        File binary = new File(folder.getRoot(), "embeddings" + EmbeddingStore.BINARY_EXTENSION);
+        EmbeddingStore.convert(text, binary);
+        store = EmbeddingStore.open(binary);
+    }
+
+    @Test
+    public void testParallelScoresMatchSequentialScores() throws Exception {
+        // the parallel run goes first, while the WordNet cache is still cold
+        Map<String, Double> parallel = OntologyProfiler.computeOntologyProfileScores(source, target, store, true, true);
+
+        // a pool of one thread runs the parallel streams of the metrics on that thread
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            Map<String, Double> sequential = single.submit(() -> {
+                Map<String, Double> scores = new HashMap<String, Double>();
+                scores.put("cf", OntologyProfiler.computeCompoundFraction(source, target));
+                scores.put("cc", OntologyProfiler.computeCorpusCoverage(source, target, store));
+                scores.put("pf", OntologyProfiler.computePropertyFraction(source, target));
+                scores.put("dc", OntologyProfiler.computeDefinitionCoverage(source, target));
+                scores.put("sp", OntologyProfiler.computeStructuralProfile(source, target));
+                scores.put("lc", OntologyProfiler.computeLexicalCoverage(source, target));
+                return scores;
+            }).get();
+
+            assertEquals(sequential, parallel);
+        } finally {
+            single.shutdown();
+        }
+    }
+}
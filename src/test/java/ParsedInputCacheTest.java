@@ -0,0 +1,92 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import algorithms.utilities.OntologyFeatureIndex;
+import services.cache.ParsedInputCache;
+
+public class ParsedInputCacheTest {
+    private File directory = new File(TestConfig.baseSaveLocationHandle + "/parsedinputcache");
+
+    @After
+    public void cleanUp() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testOntologyAndIndexAreCached() throws Exception {
+        ParsedInputCache cache = new ParsedInputCache(directory, "1", 1024L * 1024 * 1024);
+        File upload = new File(TestConfig.sourceFileLocation);
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(upload);
+
+        String key = cache.key(upload);
+        assertEquals(key, cache.key(upload));
+        assertNull(cache.acquire(key));
+        cache.putOntology(key, ontology);
+        OntologyFeatureIndex built = cache.getIndex(key, ontology);
+        cache.release(key);
+
+        File cached = cache.acquire(key);
+        assertNotNull(cached);
+        OWLOntology reloaded = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(cached);
+        OntologyFeatureIndex read = cache.getIndex(key, reloaded);
+        cache.release(key);
+
+        assertEquals(built.size(), read.size());
+        for (int id = 0; id < read.size(); id++) {
+            int builtId = built.getId(built.getOntology().getOWLOntologyManager().getOWLDataFactory()
+                    .getOWLClass(read.getOWLClass(id).getIRI()));
+            assertEquals(built.getAllParents(builtId).length, read.getAllParents(id).length);
+            assertEquals(built.getProperties(builtId), read.getProperties(id));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        File source = new File(TestConfig.sourceFileLocation);
+        File target = new File(TestConfig.targetFileLocation);
+        OWLOntology sourceOntology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(source);
+        OWLOntology targetOntology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(target);
+        // room for about one of the two
+        ParsedInputCache cache = new ParsedInputCache(directory, "1", Math.max(source.length(), target.length()) * 3 / 2);
+
+        String sourceKey = cache.key(source);
+        cache.acquire(sourceKey);
+        cache.putOntology(sourceKey, sourceOntology);
+        cache.release(sourceKey);
+        String targetKey = cache.key(target);
+        cache.acquire(targetKey);
+        cache.putOntology(targetKey, targetOntology);
+        cache.release(targetKey);
+
+        assertEquals(1, cache.size());
+        assertNull(cache.acquire(sourceKey));
+        assertNotNull(cache.acquire(targetKey));
+    }
+
+    @Test
+    public void testOtherParserVersionIsDropped() throws Exception {
+        File upload = new File(TestConfig.sourceFileLocation);
+        OWLOntology ontology = OWLManager.createOWLOntologyManager().loadOntologyFromOntologyDocument(upload);
+        ParsedInputCache cache = new ParsedInputCache(directory, "1", 1024L * 1024 * 1024);
+        String key = cache.key(upload);
+        cache.acquire(key);
+        cache.putOntology(key, ontology);
+        cache.release(key);
+        assertNotNull(new ParsedInputCache(directory, "1", 1024L * 1024 * 1024).acquire(key));
+
+        // parsed by an earlier version of the parsers
+        ParsedInputCache newer = new ParsedInputCache(directory, "2", 1024L * 1024 * 1024);
+        assertEquals(0, newer.size());
+        assertNull(newer.acquire(key));
+        assertEquals(1, directory.listFiles().length);
+    }
+}
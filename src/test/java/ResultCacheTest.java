@@ -0,0 +1,54 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import services.cache.ResultCache;
+
+public class ResultCacheTest {
+    private File directory = new File(TestConfig.baseSaveLocationHandle + "/resultcache");
+    private File source = new File(TestConfig.sourceFileLocation);
+    private File target = new File(TestConfig.targetFileLocation);
+    private byte[] result = { 1, 2, 3 };
+
+    @After
+    public void cleanUp() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testResultIsKeptOnDisk() throws Exception {
+        ResultCache cache = new ResultCache(directory, 1024, 1024, Collections.<String>emptyList());
+        String key = cache.key(source, target, true, false);
+        assertNull(cache.get(key));
+        cache.put(key, result);
+        assertArrayEquals(result, cache.get(key));
+
+        // a new instance (a restart) only has the disk tier
+        assertArrayEquals(result, new ResultCache(directory, 1024, 1024, Collections.<String>emptyList()).get(key));
+    }
+
+    @Test
+    public void testRelationsArePartOfTheKey() throws Exception {
+        ResultCache cache = new ResultCache(directory, 1024, 1024, Collections.<String>emptyList());
+        assertNotEquals(cache.key(source, target, true, false), cache.key(source, target, true, true));
+        assertNotEquals(cache.key(source, target, true, false), cache.key(target, source, true, false));
+    }
+
+    @Test
+    public void testChangedResourceDropsResults() throws Exception {
+        ResultCache cache = new ResultCache(directory, 1024, 1024, Collections.<String>emptyList());
+        String key = cache.key(source, target, true, false);
+        cache.put(key, result);
+
+        ResultCache changed = new ResultCache(directory, 1024, 1024, Arrays.asList(TestConfig.sourceFileLocation));
+        assertNull(changed.get(key));
+    }
+}
@@ -0,0 +1,96 @@
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import algorithms.utilities.TextPipeline;
+import edu.stanford.nlp.simple.Sentence;
+
+/* Checks that the shared pipeline lemmatizes as the matchers did before it, with a new simple API Sentence per word. */
+public class TextPipelineTest {
+    // punctuation, contractions, possessives, abbreviations, numbers and words whose lemma depends on the tag
+    private static final List<String> WORDS = Arrays.asList("dogs", "dogs.", "dogs,", "(cars)", "\"quoted\"", "can't",
+            "children's", "U.S.", "e.g.", "3.5", "12345", "AT&T", "Mice", "running", "was", "better", "leaves", "saw",
+            "StopPlace", "hasStations", "co-operation", "etc.", "...", "?", "'s", "naïve", "");
+
+    private static final List<String> DEFINITIONS = Arrays.asList(
+            "A vehicle, e.g. a car; carrying passengers.",
+            "The stops (quays) where the buses leave, see: NeTEx.",
+            "hasTrainStations",
+            "Mice_and-men/Women>children's toys",
+            "It isn't the operator's duty to run the lines\nthat were cancelled, etc.",
+            "Code 12345",
+            "Some stop 1a2b3",
+            "");
+
+    @Test
+    public void testLemmaMatchesSentence() {
+        for (String word : WORDS) {
+            String expected = word.isEmpty() ? word : new Sentence(word).lemma(0);
+            assertEquals(word, expected, TextPipeline.lemma(word));
+        }
+    }
+
+    @Test
+    public void testLemmatizeMatchesSentence() {
+        List<String> tokens = new ArrayList<String>(WORDS.subList(0, WORDS.size() - 1));
+        List<String> expected = new ArrayList<String>();
+        for (String token : tokens) {
+            expected.add(new Sentence(token).lemma(0));
+        }
+        assertEquals(expected, TextPipeline.lemmatize(tokens));
+
+        // a token with a line break inside
+        tokens.add("stop\nplaces");
+        expected.add(new Sentence("stop\nplaces").lemma(0));
+        assertEquals(expected, TextPipeline.lemmatize(tokens));
+    }
+
+    @Test
+    public void testTokenizeAndLemmatizeMatchesSentence() {
+        for (String definition : DEFINITIONS) {
+            assertEquals(definition, sentenceTokenizeAndLemmatize(definition, true), TextPipeline.tokenizeAndLemmatize(definition, true));
+            assertEquals(definition, sentenceTokenizeAndLemmatize(definition, false), TextPipeline.tokenizeAndLemmatize(definition, false));
+        }
+    }
+
+    /*
+     * StringUtilities.tokenizeAndLemmatizeToList as it was before TextPipeline, lemmatizing each token with a new Sentence.
+     */
+    private static List<String> sentenceTokenizeAndLemmatize(String inputString, boolean lowercase) {
+        String stringWOStopWords = TextPipeline.removeStopWords(inputString);
+
+        List<String> strings = new ArrayList<String>();
+        String current = "";
+        char prevC = 'x';
+
+        for (char c : stringWOStopWords.toCharArray()) {
+            if ((Character.isLowerCase(prevC) && Character.isUpperCase(c)) ||
+                    c == '_' || c == '-' || c == ' ' || c == '/' || c == '\\' || c == '>') {
+                current = current.trim();
+                if (current.length() > 0) {
+                    String lemma = new Sentence(current).lemma(0);
+                    strings.add(lowercase ? lemma.toLowerCase() : lemma);
+                }
+                current = "";
+            }
+            if (c != '_' && c != '-' && c != '/' && c != '\\' && c != '>') {
+                current += c;
+                prevC = c;
+            }
+        }
+
+        current = current.trim();
+        if (current.length() > 0) {
+            if (!(current.length() > 4 && Character.isDigit(current.charAt(0)) &&
+                    Character.isDigit(current.charAt(current.length() - 1)))) {
+                strings.add(new Sentence(current.toLowerCase()).lemma(0));
+            }
+        }
+
+        return strings;
+    }
+}
@@ -0,0 +1,173 @@
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import algorithms.utilities.WordNetRelatedness;
+import edu.cmu.lti.jawjaw.pobj.POS;
+import edu.cmu.lti.lexical_db.ILexicalDatabase;
+import edu.cmu.lti.lexical_db.data.Concept;
+import edu.cmu.lti.ws4j.impl.JiangConrath;
+import edu.cmu.lti.ws4j.impl.Resnik;
+import edu.cmu.lti.ws4j.util.WS4JConfiguration;
+
+/* Checks that WordNetRelatedness gives the scores of WS4J (as WordNet used it: most frequent sense, ic-semcor.dat).
+ * Both read the few synsets in files/test/wordnet, which keep their WordNet 3.0 offsets so the information content
+ * counts of ic-semcor.dat (packaged with WS4J) apply to them. */
+public class WordNetRelatednessTest {
+    private static final File DICT = new File("files/test/wordnet");
+
+    private static WordNetRelatedness relatedness;
+    private static JiangConrath jiangConrath;
+    private static Resnik resnik;
+    private static List<String> words = new ArrayList<String>();
+
+    @BeforeClass
+    public static void load() throws Exception {
+        try (InputStream ic = WordNetRelatednessTest.class.getClassLoader().getResourceAsStream("ic-semcor.dat")) {
+            relatedness = WordNetRelatedness.load(DICT, ic);
+        }
+        FixtureWordNet db = new FixtureWordNet();
+        WS4JConfiguration.getInstance().setMFS(true);
+        jiangConrath = new JiangConrath(db);
+        resnik = new Resnik(db);
+
+        words.addAll(db.firstSenses.keySet());
+        Collections.sort(words);
+        // a word that is not in the dictionary, and words with a part of speech
+        words.addAll(Arrays.asList("unicorn", "object#n", "object#v", "whole#v", "yawn#n", "person#a", "person#x", ""));
+    }
+
+    @Test
+    public void testJiangConrath() throws Exception {
+        for (String word1 : words) {
+            for (String word2 : words) {
+                assertEquals(word1 + " / " + word2, jiangConrath.calcRelatednessOfWords(word1, word2),
+                        relatedness.jiangConrath(word1, word2), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testResnik() throws Exception {
+        boolean related = false;
+        for (String word1 : words) {
+            for (String word2 : words) {
+                double expected = resnik.calcRelatednessOfWords(word1, word2);
+                assertEquals(word1 + " / " + word2, expected, relatedness.resnik(word1, word2), 0);
+                related |= expected > 0;
+            }
+        }
+        assertTrue(related);
+    }
+
+    @Test
+    public void testExamples() throws Exception {
+        // the lowest common subsumer of person and artifact is whole (not artifact, an instance hypernym of person),
+        // that of person and abstraction the virtual root
+        assertEquals(Math.log(128767.0 / 32734.0), relatedness.resnik("person", "artifact"), 1e-12);
+        assertEquals(0, relatedness.resnik("person", "abstraction"), 0);
+        // only the same words are most related, two words of the same synset have distance 0
+        assertEquals(WordNetRelatedness.MAX_SCORE, relatedness.jiangConrath("person", "person"), 0);
+        assertEquals(WordNetRelatedness.MAX_SCORE, relatedness.resnik("unicorn", "unicorn"), 0);
+        assertEquals(1 / -Math.log((128767 - 0.01) / 128767), relatedness.jiangConrath("person", "someone"), 1e-6);
+        // a part of speech after the word
+        assertEquals(0, relatedness.resnik("object#v", "person#n"), 0);
+        assertEquals(relatedness.resnik("object", "whole"), relatedness.resnik("object#n", "whole"), 0);
+        // causal_agent is a hypernym of person, but the path through it only reaches synsets already on the path through organism
+        assertEquals(Math.log(128767.0 / 69661.0), relatedness.resnik("person", "causal_agent"), 1e-12);
+        // the most frequent sense of being is organism
+        assertEquals(relatedness.resnik("organism", "person"), relatedness.resnik("being", "person"), 0);
+        assertEquals(0, relatedness.jiangConrath("unicorn", "person"), 0);
+    }
+
+    /*
+     * The synsets of the fixture for WS4J: the hypernyms ("@", NictWordNet doesn't follow the instance hypernyms either)
+     * from the data files and the senses in the order of the index files.
+     */
+    private static class FixtureWordNet implements ILexicalDatabase {
+        private Map<String, List<String>> hypernyms = new HashMap<String, List<String>>();
+        private Map<String, List<Concept>> senses = new HashMap<String, List<Concept>>();
+        private Map<String, String> firstSenses = new LinkedHashMap<String, String>();
+
+        FixtureWordNet() throws Exception {
+            for (POS pos : Arrays.asList(POS.n, POS.v)) {
+                String name = pos == POS.n ? "noun" : "verb";
+                for (String line : Files.readAllLines(new File(DICT, "data." + name).toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("  ")) {
+                        continue;
+                    }
+                    String[] fields = line.split(" ");
+                    List<String> synsetHypernyms = new ArrayList<String>();
+                    int pointers = 4 + Integer.parseInt(fields[3], 16) * 2;
+                    for (int i = 0; i < Integer.parseInt(fields[pointers]); i++) {
+                        String symbol = fields[pointers + 1 + i * 4];
+                        if (symbol.equals("@")) {
+                            synsetHypernyms.add(fields[pointers + 2 + i * 4] + "-" + pos);
+                        }
+                    }
+                    hypernyms.put(fields[0] + "-" + pos, synsetHypernyms);
+                }
+                for (String line : Files.readAllLines(new File(DICT, "index." + name).toPath(), StandardCharsets.UTF_8)) {
+                    if (line.startsWith("  ")) {
+                        continue;
+                    }
+                    String[] fields = line.trim().split(" ");
+                    List<Concept> concepts = new ArrayList<Concept>();
+                    for (int i = 4 + Integer.parseInt(fields[3]) + 2; i < fields.length; i++) {
+                        concepts.add(new Concept(fields[i] + "-" + pos, pos));
+                    }
+                    senses.put(fields[0] + "#" + pos, concepts);
+                    firstSenses.putIfAbsent(fields[0], concepts.get(0).getSynset());
+                }
+            }
+        }
+
+        @Override
+        public Concept getMostFrequentConcept(String word, String pos) {
+            Collection<Concept> concepts = getAllConcepts(word, pos);
+            return concepts.isEmpty() ? null : concepts.iterator().next();
+        }
+
+        @Override
+        public Collection<Concept> getAllConcepts(String word, String pos) {
+            List<Concept> concepts = senses.get(word + "#" + pos);
+            return concepts == null ? new ArrayList<Concept>() : concepts;
+        }
+
+        @Override
+        public Collection<String> getHypernyms(String synset) {
+            List<String> synsetHypernyms = hypernyms.get(synset);
+            return synsetHypernyms == null ? new ArrayList<String>() : synsetHypernyms;
+        }
+
+        @Override
+        public Concept findSynsetBySynset(String synset) {
+            return new Concept(synset, POS.valueOf(synset.substring(synset.length() - 1)));
+        }
+
+        @Override
+        public String conceptToString(String synset) {
+            return synset;
+        }
+
+        @Override
+        public Collection<String> getGloss(Concept concept, String linkString) {
+            return new ArrayList<String>();
+        }
+    }
+}
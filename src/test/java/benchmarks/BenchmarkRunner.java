@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* Runs the benchmarks with the GC profiler, so the allocation rate (gc.alloc.rate.norm,
+ * bytes per operation) is reported next to the time, and writes the results to
+ * target/jmh-result.json. The arguments are the usual JMH ones, e.g. a benchmark regexp
+ * such as "ParserBenchmark" (all benchmarks if none). Run with: mvn -Pbenchmark test-compile exec:exec */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (commandLine.getIncludes().isEmpty()) {
+            builder.include("benchmarks\\..*Benchmark");
+        }
+        Options options = builder
+          .parent(commandLine)
+          .addProfiler(GCProfiler.class)
+          .resultFormat(ResultFormatType.JSON)
+          .result("target/jmh-result.json")
+          .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithms.alignmentcombination.AlignmentConflictResolution;
+import algorithms.alignmentcombination.NaiveDescendingExtraction;
+import algorithms.alignmentcombination.ProfileWeight;
+import algorithms.alignmentcombination.ProfileWeightSubsumption;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.AlgorithmPicker;
+import services.AlgorithmRunner;
+import services.EmbeddingService;
+import services.enums.SemanticRelation;
+import services.settings.AlgorithmSettings;
+import services.utils.OntologyContext;
+
+/* Combines the alignments the picked matchers produce for the 301/302 test ontologies,
+ * which are computed once in the setup. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinationBenchmark {
+    private List<URIAlignment> eqAlignments;
+    private List<URIAlignment> subAlignments;
+    private URIAlignment combinedEQ;
+    private URIAlignment combinedSUB;
+
+    @Setup
+    public void setup() throws Exception {
+        OntologyContext context = Fixtures.loadOntologies();
+        AlgorithmPicker picker = new AlgorithmPicker(new EmbeddingService(AlgorithmSettings.VECTORFILE));
+        Map<SemanticRelation, List<URIAlignment>> results = new AlgorithmRunner().run(context,
+          picker.pickAlgorithms(context, true, true));
+
+        eqAlignments = results.get(SemanticRelation.Equivalence);
+        subAlignments = results.get(SemanticRelation.Subsumption);
+        combinedEQ = ProfileWeight.computeProfileWeightingEquivalence(eqAlignments);
+        combinedSUB = ProfileWeightSubsumption.computeProfileWeightingSubsumption(subAlignments);
+    }
+
+    @Benchmark
+    public URIAlignment profileWeightEquivalence() throws Exception {
+        return ProfileWeight.computeProfileWeightingEquivalence(eqAlignments);
+    }
+
+    @Benchmark
+    public URIAlignment profileWeightSubsumption() throws Exception {
+        return ProfileWeightSubsumption.computeProfileWeightingSubsumption(subAlignments);
+    }
+
+    @Benchmark
+    public URIAlignment naiveDescendingExtraction() throws Exception {
+        return NaiveDescendingExtraction.extractOneToOneRelations(combinedEQ);
+    }
+
+    @Benchmark
+    public URIAlignment alignmentConflictResolution() throws Exception {
+        return AlignmentConflictResolution.resolveAlignmentConflict(combinedSUB);
+    }
+}
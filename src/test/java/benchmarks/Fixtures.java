@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import algorithms.wordembedding.EmbeddingStore;
+import services.EmbeddingService;
+import services.settings.AlgorithmSettings;
+import services.utils.OntologyContext;
+import services.utils.Unzipper;
+
+/* The inputs shared by the benchmarks, all from files/test. */
+final class Fixtures {
+    static final String sourceOntology = "files/test/301302-302.rdf";
+    static final String targetOntology = "files/test/301302-301.rdf";
+    static final String ixsi = "files/test/IXSI.xsd";
+    static final String netex = "files/test/NeTEx_publication.xsd";
+    static final String gbfs = "files/test/GBFS.zip";
+    static final String spreadsheet = "files/test/GTFS-Flex.xlsx";
+
+    private Fixtures() {
+    }
+
+    /* the two test ontologies, parsed as for a request */
+    static OntologyContext loadOntologies() throws Exception {
+        return OntologyContext.load(new File(sourceOntology), new File(targetOntology));
+    }
+
+    static EmbeddingStore loadEmbeddings() throws Exception {
+        return new EmbeddingService(AlgorithmSettings.VECTORFILE).getStore();
+    }
+
+    /* GBFS is parsed from the unzipped folder, as InputParser does */
+    static String unzipGBFS() throws Exception {
+        return Unzipper.unzip(gbfs, createTempDirectory("gbfs").getPath());
+    }
+
+    static File createTempDirectory(String prefix) throws Exception {
+        File directory = Files.createTempDirectory(prefix).toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import algorithms.utilities.ISub;
+
+/* Scores all pairs of class names of the 301/302 test ontologies with the original ISub
+ * (ISubReference), with ISub on strings and with ISub on prepared labels. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ISubBenchmark {
+    private List<String> sourceNames;
+    private List<String> targetNames;
+    private ISub.Label[] sourceLabels;
+    private ISub.Label[] targetLabels;
+
+    private ISub iSub = new ISub();
+    private ISubReference reference = new ISubReference();
+
+    @Setup
+    public void setup() throws Exception {
+        sourceNames = getNames("files/test/301302-301.rdf");
+        targetNames = getNames("files/test/301302-302.rdf");
+        sourceLabels = toLabels(sourceNames);
+        targetLabels = toLabels(targetNames);
+    }
+
+    @Benchmark
+    public void reference(Blackhole blackhole) {
+        for (String s1 : sourceNames) {
+            for (String s2 : targetNames) {
+                blackhole.consume(reference.score(s1, s2));
+            }
+        }
+    }
+
+    @Benchmark
+    public void strings(Blackhole blackhole) {
+        for (String s1 : sourceNames) {
+            for (String s2 : targetNames) {
+                blackhole.consume(iSub.score(s1, s2));
+            }
+        }
+    }
+
+    @Benchmark
+    public void labels(Blackhole blackhole) {
+        for (ISub.Label l1 : sourceLabels) {
+            for (ISub.Label l2 : targetLabels) {
+                blackhole.consume(iSub.score(l1, l2));
+            }
+        }
+    }
+
+    private static ISub.Label[] toLabels(List<String> names) {
+        ISub.Label[] labels = new ISub.Label[names.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = ISub.label(names.get(i));
+        }
+        return labels;
+    }
+
+    /* the local names of the classes and properties in an ontology file */
+    private static List<String> getNames(String file) throws Exception {
+        Set<String> names = new LinkedHashSet<String>();
+        String content = new String(Files.readAllBytes(new File(file).toPath()), StandardCharsets.UTF_8);
+        Matcher m = Pattern.compile("rdf:(?:about|ID)=\"[^\"]*#([^\"]+)\"").matcher(content);
+        while (m.find()) {
+            names.add(m.group(1));
+        }
+        return new ArrayList<String>(names);
+    }
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithms.equivalencematching.BasicEQMatcher;
+import algorithms.equivalencematching.DefinitionEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.GraphEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.LexicalEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.PropertyEquivalenceMatcherSigmoid;
+import algorithms.equivalencematching.WordEmbeddingMatcherSigmoid;
+import algorithms.ontologyprofiling.OntologyProfiler;
+import algorithms.subsumptionmatching.BasicSubsumptionMatcher;
+import algorithms.subsumptionmatching.CompoundMatcherSigmoid;
+import algorithms.subsumptionmatching.ContextSubsumptionMatcherSigmoid;
+import algorithms.subsumptionmatching.DefinitionSubsumptionMatcherSigmoid;
+import algorithms.subsumptionmatching.LexicalSubsumptionMatcherSigmoid;
+import algorithms.wordembedding.EmbeddingStore;
+import fr.inrialpes.exmo.align.impl.URIAlignment;
+import services.interfaces.Algorithm;
+import services.utils.OntologyContext;
+
+/* Runs each matcher on the 301/302 test ontologies, parsed once as for a request.
+ * The matchers get the profile scores the profiler computes for the two ontologies. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatcherBenchmark {
+    @Param({ "BasicEQMatcher", "WordEmbeddingMatcherSigmoid", "DefinitionEquivalenceMatcherSigmoid",
+      "PropertyEquivalenceMatcherSigmoid", "GraphEquivalenceMatcherSigmoid", "LexicalEquivalenceMatcherSigmoid",
+      "BasicSubsumptionMatcher", "CompoundMatcherSigmoid", "DefinitionSubsumptionMatcherSigmoid",
+      "ContextSubsumptionMatcherSigmoid", "LexicalSubsumptionMatcherSigmoid" })
+    public String matcher;
+
+    private OntologyContext context;
+    private Algorithm algorithm;
+
+    @Setup
+    public void setup() throws Exception {
+        context = Fixtures.loadOntologies();
+        EmbeddingStore embeddings = Fixtures.loadEmbeddings();
+        Map<String, Double> profiles = OntologyProfiler.computeOntologyProfileScores(context.getSourceOntology(),
+          context.getTargetOntology(), embeddings, true, true);
+        algorithm = createMatcher(matcher, profiles, embeddings);
+    }
+
+    @Benchmark
+    public URIAlignment run() throws Exception {
+        return algorithm.run(context);
+    }
+
+    private static Algorithm createMatcher(String name, Map<String, Double> profiles, EmbeddingStore embeddings) {
+        switch (name) {
+        case "BasicEQMatcher":
+            return new BasicEQMatcher();
+        case "WordEmbeddingMatcherSigmoid":
+            return new WordEmbeddingMatcherSigmoid(profiles.get("cc"), embeddings);
+        case "DefinitionEquivalenceMatcherSigmoid":
+            return new DefinitionEquivalenceMatcherSigmoid(profiles.get("dc"), embeddings);
+        case "PropertyEquivalenceMatcherSigmoid":
+            return new PropertyEquivalenceMatcherSigmoid(profiles.get("pf"));
+        case "GraphEquivalenceMatcherSigmoid":
+            return new GraphEquivalenceMatcherSigmoid(profiles.get("sp"));
+        case "LexicalEquivalenceMatcherSigmoid":
+            return new LexicalEquivalenceMatcherSigmoid(profiles.get("lc"));
+        case "BasicSubsumptionMatcher":
+            return new BasicSubsumptionMatcher();
+        case "CompoundMatcherSigmoid":
+            return new CompoundMatcherSigmoid(profiles.get("cf"));
+        case "DefinitionSubsumptionMatcherSigmoid":
+            return new DefinitionSubsumptionMatcherSigmoid(profiles.get("dc"));
+        case "ContextSubsumptionMatcherSigmoid":
+            return new ContextSubsumptionMatcherSigmoid(profiles.get("sp"));
+        case "LexicalSubsumptionMatcherSigmoid":
+            return new LexicalSubsumptionMatcherSigmoid(profiles.get("lc"));
+        default:
+            throw new IllegalArgumentException("Unknown matcher: " + name);
+        }
+    }
+}
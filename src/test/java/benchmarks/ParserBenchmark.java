@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import services.interfaces.SchemaParser;
+import services.parsers.schema.GBFSParser;
+import services.parsers.schema.IXSIParser;
+import services.parsers.schema.NeTExParser;
+import services.parsers.schema.SpreadsheetParser;
+import services.utils.OntologyConcept;
+
+/* Parses each schema test file and writes the parsed concepts as an OWL file. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+    @Param({ "IXSI", "NeTEx", "GBFS", "Spreadsheet" })
+    public String format;
+
+    private String filePath;
+    private List<OntologyConcept> concepts;
+    private String owlFilePath;
+
+    @Setup
+    public void setup() throws Exception {
+        switch (format) {
+        case "IXSI":
+            filePath = Fixtures.ixsi;
+            break;
+        case "NeTEx":
+            filePath = Fixtures.netex;
+            break;
+        case "GBFS":
+            filePath = Fixtures.unzipGBFS();
+            break;
+        default:
+            filePath = Fixtures.spreadsheet;
+        }
+        concepts = createParser().parse(filePath);
+        owlFilePath = new File(Fixtures.createTempDirectory("owl"), "ontology.owl").getPath();
+    }
+
+    @Benchmark
+    public List<OntologyConcept> parse() throws Exception {
+        return createParser().parse(filePath);
+    }
+
+    @Benchmark
+    public File toOWLFile() throws Exception {
+        return OntologyConcept.toOWLFile(concepts, owlFilePath);
+    }
+
+    /* a new parser per parse, as InputParser does */
+    private SchemaParser createParser() {
+        switch (format) {
+        case "IXSI":
+            return new IXSIParser();
+        case "NeTEx":
+            return new NeTExParser();
+        case "GBFS":
+            return new GBFSParser();
+        default:
+            return new SpreadsheetParser();
+        }
+    }
+}
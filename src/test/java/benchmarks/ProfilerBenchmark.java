@@ -0,0 +1,43 @@
+package benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import algorithms.ontologyprofiling.OntologyProfiler;
+import algorithms.wordembedding.EmbeddingStore;
+import services.utils.OntologyContext;
+
+/* Profiles the 301/302 test ontologies for both equivalence and subsumption. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProfilerBenchmark {
+    private OntologyContext context;
+    private EmbeddingStore embeddings;
+
+    @Setup
+    public void setup() throws Exception {
+        context = Fixtures.loadOntologies();
+        embeddings = Fixtures.loadEmbeddings();
+    }
+
+    @Benchmark
+    public Map<String, Double> computeOntologyProfileScores() throws Exception {
+        return OntologyProfiler.computeOntologyProfileScores(context.getSourceOntology(), context.getTargetOntology(),
+          embeddings, true, true);
+    }
+}